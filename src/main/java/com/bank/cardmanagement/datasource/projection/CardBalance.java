@@ -0,0 +1,60 @@
+package com.bank.cardmanagement.datasource.projection;
+
+import com.bank.cardmanagement.entity.CardStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Статус и баланс карты, заблокированной для изменения баланса.
+ */
+public class CardBalance {
+
+    /**
+     * Идентификатор карты.
+     */
+    private final Long id;
+
+    /**
+     * Статус карты.
+     */
+    private final CardStatus status;
+
+    /**
+     * Баланс карты.
+     */
+    private final BigDecimal balance;
+
+    /**
+     * Конструктор баланса карты.
+     *
+     * @param id      идентификатор карты
+     * @param status  статус карты
+     * @param balance баланс карты
+     */
+    public CardBalance(Long id, CardStatus status, BigDecimal balance) {
+        this.id = id;
+        this.status = status;
+        this.balance = balance;
+    }
+
+    /**
+     * @return идентификатор карты.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return статус карты.
+     */
+    public CardStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return баланс карты.
+     */
+    public BigDecimal getBalance() {
+        return balance;
+    }
+}
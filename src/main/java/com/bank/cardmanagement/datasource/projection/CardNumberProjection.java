@@ -0,0 +1,18 @@
+package com.bank.cardmanagement.datasource.projection;
+
+/**
+ * Проекция карты, содержащая только идентификатор и зашифрованный номер.
+ * Используется фоновыми задачами, которым не нужна полная сущность карты.
+ */
+public interface CardNumberProjection {
+
+    /**
+     * @return идентификатор карты.
+     */
+    Long getId();
+
+    /**
+     * @return зашифрованный номер карты.
+     */
+    String getEncryptedCardNumber();
+}
@@ -0,0 +1,42 @@
+package com.bank.cardmanagement.datasource.projection;
+
+/**
+ * Сохранённый результат запроса с ключом идемпотентности.
+ */
+public class IdempotencyRecord {
+
+    /**
+     * Хэш параметров запроса, для которого был использован ключ.
+     */
+    private final String requestHash;
+
+    /**
+     * Тело ответа.
+     */
+    private final String responseBody;
+
+    /**
+     * Конструктор записи.
+     *
+     * @param requestHash  хэш параметров запроса
+     * @param responseBody тело ответа
+     */
+    public IdempotencyRecord(String requestHash, String responseBody) {
+        this.requestHash = requestHash;
+        this.responseBody = responseBody;
+    }
+
+    /**
+     * @return хэш параметров запроса.
+     */
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    /**
+     * @return тело ответа.
+     */
+    public String getResponseBody() {
+        return responseBody;
+    }
+}
@@ -0,0 +1,104 @@
+package com.bank.cardmanagement.datasource.projection;
+
+import com.bank.cardmanagement.entity.TransactionType;
+
+import java.math.BigDecimal;
+
+/**
+ * Транзакция, ещё не перенесённая в журнал проводок.
+ * Перевод переносится по строке карты-отправителя, в которой указана карта-получатель;
+ * строка зачисления на карту-получателя проводок не создаёт.
+ */
+public class JournalTransaction {
+
+    /**
+     * Идентификатор транзакции.
+     */
+    private final long id;
+
+    /**
+     * Идентификатор транзакции БД, записавшей транзакцию.
+     */
+    private final long xid;
+
+    /**
+     * Тип транзакции.
+     */
+    private final TransactionType type;
+
+    /**
+     * Идентификатор карты транзакции.
+     */
+    private final Long cardId;
+
+    /**
+     * Идентификатор карты-получателя для строки списания перевода, иначе null.
+     */
+    private final Long counterpartyCardId;
+
+    /**
+     * Сумма транзакции.
+     */
+    private final BigDecimal amount;
+
+    /**
+     * Конструктор транзакции журнала.
+     *
+     * @param id                 идентификатор транзакции
+     * @param xid                идентификатор транзакции БД, записавшей транзакцию
+     * @param type               тип транзакции
+     * @param cardId             идентификатор карты транзакции
+     * @param counterpartyCardId идентификатор карты-получателя для строки списания перевода, иначе null
+     * @param amount             сумма транзакции
+     */
+    public JournalTransaction(long id, long xid, TransactionType type, Long cardId, Long counterpartyCardId, BigDecimal amount) {
+        this.id = id;
+        this.xid = xid;
+        this.type = type;
+        this.cardId = cardId;
+        this.counterpartyCardId = counterpartyCardId;
+        this.amount = amount;
+    }
+
+    /**
+     * @return идентификатор транзакции.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return идентификатор транзакции БД, записавшей транзакцию.
+     */
+    public long getXid() {
+        return xid;
+    }
+
+    /**
+     * @return тип транзакции.
+     */
+    public TransactionType getType() {
+        return type;
+    }
+
+    /**
+     * @return идентификатор карты транзакции.
+     */
+    public Long getCardId() {
+        return cardId;
+    }
+
+    /**
+     * @return идентификатор карты-получателя для строки списания перевода, иначе null.
+     */
+    public Long getCounterpartyCardId() {
+        return counterpartyCardId;
+    }
+
+    /**
+     * @return сумма транзакции.
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,76 @@
+package com.bank.cardmanagement.datasource.projection;
+
+import com.bank.cardmanagement.entity.LedgerAccount;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Проводка журнала: изменение одного счёта в рамках операции.
+ * Положительная сумма увеличивает счёт, отрицательная уменьшает.
+ */
+public class LedgerPosting {
+
+    /**
+     * Идентификатор операции, общий для всех её проводок.
+     */
+    private final UUID operationId;
+
+    /**
+     * Счёт проводки.
+     */
+    private final LedgerAccount account;
+
+    /**
+     * Идентификатор карты для счёта карты, иначе null.
+     */
+    private final Long cardId;
+
+    /**
+     * Сумма проводки со знаком.
+     */
+    private final BigDecimal amount;
+
+    /**
+     * Конструктор проводки.
+     *
+     * @param operationId идентификатор операции
+     * @param account     счёт проводки
+     * @param cardId      идентификатор карты для счёта карты, иначе null
+     * @param amount      сумма проводки со знаком
+     */
+    public LedgerPosting(UUID operationId, LedgerAccount account, Long cardId, BigDecimal amount) {
+        this.operationId = operationId;
+        this.account = account;
+        this.cardId = cardId;
+        this.amount = amount;
+    }
+
+    /**
+     * @return идентификатор операции.
+     */
+    public UUID getOperationId() {
+        return operationId;
+    }
+
+    /**
+     * @return счёт проводки.
+     */
+    public LedgerAccount getAccount() {
+        return account;
+    }
+
+    /**
+     * @return идентификатор карты для счёта карты, иначе null.
+     */
+    public Long getCardId() {
+        return cardId;
+    }
+
+    /**
+     * @return сумма проводки со знаком.
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
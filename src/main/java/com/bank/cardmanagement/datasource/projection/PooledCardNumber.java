@@ -0,0 +1,56 @@
+package com.bank.cardmanagement.datasource.projection;
+
+/**
+ * Заранее сгенерированный номер карты из пула: зашифрованный номер и производные от него данные.
+ */
+public class PooledCardNumber {
+
+    /**
+     * Зашифрованный номер карты.
+     */
+    private final String encryptedCardNumber;
+
+    /**
+     * Отпечаток номера карты.
+     */
+    private final String cardNumberFingerprint;
+
+    /**
+     * Замаскированный номер карты.
+     */
+    private final String maskedCardNumber;
+
+    /**
+     * Конструктор номера карты из пула.
+     *
+     * @param encryptedCardNumber   зашифрованный номер карты
+     * @param cardNumberFingerprint отпечаток номера карты
+     * @param maskedCardNumber      замаскированный номер карты
+     */
+    public PooledCardNumber(String encryptedCardNumber, String cardNumberFingerprint, String maskedCardNumber) {
+        this.encryptedCardNumber = encryptedCardNumber;
+        this.cardNumberFingerprint = cardNumberFingerprint;
+        this.maskedCardNumber = maskedCardNumber;
+    }
+
+    /**
+     * @return зашифрованный номер карты.
+     */
+    public String getEncryptedCardNumber() {
+        return encryptedCardNumber;
+    }
+
+    /**
+     * @return отпечаток номера карты.
+     */
+    public String getCardNumberFingerprint() {
+        return cardNumberFingerprint;
+    }
+
+    /**
+     * @return замаскированный номер карты.
+     */
+    public String getMaskedCardNumber() {
+        return maskedCardNumber;
+    }
+}
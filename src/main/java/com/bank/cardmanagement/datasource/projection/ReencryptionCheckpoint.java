@@ -0,0 +1,42 @@
+package com.bank.cardmanagement.datasource.projection;
+
+/**
+ * Сохранённый прогресс перешифрования таблицы: версия целевого ключа и последний обработанный идентификатор.
+ */
+public class ReencryptionCheckpoint {
+
+    /**
+     * Версия ключа, на который перешифровывается таблица.
+     */
+    private final int keyVersion;
+
+    /**
+     * Идентификатор последней обработанной строки.
+     */
+    private final long lastId;
+
+    /**
+     * Конструктор контрольной точки.
+     *
+     * @param keyVersion версия ключа, на который перешифровывается таблица
+     * @param lastId     идентификатор последней обработанной строки
+     */
+    public ReencryptionCheckpoint(int keyVersion, long lastId) {
+        this.keyVersion = keyVersion;
+        this.lastId = lastId;
+    }
+
+    /**
+     * @return версия ключа, на который перешифровывается таблица.
+     */
+    public int getKeyVersion() {
+        return keyVersion;
+    }
+
+    /**
+     * @return идентификатор последней обработанной строки.
+     */
+    public long getLastId() {
+        return lastId;
+    }
+}
@@ -0,0 +1,58 @@
+package com.bank.cardmanagement.datasource.projection;
+
+import java.time.Instant;
+
+/**
+ * Запись списка отозванных токенов: идентификатор токена или сессии и момент, после которого запись не нужна.
+ */
+public class RevokedToken {
+
+    /**
+     * Идентификатор отозванного токена (jti) или сессии (sid).
+     */
+    private final String tokenId;
+
+    /**
+     * Момент, после которого все токены с этим идентификатором истекли сами.
+     */
+    private final Instant expiresAt;
+
+    /**
+     * Момент отзыва по часам БД.
+     */
+    private final Instant createdAt;
+
+    /**
+     * Конструктор записи.
+     *
+     * @param tokenId   идентификатор отозванного токена или сессии
+     * @param expiresAt момент, после которого все токены с этим идентификатором истекли сами
+     * @param createdAt момент отзыва по часам БД
+     */
+    public RevokedToken(String tokenId, Instant expiresAt, Instant createdAt) {
+        this.tokenId = tokenId;
+        this.expiresAt = expiresAt;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * @return идентификатор отозванного токена или сессии.
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    /**
+     * @return момент, после которого все токены с этим идентификатором истекли сами.
+     */
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * @return момент отзыва по часам БД.
+     */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
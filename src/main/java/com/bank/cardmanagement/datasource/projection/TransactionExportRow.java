@@ -0,0 +1,102 @@
+package com.bank.cardmanagement.datasource.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Строка выгрузки транзакций, прочитанная из курсора БД.
+ */
+public class TransactionExportRow {
+
+    /**
+     * Идентификатор транзакции.
+     */
+    private final long id;
+
+    /**
+     * Тип транзакции.
+     */
+    private final String type;
+
+    /**
+     * Сумма транзакции.
+     */
+    private final BigDecimal amount;
+
+    /**
+     * Описание транзакции.
+     */
+    private final String description;
+
+    /**
+     * Время транзакции.
+     */
+    private final LocalDateTime timestamp;
+
+    /**
+     * Идентификатор карты.
+     */
+    private final long cardId;
+
+    /**
+     * Конструктор строки выгрузки.
+     *
+     * @param id          идентификатор транзакции
+     * @param type        тип транзакции
+     * @param amount      сумма транзакции
+     * @param description описание транзакции
+     * @param timestamp   время транзакции
+     * @param cardId      идентификатор карты
+     */
+    public TransactionExportRow(long id, String type, BigDecimal amount, String description, LocalDateTime timestamp,
+                                long cardId) {
+        this.id = id;
+        this.type = type;
+        this.amount = amount;
+        this.description = description;
+        this.timestamp = timestamp;
+        this.cardId = cardId;
+    }
+
+    /**
+     * @return идентификатор транзакции.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return тип транзакции.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return сумма транзакции.
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return описание транзакции.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return время транзакции.
+     */
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return идентификатор карты.
+     */
+    public long getCardId() {
+        return cardId;
+    }
+}
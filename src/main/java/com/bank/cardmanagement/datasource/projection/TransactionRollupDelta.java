@@ -0,0 +1,99 @@
+package com.bank.cardmanagement.datasource.projection;
+
+import com.bank.cardmanagement.entity.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Приращение дневной сводки транзакций карты по одному типу.
+ */
+public class TransactionRollupDelta {
+
+    /**
+     * Идентификатор карты.
+     */
+    private final Long cardId;
+
+    /**
+     * День транзакций.
+     */
+    private final LocalDate day;
+
+    /**
+     * Тип транзакций.
+     */
+    private final TransactionType type;
+
+    /**
+     * Количество транзакций.
+     */
+    private final long count;
+
+    /**
+     * Сумма транзакций.
+     */
+    private final BigDecimal amount;
+
+    /**
+     * Конструктор приращения сводки.
+     *
+     * @param cardId идентификатор карты
+     * @param day    день транзакций
+     * @param type   тип транзакций
+     * @param count  количество транзакций
+     * @param amount сумма транзакций
+     */
+    public TransactionRollupDelta(Long cardId, LocalDate day, TransactionType type, long count, BigDecimal amount) {
+        this.cardId = cardId;
+        this.day = day;
+        this.type = type;
+        this.count = count;
+        this.amount = amount;
+    }
+
+    /**
+     * Складывает приращение с другим приращением той же карты, дня и типа.
+     *
+     * @param other другое приращение
+     * @return суммарное приращение
+     */
+    public TransactionRollupDelta plus(TransactionRollupDelta other) {
+        return new TransactionRollupDelta(cardId, day, type, count + other.count, amount.add(other.amount));
+    }
+
+    /**
+     * @return идентификатор карты.
+     */
+    public Long getCardId() {
+        return cardId;
+    }
+
+    /**
+     * @return день транзакций.
+     */
+    public LocalDate getDay() {
+        return day;
+    }
+
+    /**
+     * @return тип транзакций.
+     */
+    public TransactionType getType() {
+        return type;
+    }
+
+    /**
+     * @return количество транзакций.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return сумма транзакций.
+     */
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,124 @@
+package com.bank.cardmanagement.datasource.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Счётчики снятых наличных по карте за день и за месяц вместе с лимитами карты.
+ * Счётчик относится к периоду, указанному рядом с ним; если период прошёл или с карты ещё не снимали наличные,
+ * снятая сумма считается нулевой.
+ */
+public class WithdrawalCounter {
+
+    /**
+     * День, к которому относится дневная сумма.
+     */
+    private final LocalDate day;
+
+    /**
+     * Сумма, снятая за день.
+     */
+    private final BigDecimal dailySum;
+
+    /**
+     * Первый день месяца, к которому относится месячная сумма.
+     */
+    private final LocalDate month;
+
+    /**
+     * Сумма, снятая за месяц.
+     */
+    private final BigDecimal monthlySum;
+
+    /**
+     * Дневной лимит карты.
+     */
+    private final BigDecimal dailyLimit;
+
+    /**
+     * Месячный лимит карты.
+     */
+    private final BigDecimal monthlyLimit;
+
+    /**
+     * Конструктор счётчиков.
+     *
+     * @param day          день, к которому относится дневная сумма, или null
+     * @param dailySum     сумма, снятая за день, или null
+     * @param month        первый день месяца, к которому относится месячная сумма, или null
+     * @param monthlySum   сумма, снятая за месяц, или null
+     * @param dailyLimit   дневной лимит карты
+     * @param monthlyLimit месячный лимит карты
+     */
+    public WithdrawalCounter(LocalDate day, BigDecimal dailySum, LocalDate month, BigDecimal monthlySum,
+                             BigDecimal dailyLimit, BigDecimal monthlyLimit) {
+        this.day = day;
+        this.dailySum = dailySum;
+        this.month = month;
+        this.monthlySum = monthlySum;
+        this.dailyLimit = dailyLimit;
+        this.monthlyLimit = monthlyLimit;
+    }
+
+    /**
+     * Возвращает сумму, снятую за указанный день.
+     *
+     * @param today текущий день
+     * @return сумма за день или ноль, если счётчик относится к прошедшему дню
+     */
+    public BigDecimal dailySumOn(LocalDate today) {
+        return today.equals(day) && dailySum != null ? dailySum : BigDecimal.ZERO;
+    }
+
+    /**
+     * Возвращает сумму, снятую за месяц указанного дня.
+     *
+     * @param today текущий день
+     * @return сумма за месяц или ноль, если счётчик относится к прошедшему месяцу
+     */
+    public BigDecimal monthlySumOn(LocalDate today) {
+        return today.withDayOfMonth(1).equals(month) && monthlySum != null ? monthlySum : BigDecimal.ZERO;
+    }
+
+    /**
+     * @return день, к которому относится дневная сумма.
+     */
+    public LocalDate getDay() {
+        return day;
+    }
+
+    /**
+     * @return сумма, снятая за день.
+     */
+    public BigDecimal getDailySum() {
+        return dailySum;
+    }
+
+    /**
+     * @return первый день месяца, к которому относится месячная сумма.
+     */
+    public LocalDate getMonth() {
+        return month;
+    }
+
+    /**
+     * @return сумма, снятая за месяц.
+     */
+    public BigDecimal getMonthlySum() {
+        return monthlySum;
+    }
+
+    /**
+     * @return дневной лимит карты.
+     */
+    public BigDecimal getDailyLimit() {
+        return dailyLimit;
+    }
+
+    /**
+     * @return месячный лимит карты.
+     */
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+}
@@ -0,0 +1,128 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.CardBalance;
+import com.bank.cardmanagement.entity.Card;
+import com.bank.cardmanagement.entity.CardStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Репозиторий для пакетных операций над таблицей карт через JDBC.
+ * Обновляет только нужные столбцы, не затрагивая баланс и другие изменяемые поля карты.
+ */
+@Repository
+public class CardBatchRepository {
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public CardBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Пакетно сохраняет отпечатки и замаскированные номера карт.
+     * Уже заполненные значения не перезаписываются.
+     *
+     * @param fingerprints  отпечатки номеров по идентификаторам карт
+     * @param maskedNumbers замаскированные номера по идентификаторам карт
+     */
+    public void updateDerivedNumbers(Map<Long, String> fingerprints, Map<Long, String> maskedNumbers) {
+        List<Object[]> args = new ArrayList<>(fingerprints.size());
+        fingerprints.forEach((id, fingerprint) -> args.add(new Object[]{fingerprint, maskedNumbers.get(id), id}));
+        jdbcTemplate.batchUpdate(
+                "UPDATE cards SET card_number_fingerprint = COALESCE(card_number_fingerprint, ?), " +
+                        "masked_card_number = COALESCE(masked_card_number, ?) WHERE id = ?",
+                args);
+    }
+
+    /**
+     * Резервирует идентификаторы для новых карт одним запросом к последовательности таблицы карт.
+     *
+     * @param count количество идентификаторов
+     * @return зарезервированные идентификаторы
+     */
+    public List<Long> nextIds(int count) {
+        return jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence('cards', 'id')) FROM generate_series(1, ?)",
+                Long.class, count);
+    }
+
+    /**
+     * Пакетно вставляет новые карты с заранее зарезервированными идентификаторами.
+     *
+     * @param cards     карты для вставки
+     * @param batchSize количество строк в одном пакете
+     */
+    public void insertCards(List<Card> cards, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO cards (id, encrypted_card_number, card_number_fingerprint, masked_card_number, user_id, " +
+                        "expiration_date, status, balance, daily_limit, monthly_limit) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                cards, batchSize, (ps, card) -> {
+                    ps.setLong(1, card.getId());
+                    ps.setString(2, card.getEncryptedCardNumber());
+                    ps.setString(3, card.getCardNumberFingerprint());
+                    ps.setString(4, card.getMaskedCardNumber());
+                    ps.setLong(5, card.getUser().getId());
+                    ps.setDate(6, Date.valueOf(card.getExpirationDate()));
+                    ps.setString(7, card.getStatus().name());
+                    ps.setBigDecimal(8, card.getBalance());
+                    ps.setBigDecimal(9, card.getDailyLimit());
+                    ps.setBigDecimal(10, card.getMonthlyLimit());
+                });
+    }
+
+    /**
+     * Читает статус и баланс карт пользователя одним запросом и блокирует их строки до конца транзакции.
+     * Строки блокируются в порядке возрастания ID, поэтому пакеты и одиночные переводы, затрагивающие
+     * одни и те же карты, не могут взаимно заблокироваться. Чужие и несуществующие карты не возвращаются.
+     *
+     * @param userId  идентификатор владельца карт
+     * @param cardIds идентификаторы карт
+     * @return заблокированные карты пользователя в порядке возрастания ID
+     */
+    public List<CardBalance> lockBalances(Long userId, Collection<Long> cardIds) {
+        List<Object> args = new ArrayList<>(cardIds.size() + 1);
+        args.add(userId);
+        args.addAll(cardIds);
+        return jdbcTemplate.query(
+                "SELECT id, status, balance FROM cards WHERE user_id = ? AND id IN (" +
+                        String.join(", ", Collections.nCopies(cardIds.size(), "?")) + ") ORDER BY id FOR UPDATE",
+                (rs, rowNum) -> new CardBalance(
+                        rs.getLong("id"),
+                        CardStatus.valueOf(rs.getString("status")),
+                        rs.getBigDecimal("balance")),
+                args.toArray());
+    }
+
+    /**
+     * Пакетно записывает новые балансы карт и увеличивает их версию.
+     * Должен вызываться в транзакции, заблокировавшей карты через {@link #lockBalances(Long, Collection)}.
+     *
+     * @param balances  новые балансы по идентификаторам карт
+     * @param batchSize количество строк в одном пакете
+     */
+    public void updateBalances(Map<Long, BigDecimal> balances, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE cards SET balance = ?, version = version + 1 WHERE id = ?",
+                balances.entrySet(), batchSize, (ps, entry) -> {
+                    ps.setBigDecimal(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                });
+    }
+}
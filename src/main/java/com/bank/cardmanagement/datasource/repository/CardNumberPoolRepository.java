@@ -0,0 +1,147 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.PooledCardNumber;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Репозиторий пула заранее сгенерированных номеров карт.
+ * Выдача номера выполняется одним запросом с {@code FOR UPDATE SKIP LOCKED},
+ * поэтому параллельные выпуски карт не ждут друг друга и не получают один и тот же номер.
+ */
+@Repository
+public class CardNumberPoolRepository {
+
+    /**
+     * Преобразование строки результата в номер карты из пула.
+     */
+    private static final RowMapper<PooledCardNumber> ROW_MAPPER = (rs, rowNum) -> new PooledCardNumber(
+            rs.getString("encrypted_card_number"),
+            rs.getString("card_number_fingerprint"),
+            rs.getString("masked_card_number"));
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public CardNumberPoolRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Забирает из пула следующий свободный номер карты, удаляя его из таблицы.
+     * Строки, заблокированные другими транзакциями, пропускаются.
+     * Если транзакция выпуска карты откатится, номер вернётся в пул.
+     *
+     * @return номер карты или пустой Optional, если пул пуст
+     */
+    public Optional<PooledCardNumber> claim() {
+        List<PooledCardNumber> claimed = jdbcTemplate.query(
+                "DELETE FROM card_number_pool WHERE id = (" +
+                        "SELECT id FROM card_number_pool ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING encrypted_card_number, card_number_fingerprint, masked_card_number",
+                ROW_MAPPER);
+        return claimed.stream().findFirst();
+    }
+
+    /**
+     * Забирает из пула несколько свободных номеров карт одним запросом.
+     * Если свободных номеров меньше, чем запрошено, возвращаются все доступные.
+     *
+     * @param limit максимальное количество номеров
+     * @return номера карт
+     */
+    public List<PooledCardNumber> claimAll(int limit) {
+        return jdbcTemplate.query(
+                "DELETE FROM card_number_pool WHERE id IN (" +
+                        "SELECT id FROM card_number_pool ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING encrypted_card_number, card_number_fingerprint, masked_card_number",
+                ROW_MAPPER, limit);
+    }
+
+    /**
+     * Пакетно добавляет номера в пул.
+     * Номера, отпечаток которых уже есть в пуле или среди выпущенных карт, пропускаются.
+     *
+     * @param numbers номера карт для добавления
+     * @return количество добавленных номеров
+     */
+    public int insertAll(List<PooledCardNumber> numbers) {
+        int[][] results = jdbcTemplate.batchUpdate(
+                "INSERT INTO card_number_pool (encrypted_card_number, card_number_fingerprint, masked_card_number) " +
+                        "SELECT ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM cards WHERE card_number_fingerprint = ?) " +
+                        "ON CONFLICT (card_number_fingerprint) DO NOTHING",
+                numbers, numbers.size(), (ps, number) -> {
+                    ps.setString(1, number.getEncryptedCardNumber());
+                    ps.setString(2, number.getCardNumberFingerprint());
+                    ps.setString(3, number.getMaskedCardNumber());
+                    ps.setString(4, number.getCardNumberFingerprint());
+                });
+        int inserted = 0;
+        for (int[] batch : results) {
+            for (int count : batch) {
+                inserted += Math.max(count, 0);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Проверяет, зарезервирован ли номер с указанным отпечатком в пуле.
+     *
+     * @param fingerprint отпечаток номера карты
+     * @return true, если номер есть в пуле
+     */
+    public boolean existsByFingerprint(String fingerprint) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM card_number_pool WHERE card_number_fingerprint = ?)",
+                Boolean.class, fingerprint);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /**
+     * Возвращает отпечатки из переданного набора, которые уже заняты выпущенными картами или пулом.
+     *
+     * @param fingerprints отпечатки номеров карт
+     * @return занятые отпечатки
+     */
+    public Set<String> findTakenFingerprints(List<String> fingerprints) {
+        Set<String> taken = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT card_number_fingerprint FROM cards WHERE card_number_fingerprint = ANY (?) " +
+                            "UNION SELECT card_number_fingerprint FROM card_number_pool WHERE card_number_fingerprint = ANY (?)");
+            Array array = con.createArrayOf("varchar", fingerprints.toArray());
+            ps.setArray(1, array);
+            ps.setArray(2, array);
+            return ps;
+        }, rs -> {
+            taken.add(rs.getString(1));
+        });
+        return taken;
+    }
+
+    /**
+     * Возвращает количество свободных номеров в пуле.
+     *
+     * @return количество номеров
+     */
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM card_number_pool", Long.class);
+        return count == null ? 0 : count;
+    }
+}
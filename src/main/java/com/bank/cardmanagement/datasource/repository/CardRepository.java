@@ -1,10 +1,19 @@
 package com.bank.cardmanagement.datasource.repository;
 
+import com.bank.cardmanagement.datasource.projection.CardNumberProjection;
 import com.bank.cardmanagement.entity.Card;
 import com.bank.cardmanagement.entity.CardStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Репозиторий для работы с сущностью {@link Card}.
@@ -13,12 +22,31 @@ import org.springframework.data.jpa.repository.JpaRepository;
 public interface CardRepository extends JpaRepository<Card, Long> {
 
     /**
-     * Проверяет, существует ли карта с указанным зашифрованным номером.
+     * Проверяет, существует ли карта с указанным отпечатком номера.
      *
-     * @param encryptedCardNumber зашифрованный номер карты.
+     * @param cardNumberFingerprint отпечаток номера карты.
      * @return {@code true}, если карта с таким номером существует, {@code false} в противном случае.
      */
-    boolean existsByEncryptedCardNumber(String encryptedCardNumber);
+    boolean existsByCardNumberFingerprint(String cardNumberFingerprint);
+
+    /**
+     * Находит карту по отпечатку номера с помощью уникального индекса.
+     *
+     * @param cardNumberFingerprint отпечаток номера карты.
+     * @return {@link Optional} с найденной картой, если таковая существует, иначе {@link Optional#empty()}.
+     */
+    Optional<Card> findByCardNumberFingerprint(String cardNumberFingerprint);
+
+    /**
+     * Находит карты без отпечатка или замаскированного номера в порядке возрастания ID.
+     * Используется для пакетного заполнения производных от номера данных у существующих карт.
+     *
+     * @param limit максимальное количество карт в пакете.
+     * @return список идентификаторов и зашифрованных номеров карт.
+     */
+    @Query("SELECT c.id AS id, c.encryptedCardNumber AS encryptedCardNumber FROM Card c " +
+            "WHERE c.cardNumberFingerprint IS NULL OR c.maskedCardNumber IS NULL ORDER BY c.id")
+    List<CardNumberProjection> findWithoutDerivedNumbers(Limit limit);
 
     /**
      * Находит карты по идентификатору пользователя с пагинацией.
@@ -48,6 +76,47 @@ public interface CardRepository extends JpaRepository<Card, Long> {
      */
     Page<Card> findByStatusAndUserId(CardStatus status, Long userId, Pageable pageable);
 
+    /**
+     * Находит карты, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param afterId ID последней карты предыдущей страницы.
+     * @param limit   максимальное количество карт.
+     * @return список карт.
+     */
+    List<Card> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Находит карты пользователя, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param userId  идентификатор пользователя.
+     * @param afterId ID последней карты предыдущей страницы.
+     * @param limit   максимальное количество карт.
+     * @return список карт, принадлежащих указанному пользователю.
+     */
+    List<Card> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long afterId, Limit limit);
+
+    /**
+     * Находит карты по статусу, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param status  статус карт.
+     * @param afterId ID последней карты предыдущей страницы.
+     * @param limit   максимальное количество карт.
+     * @return список карт, имеющих указанный статус.
+     */
+    List<Card> findByStatusAndIdGreaterThanOrderByIdAsc(CardStatus status, Long afterId, Limit limit);
+
+    /**
+     * Находит карты по статусу и идентификатору пользователя, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param status  статус карт.
+     * @param userId  идентификатор пользователя.
+     * @param afterId ID последней карты предыдущей страницы.
+     * @param limit   максимальное количество карт.
+     * @return список карт, удовлетворяющих условиям поиска.
+     */
+    List<Card> findByStatusAndUserIdAndIdGreaterThanOrderByIdAsc(CardStatus status, Long userId, Long afterId,
+                                                                 Limit limit);
+
     /**
      * Проверяет, существует ли карта с указанным идентификатором и привязанным пользователем.
      *
@@ -56,4 +125,32 @@ public interface CardRepository extends JpaRepository<Card, Long> {
      * @return {@code true}, если карта с таким ID принадлежит пользователю, {@code false} в противном случае.
      */
     boolean existsByIdAndUserId(Long id, Long userId);
+
+    /**
+     * Списывает сумму с активной карты пользователя, если на ней достаточно средств.
+     * Проверка и изменение выполняются одним запросом под блокировкой строки, без предварительного чтения карты.
+     * Версия карты увеличивается, чтобы загруженные ранее копии карты не перезаписали новый баланс.
+     *
+     * @param id     идентификатор карты
+     * @param userId идентификатор владельца карты
+     * @param amount сумма списания
+     * @return 1, если сумма списана; 0, если карта не найдена, чужая, не активна или средств недостаточно
+     */
+    @Modifying
+    @Query(value = "UPDATE cards SET balance = balance - :amount, version = version + 1 " +
+            "WHERE id = :id AND user_id = :userId AND status = 'ACTIVE' AND balance >= :amount", nativeQuery = true)
+    int debit(@Param("id") Long id, @Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Зачисляет сумму на активную карту пользователя одним запросом.
+     *
+     * @param id     идентификатор карты
+     * @param userId идентификатор владельца карты
+     * @param amount сумма зачисления
+     * @return 1, если сумма зачислена; 0, если карта не найдена, чужая или не активна
+     */
+    @Modifying
+    @Query(value = "UPDATE cards SET balance = balance + :amount, version = version + 1 " +
+            "WHERE id = :id AND user_id = :userId AND status = 'ACTIVE'", nativeQuery = true)
+    int credit(@Param("id") Long id, @Param("userId") Long userId, @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,75 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.IdempotencyRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Репозиторий ключей идемпотентности через JDBC.
+ * Строка ключа создаётся вместе с телом ответа в транзакции самой операции, поэтому она появляется
+ * только при фиксации операции и исчезает при её откате.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Занимает ключ и сохраняет тело ответа, если ключ ещё не использован.
+     * Вызывается в транзакции операции. Если тот же ключ занят ещё не завершённой транзакцией,
+     * вставка дожидается её завершения: после фиксации ключ считается занятым, после отката занимается этим вызовом.
+     *
+     * @param userId       идентификатор пользователя
+     * @param key          ключ идемпотентности
+     * @param requestHash  хэш параметров запроса
+     * @param responseBody тело ответа операции
+     * @param createdAt    время создания
+     * @return true, если ключ занят этим вызовом
+     */
+    public boolean tryAcquire(long userId, String key, String requestHash, String responseBody, LocalDateTime createdAt) {
+        return jdbcTemplate.update(
+                "INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, response_body, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (user_id, idempotency_key) DO NOTHING",
+                userId, key, requestHash, responseBody, Timestamp.valueOf(createdAt)) > 0;
+    }
+
+    /**
+     * Находит запись ключа.
+     *
+     * @param userId идентификатор пользователя
+     * @param key    ключ идемпотентности
+     * @return запись ключа или пустой результат, если ключ не использовался
+     */
+    public Optional<IdempotencyRecord> find(long userId, String key) {
+        return jdbcTemplate.query(
+                "SELECT request_hash, response_body FROM idempotency_keys WHERE user_id = ? AND idempotency_key = ?",
+                (rs, rowNum) -> new IdempotencyRecord(rs.getString("request_hash"), rs.getString("response_body")),
+                userId, key).stream().findFirst();
+    }
+
+    /**
+     * Удаляет ключи, созданные раньше указанного момента.
+     *
+     * @param threshold момент, раньше которого ключи удаляются
+     * @return количество удалённых ключей
+     */
+    public int deleteOlderThan(LocalDateTime threshold) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", Timestamp.valueOf(threshold));
+    }
+}
@@ -0,0 +1,184 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.JournalTransaction;
+import com.bank.cardmanagement.datasource.projection.LedgerPosting;
+import com.bank.cardmanagement.entity.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий журнала проводок и снимков балансов карт через JDBC.
+ * Журнал заполняется фоновым переносом транзакций: контрольная точка хранит последнюю перенесённую транзакцию
+ * в порядке идентификаторов записавших их транзакций БД.
+ * Проводки только добавляются и хранят идентификатор записавшей их транзакции БД. Снимок карты включает все проводки
+ * транзакций с идентификатором меньше границы снимка, а баланс карты равен сумме снимка и остальных её проводок.
+ * Снимки периодически сдвигаются вперёд, чтобы число суммируемых проводок оставалось небольшим.
+ */
+@Repository
+public class LedgerRepository {
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public LedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Пакетно добавляет проводки.
+     *
+     * @param postings  проводки
+     * @param createdAt время записи
+     * @param batchSize количество строк в одном пакете
+     */
+    public void insertPostings(List<LedgerPosting> postings, LocalDateTime createdAt, int batchSize) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO ledger_postings (operation_id, account, card_id, amount, created_at) VALUES (?, ?, ?, ?, ?)",
+                postings, batchSize, (ps, posting) -> {
+                    ps.setObject(1, posting.getOperationId());
+                    ps.setString(2, posting.getAccount().name());
+                    ps.setObject(3, posting.getCardId());
+                    ps.setBigDecimal(4, posting.getAmount());
+                    ps.setTimestamp(5, timestamp);
+                });
+    }
+
+    /**
+     * Блокирует контрольную точку журнала и читает следующий пакет ещё не перенесённых транзакций.
+     * Транзакции упорядочены по идентификатору записавшей их транзакции БД и по своему ID; берутся только транзакции,
+     * записанные до границы завершённых транзакций БД, поэтому среди уже прочитанных позже не появится новых.
+     * Должен вызываться в транзакции, которая затем записывает проводки и сдвигает контрольную точку.
+     *
+     * @param watermark граница завершённых транзакций БД
+     * @param limit     максимальный размер пакета
+     * @return транзакции пакета в порядке переноса
+     */
+    public List<JournalTransaction> lockUnjournaled(long watermark, int limit) {
+        return jdbcTemplate.query(
+                "WITH cp AS (SELECT last_xid, last_id FROM ledger_journal_checkpoint WHERE id = 1 FOR UPDATE) " +
+                        "SELECT t.id, CAST(CAST(t.xid AS TEXT) AS BIGINT) AS xid, t.type, t.card_id, " +
+                        "t.counterparty_card_id, t.amount " +
+                        "FROM transactions t CROSS JOIN cp " +
+                        "WHERE (t.xid, t.id) > (cp.last_xid, cp.last_id) AND t.xid < CAST(CAST(? AS TEXT) AS XID8) " +
+                        "ORDER BY t.xid, t.id LIMIT ?",
+                (rs, rowNum) -> new JournalTransaction(
+                        rs.getLong("id"),
+                        rs.getLong("xid"),
+                        TransactionType.valueOf(rs.getString("type")),
+                        rs.getLong("card_id"),
+                        rs.getObject("counterparty_card_id", Long.class),
+                        rs.getBigDecimal("amount")),
+                watermark, limit);
+    }
+
+    /**
+     * Сдвигает контрольную точку журнала на последнюю перенесённую транзакцию.
+     *
+     * @param xid       идентификатор транзакции БД, записавшей последнюю перенесённую транзакцию
+     * @param id        ID последней перенесённой транзакции
+     * @param updatedAt время сдвига
+     */
+    public void advanceJournal(long xid, long id, LocalDateTime updatedAt) {
+        jdbcTemplate.update(
+                "UPDATE ledger_journal_checkpoint SET last_xid = CAST(CAST(? AS TEXT) AS XID8), last_id = ?, updated_at = ? " +
+                        "WHERE id = 1",
+                xid, id, Timestamp.valueOf(updatedAt));
+    }
+
+    /**
+     * Вычисляет баланс карты по последнему снимку и проводкам после него.
+     *
+     * @param cardId идентификатор карты
+     * @return баланс или пустой результат, если карта не найдена
+     */
+    public Optional<BigDecimal> balanceOf(long cardId) {
+        return jdbcTemplate.query(
+                "SELECT COALESCE(s.balance, 0) + COALESCE((SELECT SUM(p.amount) FROM ledger_postings p " +
+                        "WHERE p.card_id = c.id AND (s.posting_xid IS NULL OR p.xid >= s.posting_xid)), 0) AS balance " +
+                        "FROM cards c LEFT JOIN card_balance_snapshots s ON s.card_id = c.id WHERE c.id = ?",
+                (rs, rowNum) -> rs.getBigDecimal("balance"),
+                cardId).stream().findFirst();
+    }
+
+    /**
+     * Возвращает границу завершённых транзакций БД: все транзакции с меньшим идентификатором уже зафиксированы
+     * или отменены, поэтому их проводки видны любому последующему запросу и новых среди них не появится.
+     * Граница берётся из текущего снимка БД без блокировок и ожидания пишущих транзакций.
+     *
+     * @return идентификатор самой старой ещё выполняющейся транзакции
+     */
+    public long committedWatermark() {
+        return jdbcTemplate.queryForObject(
+                "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS TEXT) AS BIGINT)", Long.class);
+    }
+
+    /**
+     * Сдвигает снимки балансов до указанной границы транзакций для карт, у которых до неё есть проводки вне снимка.
+     * Снимок изменяется только вперёд, поэтому одновременное сжатие на нескольких экземплярах безопасно.
+     * Проводки удалённых карт в снимки не попадают.
+     *
+     * @param watermark граница завершённых транзакций, проводки которых включаются в снимок
+     * @param createdAt время снимка
+     * @param limit     максимальное количество карт за один вызов
+     * @return количество обновлённых снимков
+     */
+    public int compactSnapshots(long watermark, LocalDateTime createdAt, int limit) {
+        return jdbcTemplate.update(
+                "WITH w AS (SELECT CAST(CAST(? AS TEXT) AS XID8) AS xid) " +
+                        "INSERT INTO card_balance_snapshots AS s (card_id, posting_xid, balance, created_at) " +
+                        "SELECT p.card_id, w.xid, COALESCE(MAX(o.balance), 0) + SUM(p.amount), ? " +
+                        "FROM ledger_postings p CROSS JOIN w " +
+                        "LEFT JOIN card_balance_snapshots o ON o.card_id = p.card_id " +
+                        "WHERE (o.posting_xid IS NULL OR p.xid >= o.posting_xid) AND p.xid < w.xid " +
+                        "AND p.card_id IN (SELECT DISTINCT q.card_id FROM ledger_postings q CROSS JOIN w " +
+                        "JOIN cards c ON c.id = q.card_id " +
+                        "LEFT JOIN card_balance_snapshots r ON r.card_id = q.card_id " +
+                        "WHERE (r.posting_xid IS NULL OR q.xid >= r.posting_xid) AND q.xid < w.xid LIMIT ?) " +
+                        "GROUP BY p.card_id, w.xid " +
+                        "ON CONFLICT (card_id) DO UPDATE SET posting_xid = EXCLUDED.posting_xid, " +
+                        "balance = EXCLUDED.balance, created_at = EXCLUDED.created_at " +
+                        "WHERE s.posting_xid < EXCLUDED.posting_xid",
+                watermark, Timestamp.valueOf(createdAt), limit);
+    }
+
+    /**
+     * Находит карты, баланс которых расходится с журналом проводок.
+     * Транзакции, ещё не перенесённые в журнал, учитываются по самой таблице транзакций, поэтому отставание
+     * фонового переноса не даёт ложных расхождений: все данные читаются из одного снимка БД.
+     *
+     * @param limit максимальное количество карт
+     * @return ID карт с расхождением в порядке возрастания
+     */
+    public List<Long> findMismatchedCardIds(int limit) {
+        return jdbcTemplate.queryForList(
+                "WITH pending AS (SELECT t.type, t.card_id, t.counterparty_card_id, t.amount " +
+                        "FROM transactions t CROSS JOIN ledger_journal_checkpoint cp " +
+                        "WHERE cp.id = 1 AND (t.xid, t.id) > (cp.last_xid, cp.last_id)), " +
+                        "pending_by_card AS (SELECT card_id, SUM(amount) AS amount FROM (" +
+                        "SELECT card_id, -amount AS amount FROM pending " +
+                        "WHERE type = 'WITHDRAWAL' OR counterparty_card_id IS NOT NULL " +
+                        "UNION ALL SELECT counterparty_card_id, amount FROM pending WHERE counterparty_card_id IS NOT NULL" +
+                        ") d GROUP BY card_id) " +
+                        "SELECT c.id FROM cards c LEFT JOIN card_balance_snapshots s ON s.card_id = c.id " +
+                        "LEFT JOIN pending_by_card d ON d.card_id = c.id " +
+                        "WHERE c.balance <> COALESCE(s.balance, 0) + COALESCE((SELECT SUM(p.amount) FROM ledger_postings p " +
+                        "WHERE p.card_id = c.id AND (s.posting_xid IS NULL OR p.xid >= s.posting_xid)), 0) " +
+                        "+ COALESCE(d.amount, 0) " +
+                        "ORDER BY c.id LIMIT ?",
+                Long.class, limit);
+    }
+}
@@ -0,0 +1,120 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.ReencryptionCheckpoint;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Репозиторий для перешифрования зашифрованных номеров карт через JDBC.
+ * Работает с таблицами, хранящими столбец {@code encrypted_card_number}, и с таблицей контрольных точек.
+ */
+@Repository
+public class ReencryptionRepository {
+
+    /**
+     * Таблицы, содержащие зашифрованные номера карт.
+     */
+    private static final Set<String> TABLES = Set.of("cards", "card_number_pool");
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public ReencryptionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Читает следующий пакет строк по возрастанию идентификатора без блокировок.
+     *
+     * @param table   имя таблицы
+     * @param afterId идентификатор, после которого начинается пакет
+     * @param limit   максимальный размер пакета
+     * @return зашифрованные номера по идентификаторам строк в порядке возрастания
+     */
+    public Map<Long, String> findChunk(String table, long afterId, int limit) {
+        Map<Long, String> chunk = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT id, encrypted_card_number FROM " + checked(table) + " WHERE id > ? ORDER BY id LIMIT ?",
+                rs -> {
+                    chunk.put(rs.getLong("id"), rs.getString("encrypted_card_number"));
+                }, afterId, limit);
+        return chunk;
+    }
+
+    /**
+     * Пакетно заменяет зашифрованные номера.
+     * Строка обновляется, только если номер не изменился с момента чтения, поэтому конкурирующие изменения не теряются.
+     *
+     * @param table    имя таблицы
+     * @param previous прежние зашифрованные номера по идентификаторам строк
+     * @param updated  новые зашифрованные номера по идентификаторам строк
+     * @return количество обновлённых строк
+     */
+    public int updateEncrypted(String table, Map<Long, String> previous, Map<Long, String> updated) {
+        List<Object[]> args = new ArrayList<>(updated.size());
+        updated.forEach((id, encrypted) -> args.add(new Object[]{encrypted, id, previous.get(id)}));
+        int[] results = jdbcTemplate.batchUpdate(
+                "UPDATE " + checked(table) + " SET encrypted_card_number = ? WHERE id = ? AND encrypted_card_number = ?",
+                args);
+        int count = 0;
+        for (int result : results) {
+            count += Math.max(result, 0);
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает сохранённую контрольную точку перешифрования таблицы.
+     *
+     * @param table имя таблицы
+     * @return контрольная точка или пустой Optional, если перешифрование ещё не запускалось
+     */
+    public Optional<ReencryptionCheckpoint> findCheckpoint(String table) {
+        return jdbcTemplate.query(
+                "SELECT key_version, last_id FROM reencryption_checkpoints WHERE table_name = ?",
+                (rs, rowNum) -> new ReencryptionCheckpoint(rs.getInt("key_version"), rs.getLong("last_id")),
+                checked(table)).stream().findFirst();
+    }
+
+    /**
+     * Сохраняет контрольную точку перешифрования таблицы.
+     *
+     * @param table      имя таблицы
+     * @param checkpoint контрольная точка
+     */
+    public void saveCheckpoint(String table, ReencryptionCheckpoint checkpoint) {
+        jdbcTemplate.update(
+                "INSERT INTO reencryption_checkpoints (table_name, key_version, last_id, updated_at) " +
+                        "VALUES (?, ?, ?, now()) ON CONFLICT (table_name) DO UPDATE " +
+                        "SET key_version = EXCLUDED.key_version, last_id = EXCLUDED.last_id, updated_at = EXCLUDED.updated_at",
+                checked(table), checkpoint.getKeyVersion(), checkpoint.getLastId());
+    }
+
+    /**
+     * Проверяет, что имя таблицы входит в список поддерживаемых.
+     *
+     * @param table имя таблицы
+     * @return имя таблицы
+     * @throws IllegalArgumentException если таблица не поддерживается
+     */
+    private String checked(String table) {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("Таблица " + table + " не поддерживает перешифрование!");
+        }
+        return table;
+    }
+}
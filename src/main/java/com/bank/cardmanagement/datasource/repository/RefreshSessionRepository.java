@@ -0,0 +1,195 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.security.model.RefreshSession;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий сессий refresh-токенов через JDBC.
+ * Создание, ротация и удаление сессий записываются сразу, чтобы их видели все экземпляры приложения,
+ * а отметки использования записываются пакетами хранилищем сессий.
+ */
+@Repository
+public class RefreshSessionRepository {
+
+    /**
+     * Столбцы сессии в запросах чтения.
+     */
+    private static final String COLUMNS = "id, user_id, token_hash, created_at, last_used_at, expires_at";
+
+    /**
+     * Преобразование строки таблицы в сессию.
+     */
+    private static final RowMapper<RefreshSession> SESSION = (rs, rowNum) -> new RefreshSession(
+            rs.getString("id"),
+            rs.getLong("user_id"),
+            rs.getString("token_hash"),
+            rs.getTimestamp("created_at").toInstant(),
+            rs.getTimestamp("last_used_at").toInstant(),
+            rs.getTimestamp("expires_at").toInstant());
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public RefreshSessionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Возвращает все неистёкшие сессии.
+     *
+     * @return список сессий
+     */
+    public List<RefreshSession> findActive() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM refresh_sessions WHERE expires_at > now()", SESSION);
+    }
+
+    /**
+     * Находит неистёкшую сессию по идентификатору.
+     *
+     * @param id идентификатор сессии
+     * @return сессия или пустой результат, если она удалена или истекла
+     */
+    public Optional<RefreshSession> findById(String id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM refresh_sessions WHERE id = ? AND expires_at > now()",
+                SESSION, id).stream().findFirst();
+    }
+
+    /**
+     * Возвращает неистёкшие сессии, созданные, ротированные или использованные позже указанного момента.
+     *
+     * @param changedAfter момент, после которого сессия изменилась
+     * @return список сессий
+     */
+    public List<RefreshSession> findChangedAfter(Instant changedAfter) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM refresh_sessions WHERE last_used_at > ? AND expires_at > now()",
+                SESSION, Timestamp.from(changedAfter));
+    }
+
+    /**
+     * Возвращает неистёкшие сессии пользователя, начиная с последней использованной.
+     *
+     * @param userId ID пользователя
+     * @return список сессий
+     */
+    public List<RefreshSession> findByUser(long userId) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM refresh_sessions WHERE user_id = ? AND expires_at > now() " +
+                "ORDER BY last_used_at DESC", SESSION, userId);
+    }
+
+    /**
+     * Сохраняет новую сессию.
+     *
+     * @param session сессия
+     */
+    public void insert(RefreshSession session) {
+        jdbcTemplate.update(
+                "INSERT INTO refresh_sessions (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)",
+                session.getId(),
+                session.getUserId(),
+                session.getTokenHash(),
+                Timestamp.from(session.getCreatedAt()),
+                Timestamp.from(session.getLastUsedAt()),
+                Timestamp.from(session.getExpiresAt()));
+    }
+
+    /**
+     * Заменяет refresh-токен сессии, если в БД она ещё существует, не истекла и хранит ожидаемый токен.
+     *
+     * @param expectedTokenHash хэш токена, по которому выполнялась проверка
+     * @param rotated           сессия с новым токеном
+     * @return true, если токен заменён
+     */
+    public boolean rotate(String expectedTokenHash, RefreshSession rotated) {
+        return jdbcTemplate.update(
+                "UPDATE refresh_sessions SET token_hash = ?, last_used_at = ?, expires_at = ? " +
+                        "WHERE id = ? AND user_id = ? AND token_hash = ? AND expires_at > now()",
+                rotated.getTokenHash(),
+                Timestamp.from(rotated.getLastUsedAt()),
+                Timestamp.from(rotated.getExpiresAt()),
+                rotated.getId(),
+                rotated.getUserId(),
+                expectedTokenHash) > 0;
+    }
+
+    /**
+     * Пакетно записывает моменты последнего использования сессий.
+     * Удалённые сессии не восстанавливаются: для них запрос не изменяет ни одной строки.
+     *
+     * @param sessions использованные сессии
+     * @return идентификаторы сессий, которых уже нет в БД
+     */
+    public List<String> touchAll(List<RefreshSession> sessions) {
+        List<Object[]> args = new ArrayList<>(sessions.size());
+        for (RefreshSession session : sessions) {
+            args.add(new Object[]{Timestamp.from(session.getLastUsedAt()), session.getId()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE refresh_sessions SET last_used_at = GREATEST(last_used_at, ?) WHERE id = ?", args);
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                missing.add(sessions.get(i).getId());
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Удаляет сессию пользователя.
+     *
+     * @param userId ID пользователя
+     * @param id     идентификатор сессии
+     * @return true, если сессия найдена и удалена
+     */
+    public boolean delete(long userId, String id) {
+        return jdbcTemplate.update("DELETE FROM refresh_sessions WHERE id = ? AND user_id = ?", id, userId) > 0;
+    }
+
+    /**
+     * Удаляет все сессии пользователя.
+     *
+     * @param userId ID пользователя
+     * @return идентификаторы удалённых сессий
+     */
+    public List<String> deleteByUser(long userId) {
+        return jdbcTemplate.queryForList("DELETE FROM refresh_sessions WHERE user_id = ? RETURNING id", String.class, userId);
+    }
+
+    /**
+     * Удаляет самые давно использованные сессии пользователя сверх допустимого количества.
+     *
+     * @param userId      ID пользователя
+     * @param maxSessions допустимое количество сессий
+     * @return идентификаторы удалённых сессий
+     */
+    public List<String> deleteExcess(long userId, int maxSessions) {
+        return jdbcTemplate.queryForList(
+                "DELETE FROM refresh_sessions WHERE id IN (SELECT id FROM refresh_sessions WHERE user_id = ? " +
+                        "ORDER BY last_used_at DESC OFFSET ?) RETURNING id",
+                String.class, userId, maxSessions);
+    }
+
+    /**
+     * Удаляет истёкшие сессии.
+     *
+     * @return количество удалённых сессий
+     */
+    public int deleteExpired() {
+        return jdbcTemplate.update("DELETE FROM refresh_sessions WHERE expires_at <= now()");
+    }
+}
@@ -0,0 +1,89 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.RevokedToken;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Репозиторий списка отозванных токенов через JDBC.
+ */
+@Repository
+public class RevokedTokenRepository {
+
+    /**
+     * Преобразование строки результата в запись списка отозванных токенов.
+     */
+    private static final RowMapper<RevokedToken> ROW_MAPPER = (rs, rowNum) -> new RevokedToken(
+            rs.getString("token_id"),
+            rs.getTimestamp("expires_at").toInstant(),
+            rs.getTimestamp("created_at").toInstant());
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public RevokedTokenRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Пакетно добавляет идентификаторы в список отозванных. Повторный отзыв игнорируется.
+     *
+     * @param tokenIds  идентификаторы токенов или сессий
+     * @param expiresAt момент, после которого записи не нужны
+     */
+    public void insertAll(Collection<String> tokenIds, Instant expiresAt) {
+        Timestamp expires = Timestamp.from(expiresAt);
+        List<Object[]> args = new ArrayList<>(tokenIds.size());
+        tokenIds.forEach(tokenId -> args.add(new Object[]{tokenId, expires}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO revoked_tokens (token_id, expires_at) VALUES (?, ?) ON CONFLICT (token_id) DO NOTHING",
+                args);
+    }
+
+    /**
+     * Возвращает все записи, которые ещё не истекли.
+     *
+     * @return список записей
+     */
+    public List<RevokedToken> findActive() {
+        return jdbcTemplate.query(
+                "SELECT token_id, expires_at, created_at FROM revoked_tokens WHERE expires_at > now()",
+                ROW_MAPPER);
+    }
+
+    /**
+     * Возвращает неистёкшие записи, добавленные после указанного момента.
+     *
+     * @param createdAfter момент по часам БД
+     * @return список записей
+     */
+    public List<RevokedToken> findCreatedAfter(Instant createdAfter) {
+        return jdbcTemplate.query(
+                "SELECT token_id, expires_at, created_at FROM revoked_tokens " +
+                        "WHERE created_at > ? AND expires_at > now()",
+                ROW_MAPPER, Timestamp.from(createdAfter));
+    }
+
+    /**
+     * Удаляет истёкшие записи.
+     *
+     * @return количество удалённых записей
+     */
+    public int deleteExpired() {
+        return jdbcTemplate.update("DELETE FROM revoked_tokens WHERE expires_at <= now()");
+    }
+}
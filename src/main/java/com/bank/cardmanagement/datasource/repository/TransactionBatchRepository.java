@@ -0,0 +1,49 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.entity.Transaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Репозиторий для пакетной записи транзакций через JDBC.
+ */
+@Repository
+public class TransactionBatchRepository {
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public TransactionBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Пакетно вставляет транзакции. Идентификаторы транзакций назначаются БД и в объекты не возвращаются.
+     *
+     * @param transactions транзакции для вставки
+     * @param batchSize    количество строк в одном пакете
+     */
+    public void insertTransactions(List<Transaction> transactions, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transactions (type, amount, description, timestamp, card_id, counterparty_card_id) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                transactions, batchSize, (ps, transaction) -> {
+                    ps.setString(1, transaction.getType().name());
+                    ps.setBigDecimal(2, transaction.getAmount());
+                    ps.setString(3, transaction.getDescription());
+                    ps.setTimestamp(4, Timestamp.valueOf(transaction.getTimestamp()));
+                    ps.setLong(5, transaction.getCard().getId());
+                    ps.setObject(6, transaction.getCounterpartyCardId());
+                });
+    }
+}
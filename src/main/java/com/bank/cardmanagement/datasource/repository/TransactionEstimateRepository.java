@@ -0,0 +1,71 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.entity.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Репозиторий для оценки количества транзакций по статистике планировщика PostgreSQL.
+ * Оценка берётся из плана запроса без его выполнения, поэтому её стоимость не зависит от размера таблицы,
+ * а точность определяется актуальностью статистики.
+ */
+@Repository
+public class TransactionEstimateRepository {
+
+    /**
+     * Шаблон оценки количества строк в верхнем узле плана.
+     */
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public TransactionEstimateRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Оценивает количество транзакций, удовлетворяющих фильтрам.
+     *
+     * @param transactionType тип транзакции или null
+     * @param cardId          идентификатор карты или null
+     * @param userId          идентификатор владельца карт или null
+     * @return оценка количества транзакций
+     */
+    public long estimateCount(TransactionType transactionType, Long cardId, Long userId) {
+        StringBuilder sql = new StringBuilder("EXPLAIN SELECT 1 FROM transactions t");
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (userId != null) {
+            sql.append(" JOIN cards c ON c.id = t.card_id");
+            conditions.add("c.user_id = ?");
+            args.add(userId);
+        }
+        if (transactionType != null) {
+            conditions.add("t.type = ?");
+            args.add(transactionType.name());
+        }
+        if (cardId != null) {
+            conditions.add("t.card_id = ?");
+            args.add(cardId);
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        List<String> plan = jdbcTemplate.queryForList(sql.toString(), String.class, args.toArray());
+        Matcher matcher = PLAN_ROWS.matcher(plan.get(0));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0L;
+    }
+}
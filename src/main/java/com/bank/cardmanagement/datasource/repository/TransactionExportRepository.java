@@ -0,0 +1,102 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.TransactionExportRow;
+import com.bank.cardmanagement.entity.TransactionType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Репозиторий для потокового чтения транзакций через JDBC.
+ * Строки читаются однонаправленным курсором порциями заданного размера и передаются обработчику по одной,
+ * поэтому в памяти одновременно находится не больше одной порции независимо от объёма выгрузки.
+ */
+@Repository
+public class TransactionExportRepository {
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public TransactionExportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Читает транзакции, удовлетворяющие фильтрам, в порядке возрастания ID.
+     * Выполняется в транзакции только для чтения: драйвер PostgreSQL читает результат порциями
+     * только при выключенном autocommit.
+     *
+     * @param transactionType тип транзакции или null
+     * @param cardId          идентификатор карты или null
+     * @param userId          идентификатор владельца карт или null
+     * @param from            начало периода включительно или null
+     * @param to              конец периода не включительно или null
+     * @param fetchSize       количество строк, читаемых из курсора за одно обращение к БД
+     * @param handler         обработчик строк
+     */
+    @Transactional(readOnly = true)
+    public void stream(TransactionType transactionType, Long cardId, Long userId, LocalDateTime from, LocalDateTime to,
+                       int fetchSize, Consumer<TransactionExportRow> handler) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT t.id, t.type, t.amount, t.description, t.timestamp, t.card_id FROM transactions t");
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (userId != null) {
+            sql.append(" JOIN cards c ON c.id = t.card_id");
+            conditions.add("c.user_id = ?");
+            args.add(userId);
+        }
+        if (transactionType != null) {
+            conditions.add("t.type = ?");
+            args.add(transactionType.name());
+        }
+        if (cardId != null) {
+            conditions.add("t.card_id = ?");
+            args.add(cardId);
+        }
+        if (from != null) {
+            conditions.add("t.timestamp >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            conditions.add("t.timestamp < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY t.id");
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, rs -> {
+            handler.accept(new TransactionExportRow(
+                    rs.getLong("id"),
+                    rs.getString("type"),
+                    rs.getBigDecimal("amount"),
+                    rs.getString("description"),
+                    rs.getTimestamp("timestamp").toLocalDateTime(),
+                    rs.getLong("card_id")));
+        });
+    }
+}
@@ -1,25 +1,44 @@
 package com.bank.cardmanagement.datasource.repository;
 
+import com.bank.cardmanagement.dto.response.TransactionResponse;
 import com.bank.cardmanagement.entity.Card;
 import com.bank.cardmanagement.entity.Transaction;
 import com.bank.cardmanagement.entity.TransactionType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Репозиторий для работы с сущностью {@link Transaction}.
  * Предоставляет методы для поиска, фильтрации и модификации данных транзакций.
+ * Методы поиска выбирают только столбцы, нужные для {@link TransactionResponse}, без загрузки сущностей
+ * транзакций и карт; фильтр по пользователю проверяет cards.user_id без соединения с таблицей пользователей.
  */
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
+    /**
+     * Выражение выборки столбцов ответа о транзакции.
+     */
+    String RESPONSE = "SELECT new com.bank.cardmanagement.dto.response.TransactionResponse(" +
+            "t.id, t.type, t.amount, t.description, t.timestamp) FROM Transaction t ";
+
+    /**
+     * Находит все транзакции с пагинацией.
+     *
+     * @param pageable объект для пагинации.
+     * @return {@link Page} с транзакциями.
+     */
+    @Query(value = RESPONSE, countQuery = "SELECT count(t) FROM Transaction t")
+    Page<TransactionResponse> findAllResponses(Pageable pageable);
+
     /**
      * Находит транзакции по типу транзакции и ID карты.
      *
@@ -28,7 +47,10 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * @param pageable        объект для пагинации.
      * @return {@link Page} с транзакциями, удовлетворяющими условиям поиска.
      */
-    Page<Transaction> findByTypeAndCardId(TransactionType transactionType, Long cardId, Pageable pageable);
+    @Query(value = RESPONSE + "WHERE t.type = :transactionType AND t.card.id = :cardId",
+            countQuery = "SELECT count(t) FROM Transaction t WHERE t.type = :transactionType AND t.card.id = :cardId")
+    Page<TransactionResponse> findByTypeAndCardId(@Param("transactionType") TransactionType transactionType,
+                                                  @Param("cardId") Long cardId, Pageable pageable);
 
     /**
      * Находит транзакции по типу транзакции.
@@ -37,7 +59,9 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * @param pageable        объект для пагинации.
      * @return {@link Page} с транзакциями, удовлетворяющими условиям поиска.
      */
-    Page<Transaction> findByType(TransactionType transactionType, Pageable pageable);
+    @Query(value = RESPONSE + "WHERE t.type = :transactionType",
+            countQuery = "SELECT count(t) FROM Transaction t WHERE t.type = :transactionType")
+    Page<TransactionResponse> findByType(@Param("transactionType") TransactionType transactionType, Pageable pageable);
 
     /**
      * Находит транзакции по ID карты.
@@ -46,7 +70,9 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * @param pageable объект для пагинации.
      * @return {@link Page} с транзакциями, связанных с указанной картой.
      */
-    Page<Transaction> findByCardId(Long cardId, Pageable pageable);
+    @Query(value = RESPONSE + "WHERE t.card.id = :cardId",
+            countQuery = "SELECT count(t) FROM Transaction t WHERE t.card.id = :cardId")
+    Page<TransactionResponse> findByCardId(@Param("cardId") Long cardId, Pageable pageable);
 
     /**
      * Находит транзакции по типу транзакции и ID пользователя.
@@ -56,9 +82,11 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * @param pageable        объект для пагинации.
      * @return {@link Page} с транзакциями, удовлетворяющими условиям поиска.
      */
-    @Query("SELECT t FROM Transaction t WHERE t.type = :transactionType AND t.card.user.id = :userId")
-    Page<Transaction> findByTypeAndUserId(@Param("transactionType") TransactionType transactionType,
-                                          @Param("userId") Long userId, Pageable pageable);
+    @Query(value = RESPONSE + "JOIN t.card c WHERE t.type = :transactionType AND c.user.id = :userId",
+            countQuery = "SELECT count(t) FROM Transaction t JOIN t.card c " +
+                    "WHERE t.type = :transactionType AND c.user.id = :userId")
+    Page<TransactionResponse> findByTypeAndUserId(@Param("transactionType") TransactionType transactionType,
+                                                  @Param("userId") Long userId, Pageable pageable);
 
     /**
      * Находит транзакции по ID пользователя.
@@ -67,36 +95,147 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
      * @param pageable объект для пагинации.
      * @return {@link Page} с транзакциями, связанными с указанным пользователем.
      */
-    @Query("SELECT t FROM Transaction t WHERE t.card.user.id = :userId")
-    Page<Transaction> findByUserId(@Param("userId") Long userId, Pageable pageable);
+    @Query(value = RESPONSE + "JOIN t.card c WHERE c.user.id = :userId",
+            countQuery = "SELECT count(t) FROM Transaction t JOIN t.card c WHERE c.user.id = :userId")
+    Page<TransactionResponse> findByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Находит страницу транзакций по типу транзакции и ID карты без подсчёта их общего количества.
+     *
+     * @param transactionType тип транзакции.
+     * @param cardId          идентификатор карты.
+     * @param pageable        объект для пагинации.
+     * @return {@link Slice} с транзакциями, удовлетворяющими условиям поиска.
+     */
+    @Query(RESPONSE + "WHERE t.type = :transactionType AND t.card.id = :cardId")
+    Slice<TransactionResponse> findSliceByTypeAndCardId(@Param("transactionType") TransactionType transactionType,
+                                                        @Param("cardId") Long cardId, Pageable pageable);
+
+    /**
+     * Находит страницу транзакций по типу транзакции без подсчёта их общего количества.
+     *
+     * @param transactionType тип транзакции.
+     * @param pageable        объект для пагинации.
+     * @return {@link Slice} с транзакциями, удовлетворяющими условиям поиска.
+     */
+    @Query(RESPONSE + "WHERE t.type = :transactionType")
+    Slice<TransactionResponse> findSliceByType(@Param("transactionType") TransactionType transactionType, Pageable pageable);
+
+    /**
+     * Находит страницу транзакций по ID карты без подсчёта их общего количества.
+     *
+     * @param cardId   идентификатор карты.
+     * @param pageable объект для пагинации.
+     * @return {@link Slice} с транзакциями, связанными с указанной картой.
+     */
+    @Query(RESPONSE + "WHERE t.card.id = :cardId")
+    Slice<TransactionResponse> findSliceByCardId(@Param("cardId") Long cardId, Pageable pageable);
+
+    /**
+     * Находит страницу всех транзакций без подсчёта их общего количества.
+     *
+     * @param pageable объект для пагинации.
+     * @return {@link Slice} с транзакциями.
+     */
+    @Query(RESPONSE)
+    Slice<TransactionResponse> findSliceAll(Pageable pageable);
+
+    /**
+     * Находит страницу транзакций по типу транзакции и ID пользователя без подсчёта их общего количества.
+     *
+     * @param transactionType тип транзакции.
+     * @param userId          идентификатор пользователя.
+     * @param pageable        объект для пагинации.
+     * @return {@link Slice} с транзакциями, удовлетворяющими условиям поиска.
+     */
+    @Query(RESPONSE + "JOIN t.card c WHERE t.type = :transactionType AND c.user.id = :userId")
+    Slice<TransactionResponse> findSliceByTypeAndUserId(@Param("transactionType") TransactionType transactionType,
+                                                        @Param("userId") Long userId, Pageable pageable);
 
     /**
-     * Получает сумму снятых средств по карте за определенный день.
+     * Находит страницу транзакций по ID пользователя без подсчёта их общего количества.
      *
-     * @param cardId     идентификатор карты.
-     * @param startOfDay начало дня.
-     * @param endOfDay   конец дня.
-     * @return сумма снятых средств.
+     * @param userId   идентификатор пользователя.
+     * @param pageable объект для пагинации.
+     * @return {@link Slice} с транзакциями, связанными с указанным пользователем.
+     */
+    @Query(RESPONSE + "JOIN t.card c WHERE c.user.id = :userId")
+    Slice<TransactionResponse> findSliceByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Находит транзакции по типу транзакции и ID карты, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param transactionType тип транзакции.
+     * @param cardId          идентификатор карты.
+     * @param afterId         ID последней транзакции предыдущей страницы.
+     * @param limit           максимальное количество транзакций.
+     * @return список транзакций, удовлетворяющих условиям поиска.
+     */
+    @Query(RESPONSE + "WHERE t.type = :transactionType AND t.card.id = :cardId AND t.id > :afterId ORDER BY t.id")
+    List<TransactionResponse> findByTypeAndCardIdAfter(@Param("transactionType") TransactionType transactionType,
+                                                       @Param("cardId") Long cardId, @Param("afterId") Long afterId,
+                                                       Limit limit);
+
+    /**
+     * Находит транзакции по типу транзакции, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param transactionType тип транзакции.
+     * @param afterId         ID последней транзакции предыдущей страницы.
+     * @param limit           максимальное количество транзакций.
+     * @return список транзакций, удовлетворяющих условиям поиска.
+     */
+    @Query(RESPONSE + "WHERE t.type = :transactionType AND t.id > :afterId ORDER BY t.id")
+    List<TransactionResponse> findByTypeAfter(@Param("transactionType") TransactionType transactionType,
+                                              @Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Находит транзакции по ID карты, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param cardId  идентификатор карты.
+     * @param afterId ID последней транзакции предыдущей страницы.
+     * @param limit   максимальное количество транзакций.
+     * @return список транзакций, связанных с указанной картой.
+     */
+    @Query(RESPONSE + "WHERE t.card.id = :cardId AND t.id > :afterId ORDER BY t.id")
+    List<TransactionResponse> findByCardIdAfter(@Param("cardId") Long cardId, @Param("afterId") Long afterId,
+                                                Limit limit);
+
+    /**
+     * Находит транзакции, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param afterId ID последней транзакции предыдущей страницы.
+     * @param limit   максимальное количество транзакций.
+     * @return список транзакций.
+     */
+    @Query(RESPONSE + "WHERE t.id > :afterId ORDER BY t.id")
+    List<TransactionResponse> findAllAfter(@Param("afterId") Long afterId, Limit limit);
+
+    /**
+     * Находит транзакции по типу транзакции и ID пользователя, следующие за указанным ID, в порядке возрастания ID.
+     *
+     * @param transactionType тип транзакции.
+     * @param userId          идентификатор пользователя.
+     * @param afterId         ID последней транзакции предыдущей страницы.
+     * @param limit           максимальное количество транзакций.
+     * @return список транзакций, удовлетворяющих условиям поиска.
      */
-    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t " +
-            "WHERE t.card.id = :cardId " +
-            "AND t.type = 'WITHDRAWAL' " +
-            "AND t.timestamp BETWEEN :startOfDay AND :endOfDay")
-    BigDecimal getDailyWithdrawalSum(@Param("cardId") Long cardId, @Param("startOfDay") LocalDateTime startOfDay, @Param("endOfDay") LocalDateTime endOfDay);
+    @Query(RESPONSE + "JOIN t.card c WHERE t.type = :transactionType AND c.user.id = :userId " +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<TransactionResponse> findByTypeAndUserIdAfter(@Param("transactionType") TransactionType transactionType,
+                                                       @Param("userId") Long userId, @Param("afterId") Long afterId,
+                                                       Limit limit);
 
     /**
-     * Получает сумму снятых средств по карте за определенный месяц.
+     * Находит транзакции по ID пользователя, следующие за указанным ID, в порядке возрастания ID.
      *
-     * @param cardId       идентификатор карты.
-     * @param startOfMonth начало месяца.
-     * @param endOfMonth   конец месяца.
-     * @return сумма снятых средств.
+     * @param userId  идентификатор пользователя.
+     * @param afterId ID последней транзакции предыдущей страницы.
+     * @param limit   максимальное количество транзакций.
+     * @return список транзакций, связанных с указанным пользователем.
      */
-    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM Transaction t " +
-            "WHERE t.card.id = :cardId " +
-            "AND t.type = 'WITHDRAWAL' " +
-            "AND t.timestamp BETWEEN :startOfMonth AND :endOfMonth")
-    BigDecimal getMonthlyWithdrawalSum(@Param("cardId") Long cardId, @Param("startOfMonth") LocalDateTime startOfMonth, @Param("endOfMonth") LocalDateTime endOfMonth);
+    @Query(RESPONSE + "JOIN t.card c WHERE c.user.id = :userId AND t.id > :afterId ORDER BY t.id")
+    List<TransactionResponse> findByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId,
+                                                Limit limit);
 
     /**
      * Удаляет транзакции по карте.
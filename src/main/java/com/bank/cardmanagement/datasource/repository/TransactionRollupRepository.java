@@ -0,0 +1,128 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.TransactionRollupDelta;
+import com.bank.cardmanagement.dto.response.TransactionStatisticsResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий дневной сводки транзакций через JDBC.
+ * Строка сводки хранит количество и сумму транзакций одного типа по карте за день и изменяется
+ * в транзакции, которая записывает сами транзакции.
+ */
+@Repository
+public class TransactionRollupRepository {
+
+    /**
+     * Преобразование строки результата в итоги за день.
+     */
+    private static final RowMapper<TransactionStatisticsResponse> STATISTICS_MAPPER = (rs, rowNum) ->
+            new TransactionStatisticsResponse(
+                    rs.getDate("day").toLocalDate(),
+                    rs.getString("type"),
+                    rs.getLong("tx_count"),
+                    rs.getBigDecimal("total_amount"));
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public TransactionRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Пакетно прибавляет приращения к строкам сводки, создавая отсутствующие строки.
+     *
+     * @param deltas    приращения сводки
+     * @param batchSize количество строк в одном пакете
+     */
+    public void increment(List<TransactionRollupDelta> deltas, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO transaction_daily_rollup AS r (card_id, day, type, tx_count, total_amount) " +
+                        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (card_id, day, type) DO UPDATE " +
+                        "SET tx_count = r.tx_count + EXCLUDED.tx_count, total_amount = r.total_amount + EXCLUDED.total_amount",
+                deltas, batchSize, (ps, delta) -> {
+                    ps.setLong(1, delta.getCardId());
+                    ps.setDate(2, Date.valueOf(delta.getDay()));
+                    ps.setString(3, delta.getType().name());
+                    ps.setLong(4, delta.getCount());
+                    ps.setBigDecimal(5, delta.getAmount());
+                });
+    }
+
+    /**
+     * Находит итоги транзакций карты по дням и типам за период.
+     *
+     * @param cardId идентификатор карты
+     * @param from   первый день периода
+     * @param to     последний день периода включительно
+     * @return итоги в порядке возрастания дня
+     */
+    public List<TransactionStatisticsResponse> findByCard(Long cardId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT day, type, tx_count, total_amount FROM transaction_daily_rollup " +
+                        "WHERE card_id = ? AND day BETWEEN ? AND ? ORDER BY day, type",
+                STATISTICS_MAPPER, cardId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Находит итоги транзакций по всем картам пользователя по дням и типам за период.
+     *
+     * @param userId идентификатор пользователя
+     * @param from   первый день периода
+     * @param to     последний день периода включительно
+     * @return итоги в порядке возрастания дня
+     */
+    public List<TransactionStatisticsResponse> findByUser(Long userId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(
+                "SELECT r.day, r.type, SUM(r.tx_count) AS tx_count, SUM(r.total_amount) AS total_amount " +
+                        "FROM transaction_daily_rollup r JOIN cards c ON c.id = r.card_id " +
+                        "WHERE c.user_id = ? AND r.day BETWEEN ? AND ? GROUP BY r.day, r.type ORDER BY r.day, r.type",
+                STATISTICS_MAPPER, userId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Возвращает ID карт после указанного в порядке возрастания.
+     *
+     * @param afterId ID, после которого начинается пакет
+     * @param limit   максимальное количество ID
+     * @return ID карт
+     */
+    public List<Long> findCardIdsAfter(long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM cards WHERE id > ? ORDER BY id LIMIT ?", Long.class, afterId, limit);
+    }
+
+    /**
+     * Пересчитывает сводку по истории транзакций для диапазона карт за дни до указанного.
+     * Таблица не блокируется: сводку прошедших дней операции уже не изменяют, а текущий день
+     * ведут только их приращения.
+     *
+     * @param fromCardId первый ID карты диапазона
+     * @param toCardId   последний ID карты диапазона
+     * @param beforeDay  день, начиная с которого сводка не пересчитывается
+     * @return количество строк сводки
+     */
+    public int rebuild(long fromCardId, long toCardId, LocalDate beforeDay) {
+        jdbcTemplate.update("DELETE FROM transaction_daily_rollup WHERE card_id BETWEEN ? AND ? AND day < ?",
+                fromCardId, toCardId, Date.valueOf(beforeDay));
+        return jdbcTemplate.update(
+                "INSERT INTO transaction_daily_rollup (card_id, day, type, tx_count, total_amount) " +
+                        "SELECT card_id, CAST(timestamp AS DATE), type, COUNT(*), SUM(amount) FROM transactions " +
+                        "WHERE card_id BETWEEN ? AND ? AND timestamp < ? " +
+                        "GROUP BY card_id, CAST(timestamp AS DATE), type",
+                fromCardId, toCardId, Timestamp.valueOf(beforeDay.atStartOfDay()));
+    }
+}
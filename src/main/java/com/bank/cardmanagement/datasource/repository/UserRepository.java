@@ -7,7 +7,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Репозиторий для работы с сущностью {@link User}.
@@ -24,31 +26,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
 
     /**
-     * Находит пользователя по указанному адресу электронной почты.
-     *
-     * @param email адрес электронной почты пользователя.
-     * @return {@link Optional} с найденным пользователем, если таковой существует, иначе {@link Optional#empty()}.
-     */
-    Optional<User> findByEmail(String email);
-
-    /**
-     * Обновляет токен обновления (refresh token) для пользователя по его ID.
+     * Возвращает идентификаторы существующих пользователей из переданного набора одним запросом.
      *
-     * @param id           идентификатор пользователя.
-     * @param refreshToken новый токен обновления.
+     * @param ids идентификаторы пользователей.
+     * @return идентификаторы пользователей, которые есть в базе данных.
      */
-    @Modifying
-    @Query("UPDATE User u SET u.refreshToken = :refreshToken WHERE u.id = :id")
-    void updateRefreshTokenByUuid(@Param("id") Long id, @Param("refreshToken") String refreshToken);
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 
     /**
-     * Удаляет токен обновления (refresh token) для пользователя по его ID.
+     * Находит пользователя по указанному адресу электронной почты.
      *
-     * @param id идентификатор пользователя.
+     * @param email адрес электронной почты пользователя.
+     * @return {@link Optional} с найденным пользователем, если таковой существует, иначе {@link Optional#empty()}.
      */
-    @Modifying
-    @Query("UPDATE User u SET u.refreshToken = NULL WHERE u.id =:id")
-    void deleteRefreshTokenByUuid(@Param("id") Long id);
+    Optional<User> findByEmail(String email);
 
     /**
      * Удаляет пользователя по указанному адресу электронной почты.
@@ -0,0 +1,113 @@
+package com.bank.cardmanagement.datasource.repository;
+
+import com.bank.cardmanagement.datasource.projection.WithdrawalCounter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Репозиторий счётчиков снятых наличных по картам через JDBC.
+ */
+@Repository
+public class WithdrawalCounterRepository {
+
+    /**
+     * Шаблон для выполнения JDBC-запросов.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate шаблон для выполнения JDBC-запросов
+     */
+    public WithdrawalCounterRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Прибавляет сумму к счётчикам карты, если после этого не будут превышены лимиты карты.
+     * Проверка и изменение выполняются одним запросом под блокировкой строки, поэтому параллельные снятия
+     * с одной карты не могут вместе превысить лимит. Лимиты берутся из таблицы карт тем же запросом,
+     * а счётчик прошедшего дня или месяца обнуляется.
+     *
+     * @param cardId идентификатор карты
+     * @param today  текущий день
+     * @param amount сумма снятия
+     * @return true, если сумма учтена; false, если превышен один из лимитов
+     */
+    public boolean tryAdd(long cardId, LocalDate today, BigDecimal amount) {
+        int updated = jdbcTemplate.update(
+                "INSERT INTO card_withdrawal_counters AS w (card_id, day, daily_sum, month, monthly_sum) " +
+                        "SELECT c.id, ?, ?, ?, ? FROM cards c " +
+                        "WHERE c.id = ? AND ? <= c.daily_limit AND ? <= c.monthly_limit " +
+                        "ON CONFLICT (card_id) DO UPDATE SET " +
+                        "daily_sum = CASE WHEN w.day = EXCLUDED.day THEN w.daily_sum ELSE 0 END + EXCLUDED.daily_sum, " +
+                        "day = EXCLUDED.day, " +
+                        "monthly_sum = CASE WHEN w.month = EXCLUDED.month THEN w.monthly_sum ELSE 0 END + EXCLUDED.monthly_sum, " +
+                        "month = EXCLUDED.month " +
+                        "WHERE CASE WHEN w.day = EXCLUDED.day THEN w.daily_sum ELSE 0 END + EXCLUDED.daily_sum " +
+                        "<= (SELECT daily_limit FROM cards WHERE id = w.card_id) " +
+                        "AND CASE WHEN w.month = EXCLUDED.month THEN w.monthly_sum ELSE 0 END + EXCLUDED.monthly_sum " +
+                        "<= (SELECT monthly_limit FROM cards WHERE id = w.card_id)",
+                Date.valueOf(today), amount, Date.valueOf(today.withDayOfMonth(1)), amount,
+                cardId, amount, amount);
+        return updated > 0;
+    }
+
+    /**
+     * Находит счётчики и лимиты карты.
+     *
+     * @param cardId идентификатор карты
+     * @return счётчики с лимитами или пустой результат, если карта не найдена
+     */
+    public Optional<WithdrawalCounter> find(long cardId) {
+        return jdbcTemplate.query(
+                "SELECT w.day, w.daily_sum, w.month, w.monthly_sum, c.daily_limit, c.monthly_limit " +
+                        "FROM cards c LEFT JOIN card_withdrawal_counters w ON w.card_id = c.id WHERE c.id = ?",
+                (rs, rowNum) -> new WithdrawalCounter(
+                        toLocalDate(rs.getDate("day")),
+                        rs.getBigDecimal("daily_sum"),
+                        toLocalDate(rs.getDate("month")),
+                        rs.getBigDecimal("monthly_sum"),
+                        rs.getBigDecimal("daily_limit"),
+                        rs.getBigDecimal("monthly_limit")),
+                cardId).stream().findFirst();
+    }
+
+    /**
+     * Пересчитывает счётчики всех карт по таблице транзакций.
+     * Таблица счётчиков блокируется на запись до конца транзакции, поэтому снятия, выполняемые во время пересчёта,
+     * дожидаются его окончания и не теряются. Должен вызываться внутри транзакции.
+     *
+     * @param today текущий день
+     * @return количество карт, по которым за текущий месяц были снятия
+     */
+    public int rebuild(LocalDate today) {
+        LocalDate month = today.withDayOfMonth(1);
+        jdbcTemplate.execute("LOCK TABLE card_withdrawal_counters IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM card_withdrawal_counters");
+        return jdbcTemplate.update(
+                "INSERT INTO card_withdrawal_counters (card_id, day, daily_sum, month, monthly_sum) " +
+                        "SELECT card_id, ?, COALESCE(SUM(amount) FILTER (WHERE timestamp >= ?), 0), ?, SUM(amount) " +
+                        "FROM transactions WHERE type = 'WITHDRAWAL' AND timestamp >= ? " +
+                        "GROUP BY card_id",
+                Date.valueOf(today), Timestamp.valueOf(today.atStartOfDay()),
+                Date.valueOf(month), Timestamp.valueOf(month.atStartOfDay()));
+    }
+
+    /**
+     * Преобразует дату JDBC в LocalDate с учётом null.
+     *
+     * @param date дата JDBC или null
+     * @return дата или null
+     */
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+}
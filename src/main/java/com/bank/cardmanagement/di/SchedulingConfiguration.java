@@ -0,0 +1,13 @@
+package com.bank.cardmanagement.di;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Конфигурация планировщика фоновых задач.
+ * Включает выполнение методов, помеченных аннотацией {@link org.springframework.scheduling.annotation.Scheduled}.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
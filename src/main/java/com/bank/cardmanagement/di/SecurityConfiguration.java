@@ -1,9 +1,14 @@
 package com.bank.cardmanagement.di;
 
+import com.bank.cardmanagement.domain.service.TokenRevocationService;
 import com.bank.cardmanagement.domain.service.UserService;
+import com.bank.cardmanagement.security.JwtKeySet;
 import com.bank.cardmanagement.security.JwtProvider;
 import com.bank.cardmanagement.security.JwtUtil;
+import com.bank.cardmanagement.security.VerifiedTokenCache;
 import com.bank.cardmanagement.web.filter.AuthFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -25,14 +30,25 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableMethodSecurity
 public class SecurityConfiguration {
 
+    /**
+     * Бин для набора ключей подписи и проверки JWT.
+     *
+     * @return экземпляр {@link JwtKeySet}, который выбирает ключ проверки по заголовку kid и публикует JWKS.
+     */
+    @Bean
+    public JwtKeySet keySet() {
+        return new JwtKeySet();
+    }
+
     /**
      * Бин для провайдера JWT, отвечающий за создание и валидацию токенов.
      *
+     * @param keySet набор ключей подписи и проверки JWT.
      * @return экземпляр {@link JwtProvider}, который используется для работы с JWT.
      */
     @Bean
-    public JwtProvider provider() {
-        return new JwtProvider();
+    public JwtProvider provider(JwtKeySet keySet) {
+        return new JwtProvider(keySet);
     }
 
     /**
@@ -45,21 +61,36 @@ public class SecurityConfiguration {
         return new JwtUtil();
     }
 
+    /**
+     * Бин для кэша проверенных access-токенов.
+     *
+     * @param meterRegistry реестр метрик.
+     * @return экземпляр {@link VerifiedTokenCache}, который избавляет повторные запросы от проверки подписи JWT.
+     */
+    @Bean
+    public VerifiedTokenCache tokenCache(MeterRegistry meterRegistry) {
+        return new VerifiedTokenCache(meterRegistry);
+    }
+
     /**
      * Бин для фильтра авторизации, который перехватывает все входящие запросы
      * и проверяет наличие валидного JWT в заголовке.
      *
-     * @param userService сервис для работы с пользователями.
+     * @param userService            сервис для работы с пользователями.
+     * @param tokenCache             кэш проверенных access-токенов.
+     * @param tokenRevocationService сервис отзыва access-токенов.
      * @return экземпляр {@link AuthFilter}, выполняющий проверку JWT.
      */
     @Bean
-    public AuthFilter authFilter(UserService userService) {
-        return new AuthFilter(userService);
+    public AuthFilter authFilter(UserService userService, VerifiedTokenCache tokenCache,
+                                 TokenRevocationService tokenRevocationService) {
+        return new AuthFilter(userService, tokenCache, tokenRevocationService);
     }
 
     /**
      * Бин для настройки цепочки фильтров безопасности.
      * Включает настройку для пропуска запросов на авторизацию и работу с сессиями в состоянии Stateless.
+     * Асинхронное завершение потоковых ответов не проверяется повторно: исходный запрос уже прошёл проверку доступа.
      *
      * @param http       объект {@link HttpSecurity}, предоставляющий возможность настройки HTTP безопасности.
      * @param authFilter фильтр для авторизации.
@@ -71,12 +102,15 @@ public class SecurityConfiguration {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/card-management/auth/login",
+                                "/card-management/auth/jwks",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
                                 "/swagger-ui.html"
                         ).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
@@ -0,0 +1,112 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.CardNumberProjection;
+import com.bank.cardmanagement.datasource.repository.CardBatchRepository;
+import com.bank.cardmanagement.datasource.repository.CardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис фонового заполнения производных от номера карты данных для существующих карт.
+ * Обрабатывает карты пакетами, каждый пакет — в отдельной короткой транзакции.
+ */
+@Service
+public class CardNumberBackfillService {
+
+    /**
+     * Репозиторий для работы с картами.
+     */
+    private final CardRepository cardRepository;
+
+    /**
+     * Репозиторий для пакетных обновлений карт.
+     */
+    private final CardBatchRepository cardBatchRepository;
+
+    /**
+     * Сервис для шифрования данных.
+     */
+    private final EncryptionService encryptionService;
+
+    /**
+     * Сервис для маскирования номеров карт.
+     */
+    private final CardNumberService cardNumberService;
+
+    /**
+     * Шаблон для выполнения пакета в отдельной транзакции.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Количество карт в одном пакете.
+     */
+    @Value("${app.cards.backfill.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param cardRepository      репозиторий для работы с картами
+     * @param cardBatchRepository репозиторий для пакетных обновлений карт
+     * @param encryptionService   сервис для шифрования данных
+     * @param cardNumberService   сервис для маскирования номеров карт
+     * @param transactionTemplate шаблон для выполнения пакета в отдельной транзакции
+     */
+    public CardNumberBackfillService(CardRepository cardRepository, CardBatchRepository cardBatchRepository,
+                                     EncryptionService encryptionService, CardNumberService cardNumberService,
+                                     TransactionTemplate transactionTemplate) {
+        this.cardRepository = cardRepository;
+        this.cardBatchRepository = cardBatchRepository;
+        this.encryptionService = encryptionService;
+        this.cardNumberService = cardNumberService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Заполняет отпечатки и замаскированные номера у всех карт, где они отсутствуют.
+     * Запускается по расписанию и обрабатывает пакеты, пока не встретит неполный пакет.
+     */
+    @Scheduled(initialDelayString = "${app.cards.backfill.initial-delay:10000}",
+            fixedDelayString = "${app.cards.backfill.delay:60000}")
+    public void backfill() {
+        int processed;
+        do {
+            processed = backfillChunk();
+        } while (processed == chunkSize);
+    }
+
+    /**
+     * Заполняет отпечатки и замаскированные номера для одного пакета карт.
+     *
+     * @return количество обработанных карт
+     */
+    public int backfillChunk() {
+        Integer processed = transactionTemplate.execute(status -> {
+            List<CardNumberProjection> chunk = cardRepository.findWithoutDerivedNumbers(Limit.of(chunkSize));
+            if (chunk.isEmpty()) {
+                return 0;
+            }
+            List<String> cardNumbers = encryptionService.decryptAll(chunk.stream()
+                    .map(CardNumberProjection::getEncryptedCardNumber)
+                    .toList());
+            Map<Long, String> fingerprints = new LinkedHashMap<>();
+            Map<Long, String> maskedNumbers = new LinkedHashMap<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                Long id = chunk.get(i).getId();
+                fingerprints.put(id, encryptionService.fingerprint(cardNumbers.get(i)));
+                maskedNumbers.put(id, cardNumberService.maskCardNumber(cardNumbers.get(i)));
+            }
+            cardBatchRepository.updateDerivedNumbers(fingerprints, maskedNumbers);
+            return chunk.size();
+        });
+        return processed == null ? 0 : processed;
+    }
+}
@@ -0,0 +1,207 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.PooledCardNumber;
+import com.bank.cardmanagement.datasource.repository.CardNumberPoolRepository;
+import com.bank.cardmanagement.datasource.repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис пула заранее сгенерированных номеров карт.
+ * Фоновая задача поддерживает в пуле запас уникальных номеров с корректной контрольной цифрой,
+ * а выпуск карты забирает готовый номер одним запросом, не проверяя уникальность в момент выпуска.
+ */
+@Service
+public class CardNumberPoolService {
+
+    /**
+     * Репозиторий пула номеров карт.
+     */
+    private final CardNumberPoolRepository cardNumberPoolRepository;
+
+    /**
+     * Репозиторий для работы с картами.
+     */
+    private final CardRepository cardRepository;
+
+    /**
+     * Сервис для шифрования данных.
+     */
+    private final EncryptionService encryptionService;
+
+    /**
+     * Сервис для генерации и маскирования номеров карт.
+     */
+    private final CardNumberService cardNumberService;
+
+    /**
+     * Последнее известное количество номеров в пуле.
+     */
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Счётчик выпусков, для которых пул оказался пуст.
+     */
+    private final Counter missCounter;
+
+    /**
+     * Целевое количество номеров в пуле.
+     */
+    @Value("${app.cards.number-pool.target-size:1000}")
+    private int targetSize = 1000;
+
+    /**
+     * Количество номеров, добавляемых в пул за один пакет.
+     */
+    @Value("${app.cards.number-pool.batch-size:200}")
+    private int batchSize = 200;
+
+    /**
+     * Конструктор сервиса с регистрацией метрик пула.
+     *
+     * @param cardNumberPoolRepository репозиторий пула номеров карт
+     * @param cardRepository           репозиторий для работы с картами
+     * @param encryptionService        сервис для шифрования данных
+     * @param cardNumberService        сервис для генерации и маскирования номеров карт
+     * @param meterRegistry            реестр метрик
+     */
+    public CardNumberPoolService(CardNumberPoolRepository cardNumberPoolRepository, CardRepository cardRepository,
+                                 EncryptionService encryptionService, CardNumberService cardNumberService,
+                                 MeterRegistry meterRegistry) {
+        this.cardNumberPoolRepository = cardNumberPoolRepository;
+        this.cardRepository = cardRepository;
+        this.encryptionService = encryptionService;
+        this.cardNumberService = cardNumberService;
+        Gauge.builder("cards.number-pool.size", size, AtomicLong::get)
+                .description("Свободные номера карт в пуле")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("cards.number-pool.misses")
+                .description("Выпуски карт, для которых пул номеров был пуст")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает номер для новой карты.
+     * Номер забирается из пула; если пул пуст, уникальный номер генерируется на месте.
+     * Должен вызываться внутри транзакции выпуска карты, чтобы при откате номер вернулся в пул.
+     *
+     * @return номер карты с отпечатком и замаскированным значением
+     */
+    public PooledCardNumber nextCardNumber() {
+        Optional<PooledCardNumber> claimed = cardNumberPoolRepository.claim();
+        if (claimed.isPresent()) {
+            size.updateAndGet(current -> Math.max(current - 1, 0));
+            return claimed.get();
+        }
+        missCounter.increment();
+        String rawCardNumber;
+        String fingerprint;
+        do {
+            rawCardNumber = cardNumberService.generateCardNumber();
+            fingerprint = encryptionService.fingerprint(rawCardNumber);
+        } while (cardRepository.existsByCardNumberFingerprint(fingerprint)
+                || cardNumberPoolRepository.existsByFingerprint(fingerprint));
+        return toPooledCardNumber(rawCardNumber, fingerprint);
+    }
+
+    /**
+     * Возвращает несколько номеров для новых карт.
+     * Номера забираются из пула одним запросом; недостающие генерируются пакетами,
+     * а их уникальность проверяется одним запросом на пакет.
+     * Должен вызываться внутри транзакции выпуска карт.
+     *
+     * @param count количество номеров
+     * @return уникальные номера карт
+     */
+    public List<PooledCardNumber> nextCardNumbers(int count) {
+        List<PooledCardNumber> numbers = new ArrayList<>(count);
+        if (count <= 0) {
+            return numbers;
+        }
+        numbers.addAll(cardNumberPoolRepository.claimAll(count));
+        size.updateAndGet(current -> Math.max(current - numbers.size(), 0));
+        if (numbers.size() < count) {
+            missCounter.increment(count - numbers.size());
+        }
+        Set<String> fingerprints = new HashSet<>();
+        numbers.forEach(number -> fingerprints.add(number.getCardNumberFingerprint()));
+        while (numbers.size() < count) {
+            Map<String, String> candidates = new LinkedHashMap<>();
+            for (int i = numbers.size(); i < count && candidates.size() < batchSize; i++) {
+                String rawCardNumber = cardNumberService.generateCardNumber();
+                String fingerprint = encryptionService.fingerprint(rawCardNumber);
+                if (!fingerprints.contains(fingerprint)) {
+                    candidates.putIfAbsent(fingerprint, rawCardNumber);
+                }
+            }
+            Set<String> taken = cardNumberPoolRepository.findTakenFingerprints(new ArrayList<>(candidates.keySet()));
+            candidates.forEach((fingerprint, rawCardNumber) -> {
+                if (!taken.contains(fingerprint)) {
+                    fingerprints.add(fingerprint);
+                    numbers.add(toPooledCardNumber(rawCardNumber, fingerprint));
+                }
+            });
+        }
+        return numbers;
+    }
+
+    /**
+     * Пополняет пул до целевого размера.
+     * Запускается по расписанию; номера, совпавшие с уже выпущенными или зарезервированными, отбрасываются.
+     */
+    @Scheduled(initialDelayString = "${app.cards.number-pool.initial-delay:5000}",
+            fixedDelayString = "${app.cards.number-pool.delay:5000}")
+    public void refill() {
+        long current = cardNumberPoolRepository.count();
+        size.set(current);
+        while (current < targetSize) {
+            int inserted = cardNumberPoolRepository.insertAll(generate((int) Math.min(batchSize, targetSize - current)));
+            if (inserted == 0) {
+                break;
+            }
+            current = size.addAndGet(inserted);
+        }
+    }
+
+    /**
+     * Генерирует пакет новых номеров карт.
+     *
+     * @param count количество номеров
+     * @return сгенерированные номера
+     */
+    private List<PooledCardNumber> generate(int count) {
+        List<PooledCardNumber> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String rawCardNumber = cardNumberService.generateCardNumber();
+            numbers.add(toPooledCardNumber(rawCardNumber, encryptionService.fingerprint(rawCardNumber)));
+        }
+        return numbers;
+    }
+
+    /**
+     * Формирует номер для пула: шифрует номер и вычисляет замаскированное значение.
+     *
+     * @param rawCardNumber номер карты в открытом виде
+     * @param fingerprint   отпечаток номера карты
+     * @return номер карты для пула
+     */
+    private PooledCardNumber toPooledCardNumber(String rawCardNumber, String fingerprint) {
+        return new PooledCardNumber(
+                encryptionService.encrypt(rawCardNumber),
+                fingerprint,
+                cardNumberService.maskCardNumber(rawCardNumber));
+    }
+}
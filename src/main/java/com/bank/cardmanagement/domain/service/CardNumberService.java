@@ -0,0 +1,76 @@
+package com.bank.cardmanagement.domain.service;
+
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+
+/**
+ * Сервис для работы с номерами банковских карт: генерация и маскирование.
+ */
+@Service
+public class CardNumberService {
+
+    /**
+     * Генератор случайных чисел, потокобезопасен и переиспользуется между вызовами.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * Генерирует случайный номер карты в формате "4000" + 11 случайных цифр + контрольная цифра по алгоритму Луна.
+     *
+     * @return сгенерированный номер карты в виде строки.
+     */
+    public String generateCardNumber() {
+        StringBuilder number = new StringBuilder("4000");
+        for (int i = 0; i < 11; i++) {
+            number.append(RANDOM.nextInt(10));
+        }
+        number.append(luhnCheckDigit(number));
+        return number.toString();
+    }
+
+    /**
+     * Проверяет контрольную цифру номера карты по алгоритму Луна.
+     *
+     * @param number номер карты
+     * @return true, если контрольная цифра корректна
+     */
+    public boolean isLuhnValid(String number) {
+        int length = number.length();
+        return length > 1
+                && luhnCheckDigit(number.subSequence(0, length - 1)) == Character.digit(number.charAt(length - 1), 10);
+    }
+
+    /**
+     * Маскирует номер карты, скрывая 8 средних цифр, оставляя только первые и последние 4.
+     *
+     * @param number номер карты, который нужно замаскировать.
+     * @return строка с замаскированным номером карты.
+     */
+    public String maskCardNumber(String number) {
+        return number.replaceAll("(\\d{4})(\\d{8})(\\d{4})", "$1********$3");
+    }
+
+    /**
+     * Вычисляет контрольную цифру по алгоритму Луна для номера без контрольной цифры.
+     *
+     * @param payload цифры номера без контрольной цифры
+     * @return контрольная цифра
+     */
+    private int luhnCheckDigit(CharSequence payload) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = payload.length() - 1; i >= 0; i--) {
+            int digit = Character.digit(payload.charAt(i), 10);
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
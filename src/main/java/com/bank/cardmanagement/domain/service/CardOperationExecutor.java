@@ -0,0 +1,209 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Исполнитель изменений баланса карт по разделам.
+ * Во включённом режиме операция направляется по ID карты в один из фиксированного числа однопоточных разделов:
+ * операции над одной картой выполняются строго по очереди в памяти и не конкурируют за строку карты в БД,
+ * а операции над разными картами идут параллельно в разных разделах. Очередь раздела ограничена,
+ * запросы сверх неё сразу отклоняются. В выключенном режиме операция выполняется в вызывающем потоке.
+ */
+@Service
+public class CardOperationExecutor {
+
+    /**
+     * Сообщение об отказе при перегрузке раздела.
+     */
+    private static final String BUSY_MESSAGE = "Слишком много операций по карте, повторите попытку позже!";
+
+    /**
+     * Реестр метрик.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Счётчик операций, отклонённых из-за заполненной очереди или истёкшего ожидания.
+     */
+    private final Counter rejectedCounter;
+
+    /**
+     * Признак выполнения операций в разделах.
+     */
+    @Value("${app.cards.partitioned-executor.enabled:false}")
+    private boolean enabled = false;
+
+    /**
+     * Количество разделов.
+     */
+    @Value("${app.cards.partitioned-executor.partitions:8}")
+    private int partitions = 8;
+
+    /**
+     * Максимальное количество операций, ожидающих в очереди одного раздела.
+     */
+    @Value("${app.cards.partitioned-executor.queue-capacity:256}")
+    private int queueCapacity = 256;
+
+    /**
+     * Максимальное время ожидания начала операции в миллисекундах.
+     */
+    @Value("${app.cards.partitioned-executor.timeout:5000}")
+    private long timeoutMillis = 5000;
+
+    /**
+     * Рекомендуемая пауза перед повторным запросом клиента в секундах.
+     */
+    @Value("${app.cards.partitioned-executor.retry-after:1}")
+    private long retryAfterSeconds = 1;
+
+    /**
+     * Однопоточные пулы разделов.
+     */
+    private ThreadPoolExecutor[] executors;
+
+    /**
+     * Таймеры ожидания операций в очереди по разделам.
+     */
+    private Timer[] waitTimers;
+
+    /**
+     * Конструктор исполнителя.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public CardOperationExecutor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.rejectedCounter = Counter.builder("cards.executor.rejected")
+                .description("Операции по картам, отклонённые из-за перегрузки раздела")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Создание разделов и регистрация метрик их загрузки, если режим включён.
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        this.executors = new ThreadPoolExecutor[partitions];
+        this.waitTimers = new Timer[partitions];
+        for (int i = 0; i < partitions; i++) {
+            String name = "card-partition-" + i;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+            executors[i] = executor;
+            String partition = String.valueOf(i);
+            Gauge.builder("cards.executor.queue.depth", executor, pool -> pool.getQueue().size())
+                    .description("Операции по картам, ожидающие в очереди раздела")
+                    .tag("partition", partition)
+                    .register(meterRegistry);
+            waitTimers[i] = Timer.builder("cards.executor.wait")
+                    .description("Время ожидания операции по карте в очереди раздела")
+                    .tag("partition", partition)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Останавливает разделы при завершении приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executors != null) {
+            for (ThreadPoolExecutor executor : executors) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Выполняет операцию в разделе карты и возвращает её результат.
+     * Контекст безопасности и действие, занимающее ключ идемпотентности, передаются в поток раздела.
+     * Если операция не началась за отведённое время, она снимается с очереди; уже начатая операция
+     * дожидается завершения, чтобы клиент не получил отказ по операции, которая была выполнена.
+     *
+     * @param cardId    идентификатор изменяемой карты
+     * @param operation операция над картой
+     * @param <T>       тип результата
+     * @return результат операции
+     * @throws ServiceBusyException если очередь раздела заполнена или операция не началась вовремя
+     */
+    public <T> T execute(Long cardId, Supplier<T> operation) {
+        if (executors == null) {
+            return operation.get();
+        }
+        int partition = Math.floorMod(cardId.hashCode(), executors.length);
+        Timer waitTimer = waitTimers[partition];
+        long submittedAt = System.nanoTime();
+        Runnable claim = IdempotencyClaim.current();
+        Callable<T> task = new DelegatingSecurityContextCallable<>(() -> {
+            waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+            return IdempotencyClaim.callWith(claim, operation);
+        });
+        Future<T> future;
+        try {
+            future = executors[partition].submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        }
+        try {
+            try {
+                return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (future.cancel(false)) {
+                    rejectedCounter.increment();
+                    throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+                }
+                return future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Ошибка при выполнении операции по карте!", e.getCause());
+        }
+    }
+
+    /**
+     * Выполняет операцию без результата в разделе карты.
+     *
+     * @param cardId    идентификатор изменяемой карты
+     * @param operation операция над картой
+     * @throws ServiceBusyException если очередь раздела заполнена или операция не началась вовремя
+     */
+    public void run(Long cardId, Runnable operation) {
+        execute(cardId, () -> {
+            operation.run();
+            return null;
+        });
+    }
+}
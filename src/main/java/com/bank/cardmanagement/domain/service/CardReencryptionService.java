@@ -0,0 +1,166 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.ReencryptionCheckpoint;
+import com.bank.cardmanagement.datasource.repository.ReencryptionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис фонового перешифрования номеров карт текущей версией ключа.
+ * Таблицы читаются пакетами по возрастанию идентификатора, каждый пакет обрабатывается в короткой транзакции
+ * с условным обновлением строк, а прогресс сохраняется в контрольной точке, чтобы продолжить работу после перезапуска.
+ * Между пакетами выдерживается пауза, чтобы не создавать заметной нагрузки на основной трафик.
+ */
+@Service
+public class CardReencryptionService {
+
+    /**
+     * Таблицы, номера в которых перешифровываются, в порядке обработки.
+     */
+    private static final List<String> TABLES = List.of("cards", "card_number_pool");
+
+    /**
+     * Репозиторий для перешифрования номеров карт.
+     */
+    private final ReencryptionRepository reencryptionRepository;
+
+    /**
+     * Сервис для шифрования данных.
+     */
+    private final EncryptionService encryptionService;
+
+    /**
+     * Шаблон для выполнения пакета в отдельной транзакции.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Реестр метрик.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Количество строк в одном пакете.
+     */
+    @Value("${app.encryption.reencryption.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * Пауза между пакетами в миллисекундах.
+     */
+    @Value("${app.encryption.reencryption.throttle:100}")
+    private long throttleMillis = 100;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param reencryptionRepository репозиторий для перешифрования номеров карт
+     * @param encryptionService      сервис для шифрования данных
+     * @param transactionTemplate    шаблон для выполнения пакета в отдельной транзакции
+     * @param meterRegistry          реестр метрик
+     */
+    public CardReencryptionService(ReencryptionRepository reencryptionRepository, EncryptionService encryptionService,
+                                   TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.reencryptionRepository = reencryptionRepository;
+        this.encryptionService = encryptionService;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Перешифровывает все таблицы с номерами карт текущей версией ключа.
+     * Запускается по расписанию; если перешифровывать нечего, проверяет только строки, добавленные после контрольной точки.
+     */
+    @Scheduled(initialDelayString = "${app.encryption.reencryption.initial-delay:30000}",
+            fixedDelayString = "${app.encryption.reencryption.delay:300000}")
+    public void reencrypt() {
+        for (String table : TABLES) {
+            if (!reencryptTable(table)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Перешифровывает таблицу, начиная с сохранённой контрольной точки.
+     * Если контрольная точка относится к другой версии ключа, таблица обрабатывается с начала.
+     *
+     * @param table имя таблицы
+     * @return false, если работа прервана
+     */
+    public boolean reencryptTable(String table) {
+        int keyVersion = encryptionService.getKeyVersion();
+        Long lastId = reencryptionRepository.findCheckpoint(table)
+                .filter(checkpoint -> checkpoint.getKeyVersion() == keyVersion)
+                .map(ReencryptionCheckpoint::getLastId)
+                .orElse(0L);
+        while (lastId != null) {
+            long afterId = lastId;
+            lastId = transactionTemplate.execute(status -> reencryptChunk(table, keyVersion, afterId));
+            if (lastId != null && !pause()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Перешифровывает один пакет строк и сохраняет контрольную точку.
+     *
+     * @param table      имя таблицы
+     * @param keyVersion версия целевого ключа
+     * @param afterId    идентификатор, после которого начинается пакет
+     * @return идентификатор последней строки пакета или null, если таблица обработана до конца
+     */
+    private Long reencryptChunk(String table, int keyVersion, long afterId) {
+        Map<Long, String> chunk = reencryptionRepository.findChunk(table, afterId, chunkSize);
+        if (chunk.isEmpty()) {
+            return null;
+        }
+        Map<Long, String> stale = new LinkedHashMap<>();
+        chunk.forEach((id, encrypted) -> {
+            if (encryptionService.keyVersionOf(encrypted) != keyVersion) {
+                stale.put(id, encrypted);
+            }
+        });
+        if (!stale.isEmpty()) {
+            List<String> decrypted = encryptionService.decryptAll(new ArrayList<>(stale.values()));
+            Map<Long, String> updated = new LinkedHashMap<>();
+            int index = 0;
+            for (Long id : stale.keySet()) {
+                updated.put(id, encryptionService.encrypt(decrypted.get(index++)));
+            }
+            int count = reencryptionRepository.updateEncrypted(table, stale, updated);
+            meterRegistry.counter("encryption.reencrypted", "table", table).increment(count);
+        }
+        long lastId = new ArrayList<>(chunk.keySet()).get(chunk.size() - 1);
+        reencryptionRepository.saveCheckpoint(table, new ReencryptionCheckpoint(keyVersion, lastId));
+        return chunk.size() < chunkSize ? null : lastId;
+    }
+
+    /**
+     * Выдерживает паузу между пакетами.
+     *
+     * @return false, если поток был прерван
+     */
+    private boolean pause() {
+        if (throttleMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(throttleMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.bank.cardmanagement.domain.service;
 
+import com.bank.cardmanagement.datasource.projection.PooledCardNumber;
+import com.bank.cardmanagement.datasource.repository.CardBatchRepository;
 import com.bank.cardmanagement.datasource.repository.CardRepository;
 import com.bank.cardmanagement.datasource.repository.TransactionRepository;
 import com.bank.cardmanagement.datasource.repository.UserRepository;
+import com.bank.cardmanagement.dto.request.BulkCardItemRequest;
+import com.bank.cardmanagement.dto.request.BulkCardRequest;
 import com.bank.cardmanagement.dto.request.CardLimitRequest;
 import com.bank.cardmanagement.dto.request.CardRequest;
 import com.bank.cardmanagement.dto.request.WithdrawRequest;
+import com.bank.cardmanagement.dto.response.BulkCardItemResponse;
 import com.bank.cardmanagement.dto.response.CardResponse;
+import com.bank.cardmanagement.dto.response.CursorPageResponse;
 import com.bank.cardmanagement.entity.*;
 import com.bank.cardmanagement.exception.CardNotFoundException;
+import com.bank.cardmanagement.exception.ServiceBusyException;
 import com.bank.cardmanagement.exception.UserNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,8 +28,12 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.YearMonth;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для работы с банковскими картами.
@@ -53,26 +67,87 @@ public class CardService {
      */
     private final CardValidationService cardValidationService;
 
+    /**
+     * Сервис для генерации и маскирования номеров карт
+     */
+    private final CardNumberService cardNumberService;
+
+    /**
+     * Сервис пула заранее сгенерированных номеров карт
+     */
+    private final CardNumberPoolService cardNumberPoolService;
+
+    /**
+     * Репозиторий для пакетных операций над картами
+     */
+    private final CardBatchRepository cardBatchRepository;
+
+    /**
+     * Сервис лимитов снятия наличных
+     */
+    private final WithdrawalCounterService withdrawalCounterService;
+
+    /**
+     * Сервис повтора изменений баланса при конфликте версий
+     */
+    private final OptimisticRetryService optimisticRetryService;
+
+    /**
+     * Исполнитель изменений баланса карт по разделам.
+     */
+    private final CardOperationExecutor cardOperationExecutor;
+
+    /**
+     * Сервис дневной сводки транзакций.
+     */
+    private final TransactionRollupService transactionRollupService;
+
+    /**
+     * Максимальное количество карт в одном запросе массового выпуска
+     */
+    @Value("${app.cards.bulk.max-cards:100000}")
+    private int bulkMaxCards = 100_000;
+
+    /**
+     * Количество строк в одном пакете вставки при массовом выпуске
+     */
+    @Value("${app.cards.bulk.batch-size:1000}")
+    private int bulkBatchSize = 1000;
+
     /**
      * Конструктор для инициализации сервиса работы с картами.
      *
-     * @param cardRepository        репозиторий для работы с картами.
-     * @param userRepository        репозиторий для работы с пользователями.
-     * @param transactionRepository репозиторий для работы с транзакциями.
-     * @param encryptionService     сервис для шифрования данных.
-     * @param cardValidationService сервис для валидации карт.
+     * @param cardRepository           репозиторий для работы с картами.
+     * @param userRepository           репозиторий для работы с пользователями.
+     * @param transactionRepository    репозиторий для работы с транзакциями.
+     * @param encryptionService        сервис для шифрования данных.
+     * @param cardValidationService    сервис для валидации карт.
+     * @param cardNumberService        сервис для генерации и маскирования номеров карт.
+     * @param cardNumberPoolService    сервис пула заранее сгенерированных номеров карт.
+     * @param cardBatchRepository      репозиторий для пакетных операций над картами.
+     * @param withdrawalCounterService сервис лимитов снятия наличных.
+     * @param optimisticRetryService   сервис повтора изменений баланса при конфликте версий.
+     * @param cardOperationExecutor    исполнитель изменений баланса карт по разделам.
+     * @param transactionRollupService сервис дневной сводки транзакций.
      */
-    public CardService(CardRepository cardRepository, UserRepository userRepository, TransactionRepository transactionRepository, EncryptionService encryptionService, CardValidationService cardValidationService) {
+    public CardService(CardRepository cardRepository, UserRepository userRepository, TransactionRepository transactionRepository, EncryptionService encryptionService, CardValidationService cardValidationService, CardNumberService cardNumberService, CardNumberPoolService cardNumberPoolService, CardBatchRepository cardBatchRepository, WithdrawalCounterService withdrawalCounterService, OptimisticRetryService optimisticRetryService, CardOperationExecutor cardOperationExecutor, TransactionRollupService transactionRollupService) {
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
         this.transactionRepository = transactionRepository;
         this.encryptionService = encryptionService;
         this.cardValidationService = cardValidationService;
+        this.cardNumberService = cardNumberService;
+        this.cardNumberPoolService = cardNumberPoolService;
+        this.cardBatchRepository = cardBatchRepository;
+        this.withdrawalCounterService = withdrawalCounterService;
+        this.optimisticRetryService = optimisticRetryService;
+        this.cardOperationExecutor = cardOperationExecutor;
+        this.transactionRollupService = transactionRollupService;
     }
 
     /**
      * Создаёт новую банковскую карту для пользователя.
-     * Генерирует номер карты, шифрует его и сохраняет в базе данных.
+     * Забирает уникальный номер из пула заранее сгенерированных номеров и сохраняет карту в базе данных.
      *
      * @param cardRequest запрос на создание карты, содержащий информацию о пользователе.
      * @return объект типа {@link CardResponse}, содержащий информацию о созданной карте.
@@ -84,16 +159,11 @@ public class CardService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь не найден"));
 
-        String rawCardNumber;
-        String encryptedCardNumber;
-        do {
-            rawCardNumber = generateCardNumber();
-            encryptedCardNumber = encryptionService.encrypt(rawCardNumber);
-        } while (cardRepository.existsByEncryptedCardNumber(encryptedCardNumber));
-
-        String maskedCardNumber = maskCardNumber(rawCardNumber);
+        PooledCardNumber cardNumber = cardNumberPoolService.nextCardNumber();
         Card card = new Card();
-        card.setEncryptedCardNumber(encryptedCardNumber);
+        card.setEncryptedCardNumber(cardNumber.getEncryptedCardNumber());
+        card.setCardNumberFingerprint(cardNumber.getCardNumberFingerprint());
+        card.setMaskedCardNumber(cardNumber.getMaskedCardNumber());
         card.setUser(user);
         card.setExpirationDate(LocalDate.now().plusYears(3));
         card.setStatus(CardStatus.ACTIVE);
@@ -104,7 +174,7 @@ public class CardService {
 
         return new CardResponse(
                 saved.getId(),
-                maskedCardNumber,
+                cardNumber.getMaskedCardNumber(),
                 saved.getExpirationDate().toString(),
                 saved.getStatus().name(),
                 saved.getBalance(),
@@ -112,27 +182,83 @@ public class CardService {
     }
 
     /**
-     * Генерирует случайный номер карты в формате "4000" + 12 случайных цифр.
+     * Массово выпускает карты для нескольких пользователей.
+     * Пользователи проверяются одним запросом, номера забираются из пула пачкой,
+     * идентификаторы резервируются заранее, а карты вставляются пакетами JDBC.
+     * Элементы с несуществующими пользователями не прерывают выпуск остальных и возвращаются с ошибкой.
      *
-     * @return сгенерированный номер карты в виде строки.
+     * @param request запрос со списком пользователей и количеством карт для каждого.
+     * @return результаты выпуска по каждому элементу запроса в исходном порядке.
+     * @throws IllegalArgumentException если общее количество карт превышает допустимое.
      */
-    private String generateCardNumber() {
-        Random random = new Random();
-        StringBuilder number = new StringBuilder("4000");
-        for (int i = 0; i < 12; i++) {
-            number.append(random.nextInt(10));
+    @Transactional
+    public List<BulkCardItemResponse> createCards(BulkCardRequest request) {
+        List<BulkCardItemRequest> items = request.getItems();
+        long requested = items.stream().mapToLong(BulkCardItemRequest::getCount).sum();
+        if (requested > bulkMaxCards) {
+            throw new IllegalArgumentException("За один запрос можно выпустить не более " + bulkMaxCards + " карт!");
+        }
+        Set<Long> existingUserIds = userRepository.findExistingIds(items.stream()
+                .map(BulkCardItemRequest::getUserId)
+                .collect(Collectors.toSet()));
+        int toIssue = items.stream()
+                .filter(item -> existingUserIds.contains(item.getUserId()))
+                .mapToInt(BulkCardItemRequest::getCount)
+                .sum();
+        List<PooledCardNumber> cardNumbers = cardNumberPoolService.nextCardNumbers(toIssue);
+        List<Long> ids = toIssue == 0 ? List.of() : cardBatchRepository.nextIds(toIssue);
+
+        LocalDate expirationDate = LocalDate.now().plusYears(3);
+        List<Card> cards = new ArrayList<>(toIssue);
+        List<BulkCardItemResponse> responses = new ArrayList<>(items.size());
+        for (BulkCardItemRequest item : items) {
+            Long userId = item.getUserId();
+            if (!existingUserIds.contains(userId)) {
+                responses.add(new BulkCardItemResponse(userId, item.getCount(), List.of(), "Пользователь не найден"));
+                continue;
+            }
+            User user = userRepository.getReferenceById(userId);
+            List<CardResponse> issued = new ArrayList<>(item.getCount());
+            for (int i = 0; i < item.getCount(); i++) {
+                PooledCardNumber cardNumber = cardNumbers.get(cards.size());
+                Card card = new Card();
+                card.setId(ids.get(cards.size()));
+                card.setEncryptedCardNumber(cardNumber.getEncryptedCardNumber());
+                card.setCardNumberFingerprint(cardNumber.getCardNumberFingerprint());
+                card.setMaskedCardNumber(cardNumber.getMaskedCardNumber());
+                card.setUser(user);
+                card.setExpirationDate(expirationDate);
+                card.setStatus(CardStatus.ACTIVE);
+                card.setBalance(BigDecimal.ZERO);
+                card.setDailyLimit(BigDecimal.ZERO);
+                card.setMonthlyLimit(BigDecimal.ZERO);
+                cards.add(card);
+                issued.add(new CardResponse(
+                        card.getId(),
+                        card.getMaskedCardNumber(),
+                        expirationDate.toString(),
+                        CardStatus.ACTIVE.name(),
+                        BigDecimal.ZERO,
+                        userId));
+            }
+            responses.add(new BulkCardItemResponse(userId, item.getCount(), issued, null));
         }
-        return number.toString();
+        cardBatchRepository.insertCards(cards, bulkBatchSize);
+        return responses;
     }
 
     /**
-     * Маскирует номер карты, скрывая 8 средних цифр, оставляя только первые и последние 4.
+     * Находит карту по полному номеру одним запросом по уникальному индексу отпечатков.
      *
-     * @param number номер карты, который нужно замаскировать.
-     * @return строка с замаскированным номером карты.
+     * @param cardNumber полный номер карты.
+     * @return объект типа {@link CardResponse}, содержащий информацию о найденной карте.
+     * @throws CardNotFoundException если карта с указанным номером не найдена.
      */
-    private String maskCardNumber(String number) {
-        return number.replaceAll("(\\d{4})(\\d{8})(\\d{4})", "$1********$3");
+    @Transactional(readOnly = true)
+    public CardResponse findCardByNumber(String cardNumber) {
+        Card card = cardRepository.findByCardNumberFingerprint(encryptionService.fingerprint(cardNumber))
+                .orElseThrow(() -> new CardNotFoundException("Карта с указанным номером не найдена!"));
+        return convertToCardResponse(card, cardNumberService.maskCardNumber(cardNumber));
     }
 
     /**
@@ -212,17 +338,13 @@ public class CardService {
      */
     public Page<CardResponse> getAllCards(CardStatus cardStatus, Long userId, Pageable pageable) {
         if (cardStatus != null && userId != null) {
-            return cardRepository.findByStatusAndUserId(cardStatus, userId, pageable)
-                    .map(this::convertToCardResponse);
+            return convertToCardResponses(cardRepository.findByStatusAndUserId(cardStatus, userId, pageable));
         } else if (cardStatus != null) {
-            return cardRepository.findByStatus(cardStatus, pageable)
-                    .map(this::convertToCardResponse);
+            return convertToCardResponses(cardRepository.findByStatus(cardStatus, pageable));
         } else if (userId != null) {
-            return cardRepository.findByUserId(userId, pageable)
-                    .map(this::convertToCardResponse);
+            return convertToCardResponses(cardRepository.findByUserId(userId, pageable));
         }
-        return cardRepository.findAll(pageable)
-                .map(this::convertToCardResponse);
+        return convertToCardResponses(cardRepository.findAll(pageable));
     }
 
     /**
@@ -235,23 +357,118 @@ public class CardService {
     public Page<CardResponse> getAllMyCards(CardStatus cardStatus, Pageable pageable) {
         Long userId = cardValidationService.getCurrentUserId();
         if (cardStatus != null) {
-            return cardRepository.findByStatusAndUserId(cardStatus, userId, pageable)
-                    .map(this::convertToCardResponse);
+            return convertToCardResponses(cardRepository.findByStatusAndUserId(cardStatus, userId, pageable));
+        }
+        return convertToCardResponses(cardRepository.findByUserId(userId, pageable));
+    }
+
+    /**
+     * Получает страницу карт по курсору с возможностью фильтрации по статусу и идентификатору пользователя.
+     * Карты выбираются в порядке возрастания ID начиная с карты, следующей за курсором.
+     *
+     * @param cardStatus статус карты, по которому нужно фильтровать.
+     * @param userId     идентификатор пользователя, чьи карты нужно получить.
+     * @param cursor     курсор страницы; пустой курсор означает первую страницу.
+     * @param size       размер страницы.
+     * @return страница объектов {@link CardResponse} с курсором следующей страницы.
+     * @throws IllegalArgumentException если курсор некорректный.
+     */
+    public CursorPageResponse<CardResponse> getCardsByCursor(CardStatus cardStatus, Long userId, String cursor, int size) {
+        long afterId = PageCursor.decode(cursor);
+        Limit limit = PageCursor.limit(size);
+        if (cardStatus != null && userId != null) {
+            return convertToCursorPage(cardRepository.findByStatusAndUserIdAndIdGreaterThanOrderByIdAsc(cardStatus, userId, afterId, limit), size);
+        } else if (cardStatus != null) {
+            return convertToCursorPage(cardRepository.findByStatusAndIdGreaterThanOrderByIdAsc(cardStatus, afterId, limit), size);
+        } else if (userId != null) {
+            return convertToCursorPage(cardRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, limit), size);
+        }
+        return convertToCursorPage(cardRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit), size);
+    }
+
+    /**
+     * Получает страницу карт текущего пользователя по курсору с возможностью фильтрации по статусу.
+     *
+     * @param cardStatus статус карты, по которому нужно фильтровать.
+     * @param cursor     курсор страницы; пустой курсор означает первую страницу.
+     * @param size       размер страницы.
+     * @return страница объектов {@link CardResponse} с курсором следующей страницы.
+     * @throws IllegalArgumentException если курсор некорректный.
+     */
+    public CursorPageResponse<CardResponse> getMyCardsByCursor(CardStatus cardStatus, String cursor, int size) {
+        long afterId = PageCursor.decode(cursor);
+        Limit limit = PageCursor.limit(size);
+        Long userId = cardValidationService.getCurrentUserId();
+        if (cardStatus != null) {
+            return convertToCursorPage(cardRepository.findByStatusAndUserIdAndIdGreaterThanOrderByIdAsc(cardStatus, userId, afterId, limit), size);
+        }
+        return convertToCursorPage(cardRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, afterId, limit), size);
+    }
+
+    /**
+     * Преобразует страницу карт в страницу объектов {@link CardResponse}.
+     *
+     * @param cards страница карт, которую нужно преобразовать.
+     * @return страница объектов {@link CardResponse}, содержащих информацию о картах.
+     */
+    private Page<CardResponse> convertToCardResponses(Page<Card> cards) {
+        return new PageImpl<>(convertToCardResponses(cards.getContent()), cards.getPageable(), cards.getTotalElements());
+    }
+
+    /**
+     * Преобразует карты, выбранные по курсору, в страницу ответа.
+     *
+     * @param cards карты, выбранные с ограничением {@link PageCursor#limit(int)}
+     * @param size  размер страницы
+     * @return страница объектов {@link CardResponse} с курсором следующей страницы
+     */
+    private CursorPageResponse<CardResponse> convertToCursorPage(List<Card> cards, int size) {
+        return new CursorPageResponse<>(convertToCardResponses(PageCursor.content(cards, size)),
+                PageCursor.next(cards, size, Card::getId));
+    }
+
+    /**
+     * Преобразует список карт в список объектов {@link CardResponse}.
+     * Используется сохранённый замаскированный номер; карты, для которых он ещё не заполнен,
+     * дешифруются одним пакетом.
+     *
+     * @param content карты, которые нужно преобразовать.
+     * @return список объектов {@link CardResponse}, содержащих информацию о картах.
+     */
+    private List<CardResponse> convertToCardResponses(List<Card> content) {
+        List<Card> withoutMaskedNumber = content.stream()
+                .filter(card -> card.getMaskedCardNumber() == null)
+                .toList();
+        Map<Long, String> maskedNumbers = new HashMap<>();
+        if (!withoutMaskedNumber.isEmpty()) {
+            List<String> cardNumbers = encryptionService.decryptAll(withoutMaskedNumber.stream()
+                    .map(Card::getEncryptedCardNumber)
+                    .toList());
+            for (int i = 0; i < withoutMaskedNumber.size(); i++) {
+                maskedNumbers.put(withoutMaskedNumber.get(i).getId(), cardNumberService.maskCardNumber(cardNumbers.get(i)));
+            }
+        }
+        List<CardResponse> responses = new ArrayList<>(content.size());
+        for (Card card : content) {
+            String maskedCardNumber = card.getMaskedCardNumber() != null
+                    ? card.getMaskedCardNumber()
+                    : maskedNumbers.get(card.getId());
+            responses.add(convertToCardResponse(card, maskedCardNumber));
         }
-        return cardRepository.findByUserId(userId, pageable)
-                .map(this::convertToCardResponse);
+        return responses;
     }
 
     /**
      * Преобразует объект типа {@link Card} в объект типа {@link CardResponse}.
      *
-     * @param card карта, которую нужно преобразовать.
+     * @param card             карта, которую нужно преобразовать.
+     * @param maskedCardNumber замаскированный номер карты.
      * @return объект {@link CardResponse}, содержащий информацию о карте.
      */
-    private CardResponse convertToCardResponse(Card card) {
+    private CardResponse convertToCardResponse(Card card, String maskedCardNumber) {
         return new CardResponse(
                 card.getId(),
-                maskCardNumber(encryptionService.decrypt(card.getEncryptedCardNumber())),
+                maskedCardNumber,
                 card.getExpirationDate().toString(),
                 card.getStatus().name(),
                 card.getBalance(),
@@ -283,39 +500,31 @@ public class CardService {
 
     /**
      * Снимает наличные с карты, проверяя наличие средств, лимиты и доступность операции.
+     * Списание выполняется одним условным запросом без предварительного чтения карты: запрос сам проверяет
+     * владельца, статус и баланс. Карта читается только при отказе, чтобы выбрать сообщение об ошибке.
+     * Лимиты проверяются по счётчикам снятых сумм за день и месяц, которые изменяются в той же транзакции.
+     * Если включён исполнитель по разделам, снятие выполняется в разделе карты.
+     * Снятие записывается в дневную сводку транзакций в той же транзакции.
      *
      * @param cardId  ID карты, с которой нужно снять деньги.
      * @param request запрос на снятие наличных, содержащий сумму и описание.
      * @throws CardNotFoundException    если карта с указанным ID не найдена.
      * @throws IllegalArgumentException если на карте недостаточно средств или превышены лимиты.
      * @throws IllegalStateException    если карта не активна.
+     * @throws ServiceBusyException     если конфликт с параллельными операциями не разрешился за отведённые попытки.
      */
-    @Transactional
     public void cashWithdraw(Long cardId, WithdrawRequest request) {
-        Card card = cardValidationService.isMyCard(cardId);
-        cardValidationService.isActiveCard(card);
+        Long userId = cardValidationService.getCurrentUserId();
         BigDecimal amount = request.getAmount();
-        cardValidationService.isEnoughMoney(card, amount);
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1).minusNanos(1);
-        YearMonth currentMonth = YearMonth.now();
-        LocalDateTime startOfMonth = currentMonth.atDay(1).atStartOfDay();
-        LocalDateTime endOfMonth = currentMonth.atEndOfMonth().atTime(23, 59, 59);
-        BigDecimal dailySpent = transactionRepository.getDailyWithdrawalSum(cardId, startOfDay, endOfDay);
-        BigDecimal monthlySpent = transactionRepository.getMonthlyWithdrawalSum(cardId, startOfMonth, endOfMonth);
-        BigDecimal dailyLimit = card.getDailyLimit();
-        BigDecimal monthlyLimit = card.getMonthlyLimit();
-
-        if (dailyLimit != null && dailySpent.add(amount).compareTo(dailyLimit) > 0) {
-            throw new IllegalArgumentException("Превышен дневной лимит снятия наличных! Операция отклонена!");
-        }
-        if (monthlyLimit != null && monthlySpent.add(amount).compareTo(monthlyLimit) > 0) {
-            throw new IllegalArgumentException("Превышен месячный лимит снятия наличных! Операция отклонена!");
-        }
-        card.setBalance(card.getBalance().subtract(amount));
-        cardRepository.save(card);
-        Transaction transaction = new Transaction(TransactionType.WITHDRAWAL, amount, request.getDescription(), LocalDateTime.now(), card);
-        transactionRepository.save(transaction);
+        cardOperationExecutor.run(cardId, () -> optimisticRetryService.run("withdraw", () -> {
+            if (cardRepository.debit(cardId, userId, amount) == 0) {
+                cardValidationService.rejectBalanceUpdate(cardId, amount);
+            }
+            withdrawalCounterService.reserve(cardId, amount);
+            Transaction transaction = new Transaction(TransactionType.WITHDRAWAL, amount, request.getDescription(),
+                    LocalDateTime.now(), cardRepository.getReferenceById(cardId));
+            transactionRepository.save(transaction);
+            transactionRollupService.record(List.of(transaction));
+        }));
     }
 }
@@ -4,6 +4,7 @@ import com.bank.cardmanagement.datasource.repository.CardRepository;
 import com.bank.cardmanagement.entity.Card;
 import com.bank.cardmanagement.entity.CardStatus;
 import com.bank.cardmanagement.exception.CardNotFoundException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -99,4 +100,26 @@ public class CardValidationService {
             throw new IllegalArgumentException("Недостаточно средств на карте!");
         }
     }
+
+    /**
+     * Выясняет, почему условное изменение баланса не затронуло ни одной строки, и выбрасывает соответствующее исключение.
+     * Карта читается только в этом случае. Если все проверки проходят, значит карта изменилась между запросами,
+     * и выбрасывается конфликт версий, после которого операция может быть повторена.
+     *
+     * @param cardId идентификатор карты
+     * @param amount сумма списания или null, если проверялось зачисление
+     * @throws CardNotFoundException                  если карта с данным идентификатором не найдена
+     * @throws AccessDeniedException                  если карта не принадлежит текущему пользователю
+     * @throws IllegalStateException                  если карта не активна
+     * @throws IllegalArgumentException               если на карте недостаточно средств
+     * @throws ObjectOptimisticLockingFailureException если карта изменилась параллельным запросом
+     */
+    public void rejectBalanceUpdate(Long cardId, BigDecimal amount) {
+        Card card = isMyCard(cardId);
+        isActiveCard(card);
+        if (amount != null) {
+            isEnoughMoney(card, amount);
+        }
+        throw new ObjectOptimisticLockingFailureException(Card.class, cardId);
+    }
 }
@@ -0,0 +1,103 @@
+package com.bank.cardmanagement.domain.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограниченный пул заранее инициализированных криптографических объектов ({@link javax.crypto.Cipher}, {@link javax.crypto.Mac}).
+ * Позволяет не выполнять поиск провайдера и расчёт расписания ключей при каждой операции.
+ * Если свободных объектов нет, создаётся новый; лишние объекты после использования отбрасываются.
+ *
+ * @param <T> тип объекта в пуле
+ */
+public class CryptoPool<T> {
+
+    /**
+     * Свободные объекты, готовые к использованию.
+     */
+    private final BlockingQueue<T> idle;
+
+    /**
+     * Фабрика для создания новых инициализированных объектов.
+     */
+    private final CryptoFactory<T> factory;
+
+    /**
+     * Количество объектов, занятых в данный момент.
+     */
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    /**
+     * Конструктор пула с регистрацией метрик заполненности.
+     *
+     * @param name          имя пула, используется как тег метрик
+     * @param capacity      максимальное количество свободных объектов в пуле
+     * @param factory       фабрика для создания новых объектов
+     * @param meterRegistry реестр метрик
+     */
+    public CryptoPool(String name, int capacity, CryptoFactory<T> factory, MeterRegistry meterRegistry) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер пула должен быть больше нуля!");
+        }
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.factory = factory;
+        Gauge.builder("encryption.pool.idle", idle, BlockingQueue::size)
+                .description("Свободные объекты в пуле шифрования")
+                .tag("pool", name)
+                .register(meterRegistry);
+        Gauge.builder("encryption.pool.in-use", inUse, AtomicInteger::get)
+                .description("Занятые объекты пула шифрования")
+                .tag("pool", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет операцию с объектом из пула и возвращает объект обратно.
+     * Если операция завершилась ошибкой, объект не возвращается в пул, так как его состояние не гарантировано.
+     *
+     * @param operation операция над объектом
+     * @param <R>       тип результата
+     * @return результат операции
+     * @throws GeneralSecurityException если не удалось создать объект или выполнить операцию
+     */
+    public <R> R execute(CryptoOperation<T, R> operation) throws GeneralSecurityException {
+        T item = idle.poll();
+        if (item == null) {
+            item = factory.create();
+        }
+        inUse.incrementAndGet();
+        try {
+            R result = operation.apply(item);
+            idle.offer(item);
+            return result;
+        } finally {
+            inUse.decrementAndGet();
+        }
+    }
+
+    /**
+     * Фабрика инициализированных криптографических объектов.
+     *
+     * @param <T> тип объекта
+     */
+    @FunctionalInterface
+    public interface CryptoFactory<T> {
+        T create() throws GeneralSecurityException;
+    }
+
+    /**
+     * Операция над криптографическим объектом.
+     *
+     * @param <T> тип объекта
+     * @param <R> тип результата
+     */
+    @FunctionalInterface
+    public interface CryptoOperation<T, R> {
+        R apply(T item) throws GeneralSecurityException;
+    }
+}
@@ -1,20 +1,60 @@
 package com.bank.cardmanagement.domain.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Сервис для шифрования и дешифрования данных с использованием алгоритма AES.
  * Использует секретный ключ, который считывается из конфигурации приложения.
+ * Шифротексты версионируются: значения, зашифрованные ключом версии N > 0, имеют префикс {@code vN:},
+ * значения без префикса зашифрованы ключом версии 0. Предыдущие ключи используются только для дешифрования.
+ * Также вычисляет отпечатки (HMAC-SHA256) номеров карт для индексируемого поиска.
+ * Инициализированные объекты {@link Cipher} и {@link Mac} переиспользуются через пулы {@link CryptoPool}.
  */
 @Service
 public class EncryptionService {
 
+    /**
+     * Алгоритм вычисления отпечатков номеров карт.
+     */
+    private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Префикс версии ключа в зашифрованном значении.
+     */
+    private static final String VERSION_PREFIX = "v";
+
+    /**
+     * Разделитель версии ключа и шифротекста. Не встречается в алфавите Base64.
+     */
+    private static final char VERSION_SEPARATOR = ':';
+
+    /**
+     * Кодировщик Base64, потокобезопасен и переиспользуется между вызовами.
+     */
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+
+    /**
+     * Декодировщик Base64, потокобезопасен и переиспользуется между вызовами.
+     */
+    private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+
     /**
      * Секретный ключ для шифрования, считываемый из конфигурации приложения.
      */
@@ -22,21 +62,132 @@ public class EncryptionService {
     private String secretKeyRaw;
 
     /**
-     * Спецификация ключа для использования в алгоритме AES.
+     * Версия текущего ключа шифрования.
+     */
+    @Value("${app.encryption.key-version:0}")
+    private int keyVersion;
+
+    /**
+     * Предыдущие ключи, необходимые для дешифрования старых значений, в формате "версия:ключ" через запятую.
+     */
+    @Value("${app.encryption.previous-keys:}")
+    private String previousKeysRaw = "";
+
+    /**
+     * Секретный ключ для вычисления отпечатков номеров карт, считываемый из конфигурации приложения.
+     */
+    @Value("${app.encryption.fingerprint-key}")
+    private String fingerprintKeyRaw;
+
+    /**
+     * Максимальное количество свободных объектов Cipher в каждом пуле.
+     */
+    @Value("${app.encryption.pool-size:16}")
+    private int poolSize = 16;
+
+    /**
+     * Пул объектов Cipher, инициализированных для шифрования текущим ключом.
+     */
+    private CryptoPool<Cipher> encryptPool;
+
+    /**
+     * Пулы объектов Cipher, инициализированных для дешифрования, по версиям ключей.
+     */
+    private Map<Integer, CryptoPool<Cipher>> decryptPools;
+
+    /**
+     * Пул объектов Mac для вычисления отпечатков номеров карт.
+     */
+    private CryptoPool<Mac> fingerprintPool;
+
+    /**
+     * Реестр метрик.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Таймер операции шифрования.
+     */
+    private final Timer encryptTimer;
+
+    /**
+     * Таймер операции дешифрования одного значения.
+     */
+    private final Timer decryptTimer;
+
+    /**
+     * Таймер пакетного дешифрования.
+     */
+    private final Timer decryptAllTimer;
+
+    /**
+     * Таймер вычисления отпечатка.
      */
-    private SecretKeySpec secretKeySpec;
+    private final Timer fingerprintTimer;
 
     /**
-     * Инициализация сервиса: создание ключа для шифрования и дешифрования.
-     * Проверка, что ключ имеет длину 16 байт.
+     * Конструктор сервиса шифрования.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public EncryptionService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.encryptTimer = operationTimer("encrypt");
+        this.decryptTimer = operationTimer("decrypt");
+        this.decryptAllTimer = operationTimer("decrypt-all");
+        this.fingerprintTimer = operationTimer("fingerprint");
+    }
+
+    /**
+     * Инициализация сервиса: создание ключей и пулов для шифрования, дешифрования и вычисления отпечатков.
+     * Проверка, что все ключи шифрования имеют длину 16 байт, а ключ отпечатков задан.
      */
     @PostConstruct
     public void init() {
-        byte[] keyBytes = secretKeyRaw.getBytes();
-        if (keyBytes.length != 16) {
-            throw new IllegalArgumentException("Ключ должен быть длиной 16 байт!");
+        Map<Integer, SecretKeySpec> keys = new HashMap<>(parsePreviousKeys());
+        keys.put(keyVersion, aesKey(secretKeyRaw));
+        SecretKeySpec activeKey = keys.get(keyVersion);
+        this.encryptPool = new CryptoPool<>("aes-encrypt", poolSize, () -> createCipher(Cipher.ENCRYPT_MODE, activeKey), meterRegistry);
+        Map<Integer, CryptoPool<Cipher>> pools = new HashMap<>();
+        keys.forEach((version, key) -> pools.put(version, new CryptoPool<>(
+                "aes-decrypt-v" + version, poolSize, () -> createCipher(Cipher.DECRYPT_MODE, key), meterRegistry)));
+        this.decryptPools = Map.copyOf(pools);
+        if (fingerprintKeyRaw == null || fingerprintKeyRaw.isBlank()) {
+            throw new IllegalArgumentException("Ключ для отпечатков номеров карт не задан!");
+        }
+        SecretKeySpec fingerprintKeySpec = new SecretKeySpec(fingerprintKeyRaw.getBytes(), FINGERPRINT_ALGORITHM);
+        this.fingerprintPool = new CryptoPool<>("hmac-fingerprint", poolSize, () -> {
+            Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+            mac.init(fingerprintKeySpec);
+            return mac;
+        }, meterRegistry);
+    }
+
+    /**
+     * Возвращает версию текущего ключа шифрования.
+     *
+     * @return версия ключа, которым шифруются новые значения
+     */
+    public int getKeyVersion() {
+        return keyVersion;
+    }
+
+    /**
+     * Определяет версию ключа, которым зашифровано значение.
+     *
+     * @param encryptedData зашифрованное значение
+     * @return версия ключа; 0 для значений без префикса версии
+     */
+    public int keyVersionOf(String encryptedData) {
+        int separator = encryptedData.indexOf(VERSION_SEPARATOR);
+        if (separator < 0 || !encryptedData.startsWith(VERSION_PREFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(encryptedData.substring(VERSION_PREFIX.length(), separator));
+        } catch (NumberFormatException e) {
+            return -1;
         }
-        this.secretKeySpec = new SecretKeySpec(keyBytes, "AES");
     }
 
     /**
@@ -47,31 +198,196 @@ public class EncryptionService {
      * @throws RuntimeException если произошла ошибка при шифровании
      */
     public String encrypt(String data) {
+        long start = System.nanoTime();
         try {
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec);
-            byte[] encryptedBytes = cipher.doFinal(data.getBytes());
-            return Base64.getEncoder().encodeToString(encryptedBytes);
+            byte[] encryptedBytes = encryptPool.execute(cipher -> cipher.doFinal(data.getBytes()));
+            String encoded = BASE64_ENCODER.encodeToString(encryptedBytes);
+            return keyVersion == 0 ? encoded : VERSION_PREFIX + keyVersion + VERSION_SEPARATOR + encoded;
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при шифровании!", e);
+        } finally {
+            encryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
     /**
      * Дешифрует строку данных, зашифрованную с использованием алгоритма AES.
+     * Ключ выбирается по версии, указанной в префиксе значения.
      *
      * @param encryptedData зашифрованные данные в формате Base64
      * @return дешифрованные данные в виде строки
      * @throws RuntimeException если произошла ошибка при дешифровании
      */
     public String decrypt(String encryptedData) {
+        long start = System.nanoTime();
         try {
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, secretKeySpec);
-            byte[] decryptedBytes = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
+            byte[] decryptedBytes = decryptPool(encryptedData)
+                    .execute(cipher -> cipher.doFinal(BASE64_DECODER.decode(payload(encryptedData))));
             return new String(decryptedBytes);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при дешифровании!", e);
+        } finally {
+            decryptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Дешифрует список значений, используя один объект Cipher из пула на каждую встреченную версию ключа.
+     * Порядок результатов совпадает с порядком входных данных.
+     *
+     * @param encryptedData список зашифрованных данных в формате Base64
+     * @return список дешифрованных строк
+     * @throws RuntimeException если произошла ошибка при дешифровании любого из значений
+     */
+    public List<String> decryptAll(List<String> encryptedData) {
+        if (encryptedData.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        try {
+            Map<Integer, List<Integer>> indexesByVersion = new HashMap<>();
+            for (int i = 0; i < encryptedData.size(); i++) {
+                indexesByVersion.computeIfAbsent(keyVersionOf(encryptedData.get(i)), version -> new ArrayList<>()).add(i);
+            }
+            String[] result = new String[encryptedData.size()];
+            for (Map.Entry<Integer, List<Integer>> entry : indexesByVersion.entrySet()) {
+                decryptPool(entry.getKey()).execute(cipher -> {
+                    for (int index : entry.getValue()) {
+                        byte[] encrypted = BASE64_DECODER.decode(payload(encryptedData.get(index)));
+                        result[index] = new String(cipher.doFinal(encrypted));
+                    }
+                    return null;
+                });
+            }
+            return Arrays.asList(result);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при дешифровании!", e);
+        } finally {
+            decryptAllTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Вычисляет отпечаток номера карты (HMAC-SHA256 на отдельном ключе) в шестнадцатеричном виде.
+     * Отпечаток детерминирован и не зависит от схемы шифрования, поэтому используется для поиска и проверки уникальности.
+     *
+     * @param cardNumber номер карты в открытом виде
+     * @return отпечаток номера карты из 64 шестнадцатеричных символов
+     * @throws RuntimeException если произошла ошибка при вычислении отпечатка
+     */
+    public String fingerprint(String cardNumber) {
+        long start = System.nanoTime();
+        try {
+            byte[] digest = fingerprintPool.execute(mac -> mac.doFinal(cardNumber.getBytes()));
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new RuntimeException("Ошибка при вычислении отпечатка!", e);
+        } finally {
+            fingerprintTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
+
+    /**
+     * Создаёт объект Cipher, инициализированный ключом в заданном режиме.
+     *
+     * @param mode режим работы ({@link Cipher#ENCRYPT_MODE} или {@link Cipher#DECRYPT_MODE})
+     * @param key  ключ шифрования
+     * @return инициализированный объект Cipher
+     * @throws GeneralSecurityException если алгоритм или ключ недоступны
+     */
+    private Cipher createCipher(int mode, SecretKeySpec key) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(mode, key);
+        return cipher;
+    }
+
+    /**
+     * Возвращает пул дешифрования для версии ключа, которой зашифровано значение.
+     *
+     * @param encryptedData зашифрованное значение
+     * @return пул дешифрования
+     */
+    private CryptoPool<Cipher> decryptPool(String encryptedData) {
+        return decryptPool(keyVersionOf(encryptedData));
+    }
+
+    /**
+     * Возвращает пул дешифрования для версии ключа.
+     *
+     * @param version версия ключа
+     * @return пул дешифрования
+     * @throws IllegalStateException если ключ указанной версии не настроен
+     */
+    private CryptoPool<Cipher> decryptPool(int version) {
+        CryptoPool<Cipher> pool = decryptPools.get(version);
+        if (pool == null) {
+            throw new IllegalStateException("Ключ шифрования версии " + version + " не настроен!");
+        }
+        return pool;
+    }
+
+    /**
+     * Отделяет шифротекст от префикса версии ключа.
+     *
+     * @param encryptedData зашифрованное значение
+     * @return шифротекст в формате Base64
+     */
+    private String payload(String encryptedData) {
+        return keyVersionOf(encryptedData) == 0
+                ? encryptedData
+                : encryptedData.substring(encryptedData.indexOf(VERSION_SEPARATOR) + 1);
+    }
+
+    /**
+     * Создаёт спецификацию ключа AES с проверкой длины.
+     *
+     * @param rawKey ключ в виде строки
+     * @return спецификация ключа
+     * @throws IllegalArgumentException если длина ключа не равна 16 байтам
+     */
+    private SecretKeySpec aesKey(String rawKey) {
+        byte[] keyBytes = rawKey.getBytes();
+        if (keyBytes.length != 16) {
+            throw new IllegalArgumentException("Ключ должен быть длиной 16 байт!");
+        }
+        return new SecretKeySpec(keyBytes, "AES");
+    }
+
+    /**
+     * Разбирает список предыдущих ключей из конфигурации.
+     *
+     * @return ключи по версиям
+     * @throws IllegalArgumentException если запись имеет неверный формат
+     */
+    private Map<Integer, SecretKeySpec> parsePreviousKeys() {
+        Map<Integer, SecretKeySpec> keys = new HashMap<>();
+        if (previousKeysRaw == null || previousKeysRaw.isBlank()) {
+            return keys;
+        }
+        for (String entry : previousKeysRaw.split(",")) {
+            int separator = entry.indexOf(VERSION_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Предыдущий ключ должен быть указан в формате \"версия:ключ\"!");
+            }
+            try {
+                keys.put(Integer.parseInt(entry.substring(0, separator).trim()), aesKey(entry.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Предыдущий ключ должен быть указан в формате \"версия:ключ\"!");
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Регистрирует таймер длительности криптографической операции.
+     *
+     * @param operation название операции
+     * @return таймер
+     */
+    private Timer operationTimer(String operation) {
+        return Timer.builder("encryption.operation")
+                .description("Длительность операций шифрования")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
 }
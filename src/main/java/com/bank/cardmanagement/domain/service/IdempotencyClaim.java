@@ -0,0 +1,54 @@
+package com.bank.cardmanagement.domain.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Действие, занимающее ключ идемпотентности, для операции изменения баланса в текущем потоке.
+ * Сервис идемпотентности привязывает действие на время операции, исполнитель по разделам переносит его в поток
+ * раздела, а сервис повтора выполняет его первым в транзакции каждой попытки. Так ключ фиксируется и откатывается
+ * вместе с изменением баланса, а сервисы карт и переводов о ключах идемпотентности не знают.
+ */
+final class IdempotencyClaim {
+
+    /**
+     * Действие, привязанное к текущему потоку.
+     */
+    private static final ThreadLocal<Runnable> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Закрытый конструктор: класс содержит только статические методы.
+     */
+    private IdempotencyClaim() {
+    }
+
+    /**
+     * Возвращает действие, привязанное к текущему потоку.
+     *
+     * @return действие или null, если операция выполняется без ключа идемпотентности
+     */
+    static Runnable current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Выполняет операцию с действием, привязанным к текущему потоку, и восстанавливает прежнюю привязку.
+     *
+     * @param claim     действие, занимающее ключ, или null
+     * @param operation операция
+     * @param <T>       тип результата
+     * @return результат операции
+     */
+    static <T> T callWith(Runnable claim, Supplier<T> operation) {
+        Runnable previous = CURRENT.get();
+        CURRENT.set(claim);
+        try {
+            return operation.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
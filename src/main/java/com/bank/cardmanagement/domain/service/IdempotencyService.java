@@ -0,0 +1,342 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.IdempotencyRecord;
+import com.bank.cardmanagement.datasource.repository.IdempotencyKeyRepository;
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import com.bank.cardmanagement.security.TokenHasher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сервис выполнения запросов с ключом идемпотентности.
+ * Повтор запроса с тем же ключом возвращает сохранённый ответ и не выполняет операцию ещё раз.
+ * Ответ ищется сначала в ограниченном кэше в памяти, затем в БД, и только если ключ ещё не использован,
+ * запускается операция; одновременные повторы на одном экземпляре дожидаются результата первого запроса.
+ * Строка ключа вместе с телом ответа вставляется первым действием в транзакции самой операции,
+ * поэтому появляется только при её фиксации. Если ту же операцию одновременно начал другой экземпляр,
+ * вставка дожидается его транзакции и при занятом ключе откатывает свою, а клиент получает сохранённый ответ.
+ * Если операция завершилась ошибкой, её транзакция откатывается вместе с ключом, и запрос можно безопасно повторить.
+ */
+@Service
+public class IdempotencyService {
+
+    /**
+     * Сообщение об отказе, пока запрос с тем же ключом выполняется.
+     */
+    private static final String IN_PROGRESS_MESSAGE = "Запрос с этим ключом идемпотентности ещё выполняется, повторите попытку позже!";
+
+    /**
+     * Максимальная длина ключа идемпотентности.
+     */
+    private static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Репозиторий ключей идемпотентности.
+     */
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    /**
+     * Сервис для получения текущего пользователя.
+     */
+    private final CardValidationService cardValidationService;
+
+    /**
+     * Ответы недавно выполненных запросов по ключу "ID пользователя:ключ".
+     */
+    private final Map<String, Entry> completed = new ConcurrentHashMap<>();
+
+    /**
+     * Выполняющиеся на этом экземпляре запросы по ключу "ID пользователя:ключ".
+     */
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Счётчик ответов из кэша в памяти.
+     */
+    private final Counter memoryReplayCounter;
+
+    /**
+     * Счётчик ответов из БД.
+     */
+    private final Counter databaseReplayCounter;
+
+    /**
+     * Счётчик ответов, полученных ожиданием одновременного запроса.
+     */
+    private final Counter waitReplayCounter;
+
+    /**
+     * Время хранения ключа в миллисекундах.
+     */
+    @Value("${app.idempotency.ttl:86400000}")
+    private long ttlMillis = 86_400_000;
+
+    /**
+     * Максимальное количество ответов в кэше.
+     */
+    @Value("${app.idempotency.cache-size:10000}")
+    private int cacheSize = 10_000;
+
+    /**
+     * Максимальное время ожидания одновременного запроса с тем же ключом в миллисекундах.
+     */
+    @Value("${app.idempotency.wait-timeout:10000}")
+    private long waitTimeoutMillis = 10_000;
+
+    /**
+     * Рекомендуемая пауза перед повторным запросом клиента в секундах.
+     */
+    @Value("${app.idempotency.retry-after:1}")
+    private long retryAfterSeconds = 1;
+
+    /**
+     * Конструктор сервиса с регистрацией метрик.
+     *
+     * @param idempotencyKeyRepository репозиторий ключей идемпотентности
+     * @param cardValidationService    сервис для получения текущего пользователя
+     * @param meterRegistry            реестр метрик
+     */
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, CardValidationService cardValidationService,
+                              MeterRegistry meterRegistry) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.cardValidationService = cardValidationService;
+        this.memoryReplayCounter = replayCounter(meterRegistry, "memory");
+        this.databaseReplayCounter = replayCounter(meterRegistry, "database");
+        this.waitReplayCounter = replayCounter(meterRegistry, "wait");
+        Gauge.builder("idempotency.cache.size", completed, Map::size)
+                .description("Количество ответов в кэше ключей идемпотентности")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполняет операцию не больше одного раза для ключа идемпотентности текущего пользователя.
+     * Операция должна изменять баланс через сервис повтора изменений баланса: ключ занимается первым действием
+     * в транзакции каждой её попытки.
+     *
+     * @param key          ключ идемпотентности из заголовка запроса или null, если запрос не идемпотентный
+     * @param request      описание запроса: операция и её параметры; повтор ключа с другим запросом отклоняется
+     * @param responseBody тело ответа при успешном выполнении операции
+     * @param action       операция
+     * @return тело ответа операции или сохранённое тело ответа первого запроса
+     * @throws IllegalArgumentException если ключ некорректен или уже использован для другого запроса
+     * @throws ServiceBusyException     если запрос с тем же ключом ещё выполняется
+     * @throws IllegalStateException    если операция не заняла ключ
+     */
+    public String execute(String key, String request, String responseBody, Runnable action) {
+        if (key == null) {
+            action.run();
+            return responseBody;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Ключ идемпотентности должен содержать от 1 до " + MAX_KEY_LENGTH + " символов!");
+        }
+        Long userId = cardValidationService.getCurrentUserId();
+        String requestHash = TokenHasher.sha256(request);
+        String cacheKey = userId + ":" + key;
+        long now = System.currentTimeMillis();
+
+        Entry entry = completed.get(cacheKey);
+        if (entry != null && entry.expiresAt > now) {
+            checkSameRequest(entry.requestHash, requestHash);
+            memoryReplayCounter.increment();
+            return entry.responseBody;
+        }
+        InFlight own = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(cacheKey, own);
+        if (running != null) {
+            checkSameRequest(running.requestHash, requestHash);
+            String storedBody = await(running.result);
+            waitReplayCounter.increment();
+            return storedBody;
+        }
+        try {
+            String storedBody = executeOnce(userId, key, requestHash, responseBody, action);
+            cache(cacheKey, requestHash, storedBody, now);
+            own.result.complete(storedBody);
+            return storedBody;
+        } catch (RuntimeException e) {
+            own.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, own);
+        }
+    }
+
+    /**
+     * Удаляет ключи, срок хранения которых истёк, из БД и из кэша.
+     */
+    @Scheduled(initialDelayString = "${app.idempotency.cleanup-interval:3600000}",
+            fixedDelayString = "${app.idempotency.cleanup-interval:3600000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        completed.values().removeIf(entry -> entry.expiresAt <= now);
+        idempotencyKeyRepository.deleteOlderThan(LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+    }
+
+    /**
+     * Возвращает ответ уже зафиксированной операции из БД, не запуская операцию, а иначе выполняет операцию,
+     * которая занимает ключ в своей транзакции. Если ключ успели занять между проверкой и вставкой,
+     * транзакция операции прерывается, и возвращается сохранённый ответ.
+     * Если операция завершилась ошибкой, её транзакция откатилась вместе с ключом, и запрос можно безопасно повторить.
+     *
+     * @param userId       идентификатор пользователя
+     * @param key          ключ идемпотентности
+     * @param requestHash  хэш описания запроса
+     * @param responseBody тело ответа при успешном выполнении операции
+     * @param action       операция
+     * @return тело ответа
+     */
+    private String executeOnce(Long userId, String key, String requestHash, String responseBody, Runnable action) {
+        IdempotencyRecord stored = idempotencyKeyRepository.find(userId, key).orElse(null);
+        if (stored != null) {
+            return replay(stored, requestHash);
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        AtomicBoolean claimed = new AtomicBoolean();
+        Runnable claim = () -> {
+            if (!idempotencyKeyRepository.tryAcquire(userId, key, requestHash, responseBody, createdAt)) {
+                throw new KeyTakenException();
+            }
+            claimed.set(true);
+        };
+        try {
+            IdempotencyClaim.callWith(claim, () -> {
+                action.run();
+                return null;
+            });
+        } catch (KeyTakenException e) {
+            return replay(idempotencyKeyRepository.find(userId, key)
+                    .orElseThrow(() -> new ServiceBusyException(IN_PROGRESS_MESSAGE, retryAfterSeconds)), requestHash);
+        }
+        if (!claimed.get()) {
+            throw new IllegalStateException("Операция с ключом идемпотентности не заняла ключ!");
+        }
+        return responseBody;
+    }
+
+    /**
+     * Возвращает сохранённый в БД ответ после проверки, что ключ повторно используется для того же запроса.
+     *
+     * @param stored      запись ключа
+     * @param requestHash хэш текущего запроса
+     * @return сохранённое тело ответа
+     */
+    private String replay(IdempotencyRecord stored, String requestHash) {
+        checkSameRequest(stored.getRequestHash(), requestHash);
+        databaseReplayCounter.increment();
+        return stored.getResponseBody();
+    }
+
+    /**
+     * Дожидается результата одновременного запроса с тем же ключом.
+     *
+     * @param result результат одновременного запроса
+     * @return тело ответа
+     */
+    private String await(CompletableFuture<String> result) {
+        try {
+            return result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceBusyException(IN_PROGRESS_MESSAGE, retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException(IN_PROGRESS_MESSAGE, retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Ошибка при выполнении запроса с ключом идемпотентности!", e.getCause());
+        }
+    }
+
+    /**
+     * Кэширует ответ выполненного запроса.
+     * При заполнении кэша удаляются просроченные записи; если места всё равно нет, ответ остаётся только в БД.
+     *
+     * @param cacheKey     ключ кэша
+     * @param requestHash  хэш описания запроса
+     * @param responseBody тело ответа
+     * @param now          текущее время в миллисекундах
+     */
+    private void cache(String cacheKey, String requestHash, String responseBody, long now) {
+        if (completed.size() >= cacheSize) {
+            completed.values().removeIf(existing -> existing.expiresAt <= now);
+            if (completed.size() >= cacheSize) {
+                return;
+            }
+        }
+        completed.put(cacheKey, new Entry(requestHash, responseBody, now + ttlMillis));
+    }
+
+    /**
+     * Проверяет, что ключ повторно используется для того же запроса.
+     *
+     * @param storedHash  хэш запроса, для которого ключ был использован впервые
+     * @param requestHash хэш текущего запроса
+     * @throws IllegalArgumentException если запросы различаются
+     */
+    private void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IllegalArgumentException("Ключ идемпотентности уже использован для другого запроса!");
+        }
+    }
+
+    /**
+     * Регистрирует счётчик повторов, получивших сохранённый ответ.
+     *
+     * @param meterRegistry реестр метрик
+     * @param source        источник ответа
+     * @return счётчик повторов
+     */
+    private static Counter replayCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("idempotency.replays")
+                .description("Повторы запросов, получившие сохранённый ответ")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запись кэша: хэш запроса, тело ответа и момент истечения записи.
+     *
+     * @param requestHash  хэш описания запроса
+     * @param responseBody тело ответа
+     * @param expiresAt    момент истечения записи в миллисекундах
+     */
+    private record Entry(String requestHash, String responseBody, long expiresAt) {
+    }
+
+    /**
+     * Выполняющийся запрос: хэш описания запроса и его будущий результат.
+     *
+     * @param requestHash хэш описания запроса
+     * @param result      будущее тело ответа
+     */
+    private record InFlight(String requestHash, CompletableFuture<String> result) {
+    }
+
+    /**
+     * Прерывает транзакцию операции, если ключ занят операцией, зафиксированной после проверки ключа в БД.
+     */
+    private static final class KeyTakenException extends RuntimeException {
+
+        /**
+         * Создаёт исключение без стека вызовов: оно только управляет ходом выполнения.
+         */
+        private KeyTakenException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.JournalTransaction;
+import com.bank.cardmanagement.datasource.projection.LedgerPosting;
+import com.bank.cardmanagement.datasource.repository.LedgerRepository;
+import com.bank.cardmanagement.entity.LedgerAccount;
+import com.bank.cardmanagement.entity.TransactionType;
+import com.bank.cardmanagement.exception.CardNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Сервис журнала проводок по двойной записи для аудита и сверки балансов.
+ * Операции с балансом журнал не затрагивают: фоновое задание переносит в него записанные транзакции,
+ * и каждая операция превращается в проводки, сумма которых равна нулю: списание с одного счёта
+ * и зачисление на другой. Проводки не изменяются и не удаляются, поэтому по журналу можно проверить
+ * любой баланс карты. Баланс по журналу — последний снимок карты плюс проводки после него;
+ * снимки сдвигаются отдельным фоновым заданием.
+ */
+@Service
+public class LedgerService {
+
+    /**
+     * Репозиторий журнала проводок.
+     */
+    private final LedgerRepository ledgerRepository;
+
+    /**
+     * Шаблон для выполнения пакетов переноса и сжатия в отдельных транзакциях.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Количество строк в одном пакете вставки проводок.
+     */
+    @Value("${app.ledger.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Количество транзакций, переносимых в журнал в одной транзакции.
+     */
+    @Value("${app.ledger.journal.chunk-size:1000}")
+    private int journalChunkSize = 1000;
+
+    /**
+     * Количество карт, снимки которых сдвигаются в одной транзакции.
+     */
+    @Value("${app.ledger.snapshot.chunk-size:1000}")
+    private int snapshotChunkSize = 1000;
+
+    /**
+     * Максимальное количество карт в отчёте о расхождениях.
+     */
+    @Value("${app.ledger.verification-limit:100}")
+    private int verificationLimit = 100;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param ledgerRepository    репозиторий журнала проводок
+     * @param transactionTemplate шаблон для выполнения пакетов переноса и сжатия в отдельных транзакциях
+     */
+    public LedgerService(LedgerRepository ledgerRepository, TransactionTemplate transactionTemplate) {
+        this.ledgerRepository = ledgerRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Формирует проводки снятия наличных: списание со счёта карты и зачисление на счёт выданных наличных.
+     *
+     * @param cardId идентификатор карты
+     * @param amount сумма снятия
+     * @return проводки снятия
+     */
+    public List<LedgerPosting> withdrawalPostings(Long cardId, BigDecimal amount) {
+        UUID operationId = UUID.randomUUID();
+        return List.of(
+                new LedgerPosting(operationId, LedgerAccount.CARD, cardId, amount.negate()),
+                new LedgerPosting(operationId, LedgerAccount.CASH, null, amount));
+    }
+
+    /**
+     * Формирует проводки перевода между картами.
+     *
+     * @param sourceCardId      идентификатор карты-отправителя
+     * @param destinationCardId идентификатор карты-получателя
+     * @param amount            сумма перевода
+     * @return проводки перевода
+     */
+    public List<LedgerPosting> transferPostings(Long sourceCardId, Long destinationCardId, BigDecimal amount) {
+        UUID operationId = UUID.randomUUID();
+        return List.of(
+                new LedgerPosting(operationId, LedgerAccount.CARD, sourceCardId, amount.negate()),
+                new LedgerPosting(operationId, LedgerAccount.CARD, destinationCardId, amount));
+    }
+
+    /**
+     * Записывает проводки одной вставкой пакетами JDBC после проверки, что каждая операция сбалансирована.
+     *
+     * @param postings проводки одной или нескольких операций
+     * @throws IllegalStateException если сумма проводок какой-либо операции не равна нулю
+     */
+    public void record(List<LedgerPosting> postings) {
+        Map<UUID, BigDecimal> totals = new HashMap<>();
+        for (LedgerPosting posting : postings) {
+            totals.merge(posting.getOperationId(), posting.getAmount(), BigDecimal::add);
+        }
+        totals.forEach((operationId, total) -> {
+            if (total.signum() != 0) {
+                throw new IllegalStateException("Проводки операции " + operationId + " не сбалансированы!");
+            }
+        });
+        ledgerRepository.insertPostings(postings, LocalDateTime.now(), batchSize);
+    }
+
+    /**
+     * Вычисляет баланс карты по журналу проводок.
+     *
+     * @param cardId идентификатор карты
+     * @return баланс карты по журналу
+     * @throws CardNotFoundException если карта с указанным ID не найдена
+     */
+    public BigDecimal balanceOf(Long cardId) {
+        return ledgerRepository.balanceOf(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Карта с ID " + cardId + " не найдена!"));
+    }
+
+    /**
+     * Находит карты, баланс которых расходится с журналом проводок.
+     *
+     * @return ID карт с расхождением, не больше заданного предела
+     */
+    public List<Long> findMismatchedCards() {
+        return ledgerRepository.findMismatchedCardIds(verificationLimit);
+    }
+
+    /**
+     * Переносит записанные транзакции в журнал проводок.
+     * Сначала без блокировок определяется граница завершённых транзакций БД, затем транзакции до неё переносятся
+     * пакетами, каждый пакет — в отдельной транзакции вместе со сдвигом контрольной точки, пока не встретится
+     * неполный пакет. Контрольная точка блокируется на время пакета, поэтому перенос на нескольких экземплярах
+     * не создаёт повторных проводок.
+     */
+    @Scheduled(initialDelayString = "${app.ledger.journal.delay:1000}",
+            fixedDelayString = "${app.ledger.journal.delay:1000}")
+    public void journal() {
+        long watermark = ledgerRepository.committedWatermark();
+        Integer journaled;
+        do {
+            journaled = transactionTemplate.execute(status -> journalChunk(watermark));
+        } while (journaled != null && journaled >= journalChunkSize);
+    }
+
+    /**
+     * Сдвигает снимки балансов карт вперёд по журналу.
+     * Сначала без блокировок определяется граница завершённых транзакций БД, затем в снимки включаются проводки
+     * транзакций до неё пакетами карт, каждый пакет — в отдельной транзакции, пока не встретится неполный пакет.
+     */
+    @Scheduled(initialDelayString = "${app.ledger.snapshot.delay:60000}",
+            fixedDelayString = "${app.ledger.snapshot.delay:60000}")
+    public void compactSnapshots() {
+        long watermark = ledgerRepository.committedWatermark();
+        int compacted;
+        do {
+            compacted = transactionTemplate.execute(status ->
+                    ledgerRepository.compactSnapshots(watermark, LocalDateTime.now(), snapshotChunkSize));
+        } while (compacted >= snapshotChunkSize);
+    }
+
+    /**
+     * Переносит в журнал один пакет транзакций и сдвигает контрольную точку.
+     * Должен вызываться в транзакции пакета.
+     *
+     * @param watermark граница завершённых транзакций БД
+     * @return количество перенесённых транзакций
+     */
+    private int journalChunk(long watermark) {
+        List<JournalTransaction> chunk = ledgerRepository.lockUnjournaled(watermark, journalChunkSize);
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        List<LedgerPosting> postings = new ArrayList<>();
+        for (JournalTransaction transaction : chunk) {
+            if (transaction.getType() == TransactionType.WITHDRAWAL) {
+                postings.addAll(withdrawalPostings(transaction.getCardId(), transaction.getAmount()));
+            } else if (transaction.getCounterpartyCardId() != null) {
+                postings.addAll(transferPostings(transaction.getCardId(), transaction.getCounterpartyCardId(),
+                        transaction.getAmount()));
+            }
+        }
+        if (!postings.isEmpty()) {
+            record(postings);
+        }
+        JournalTransaction last = chunk.get(chunk.size() - 1);
+        ledgerRepository.advanceJournal(last.getXid(), last.getId(), LocalDateTime.now());
+        return chunk.size();
+    }
+}
@@ -0,0 +1,223 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничитель частоты попыток входа по email и по IP-адресу клиента.
+ * Каждый ключ получает корзину токенов: попытка забирает токен, токены восполняются с постоянной скоростью
+ * до заданной ёмкости. Состояние корзины — одно число (момент, когда корзина снова станет полной),
+ * которое меняется через compare-and-set, поэтому проверка не берёт блокировок и не обращается к БД.
+ * Полные корзины ничем не отличаются от отсутствующих и периодически удаляются, а число ключей ограничено.
+ * Если таблица корзин заполнена, из неё сначала удаляются восполненные корзины, а если места всё равно нет,
+ * попытка с новым ключом отклоняется: заполнив таблицу множеством адресов, нельзя отключить ограничение.
+ */
+@Service
+public class LoginRateLimiter {
+
+    /**
+     * Сообщение об отказе при превышении частоты попыток.
+     */
+    private static final String THROTTLED_MESSAGE = "Слишком много попыток входа, повторите попытку позже!";
+
+    /**
+     * Минимальный интервал между внеплановыми очистками заполненной таблицы корзин, нс.
+     */
+    private static final long OVERFLOW_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Корзины по ключам "ip:адрес" и "email:адрес".
+     * Значение — момент по {@link System#nanoTime()}, когда корзина восполнится полностью.
+     */
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Счётчик попыток, отклонённых по IP-адресу.
+     */
+    private final Counter ipThrottledCounter;
+
+    /**
+     * Счётчик попыток, отклонённых по email.
+     */
+    private final Counter emailThrottledCounter;
+
+    /**
+     * Счётчик попыток, отклонённых из-за заполненной таблицы корзин.
+     */
+    private final Counter overflowCounter;
+
+    /**
+     * Момент последней внеплановой очистки по {@link System#nanoTime()}.
+     */
+    private final AtomicLong lastOverflowSweep = new AtomicLong(System.nanoTime() - OVERFLOW_SWEEP_INTERVAL_NANOS);
+
+    /**
+     * Ёмкость корзины IP-адреса.
+     */
+    @Value("${app.security.login-rate-limit.ip.capacity:20}")
+    private int ipCapacity = 20;
+
+    /**
+     * Время восполнения одного токена корзины IP-адреса, мс.
+     */
+    @Value("${app.security.login-rate-limit.ip.refill-interval:1000}")
+    private long ipRefillInterval = 1000;
+
+    /**
+     * Ёмкость корзины email.
+     */
+    @Value("${app.security.login-rate-limit.email.capacity:5}")
+    private int emailCapacity = 5;
+
+    /**
+     * Время восполнения одного токена корзины email, мс.
+     */
+    @Value("${app.security.login-rate-limit.email.refill-interval:12000}")
+    private long emailRefillInterval = 12000;
+
+    /**
+     * Максимальное количество корзин в памяти.
+     */
+    @Value("${app.security.login-rate-limit.max-keys:100000}")
+    private int maxKeys = 100_000;
+
+    /**
+     * Конструктор ограничителя с регистрацией метрик.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public LoginRateLimiter(MeterRegistry meterRegistry) {
+        this.ipThrottledCounter = Counter.builder("security.login.throttled")
+                .description("Попытки входа, отклонённые ограничителем частоты")
+                .tag("key", "ip")
+                .register(meterRegistry);
+        this.emailThrottledCounter = Counter.builder("security.login.throttled")
+                .description("Попытки входа, отклонённые ограничителем частоты")
+                .tag("key", "email")
+                .register(meterRegistry);
+        this.overflowCounter = Counter.builder("security.login.overflow")
+                .description("Попытки входа, отклонённые из-за заполненной таблицы корзин")
+                .register(meterRegistry);
+        Gauge.builder("security.login.buckets", buckets, Map::size)
+                .description("Корзины ограничителя частоты входа в памяти")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Забирает токен попытки входа сначала по IP-адресу, затем по email.
+     * Если IP-адрес исчерпал лимит, корзина email не трогается, поэтому перебор адресов с одного IP
+     * не заполняет таблицу корзин.
+     *
+     * @param email    email из запроса на вход
+     * @param clientIp IP-адрес клиента
+     * @throws TooManyRequestsException если лимит попыток по IP-адресу или email исчерпан
+     */
+    public void acquire(String email, String clientIp) {
+        long now = System.nanoTime();
+        if (clientIp != null) {
+            long waitNanos = tryConsume("ip:" + clientIp, ipCapacity, ipRefillInterval, now);
+            if (waitNanos > 0) {
+                ipThrottledCounter.increment();
+                throw new TooManyRequestsException(THROTTLED_MESSAGE, toRetryAfterSeconds(waitNanos));
+            }
+        }
+        if (email != null) {
+            long waitNanos = tryConsume("email:" + email.trim().toLowerCase(Locale.ROOT), emailCapacity, emailRefillInterval, now);
+            if (waitNanos > 0) {
+                emailThrottledCounter.increment();
+                throw new TooManyRequestsException(THROTTLED_MESSAGE, toRetryAfterSeconds(waitNanos));
+            }
+        }
+    }
+
+    /**
+     * Удаляет полностью восполненные корзины: они эквивалентны отсутствующим.
+     * Попытка, которая пришлась на момент удаления, может не учесться — это стоит не больше одного токена.
+     */
+    @Scheduled(initialDelayString = "${app.security.login-rate-limit.cleanup-interval:60000}",
+            fixedDelayString = "${app.security.login-rate-limit.cleanup-interval:60000}")
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    /**
+     * Пытается забрать токен из корзины ключа.
+     * Момент полного восполнения сдвигается на время восполнения одного токена; если он уходит дальше,
+     * чем позволяет ёмкость, токенов нет и состояние не меняется.
+     * Новый ключ при заполненной таблице, в которой не нашлось места, получает отказ на время восполнения одного токена.
+     *
+     * @param key            ключ корзины
+     * @param capacity       ёмкость корзины
+     * @param refillInterval время восполнения одного токена, мс
+     * @param now            текущий момент по {@link System#nanoTime()}
+     * @return 0, если токен получен, иначе время до появления токена в наносекундах
+     */
+    private long tryConsume(String key, int capacity, long refillInterval, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys && !makeRoom(now)) {
+                overflowCounter.increment();
+                return TimeUnit.MILLISECONDS.toNanos(refillInterval);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        long interval = TimeUnit.MILLISECONDS.toNanos(refillInterval);
+        long window = interval * capacity;
+        while (true) {
+            long fullAt = bucket.get();
+            long next = (fullAt - now > 0 ? fullAt : now) + interval;
+            long overflow = next - now - window;
+            if (overflow > 0) {
+                return overflow;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Освобождает место в заполненной таблице, удаляя восполненные корзины.
+     * Очистка выполняется не чаще раза в секунду, чтобы поток новых ключей не заставлял обходить таблицу на каждой попытке.
+     *
+     * @param now текущий момент по {@link System#nanoTime()}
+     * @return true, если в таблице есть место
+     */
+    private boolean makeRoom(long now) {
+        long lastSweep = lastOverflowSweep.get();
+        if (now - lastSweep >= OVERFLOW_SWEEP_INTERVAL_NANOS && lastOverflowSweep.compareAndSet(lastSweep, now)) {
+            evictIdle(now);
+        }
+        return buckets.size() < maxKeys;
+    }
+
+    /**
+     * Удаляет корзины, полностью восполненные к указанному моменту.
+     *
+     * @param now текущий момент по {@link System#nanoTime()}
+     */
+    private void evictIdle(long now) {
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+    }
+
+    /**
+     * Переводит ожидание в значение заголовка Retry-After с округлением вверх.
+     *
+     * @param waitNanos ожидание в наносекундах
+     * @return ожидание в секундах, не меньше одной
+     */
+    private long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,166 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Сервис выполнения изменений баланса карт с повтором при конфликте версий.
+ * Каждая попытка выполняется в отдельной транзакции и заново проверяет карты, поэтому проверка средств и лимитов
+ * всегда видит актуальный баланс. При конфликте транзакция откатывается и повторяется после паузы
+ * со случайной составляющей, чтобы параллельные запросы к одной карте не сталкивались снова.
+ * Если операция выполняется с ключом идемпотентности, ключ занимается первым действием каждой попытки
+ * и фиксируется или откатывается вместе с ней.
+ */
+@Service
+public class OptimisticRetryService {
+
+    /**
+     * Сообщение об отказе после исчерпания попыток.
+     */
+    private static final String BUSY_MESSAGE = "Карта изменяется параллельными операциями, повторите попытку позже!";
+
+    /**
+     * Шаблон для выполнения попытки в отдельной транзакции.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Реестр метрик.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Максимальное количество попыток.
+     */
+    @Value("${app.cards.optimistic-retry.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    /**
+     * Базовая пауза перед повтором в миллисекундах, удваивается с каждой попыткой.
+     */
+    @Value("${app.cards.optimistic-retry.backoff:10}")
+    private long backoffMillis = 10;
+
+    /**
+     * Рекомендуемая пауза перед повторным запросом клиента в секундах.
+     */
+    @Value("${app.cards.optimistic-retry.retry-after:1}")
+    private long retryAfterSeconds = 1;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param transactionTemplate шаблон для выполнения попытки в отдельной транзакции
+     * @param meterRegistry       реестр метрик
+     */
+    public OptimisticRetryService(TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Выполняет действие в транзакции, повторяя его при конфликте версий карты.
+     * Должен вызываться вне транзакции: иначе попытка присоединится к внешней транзакции и не сможет быть повторена.
+     *
+     * @param operation название операции для метрик
+     * @param action    действие над картами
+     * @param <T>       тип результата
+     * @return результат действия
+     * @throws ServiceBusyException если конфликт повторился во всех попытках
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        Runnable claim = IdempotencyClaim.current();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(status -> {
+                    if (claim != null) {
+                        claim.run();
+                    }
+                    return action.get();
+                });
+                attempts(operation).record(attempt);
+                return result;
+            } catch (OptimisticLockingFailureException e) {
+                conflicts(operation).increment();
+                if (attempt >= maxAttempts) {
+                    attempts(operation).record(attempt);
+                    meterRegistry.counter("cards.balance.retries.exhausted", "operation", operation).increment();
+                    throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+                }
+                if (!pause(attempt)) {
+                    throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполняет действие без результата в транзакции, повторяя его при конфликте версий карты.
+     *
+     * @param operation название операции для метрик
+     * @param action    действие над картами
+     * @throws ServiceBusyException если конфликт повторился во всех попытках
+     */
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Возвращает счётчик конфликтов версий операции.
+     *
+     * @param operation название операции
+     * @return счётчик конфликтов
+     */
+    private Counter conflicts(String operation) {
+        return Counter.builder("cards.balance.conflicts")
+                .description("Конфликты версий карт при изменении баланса")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает распределение количества попыток операции.
+     *
+     * @param operation название операции
+     * @return распределение количества попыток
+     */
+    private DistributionSummary attempts(String operation) {
+        return DistributionSummary.builder("cards.balance.attempts")
+                .description("Количество попыток изменения баланса до успеха или отказа")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выдерживает паузу перед повтором: экспоненциальная база плюс случайная добавка того же размера.
+     *
+     * @param attempt номер неудавшейся попытки
+     * @return false, если поток был прерван
+     */
+    private boolean pause(int attempt) {
+        long base = backoffMillis << Math.min(attempt - 1, 10);
+        long delay = base + ThreadLocalRandom.current().nextLong(base + 1);
+        if (delay <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.bank.cardmanagement.domain.service;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Утилитный класс для постраничной навигации по курсору.
+ * Курсор — непрозрачная для клиента строка с ID последней записи страницы. Следующая страница выбирается
+ * условием {@code id > курсор} по индексу, поэтому её стоимость не зависит от того, сколько записей уже пролистано,
+ * и общее количество записей не подсчитывается.
+ */
+public final class PageCursor {
+
+    /**
+     * Сообщение о некорректном курсоре.
+     */
+    private static final String INVALID_CURSOR_MESSAGE = "Некорректный курсор страницы!";
+
+    /**
+     * Закрытый конструктор утилитного класса.
+     */
+    private PageCursor() {
+    }
+
+    /**
+     * Кодирует ID последней записи страницы в курсор.
+     *
+     * @param id ID последней записи страницы
+     * @return курсор следующей страницы
+     */
+    public static String encode(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Декодирует курсор в ID, после которого начинается страница.
+     *
+     * @param cursor курсор; пустой курсор означает первую страницу
+     * @return ID последней записи предыдущей страницы или 0 для первой страницы
+     * @throws IllegalArgumentException если курсор некорректный
+     */
+    public static long decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return 0L;
+        }
+        try {
+            long id = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (id < 0) {
+                throw new IllegalArgumentException(INVALID_CURSOR_MESSAGE);
+            }
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(INVALID_CURSOR_MESSAGE);
+        }
+    }
+
+    /**
+     * Возвращает ограничение выборки страницы: на одну запись больше размера страницы,
+     * чтобы узнать о наличии следующей страницы без подсчёта записей.
+     *
+     * @param size размер страницы
+     * @return ограничение выборки
+     */
+    public static Limit limit(int size) {
+        return Limit.of(size == Integer.MAX_VALUE ? size : size + 1);
+    }
+
+    /**
+     * Возвращает записи страницы без лишней записи, выбранной для проверки наличия следующей страницы.
+     *
+     * @param rows записи, выбранные с ограничением {@link #limit(int)}
+     * @param size размер страницы
+     * @param <E>  тип записи
+     * @return записи страницы
+     */
+    public static <E> List<E> content(List<E> rows, int size) {
+        return rows.size() > size ? rows.subList(0, size) : rows;
+    }
+
+    /**
+     * Возвращает курсор следующей страницы.
+     *
+     * @param rows записи, выбранные с ограничением {@link #limit(int)}
+     * @param size размер страницы
+     * @param idOf функция получения ID записи
+     * @param <E>  тип записи
+     * @return курсор следующей страницы или {@code null}, если страница последняя
+     */
+    public static <E> String next(List<E> rows, int size, Function<E, Long> idOf) {
+        return rows.size() > size ? encode(idOf.apply(rows.get(size - 1))) : null;
+    }
+}
@@ -0,0 +1,164 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервис проверки паролей на выделенном пуле потоков ограниченного размера.
+ * Проверка BCrypt выполняется не более чем в заданном числе потоков с ограниченной очередью,
+ * поэтому всплеск входов не может занять все потоки обработки запросов:
+ * запросы сверх очереди сразу отклоняются с рекомендацией повторить попытку позже.
+ */
+@Service
+public class PasswordVerificationService {
+
+    /**
+     * Сообщение об отказе при перегрузке.
+     */
+    private static final String BUSY_MESSAGE = "Сервис авторизации перегружен, повторите попытку позже!";
+
+    /**
+     * Компонент для шифрования и проверки паролей.
+     */
+    private final PasswordEncoder passwordEncoder;
+
+    /**
+     * Реестр метрик.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Таймер вычисления хэша пароля.
+     */
+    private final Timer hashTimer;
+
+    /**
+     * Счётчик отклонённых проверок.
+     */
+    private final Counter rejectedCounter;
+
+    /**
+     * Количество потоков проверки паролей.
+     */
+    @Value("${app.security.password-verification.threads:4}")
+    private int threads = 4;
+
+    /**
+     * Максимальное количество проверок, ожидающих свободного потока.
+     */
+    @Value("${app.security.password-verification.queue-capacity:32}")
+    private int queueCapacity = 32;
+
+    /**
+     * Максимальное время ожидания результата проверки в миллисекундах.
+     */
+    @Value("${app.security.password-verification.timeout:5000}")
+    private long timeoutMillis = 5000;
+
+    /**
+     * Рекомендуемая пауза перед повторной попыткой в секундах.
+     */
+    @Value("${app.security.password-verification.retry-after:1}")
+    private long retryAfterSeconds = 1;
+
+    /**
+     * Пул потоков проверки паролей.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param passwordEncoder компонент для шифрования и проверки паролей
+     * @param meterRegistry   реестр метрик
+     */
+    public PasswordVerificationService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.meterRegistry = meterRegistry;
+        this.hashTimer = Timer.builder("security.password.hash")
+                .description("Длительность проверки пароля")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("security.password.rejected")
+                .description("Проверки паролей, отклонённые из-за перегрузки")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Создание пула потоков и регистрация метрик его загрузки.
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-verification-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("security.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Проверки паролей, ожидающие свободного потока")
+                .register(meterRegistry);
+        Gauge.builder("security.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Проверки паролей, выполняемые в данный момент")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Останавливает пул потоков при завершении приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Проверяет пароль на выделенном пуле потоков.
+     *
+     * @param rawPassword     пароль в открытом виде
+     * @param encodedPassword хэш пароля
+     * @return true, если пароль совпадает
+     * @throws ServiceBusyException если очередь проверок заполнена или результат не получен вовремя
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> hashTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException(BUSY_MESSAGE, retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Ошибка при проверке пароля!", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.repository.RefreshSessionRepository;
+import com.bank.cardmanagement.security.TokenHasher;
+import com.bank.cardmanagement.security.model.RefreshSession;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище сессий refresh-токенов.
+ * Таблица refresh_sessions является источником истины для всех экземпляров приложения: создание, ротация
+ * и удаление сессий записываются в неё сразу, а ротация выполняется условным запросом, поэтому один refresh-токен
+ * нельзя использовать дважды даже на разных экземплярах, а отозванную на другом экземпляре сессию нельзя ротировать.
+ * Индекс в памяти служит кэшем для проверки refresh-токена без обращения к БД: при промахе или несовпадении токена
+ * сессия перечитывается из таблицы, а фоновая синхронизация подгружает сессии, созданные и ротированные
+ * другими экземплярами. Отметки использования накапливаются и пакетно записываются в таблицу (write-behind);
+ * при аварийной остановке теряются только они.
+ */
+@Service
+public class RefreshSessionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshSessionStore.class);
+
+    /**
+     * Запас при синхронизации, покрывающий изменения, зафиксированные позже более новых.
+     */
+    private static final long SYNC_OVERLAP_MILLIS = 5_000;
+
+    /**
+     * Репозиторий сессий refresh-токенов.
+     */
+    private final RefreshSessionRepository refreshSessionRepository;
+
+    /**
+     * Сессии по идентификатору.
+     */
+    private final Map<String, RefreshSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Использованные сессии, отметки которых ещё не записаны в БД.
+     */
+    private final Map<String, RefreshSession> pendingTouches = new ConcurrentHashMap<>();
+
+    /**
+     * Момент последнего изменения среди загруженных из БД сессий.
+     */
+    private volatile Instant syncedUntil = Instant.EPOCH;
+
+    /**
+     * Максимальное количество одновременных сессий одного пользователя.
+     * При превышении удаляется самая давно использованная сессия.
+     */
+    @Value("${app.security.sessions.max-per-user:10}")
+    private int maxPerUser = 10;
+
+    /**
+     * Конструктор хранилища с регистрацией метрик.
+     *
+     * @param refreshSessionRepository репозиторий сессий refresh-токенов
+     * @param meterRegistry            реестр метрик
+     */
+    public RefreshSessionStore(RefreshSessionRepository refreshSessionRepository, MeterRegistry meterRegistry) {
+        this.refreshSessionRepository = refreshSessionRepository;
+        Gauge.builder("security.sessions.active", sessions, Map::size)
+                .description("Сессии refresh-токенов в памяти")
+                .register(meterRegistry);
+        Gauge.builder("security.sessions.pending-writes", pendingTouches, Map::size)
+                .description("Отметки использования сессий, ожидающие записи в БД")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Загружает неистёкшие сессии из БД в индекс.
+     */
+    @PostConstruct
+    public void load() {
+        cacheAll(refreshSessionRepository.findActive());
+    }
+
+    /**
+     * Создаёт новую сессию пользователя.
+     * Если у пользователя превышено максимальное количество сессий, самые давно использованные сессии удаляются.
+     *
+     * @param sessionId    идентификатор сессии
+     * @param userId       ID пользователя
+     * @param refreshToken refresh-токен сессии
+     * @param expiresAt    момент истечения сессии
+     */
+    public void create(String sessionId, Long userId, String refreshToken, Instant expiresAt) {
+        Instant now = Instant.now();
+        RefreshSession session = new RefreshSession(sessionId, userId, TokenHasher.sha256(refreshToken), now, now, expiresAt);
+        refreshSessionRepository.insert(session);
+        sessions.put(sessionId, session);
+        refreshSessionRepository.deleteExcess(userId, maxPerUser).forEach(this::forget);
+    }
+
+    /**
+     * Находит сессию, которой принадлежит refresh-токен.
+     * Если сессии нет в памяти или токен не совпадает с сохранённым в памяти, сессия перечитывается из БД:
+     * она могла быть создана или ротирована другим экземпляром приложения.
+     *
+     * @param sessionId    идентификатор сессии из токена
+     * @param userId       ID пользователя из токена
+     * @param refreshToken refresh-токен
+     * @return сессия, если она существует, принадлежит пользователю и токен является текущим для сессии
+     */
+    public Optional<RefreshSession> find(String sessionId, Long userId, String refreshToken) {
+        if (sessionId == null) {
+            return Optional.empty();
+        }
+        RefreshSession session = sessions.get(sessionId);
+        if (session != null && session.getUserId().equals(userId) && matches(session, refreshToken)) {
+            return Optional.of(session);
+        }
+        Optional<RefreshSession> stored = refreshSessionRepository.findById(sessionId);
+        if (stored.isEmpty()) {
+            forget(sessionId);
+            return Optional.empty();
+        }
+        cache(stored.get());
+        if (!stored.get().getUserId().equals(userId) || !matches(stored.get(), refreshToken)) {
+            return Optional.empty();
+        }
+        return Optional.of(sessions.getOrDefault(sessionId, stored.get()));
+    }
+
+    /**
+     * Отмечает использование сессии. Отметка записывается в БД при следующей пакетной записи.
+     *
+     * @param session сессия
+     */
+    public void touch(RefreshSession session) {
+        RefreshSession touched = session.touch(Instant.now());
+        if (sessions.replace(session.getId(), session, touched)) {
+            pendingTouches.put(touched.getId(), touched);
+        }
+    }
+
+    /**
+     * Заменяет refresh-токен сессии.
+     * Замена выполняется условным запросом к БД, только если сессия не удалена и хранит проверенный токен,
+     * поэтому один и тот же refresh-токен нельзя использовать для ротации дважды, в том числе на разных экземплярах,
+     * а отозванную сессию нельзя продлить.
+     *
+     * @param session         сессия, полученная при проверке токена
+     * @param newRefreshToken новый refresh-токен
+     * @param expiresAt       новый момент истечения сессии
+     * @return true, если токен заменён
+     */
+    public boolean rotate(RefreshSession session, String newRefreshToken, Instant expiresAt) {
+        RefreshSession rotated = session.rotate(TokenHasher.sha256(newRefreshToken), Instant.now(), expiresAt);
+        if (!refreshSessionRepository.rotate(session.getTokenHash(), rotated)) {
+            forget(session.getId());
+            return false;
+        }
+        sessions.put(rotated.getId(), rotated);
+        pendingTouches.remove(rotated.getId());
+        return true;
+    }
+
+    /**
+     * Возвращает сессии пользователя, начиная с последней использованной.
+     * Сессии читаются из БД, поэтому в списке есть и сессии, созданные на других экземплярах приложения.
+     *
+     * @param userId ID пользователя
+     * @return список сессий
+     */
+    public List<RefreshSession> findByUser(Long userId) {
+        List<RefreshSession> result = new ArrayList<>(refreshSessionRepository.findByUser(userId));
+        result.replaceAll(stored -> {
+            RefreshSession cached = sessions.get(stored.getId());
+            return cached != null && cached.getLastUsedAt().isAfter(stored.getLastUsedAt()) ? cached : stored;
+        });
+        result.sort(Comparator.comparing(RefreshSession::getLastUsedAt).reversed());
+        return result;
+    }
+
+    /**
+     * Удаляет сессию пользователя.
+     *
+     * @param userId    ID пользователя
+     * @param sessionId идентификатор сессии
+     * @return true, если сессия найдена и удалена
+     */
+    public boolean revoke(Long userId, String sessionId) {
+        boolean deleted = refreshSessionRepository.delete(userId, sessionId);
+        RefreshSession cached = sessions.get(sessionId);
+        if (cached != null && cached.getUserId().equals(userId)) {
+            forget(sessionId);
+        }
+        return deleted;
+    }
+
+    /**
+     * Удаляет все сессии пользователя, в том числе созданные на других экземплярах приложения.
+     *
+     * @param userId ID пользователя
+     * @return идентификаторы удалённых сессий
+     */
+    public Set<String> revokeAll(Long userId) {
+        Set<String> ids = new HashSet<>(refreshSessionRepository.deleteByUser(userId));
+        for (RefreshSession session : sessions.values()) {
+            if (session.getUserId().equals(userId)) {
+                ids.add(session.getId());
+            }
+        }
+        ids.forEach(this::forget);
+        return ids;
+    }
+
+    /**
+     * Подгружает сессии, созданные, ротированные или использованные на других экземплярах приложения.
+     */
+    @Scheduled(initialDelayString = "${app.security.sessions.sync-interval:1000}",
+            fixedDelayString = "${app.security.sessions.sync-interval:1000}")
+    public void sync() {
+        cacheAll(refreshSessionRepository.findChangedAfter(syncedUntil.minusMillis(SYNC_OVERLAP_MILLIS)));
+    }
+
+    /**
+     * Пакетно записывает отметки использования в БД и удаляет истёкшие сессии.
+     * Сессии, которых уже нет в БД, удаляются из памяти: их отозвали на другом экземпляре приложения.
+     * Если запись не удалась, отметки возвращаются в очередь и повторяются при следующем запуске.
+     */
+    @Scheduled(initialDelayString = "${app.security.sessions.flush-interval:1000}",
+            fixedDelayString = "${app.security.sessions.flush-interval:1000}")
+    public void flush() {
+        purgeExpired();
+        List<RefreshSession> touches = new ArrayList<>(pendingTouches.size());
+        for (Map.Entry<String, RefreshSession> entry : pendingTouches.entrySet()) {
+            if (pendingTouches.remove(entry.getKey(), entry.getValue())) {
+                touches.add(entry.getValue());
+            }
+        }
+        if (touches.isEmpty()) {
+            return;
+        }
+        try {
+            refreshSessionRepository.touchAll(touches).forEach(this::forget);
+        } catch (RuntimeException e) {
+            for (RefreshSession session : touches) {
+                if (sessions.containsKey(session.getId())) {
+                    pendingTouches.putIfAbsent(session.getId(), session);
+                }
+            }
+            log.warn("Не удалось записать отметки использования сессий в БД, повтор при следующей записи", e);
+        }
+    }
+
+    /**
+     * Записывает накопленные отметки использования при остановке приложения.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Добавляет загруженные из БД сессии в индекс и сдвигает момент синхронизации.
+     *
+     * @param stored сессии из БД
+     */
+    private void cacheAll(List<RefreshSession> stored) {
+        for (RefreshSession session : stored) {
+            cache(session);
+            if (session.getLastUsedAt().isAfter(syncedUntil)) {
+                syncedUntil = session.getLastUsedAt();
+            }
+        }
+    }
+
+    /**
+     * Добавляет сессию из БД в индекс. Токен всегда берётся из БД, а при совпадении токена сохраняется
+     * более поздняя отметка использования, чтобы не потерять ещё не записанную отметку этого экземпляра.
+     *
+     * @param stored сессия из БД
+     */
+    private void cache(RefreshSession stored) {
+        sessions.merge(stored.getId(), stored, (cached, fresh) ->
+                cached.getLastUsedAt().isAfter(fresh.getLastUsedAt()) && cached.getTokenHash().equals(fresh.getTokenHash())
+                        ? cached : fresh);
+    }
+
+    /**
+     * Удаляет сессию из памяти.
+     *
+     * @param sessionId идентификатор сессии
+     */
+    private void forget(String sessionId) {
+        sessions.remove(sessionId);
+        pendingTouches.remove(sessionId);
+    }
+
+    /**
+     * Удаляет истёкшие сессии из памяти.
+     * Из БД истёкшие сессии удаляются одним запросом.
+     */
+    private void purgeExpired() {
+        Instant now = Instant.now();
+        int expired = 0;
+        for (RefreshSession session : sessions.values()) {
+            if (session.isExpired(now) && sessions.remove(session.getId(), session)) {
+                pendingTouches.remove(session.getId());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            try {
+                refreshSessionRepository.deleteExpired();
+            } catch (RuntimeException e) {
+                log.warn("Не удалось удалить истёкшие сессии из БД", e);
+            }
+        }
+    }
+
+    /**
+     * Сравнивает хэш refresh-токена с хэшем сессии за постоянное время.
+     *
+     * @param session      сессия
+     * @param refreshToken refresh-токен
+     * @return true, если токен является текущим для сессии
+     */
+    private boolean matches(RefreshSession session, String refreshToken) {
+        return MessageDigest.isEqual(
+                session.getTokenHash().getBytes(StandardCharsets.UTF_8),
+                TokenHasher.sha256(refreshToken).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,198 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.RevokedToken;
+import com.bank.cardmanagement.datasource.repository.RevokedTokenRepository;
+import com.bank.cardmanagement.security.BloomFilter;
+import com.bank.cardmanagement.security.model.JwtAuthentication;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис отзыва access-токенов.
+ * Отзываются идентификаторы токенов (jti) и сессий (sid): токен недействителен, если отозван любой из них.
+ * Точный список хранится в памяти, а перед ним стоит фильтр Блума, поэтому проверка почти всех запросов
+ * заканчивается на фильтре без обращения к карте и БД. Отзыв сразу записывается в таблицу revoked_tokens,
+ * а другие экземпляры приложения подхватывают новые записи фоновой синхронизацией.
+ * Запись хранится, пока не истекут все access-токены с отозванным идентификатором.
+ */
+@Service
+public class TokenRevocationService {
+
+    /**
+     * Запас при синхронизации, покрывающий транзакции, зафиксированные позже более новых записей.
+     */
+    private static final long SYNC_OVERLAP_MILLIS = 5_000;
+
+    /**
+     * Репозиторий списка отозванных токенов.
+     */
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    /**
+     * Точный список отозванных идентификаторов с моментом, после которого запись не нужна.
+     */
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+
+    /**
+     * Фильтр Блума по отозванным идентификаторам. Заменяется целиком при очистке истёкших записей.
+     */
+    private volatile BloomFilter filter;
+
+    /**
+     * Момент последней загруженной записи по часам БД.
+     */
+    private volatile Instant syncedUntil = Instant.EPOCH;
+
+    /**
+     * Счётчик ложных срабатываний фильтра Блума.
+     */
+    private final Counter falsePositiveCounter;
+
+    /**
+     * Счётчик отклонённых отозванных токенов.
+     */
+    private final Counter rejectedCounter;
+
+    /**
+     * Время жизни access-токена в миллисекундах.
+     */
+    @Value("${jwt.access-token-expiration}")
+    private long accessTokenExpiration;
+
+    /**
+     * Ожидаемое количество одновременно отозванных идентификаторов, по нему рассчитывается размер фильтра.
+     */
+    @Value("${app.security.revocation.expected-entries:100000}")
+    private int expectedEntries = 100_000;
+
+    /**
+     * Допустимая доля ложных срабатываний фильтра Блума.
+     */
+    @Value("${app.security.revocation.false-positive-rate:0.001}")
+    private double falsePositiveRate = 0.001;
+
+    /**
+     * Конструктор сервиса с регистрацией метрик.
+     *
+     * @param revokedTokenRepository репозиторий списка отозванных токенов
+     * @param meterRegistry          реестр метрик
+     */
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository, MeterRegistry meterRegistry) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.falsePositiveCounter = Counter.builder("security.revocation.checks")
+                .description("Проверки токенов, не отсечённые фильтром Блума")
+                .tag("result", "false-positive")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("security.revocation.checks")
+                .description("Проверки токенов, не отсечённые фильтром Блума")
+                .tag("result", "revoked")
+                .register(meterRegistry);
+        Gauge.builder("security.revocation.size", revoked, Map::size)
+                .description("Отозванные идентификаторы токенов и сессий в памяти")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Загружает неистёкшие записи из БД и строит фильтр Блума.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+        add(revokedTokenRepository.findActive());
+    }
+
+    /**
+     * Проверяет, отозван ли токен, по его идентификатору и идентификатору сессии.
+     *
+     * @param authentication аутентификация из access-токена
+     * @return true, если токен отозван
+     */
+    public boolean isRevoked(JwtAuthentication authentication) {
+        return isRevoked(authentication.getTokenId()) || isRevoked(authentication.getSessionId());
+    }
+
+    /**
+     * Отзывает токены и сессии по идентификаторам.
+     * Запись в БД выполняется до изменения памяти, поэтому после возврата отзыв переживёт перезапуск,
+     * а следующий запрос с отозванным токеном на этом экземпляре уже будет отклонён.
+     *
+     * @param tokenIds идентификаторы токенов (jti) или сессий (sid)
+     */
+    public void revoke(Collection<String> tokenIds) {
+        if (tokenIds.isEmpty()) {
+            return;
+        }
+        Instant expiresAt = Instant.now().plusMillis(accessTokenExpiration);
+        revokedTokenRepository.insertAll(tokenIds, expiresAt);
+        synchronized (this) {
+            for (String tokenId : tokenIds) {
+                revoked.put(tokenId, expiresAt);
+                filter.put(tokenId);
+            }
+        }
+    }
+
+    /**
+     * Подгружает записи, добавленные другими экземплярами приложения, и удаляет истёкшие.
+     * Фильтр Блума не поддерживает удаление, поэтому после удаления истёкших записей он строится заново.
+     */
+    @Scheduled(initialDelayString = "${app.security.revocation.sync-interval:1000}",
+            fixedDelayString = "${app.security.revocation.sync-interval:1000}")
+    public void sync() {
+        List<RevokedToken> fresh = revokedTokenRepository.findCreatedAfter(syncedUntil.minusMillis(SYNC_OVERLAP_MILLIS));
+        synchronized (this) {
+            add(fresh);
+            Instant now = Instant.now();
+            if (revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now))) {
+                BloomFilter rebuilt = new BloomFilter(expectedEntries, falsePositiveRate);
+                revoked.keySet().forEach(rebuilt::put);
+                this.filter = rebuilt;
+                revokedTokenRepository.deleteExpired();
+            }
+        }
+    }
+
+    /**
+     * Проверяет один идентификатор: сначала по фильтру Блума, затем по точному списку.
+     *
+     * @param tokenId идентификатор токена или сессии
+     * @return true, если идентификатор отозван
+     */
+    private boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        if (revoked.containsKey(tokenId)) {
+            rejectedCounter.increment();
+            return true;
+        }
+        falsePositiveCounter.increment();
+        return false;
+    }
+
+    /**
+     * Добавляет записи в точный список и фильтр Блума. Вызывается под блокировкой сервиса.
+     *
+     * @param tokens записи списка отозванных токенов
+     */
+    private void add(List<RevokedToken> tokens) {
+        for (RevokedToken token : tokens) {
+            revoked.put(token.getTokenId(), token.getExpiresAt());
+            filter.put(token.getTokenId());
+            if (token.getCreatedAt().isAfter(syncedUntil)) {
+                syncedUntil = token.getCreatedAt();
+            }
+        }
+    }
+}
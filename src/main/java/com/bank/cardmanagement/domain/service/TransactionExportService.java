@@ -0,0 +1,227 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.TransactionExportRow;
+import com.bank.cardmanagement.datasource.repository.TransactionExportRepository;
+import com.bank.cardmanagement.dto.request.ExportFormat;
+import com.bank.cardmanagement.entity.TransactionType;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сервис потоковой выгрузки транзакций в NDJSON или CSV.
+ * Строки читаются из курсора БД и сразу записываются в поток ответа без накопления страницы сущностей или DTO,
+ * поэтому расход памяти не зависит от объёма выгрузки. По завершении выгрузки фиксируются количество строк
+ * и скорость в строках в секунду.
+ */
+@Service
+public class TransactionExportService {
+
+    /**
+     * Логгер сервиса.
+     */
+    private static final Logger log = LoggerFactory.getLogger(TransactionExportService.class);
+
+    /**
+     * Заголовок CSV.
+     */
+    private static final String CSV_HEADER = "id,type,amount,description,timestamp,card_id\n";
+
+    /**
+     * Репозиторий для потокового чтения транзакций.
+     */
+    private final TransactionExportRepository transactionExportRepository;
+
+    /**
+     * Объект для записи JSON.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Реестр метрик.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Количество строк, читаемых из курсора БД за одно обращение.
+     */
+    @Value("${app.transactions.export.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    /**
+     * Размер буфера записи ответа в байтах.
+     */
+    @Value("${app.transactions.export.buffer-size:65536}")
+    private int bufferSize = 65536;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param transactionExportRepository репозиторий для потокового чтения транзакций
+     * @param objectMapper                объект для записи JSON
+     * @param meterRegistry               реестр метрик
+     */
+    public TransactionExportService(TransactionExportRepository transactionExportRepository, ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry) {
+        this.transactionExportRepository = transactionExportRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Записывает транзакции, удовлетворяющие фильтрам, в поток в порядке возрастания ID.
+     *
+     * @param transactionType тип транзакции или null
+     * @param cardId          ID карты или null
+     * @param userId          ID владельца карт или null
+     * @param from            первый день периода или null
+     * @param to              последний день периода включительно или null
+     * @param format          формат выгрузки
+     * @param gzip            сжимать ли поток gzip
+     * @param out             поток ответа
+     * @return количество выгруженных транзакций
+     * @throws IOException если запись в поток не удалась, например клиент разорвал соединение
+     */
+    public long export(TransactionType transactionType, Long cardId, Long userId, LocalDate from, LocalDate to,
+                       ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        long startedAt = System.nanoTime();
+        OutputStream target = gzip ? new GZIPOutputStream(out, bufferSize) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), bufferSize);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        long[] rows = new long[1];
+        Consumer<TransactionExportRow> handler = row -> {
+            try {
+                if (format == ExportFormat.CSV) {
+                    writeCsv(writer, row);
+                } else {
+                    writeJson(generator, row);
+                }
+                rows[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(CSV_HEADER);
+            }
+            transactionExportRepository.stream(transactionType, cardId, userId,
+                    from != null ? from.atStartOfDay() : null,
+                    to != null ? to.plusDays(1).atStartOfDay() : null,
+                    fetchSize, handler);
+            generator.flush();
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+            out.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            record(format, rows[0], System.nanoTime() - startedAt);
+        }
+        return rows[0];
+    }
+
+    /**
+     * Записывает транзакцию строкой NDJSON.
+     *
+     * @param generator генератор JSON
+     * @param row       транзакция
+     * @throws IOException если запись не удалась
+     */
+    private void writeJson(JsonGenerator generator, TransactionExportRow row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", row.getId());
+        generator.writeStringField("type", row.getType());
+        generator.writeNumberField("amount", row.getAmount());
+        generator.writeStringField("description", row.getDescription());
+        generator.writeStringField("timestamp", row.getTimestamp().toString());
+        generator.writeNumberField("cardId", row.getCardId());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Записывает транзакцию строкой CSV.
+     *
+     * @param writer поток записи
+     * @param row    транзакция
+     * @throws IOException если запись не удалась
+     */
+    private void writeCsv(Writer writer, TransactionExportRow row) throws IOException {
+        writer.write(Long.toString(row.getId()));
+        writer.write(',');
+        writer.write(row.getType());
+        writer.write(',');
+        writer.write(row.getAmount().toPlainString());
+        writer.write(',');
+        writer.write(escapeCsv(row.getDescription()));
+        writer.write(',');
+        writer.write(row.getTimestamp().toString());
+        writer.write(',');
+        writer.write(Long.toString(row.getCardId()));
+        writer.write('\n');
+    }
+
+    /**
+     * Экранирует значение CSV: значение с запятой, кавычкой или переводом строки заключается в кавычки.
+     *
+     * @param value значение или null
+     * @return экранированное значение
+     */
+    private String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Фиксирует количество выгруженных строк и скорость выгрузки.
+     *
+     * @param format       формат выгрузки
+     * @param rows         количество выгруженных строк
+     * @param elapsedNanos длительность выгрузки в наносекундах
+     */
+    private void record(ExportFormat format, long rows, long elapsedNanos) {
+        String tag = format.name().toLowerCase();
+        double rowsPerSecond = elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0;
+        Counter.builder("transactions.export.rows")
+                .description("Транзакции, выгруженные потоковой выгрузкой")
+                .tag("format", tag)
+                .register(meterRegistry)
+                .increment(rows);
+        DistributionSummary.builder("transactions.export.rate")
+                .description("Скорость потоковой выгрузки транзакций")
+                .baseUnit("rows/s")
+                .tag("format", tag)
+                .register(meterRegistry)
+                .record(rowsPerSecond);
+        log.info("Выгрузка транзакций в {}: {} строк за {} мс, {} строк/с", tag, rows,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(rowsPerSecond));
+    }
+}
@@ -0,0 +1,163 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.TransactionRollupDelta;
+import com.bank.cardmanagement.datasource.repository.TransactionRollupRepository;
+import com.bank.cardmanagement.dto.response.TransactionStatisticsResponse;
+import com.bank.cardmanagement.entity.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сервис дневной сводки транзакций для отчётности.
+ * Сводка хранит количество и сумму транзакций по карте, дню и типу и изменяется в той же транзакции,
+ * что и записываемые транзакции, поэтому статистика читается только из сводки без агрегирования истории.
+ */
+@Service
+public class TransactionRollupService {
+
+    /**
+     * Порядок изменения строк сводки: одинаковый во всех транзакциях, чтобы они не блокировали друг друга взаимно.
+     */
+    private static final Comparator<TransactionRollupDelta> KEY_ORDER = Comparator
+            .comparing(TransactionRollupDelta::getCardId)
+            .thenComparing(TransactionRollupDelta::getDay)
+            .thenComparing(TransactionRollupDelta::getType);
+
+    /**
+     * Запас после полуночи, в течение которого вчерашний день ещё не пересчитывается:
+     * транзакции, начатые до полуночи, могут фиксироваться и изменять его сводку чуть позже.
+     */
+    private static final Duration REBUILD_LAG = Duration.ofHours(1);
+
+    /**
+     * Репозиторий дневной сводки транзакций.
+     */
+    private final TransactionRollupRepository transactionRollupRepository;
+
+    /**
+     * Шаблон для пересчёта пакета карт в отдельной транзакции.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Количество строк в одном пакете изменения сводки.
+     */
+    @Value("${app.transactions.rollup.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * Количество карт, сводка которых пересчитывается в одной транзакции.
+     */
+    @Value("${app.transactions.rollup.rebuild-chunk-size:500}")
+    private int rebuildChunkSize = 500;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param transactionRollupRepository репозиторий дневной сводки транзакций
+     * @param transactionTemplate         шаблон для пересчёта пакета карт в отдельной транзакции
+     */
+    public TransactionRollupService(TransactionRollupRepository transactionRollupRepository,
+                                    TransactionTemplate transactionTemplate) {
+        this.transactionRollupRepository = transactionRollupRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Учитывает транзакции в дневной сводке.
+     * Транзакции одной карты, дня и типа объединяются в одно приращение.
+     * Должен вызываться в транзакции, которая записывает сами транзакции: при её откате откатывается и сводка.
+     *
+     * @param transactions записанные транзакции
+     */
+    public void record(List<Transaction> transactions) {
+        Map<TransactionRollupDelta, TransactionRollupDelta> deltas = new TreeMap<>(KEY_ORDER);
+        for (Transaction transaction : transactions) {
+            TransactionRollupDelta delta = new TransactionRollupDelta(transaction.getCard().getId(),
+                    transaction.getTimestamp().toLocalDate(), transaction.getType(), 1, transaction.getAmount());
+            deltas.merge(delta, delta, TransactionRollupDelta::plus);
+        }
+        if (!deltas.isEmpty()) {
+            transactionRollupRepository.increment(new ArrayList<>(deltas.values()), batchSize);
+        }
+    }
+
+    /**
+     * Получает итоги транзакций карты по дням и типам за период.
+     *
+     * @param cardId ID карты
+     * @param from   первый день периода
+     * @param to     последний день периода включительно
+     * @return итоги в порядке возрастания дня
+     * @throws IllegalArgumentException если начало периода позже его окончания
+     */
+    public List<TransactionStatisticsResponse> getCardStatistics(Long cardId, LocalDate from, LocalDate to) {
+        checkPeriod(from, to);
+        return transactionRollupRepository.findByCard(cardId, from, to);
+    }
+
+    /**
+     * Получает итоги транзакций по всем картам пользователя по дням и типам за период.
+     *
+     * @param userId ID пользователя
+     * @param from   первый день периода
+     * @param to     последний день периода включительно
+     * @return итоги в порядке возрастания дня
+     * @throws IllegalArgumentException если начало периода позже его окончания
+     */
+    public List<TransactionStatisticsResponse> getUserStatistics(Long userId, LocalDate from, LocalDate to) {
+        checkPeriod(from, to);
+        return transactionRollupRepository.findByUser(userId, from, to);
+    }
+
+    /**
+     * Пересчитывает сводку прошедших дней по истории транзакций.
+     * Используется для сверки, если сводка разошлась с транзакциями, например после ручной правки данных;
+     * по расписанию запускается, только если задано app.transactions.rollup.rebuild-cron.
+     * Карты обрабатываются пакетами в отдельных коротких транзакциях без блокировки таблицы сводки,
+     * поэтому снятия и переводы во время пересчёта не ждут его. Сводку текущего дня ведут только приращения операций.
+     *
+     * @return количество пересчитанных строк сводки
+     */
+    @Scheduled(cron = "${app.transactions.rollup.rebuild-cron:-}")
+    public int rebuild() {
+        LocalDate beforeDay = LocalDateTime.now().minus(REBUILD_LAG).toLocalDate();
+        int rows = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> cardIds = transactionRollupRepository.findCardIdsAfter(afterId, rebuildChunkSize);
+            if (cardIds.isEmpty()) {
+                return rows;
+            }
+            long fromId = cardIds.get(0);
+            long toId = cardIds.get(cardIds.size() - 1);
+            Integer rebuilt = transactionTemplate.execute(status -> transactionRollupRepository.rebuild(fromId, toId, beforeDay));
+            rows += rebuilt == null ? 0 : rebuilt;
+            afterId = toId;
+        }
+    }
+
+    /**
+     * Проверяет, что начало периода не позже его окончания.
+     *
+     * @param from первый день периода
+     * @param to   последний день периода
+     * @throws IllegalArgumentException если начало периода позже его окончания
+     */
+    private void checkPeriod(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Дата начала периода не может быть позже даты окончания!");
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package com.bank.cardmanagement.domain.service;
 
 import com.bank.cardmanagement.datasource.repository.CardRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionEstimateRepository;
 import com.bank.cardmanagement.datasource.repository.TransactionRepository;
+import com.bank.cardmanagement.dto.request.TotalMode;
+import com.bank.cardmanagement.dto.response.CursorPageResponse;
+import com.bank.cardmanagement.dto.response.PageResponse;
 import com.bank.cardmanagement.dto.response.TransactionResponse;
-import com.bank.cardmanagement.entity.Transaction;
 import com.bank.cardmanagement.entity.TransactionType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Сервис для работы с транзакциями.
  * Обрабатывает операции по извлечению транзакций, как для всех карт, так и для карт конкретного пользователя.
@@ -32,17 +39,26 @@ public class TransactionService {
      */
     private final CardValidationService cardValidationService;
 
+    /**
+     * Репозиторий для оценки количества транзакций.
+     */
+    private final TransactionEstimateRepository transactionEstimateRepository;
+
     /**
      * Конструктор для инициализации полей сервиса.
      *
-     * @param transactionRepository репозиторий для работы с транзакциями
-     * @param cardRepository        репозиторий для работы с картами
-     * @param cardValidationService сервис для валидации карт
+     * @param transactionRepository         репозиторий для работы с транзакциями
+     * @param cardRepository                репозиторий для работы с картами
+     * @param cardValidationService         сервис для валидации карт
+     * @param transactionEstimateRepository репозиторий для оценки количества транзакций
      */
-    public TransactionService(TransactionRepository transactionRepository, CardRepository cardRepository, CardValidationService cardValidationService) {
+    public TransactionService(TransactionRepository transactionRepository, CardRepository cardRepository,
+                              CardValidationService cardValidationService,
+                              TransactionEstimateRepository transactionEstimateRepository) {
         this.transactionRepository = transactionRepository;
         this.cardRepository = cardRepository;
         this.cardValidationService = cardValidationService;
+        this.transactionEstimateRepository = transactionEstimateRepository;
     }
 
     /**
@@ -55,17 +71,13 @@ public class TransactionService {
      */
     public Page<TransactionResponse> getAllTransactions(TransactionType transactionType, Long cardId, Pageable pageable) {
         if (transactionType != null && cardId != null) {
-            return transactionRepository.findByTypeAndCardId(transactionType, cardId, pageable)
-                    .map(this::convertToTransactionResponse);
+            return transactionRepository.findByTypeAndCardId(transactionType, cardId, pageable);
         } else if (transactionType != null) {
-            return transactionRepository.findByType(transactionType, pageable)
-                    .map(this::convertToTransactionResponse);
+            return transactionRepository.findByType(transactionType, pageable);
         } else if (cardId != null) {
-            return transactionRepository.findByCardId(cardId, pageable)
-                    .map(this::convertToTransactionResponse);
+            return transactionRepository.findByCardId(cardId, pageable);
         }
-        return transactionRepository.findAll(pageable)
-                .map(this::convertToTransactionResponse);
+        return transactionRepository.findAllResponses(pageable);
     }
 
     /**
@@ -78,38 +90,200 @@ public class TransactionService {
      */
     public Page<TransactionResponse> getAllMyTransactions(TransactionType transactionType, Long cardId, Pageable pageable) {
         Long userId = cardValidationService.getCurrentUserId();
+        checkCardAccess(cardId, userId);
+        if (transactionType != null && cardId != null) {
+            return transactionRepository.findByTypeAndCardId(transactionType, cardId, pageable);
+        } else if (transactionType != null) {
+            return transactionRepository.findByTypeAndUserId(transactionType, userId, pageable);
+        } else if (cardId != null) {
+            return transactionRepository.findByCardId(cardId, pageable);
+        }
+        return transactionRepository.findByUserId(userId, pageable);
+    }
+
+    /**
+     * Получает страницу транзакций в компактном виде с выбранным режимом подсчёта общего количества.
+     * В режиме {@link TotalMode#EXACT} выполняется отдельный запрос подсчёта, в остальных режимах выбирается
+     * на одну запись больше размера страницы для определения наличия следующей страницы.
+     *
+     * @param transactionType тип транзакции
+     * @param cardId          ID карты
+     * @param pageable        параметры пагинации
+     * @param totalMode       режим подсчёта общего количества транзакций
+     * @return страница с транзакциями
+     */
+    public PageResponse<TransactionResponse> getTransactionsPage(TransactionType transactionType, Long cardId,
+                                                                 Pageable pageable, TotalMode totalMode) {
+        if (totalMode == TotalMode.EXACT) {
+            return convertToPageResponse(getAllTransactions(transactionType, cardId, pageable));
+        }
+        Slice<TransactionResponse> transactions;
+        if (transactionType != null && cardId != null) {
+            transactions = transactionRepository.findSliceByTypeAndCardId(transactionType, cardId, pageable);
+        } else if (transactionType != null) {
+            transactions = transactionRepository.findSliceByType(transactionType, pageable);
+        } else if (cardId != null) {
+            transactions = transactionRepository.findSliceByCardId(cardId, pageable);
+        } else {
+            transactions = transactionRepository.findSliceAll(pageable);
+        }
+        return convertToPageResponse(transactions, totalMode, transactionType, cardId, null);
+    }
+
+    /**
+     * Получает страницу транзакций текущего пользователя в компактном виде с выбранным режимом подсчёта
+     * общего количества.
+     *
+     * @param transactionType тип транзакции
+     * @param cardId          ID карты
+     * @param pageable        параметры пагинации
+     * @param totalMode       режим подсчёта общего количества транзакций
+     * @return страница с транзакциями
+     * @throws AccessDeniedException если карта не принадлежит текущему пользователю
+     */
+    public PageResponse<TransactionResponse> getMyTransactionsPage(TransactionType transactionType, Long cardId,
+                                                                   Pageable pageable, TotalMode totalMode) {
+        if (totalMode == TotalMode.EXACT) {
+            return convertToPageResponse(getAllMyTransactions(transactionType, cardId, pageable));
+        }
+        Long userId = cardValidationService.getCurrentUserId();
+        checkCardAccess(cardId, userId);
+        Slice<TransactionResponse> transactions;
+        if (transactionType != null && cardId != null) {
+            transactions = transactionRepository.findSliceByTypeAndCardId(transactionType, cardId, pageable);
+        } else if (transactionType != null) {
+            transactions = transactionRepository.findSliceByTypeAndUserId(transactionType, userId, pageable);
+        } else if (cardId != null) {
+            transactions = transactionRepository.findSliceByCardId(cardId, pageable);
+        } else {
+            transactions = transactionRepository.findSliceByUserId(userId, pageable);
+        }
+        return convertToPageResponse(transactions, totalMode, transactionType, cardId, cardId == null ? userId : null);
+    }
+
+    /**
+     * Получает страницу транзакций по курсору с возможностью фильтрации по типу транзакции и ID карты.
+     * Транзакции выбираются в порядке возрастания ID начиная с записи, следующей за курсором.
+     *
+     * @param transactionType тип транзакции
+     * @param cardId          ID карты
+     * @param cursor          курсор страницы; пустой курсор означает первую страницу
+     * @param size            размер страницы
+     * @return страница с транзакциями и курсором следующей страницы
+     * @throws IllegalArgumentException если курсор некорректный
+     */
+    public CursorPageResponse<TransactionResponse> getTransactionsByCursor(TransactionType transactionType, Long cardId,
+                                                                           String cursor, int size) {
+        long afterId = PageCursor.decode(cursor);
+        Limit limit = PageCursor.limit(size);
+        List<TransactionResponse> transactions;
+        if (transactionType != null && cardId != null) {
+            transactions = transactionRepository.findByTypeAndCardIdAfter(transactionType, cardId, afterId, limit);
+        } else if (transactionType != null) {
+            transactions = transactionRepository.findByTypeAfter(transactionType, afterId, limit);
+        } else if (cardId != null) {
+            transactions = transactionRepository.findByCardIdAfter(cardId, afterId, limit);
+        } else {
+            transactions = transactionRepository.findAllAfter(afterId, limit);
+        }
+        return convertToCursorPage(transactions, size);
+    }
+
+    /**
+     * Получает страницу транзакций текущего пользователя по курсору с возможностью фильтрации
+     * по типу транзакции и ID карты.
+     *
+     * @param transactionType тип транзакции
+     * @param cardId          ID карты
+     * @param cursor          курсор страницы; пустой курсор означает первую страницу
+     * @param size            размер страницы
+     * @return страница с транзакциями и курсором следующей страницы
+     * @throws IllegalArgumentException если курсор некорректный
+     * @throws AccessDeniedException    если карта не принадлежит текущему пользователю
+     */
+    public CursorPageResponse<TransactionResponse> getMyTransactionsByCursor(TransactionType transactionType, Long cardId,
+                                                                             String cursor, int size) {
+        long afterId = PageCursor.decode(cursor);
+        Limit limit = PageCursor.limit(size);
+        Long userId = cardValidationService.getCurrentUserId();
+        checkCardAccess(cardId, userId);
+        List<TransactionResponse> transactions;
+        if (transactionType != null && cardId != null) {
+            transactions = transactionRepository.findByTypeAndCardIdAfter(transactionType, cardId, afterId, limit);
+        } else if (transactionType != null) {
+            transactions = transactionRepository.findByTypeAndUserIdAfter(transactionType, userId, afterId, limit);
+        } else if (cardId != null) {
+            transactions = transactionRepository.findByCardIdAfter(cardId, afterId, limit);
+        } else {
+            transactions = transactionRepository.findByUserIdAfter(userId, afterId, limit);
+        }
+        return convertToCursorPage(transactions, size);
+    }
+
+    /**
+     * Проверяет, что карта принадлежит пользователю, если ID карты указан.
+     *
+     * @param cardId ID карты или null
+     * @param userId ID пользователя
+     * @throws AccessDeniedException если карта не принадлежит пользователю
+     */
+    private void checkCardAccess(Long cardId, Long userId) {
         if (cardId != null) {
             boolean isMyCard = cardRepository.existsByIdAndUserId(cardId, userId);
             if (!isMyCard) {
                 throw new AccessDeniedException("Вы не имеете доступа к данной карте!");
             }
         }
-        if (transactionType != null && cardId != null) {
-            return transactionRepository.findByTypeAndCardId(transactionType, cardId, pageable)
-                    .map(this::convertToTransactionResponse);
-        } else if (transactionType != null) {
-            return transactionRepository.findByTypeAndUserId(transactionType, userId, pageable)
-                    .map(this::convertToTransactionResponse);
-        } else if (cardId != null) {
-            return transactionRepository.findByCardId(cardId, pageable)
-                    .map(this::convertToTransactionResponse);
+    }
+
+    /**
+     * Преобразует страницу с точным количеством транзакций в компактную страницу ответа.
+     *
+     * @param page страница транзакций
+     * @return страница с транзакциями и точным общим количеством
+     */
+    private PageResponse<TransactionResponse> convertToPageResponse(Page<TransactionResponse> page) {
+        return new PageResponse<>(page.getContent(), page.getNumber() + 1, page.getSize(), page.hasNext(),
+                page.getTotalElements(), false);
+    }
+
+    /**
+     * Преобразует страницу транзакций без подсчёта в компактную страницу ответа.
+     * Оценка общего количества не бывает меньше уже известного: на последней странице количество известно точно,
+     * а до неё оценка не меньше числа записей по текущую страницу включительно плюс одна.
+     *
+     * @param transactions    страница транзакций без подсчёта
+     * @param totalMode       режим подсчёта общего количества транзакций
+     * @param transactionType тип транзакции, по которому оценивается количество
+     * @param cardId          ID карты, по которому оценивается количество
+     * @param userId          ID владельца карт, по которому оценивается количество
+     * @return страница с транзакциями
+     */
+    private PageResponse<TransactionResponse> convertToPageResponse(Slice<TransactionResponse> transactions, TotalMode totalMode,
+                                                                    TransactionType transactionType, Long cardId,
+                                                                    Long userId) {
+        List<TransactionResponse> content = transactions.getContent();
+        int page = transactions.getNumber() + 1;
+        if (totalMode != TotalMode.ESTIMATED) {
+            return new PageResponse<>(content, page, transactions.getSize(), transactions.hasNext(), null, false);
+        }
+        long known = transactions.getPageable().getOffset() + content.size();
+        if (!transactions.hasNext()) {
+            return new PageResponse<>(content, page, transactions.getSize(), false, known, false);
         }
-        return transactionRepository.findByUserId(userId, pageable)
-                .map(this::convertToTransactionResponse);
+        long estimate = transactionEstimateRepository.estimateCount(transactionType, cardId, userId);
+        return new PageResponse<>(content, page, transactions.getSize(), true, Math.max(estimate, known + 1), true);
     }
 
     /**
-     * Преобразует сущность транзакции в ответ для клиента.
+     * Преобразует транзакции, выбранные по курсору, в страницу ответа.
      *
-     * @param transaction сущность транзакции
-     * @return ответ с данными транзакции
+     * @param transactions транзакции, выбранные с ограничением {@link PageCursor#limit(int)}
+     * @param size         размер страницы
+     * @return страница с транзакциями и курсором следующей страницы
      */
-    private TransactionResponse convertToTransactionResponse(Transaction transaction) {
-        return new TransactionResponse(
-                transaction.getId(),
-                transaction.getType().toString(),
-                transaction.getAmount(),
-                transaction.getDescription(),
-                transaction.getTimestamp());
+    private CursorPageResponse<TransactionResponse> convertToCursorPage(List<TransactionResponse> transactions, int size) {
+        return new CursorPageResponse<>(PageCursor.content(transactions, size),
+                PageCursor.next(transactions, size, TransactionResponse::getId));
     }
 }
@@ -1,18 +1,30 @@
 package com.bank.cardmanagement.domain.service;
 
+import com.bank.cardmanagement.datasource.projection.CardBalance;
+import com.bank.cardmanagement.datasource.repository.CardBatchRepository;
 import com.bank.cardmanagement.datasource.repository.CardRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionBatchRepository;
 import com.bank.cardmanagement.datasource.repository.TransactionRepository;
+import com.bank.cardmanagement.dto.request.BatchTransferRequest;
 import com.bank.cardmanagement.dto.request.TransferRequest;
-import com.bank.cardmanagement.entity.Card;
+import com.bank.cardmanagement.dto.response.BatchTransferItemResponse;
+import com.bank.cardmanagement.entity.CardStatus;
 import com.bank.cardmanagement.entity.Transaction;
 import com.bank.cardmanagement.entity.TransactionType;
+import com.bank.cardmanagement.exception.ServiceBusyException;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Сервис для обработки переводов между картами.
@@ -35,39 +47,226 @@ public class TransferService {
      */
     private final CardValidationService cardValidationService;
 
+    /**
+     * Сервис повтора изменений баланса при конфликте версий.
+     */
+    private final OptimisticRetryService optimisticRetryService;
+
+    /**
+     * Исполнитель изменений баланса карт по разделам.
+     */
+    private final CardOperationExecutor cardOperationExecutor;
+
+    /**
+     * Репозиторий для пакетных операций над картами.
+     */
+    private final CardBatchRepository cardBatchRepository;
+
+    /**
+     * Репозиторий для пакетной записи транзакций.
+     */
+    private final TransactionBatchRepository transactionBatchRepository;
+
+    /**
+     * Сервис дневной сводки транзакций.
+     */
+    private final TransactionRollupService transactionRollupService;
+
+    /**
+     * Максимальное количество переводов в одном пакетном запросе.
+     */
+    @Value("${app.cards.batch-transfer.max-items:1000}")
+    private int batchMaxItems = 1000;
+
+    /**
+     * Количество строк в одном пакете записи балансов и транзакций.
+     */
+    @Value("${app.cards.batch-transfer.batch-size:500}")
+    private int batchSize = 500;
+
     /**
      * Конструктор для инициализации полей сервиса.
      *
-     * @param cardRepository        репозиторий для работы с картами
-     * @param transactionRepository репозиторий для работы с транзакциями
-     * @param cardValidationService сервис для валидации карт
+     * @param cardRepository             репозиторий для работы с картами
+     * @param transactionRepository      репозиторий для работы с транзакциями
+     * @param cardValidationService      сервис для валидации карт
+     * @param optimisticRetryService     сервис повтора изменений баланса при конфликте версий
+     * @param cardOperationExecutor      исполнитель изменений баланса карт по разделам
+     * @param cardBatchRepository        репозиторий для пакетных операций над картами
+     * @param transactionBatchRepository репозиторий для пакетной записи транзакций
+     * @param transactionRollupService   сервис дневной сводки транзакций
      */
-    public TransferService(CardRepository cardRepository, TransactionRepository transactionRepository, CardValidationService cardValidationService) {
+    public TransferService(CardRepository cardRepository, TransactionRepository transactionRepository,
+                           CardValidationService cardValidationService, OptimisticRetryService optimisticRetryService,
+                           CardOperationExecutor cardOperationExecutor, CardBatchRepository cardBatchRepository,
+                           TransactionBatchRepository transactionBatchRepository,
+                           TransactionRollupService transactionRollupService) {
         this.cardRepository = cardRepository;
         this.transactionRepository = transactionRepository;
         this.cardValidationService = cardValidationService;
+        this.optimisticRetryService = optimisticRetryService;
+        this.cardOperationExecutor = cardOperationExecutor;
+        this.cardBatchRepository = cardBatchRepository;
+        this.transactionBatchRepository = transactionBatchRepository;
+        this.transactionRollupService = transactionRollupService;
     }
 
     /**
      * Осуществляет перевод средств между картами.
-     * Проверяет активность карт, наличие достаточных средств на исходной карте,
-     * затем обновляет балансы карт и сохраняет транзакции.
+     * Списание и зачисление выполняются условными запросами, которые сами проверяют владельца, статус карт
+     * и баланс исходной карты; карты читаются только при отказе, чтобы выбрать сообщение об ошибке.
+     * Карты обновляются в порядке возрастания ID, поэтому встречные переводы между одними и теми же картами
+     * берут блокировки строк в одном порядке и не могут взаимно заблокироваться.
+     * Если включён исполнитель по разделам, перевод выполняется в разделе исходной карты: списание
+     * с одной карты сериализуется в памяти, а зачисление по-прежнему защищено условным запросом в БД.
      *
      * @param request объект с данными перевода, включая идентификаторы карт и сумму
+     * @throws ServiceBusyException если конфликт с параллельными операциями не разрешился за отведённые попытки
      */
-    @Transactional
     public void transferBetweenCards(@Valid @RequestBody TransferRequest request) {
-        Card sourceCard = cardValidationService.isMyCard(request.getSourceCardId());
-        Card destinationCard = cardValidationService.isMyCard(request.getDestinationCardId());
-        cardValidationService.isActiveCard(sourceCard);
-        cardValidationService.isActiveCard(destinationCard);
+        Long userId = cardValidationService.getCurrentUserId();
+        Long sourceCardId = request.getSourceCardId();
+        Long destinationCardId = request.getDestinationCardId();
         BigDecimal amount = request.getAmount();
-        cardValidationService.isEnoughMoney(sourceCard, amount);
-        sourceCard.setBalance(sourceCard.getBalance().subtract(amount));
-        destinationCard.setBalance(destinationCard.getBalance().add(amount));
-        cardRepository.save(sourceCard);
-        cardRepository.save(destinationCard);
-        transactionRepository.save(new Transaction(TransactionType.TRANSFER, amount, "Перевод на карту ID " + destinationCard.getId(), LocalDateTime.now(), sourceCard));
-        transactionRepository.save(new Transaction(TransactionType.TRANSFER, amount, "Получение перевода с карты ID " + sourceCard.getId(), LocalDateTime.now(), destinationCard));
+        cardOperationExecutor.run(sourceCardId, () -> optimisticRetryService.run("transfer", () -> {
+            if (sourceCardId <= destinationCardId) {
+                debit(sourceCardId, userId, amount);
+                credit(destinationCardId, userId, amount);
+            } else {
+                credit(destinationCardId, userId, amount);
+                debit(sourceCardId, userId, amount);
+            }
+            List<Transaction> transactions = transferTransactions(sourceCardId, destinationCardId, amount, LocalDateTime.now());
+            transactions.forEach(transactionRepository::save);
+            transactionRollupService.record(transactions);
+        }));
+    }
+
+    /**
+     * Выполняет пакет переводов между картами текущего пользователя в одной транзакции.
+     * Все карты пакета читаются одним запросом и блокируются в порядке возрастания ID, переводы применяются
+     * к балансам в памяти в порядке запроса, а новые балансы и транзакции записываются пакетами JDBC.
+     * Перевод, не прошедший проверки, пропускается с сообщением об ошибке и не влияет на остальные;
+     * последующие переводы видят балансы с учётом предыдущих.
+     *
+     * @param request запрос со списком переводов
+     * @return результаты переводов в исходном порядке
+     * @throws IllegalArgumentException если количество переводов превышает допустимое
+     */
+    @Transactional
+    public List<BatchTransferItemResponse> transferBatch(BatchTransferRequest request) {
+        List<TransferRequest> transfers = request.getTransfers();
+        if (transfers.size() > batchMaxItems) {
+            throw new IllegalArgumentException("За один запрос можно выполнить не более " + batchMaxItems + " переводов!");
+        }
+        Long userId = cardValidationService.getCurrentUserId();
+        TreeSet<Long> cardIds = new TreeSet<>();
+        for (TransferRequest transfer : transfers) {
+            cardIds.add(transfer.getSourceCardId());
+            cardIds.add(transfer.getDestinationCardId());
+        }
+        Map<Long, CardStatus> statuses = new HashMap<>();
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        for (CardBalance card : cardBatchRepository.lockBalances(userId, cardIds)) {
+            statuses.put(card.getId(), card.getStatus());
+            balances.put(card.getId(), card.getBalance());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, BigDecimal> changedBalances = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        List<BatchTransferItemResponse> responses = new ArrayList<>(transfers.size());
+        for (TransferRequest transfer : transfers) {
+            Long sourceCardId = transfer.getSourceCardId();
+            Long destinationCardId = transfer.getDestinationCardId();
+            BigDecimal amount = transfer.getAmount();
+            String error = rejectReason(statuses, balances, sourceCardId, destinationCardId, amount);
+            if (error == null) {
+                balances.put(sourceCardId, balances.get(sourceCardId).subtract(amount));
+                balances.put(destinationCardId, balances.get(destinationCardId).add(amount));
+                changedBalances.put(sourceCardId, balances.get(sourceCardId));
+                changedBalances.put(destinationCardId, balances.get(destinationCardId));
+                transactions.addAll(transferTransactions(sourceCardId, destinationCardId, amount, now));
+            }
+            responses.add(new BatchTransferItemResponse(sourceCardId, destinationCardId, amount, error));
+        }
+        if (!changedBalances.isEmpty()) {
+            cardBatchRepository.updateBalances(changedBalances, batchSize);
+            transactionBatchRepository.insertTransactions(transactions, batchSize);
+            transactionRollupService.record(transactions);
+        }
+        return responses;
+    }
+
+    /**
+     * Создаёт пару транзакций перевода: списание с карты-отправителя с указанием карты-получателя
+     * и зачисление на карту-получателя.
+     *
+     * @param sourceCardId      ID карты-отправителя
+     * @param destinationCardId ID карты-получателя
+     * @param amount            сумма перевода
+     * @param timestamp         время перевода
+     * @return транзакции списания и зачисления
+     */
+    private List<Transaction> transferTransactions(Long sourceCardId, Long destinationCardId, BigDecimal amount,
+                                                   LocalDateTime timestamp) {
+        Transaction outgoing = new Transaction(TransactionType.TRANSFER, amount, "Перевод на карту ID " + destinationCardId,
+                timestamp, cardRepository.getReferenceById(sourceCardId));
+        outgoing.setCounterpartyCardId(destinationCardId);
+        Transaction incoming = new Transaction(TransactionType.TRANSFER, amount, "Получение перевода с карты ID " + sourceCardId,
+                timestamp, cardRepository.getReferenceById(destinationCardId));
+        return List.of(outgoing, incoming);
+    }
+
+    /**
+     * Проверяет перевод из пакета по заблокированным картам.
+     *
+     * @param statuses          статусы карт пользователя
+     * @param balances          текущие балансы карт пользователя с учётом предыдущих переводов пакета
+     * @param sourceCardId      ID карты-отправителя
+     * @param destinationCardId ID карты-получателя
+     * @param amount            сумма перевода
+     * @return сообщение об ошибке или null, если перевод можно выполнить
+     */
+    private String rejectReason(Map<Long, CardStatus> statuses, Map<Long, BigDecimal> balances,
+                                Long sourceCardId, Long destinationCardId, BigDecimal amount) {
+        for (Long cardId : List.of(sourceCardId, destinationCardId)) {
+            if (!statuses.containsKey(cardId)) {
+                return "Нет доступа к карте с ID " + cardId + "!";
+            }
+            if (statuses.get(cardId) != CardStatus.ACTIVE) {
+                return "Карта с ID " + cardId + " не активна!";
+            }
+        }
+        if (balances.get(sourceCardId).compareTo(amount) < 0) {
+            return "Недостаточно средств на карте!";
+        }
+        return null;
+    }
+
+    /**
+     * Списывает сумму с карты пользователя или выбрасывает исключение с причиной отказа.
+     *
+     * @param cardId идентификатор карты
+     * @param userId идентификатор владельца карты
+     * @param amount сумма списания
+     */
+    private void debit(Long cardId, Long userId, BigDecimal amount) {
+        if (cardRepository.debit(cardId, userId, amount) == 0) {
+            cardValidationService.rejectBalanceUpdate(cardId, amount);
+        }
+    }
+
+    /**
+     * Зачисляет сумму на карту пользователя или выбрасывает исключение с причиной отказа.
+     *
+     * @param cardId идентификатор карты
+     * @param userId идентификатор владельца карты
+     * @param amount сумма зачисления
+     */
+    private void credit(Long cardId, Long userId, BigDecimal amount) {
+        if (cardRepository.credit(cardId, userId, amount) == 0) {
+            cardValidationService.rejectBalanceUpdate(cardId, null);
+        }
     }
 }
@@ -4,15 +4,20 @@ import com.bank.cardmanagement.datasource.repository.UserRepository;
 import com.bank.cardmanagement.dto.request.JwtRequest;
 import com.bank.cardmanagement.dto.request.UserRequest;
 import com.bank.cardmanagement.dto.response.JwtResponse;
+import com.bank.cardmanagement.dto.response.SessionResponse;
 import com.bank.cardmanagement.entity.Role;
 import com.bank.cardmanagement.entity.TokenType;
 import com.bank.cardmanagement.entity.User;
 import com.bank.cardmanagement.exception.EmailAlreadyExistsException;
+import com.bank.cardmanagement.exception.ExpiredTokenException;
+import com.bank.cardmanagement.exception.ResourceNotFoundException;
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import com.bank.cardmanagement.exception.UserNotFoundException;
 import com.bank.cardmanagement.security.JwtProvider;
 import com.bank.cardmanagement.security.JwtUtil;
 import com.bank.cardmanagement.security.model.JwtAuthentication;
+import com.bank.cardmanagement.security.model.RefreshSession;
 import io.jsonwebtoken.Claims;
-import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -25,10 +30,14 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Сервисный класс для работы с пользователями.
- * Отвечает за авторизацию, генерацию и обновление JWT токенов, а также за операции с refresh-токеном.
+ * Отвечает за авторизацию, генерацию и обновление JWT токенов, а также за управление сессиями refresh-токенов.
  */
 @Service
 public class UserService {
@@ -54,9 +63,19 @@ public class UserService {
     private final JwtUtil util;
 
     /**
-     * Менеджер сущностей для управления кэшом JPA
+     * Хранилище сессий refresh-токенов
      */
-    private final EntityManager entityManager;
+    private final RefreshSessionStore refreshSessionStore;
+
+    /**
+     * Сервис проверки паролей на выделенном пуле потоков
+     */
+    private final PasswordVerificationService passwordVerificationService;
+
+    /**
+     * Сервис отзыва access-токенов
+     */
+    private final TokenRevocationService tokenRevocationService;
 
     /**
      * Время жизни access-токена в миллисекундах.
@@ -72,48 +91,56 @@ public class UserService {
      * @param passwordEncoder компонент для шифрования и проверки паролей
      * @param provider        провайдер для генерации и валидации JWT токенов
      * @param util            утильный класс для создания объекта аутентификации из JWT
-     * @param entityManager   менеджер сущностей для управления кэшом JPA
+     * @param refreshSessionStore хранилище сессий refresh-токенов
+     * @param passwordVerificationService сервис проверки паролей на выделенном пуле потоков
+     * @param tokenRevocationService сервис отзыва access-токенов
      */
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtProvider provider, JwtUtil util, EntityManager entityManager) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtProvider provider, JwtUtil util, RefreshSessionStore refreshSessionStore, PasswordVerificationService passwordVerificationService, TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.provider = provider;
         this.util = util;
-        this.entityManager = entityManager;
+        this.refreshSessionStore = refreshSessionStore;
+        this.passwordVerificationService = passwordVerificationService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     /**
      * Авторизует пользователя по email и паролю.
-     * Генерирует access и refresh токены.
+     * Генерирует access и refresh токены и открывает новую сессию, не затрагивая другие сессии пользователя.
+     * Метод не открывает общую транзакцию, чтобы не удерживать соединение с БД, пока пароль проверяется
+     * на выделенном пуле потоков.
      *
      * @param request объект с email и паролем
      * @return JwtResponse с access/refresh токенами и временем жизни
+     * @throws ServiceBusyException если очередь проверки паролей заполнена
      */
-    @Transactional
     public JwtResponse authorization(JwtRequest request) {
         String inputEmail = request.getEmail();
         String inputPassword = request.getPassword();
         User user = userRepository.findByEmail(inputEmail)
                 .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден!"));
-        if (!passwordEncoder.matches(inputPassword, user.getPassword())) {
+        if (!passwordVerificationService.matches(inputPassword, user.getPassword())) {
             throw new BadCredentialsException("Неверный пароль!");
         }
-        String accessToken = provider.generateAccessToken(user);
-        String refreshToken = provider.generateRefreshToken(user);
-        userRepository.updateRefreshTokenByUuid(user.getId(), refreshToken);
-        entityManager.clear();
+        String sessionId = UUID.randomUUID().toString();
+        String accessToken = provider.generateAccessToken(user, sessionId);
+        String refreshToken = provider.generateRefreshToken(user, sessionId);
+        refreshSessionStore.create(sessionId, user.getId(), refreshToken, provider.refreshTokenExpiresAt());
         return new JwtResponse(accessToken, refreshToken, accessTokenExpiration / 1000);
     }
 
     /**
      * Обновляет токены по refresh-токену и типу запроса.
-     * Генерирует новый access-токен, а при необходимости — новый refresh-токен.
+     * Генерирует новый access-токен, а при необходимости — новый refresh-токен той же сессии.
+     * Refresh-токен проверяется по хранилищу сессий в памяти, а ротация подтверждается условным запросом к БД,
+     * поэтому токен, ротированный или отозванный на другом экземпляре приложения, не принимается для ротации.
+     * Просроченный refresh-токен не принимается ни для выпуска access-токена, ни для ротации.
      *
      * @param refreshToken refresh-токен
      * @param tokenType    тип запроса (ACCESS или REFRESH)
      * @return JwtResponse с новыми токенами
      */
-    @Transactional
     public JwtResponse updateToken(String refreshToken, TokenType tokenType) {
         try {
             Claims claims = provider.validateToken(refreshToken);
@@ -121,21 +148,25 @@ public class UserService {
             User user = userRepository.findById(id)
                     .orElseThrow(() -> unauthorized("Такого пользователя не существует!"));
 
-            if (!provider.validateRefreshToken(user, refreshToken)) {
-                throw unauthorized("Токен не совпадает с БД!");
-            }
+            RefreshSession session = refreshSessionStore.find(provider.getSessionId(claims), id, refreshToken)
+                    .orElseThrow(() -> unauthorized("Токен не совпадает с БД!"));
 
-            if (tokenType == TokenType.ACCESS && !provider.isFreshToken(claims)) {
-                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Срок годности refresh-токена истек!");
+            if (!provider.isFreshToken(claims)) {
+                throw expired();
             }
             if (tokenType == TokenType.REFRESH) {
-                refreshToken = provider.generateRefreshToken(user);
-                userRepository.updateRefreshTokenByUuid(user.getId(), refreshToken);
-                entityManager.clear();
+                refreshToken = provider.generateRefreshToken(user, session.getId());
+                if (!refreshSessionStore.rotate(session, refreshToken, provider.refreshTokenExpiresAt())) {
+                    throw unauthorized("Токен не совпадает с БД!");
+                }
+            } else {
+                refreshSessionStore.touch(session);
             }
 
-            String newAccessToken = provider.generateAccessToken(user);
+            String newAccessToken = provider.generateAccessToken(user, session.getId());
             return new JwtResponse(newAccessToken, refreshToken, accessTokenExpiration / 1000);
+        } catch (ExpiredTokenException e) {
+            throw expired();
         } catch (SecurityException e) {
             throw unauthorized("Поддельный токен!");
         } catch (ResponseStatusException e) {
@@ -159,6 +190,15 @@ public class UserService {
         }
     }
 
+    /**
+     * Генерирует исключение с HTTP-статусом 403 (FORBIDDEN) для просроченного refresh-токена.
+     *
+     * @return ResponseStatusException с кодом 403
+     */
+    private ResponseStatusException expired() {
+        return new ResponseStatusException(HttpStatus.FORBIDDEN, "Срок годности refresh-токена истек!");
+    }
+
     /**
      * Генерирует исключение с HTTP-статусом 401 (UNAUTHORIZED).
      *
@@ -170,12 +210,54 @@ public class UserService {
     }
 
     /**
-     * Удаляет refresh-токен текущего пользователя из базы.
+     * Завершает все сессии текущего пользователя и отзывает выпущенные в них access-токены,
+     * включая токен текущего запроса.
      */
-    @Transactional
     public void deleteRefreshToken() {
-        Long id = getUserId();
-        userRepository.deleteRefreshTokenByUuid(id);
+        Set<String> revoked = new HashSet<>(refreshSessionStore.revokeAll(getUserId()));
+        if (SecurityContextHolder.getContext().getAuthentication() instanceof JwtAuthentication authentication
+                && authentication.getTokenId() != null) {
+            revoked.add(authentication.getTokenId());
+        }
+        tokenRevocationService.revoke(revoked);
+    }
+
+    /**
+     * Принудительно завершает все сессии пользователя и отзывает его access-токены.
+     * Действует со следующего запроса пользователя.
+     *
+     * @param userId ID пользователя
+     */
+    public void revokeUserTokens(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new UserNotFoundException("Пользователь с ID " + userId + " не найден!");
+        }
+        tokenRevocationService.revoke(refreshSessionStore.revokeAll(userId));
+    }
+
+    /**
+     * Возвращает активные сессии текущего пользователя.
+     *
+     * @return список сессий, начиная с последней использованной
+     */
+    public List<SessionResponse> getMySessions() {
+        return refreshSessionStore.findByUser(getUserId()).stream()
+                .map(session -> new SessionResponse(session.getId(), session.getCreatedAt(),
+                        session.getLastUsedAt(), session.getExpiresAt()))
+                .toList();
+    }
+
+    /**
+     * Завершает одну сессию текущего пользователя.
+     * Refresh-токен и access-токены этой сессии перестают приниматься, остальные сессии сохраняются.
+     *
+     * @param sessionId идентификатор сессии
+     */
+    public void revokeMySession(String sessionId) {
+        if (!refreshSessionStore.revoke(getUserId(), sessionId)) {
+            throw new ResourceNotFoundException("Сессия не найдена!");
+        }
+        tokenRevocationService.revoke(List.of(sessionId));
     }
 
     /**
@@ -254,5 +336,6 @@ public class UserService {
             throw new IllegalArgumentException("Пользователь с ID " + userId + " не найден!");
         }
         userRepository.deleteById(userId);
+        tokenRevocationService.revoke(refreshSessionStore.revokeAll(userId));
     }
 }
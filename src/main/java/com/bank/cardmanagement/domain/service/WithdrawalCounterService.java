@@ -0,0 +1,77 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.WithdrawalCounter;
+import com.bank.cardmanagement.datasource.repository.WithdrawalCounterRepository;
+import com.bank.cardmanagement.exception.CardNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Сервис лимитов снятия наличных на основе счётчиков за текущий день и месяц.
+ * Вместо суммирования истории транзакций при каждом снятии проверяется и изменяется одна строка счётчиков карты.
+ * Счётчик прошедшего дня или месяца не сбрасывается отдельным заданием, а обнуляется при первом снятии в новом периоде.
+ */
+@Service
+public class WithdrawalCounterService {
+
+    /**
+     * Сообщение о превышении дневного лимита.
+     */
+    private static final String DAILY_LIMIT_MESSAGE = "Превышен дневной лимит снятия наличных! Операция отклонена!";
+
+    /**
+     * Сообщение о превышении месячного лимита.
+     */
+    private static final String MONTHLY_LIMIT_MESSAGE = "Превышен месячный лимит снятия наличных! Операция отклонена!";
+
+    /**
+     * Репозиторий счётчиков снятых наличных.
+     */
+    private final WithdrawalCounterRepository withdrawalCounterRepository;
+
+    /**
+     * Конструктор сервиса.
+     *
+     * @param withdrawalCounterRepository репозиторий счётчиков снятых наличных
+     */
+    public WithdrawalCounterService(WithdrawalCounterRepository withdrawalCounterRepository) {
+        this.withdrawalCounterRepository = withdrawalCounterRepository;
+    }
+
+    /**
+     * Учитывает снятие в счётчиках карты с проверкой дневного и месячного лимитов.
+     * Счётчики изменяются условным запросом, а при отказе строка счётчиков с лимитами читается ещё раз
+     * только для выбора сообщения. Должен вызываться в транзакции снятия: при её откате откатываются и счётчики.
+     *
+     * @param cardId идентификатор карты
+     * @param amount сумма снятия
+     * @throws IllegalArgumentException если превышен дневной или месячный лимит
+     * @throws CardNotFoundException    если карта с указанным ID не найдена
+     */
+    public void reserve(Long cardId, BigDecimal amount) {
+        LocalDate today = LocalDate.now();
+        if (withdrawalCounterRepository.tryAdd(cardId, today, amount)) {
+            return;
+        }
+        WithdrawalCounter counter = withdrawalCounterRepository.find(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Карта с ID " + cardId + " не найдена!"));
+        if (counter.dailySumOn(today).add(amount).compareTo(counter.getDailyLimit()) > 0) {
+            throw new IllegalArgumentException(DAILY_LIMIT_MESSAGE);
+        }
+        throw new IllegalArgumentException(MONTHLY_LIMIT_MESSAGE);
+    }
+
+    /**
+     * Пересчитывает счётчики всех карт по истории транзакций.
+     * Используется для сверки, если счётчики разошлись с транзакциями, например после ручной правки данных.
+     *
+     * @return количество карт, по которым за текущий месяц были снятия
+     */
+    @Transactional
+    public int rebuild() {
+        return withdrawalCounterRepository.rebuild(LocalDate.now());
+    }
+}
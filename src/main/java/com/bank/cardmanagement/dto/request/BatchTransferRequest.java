@@ -0,0 +1,41 @@
+package com.bank.cardmanagement.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Класс запроса на пакетный перевод средств между картами пользователя.
+ */
+public class BatchTransferRequest {
+
+    /**
+     * Переводы в порядке выполнения.
+     */
+    @NotEmpty(message = "Список переводов не может быть пустым!")
+    private List<@Valid TransferRequest> transfers;
+
+    /**
+     * Конструктор с параметром.
+     *
+     * @param transfers переводы в порядке выполнения
+     */
+    public BatchTransferRequest(List<TransferRequest> transfers) {
+        this.transfers = transfers;
+    }
+
+    /**
+     * Конструктор без параметров.
+     */
+    public BatchTransferRequest() {
+    }
+
+    public List<TransferRequest> getTransfers() {
+        return transfers;
+    }
+
+    public void setTransfers(List<TransferRequest> transfers) {
+        this.transfers = transfers;
+    }
+}
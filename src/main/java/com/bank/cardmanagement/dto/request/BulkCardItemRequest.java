@@ -0,0 +1,61 @@
+package com.bank.cardmanagement.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Элемент запроса на массовый выпуск карт.
+ * Содержит идентификатор пользователя-владельца и количество карт для него.
+ */
+public class BulkCardItemRequest {
+
+    /**
+     * Идентификатор пользователя, которому выпускаются карты.
+     * Не может быть null и должен быть положительным числом.
+     */
+    @NotNull(message = "ID пользователя обязателен!")
+    @Positive(message = "ID пользователя должен быть положительным числом!")
+    private Long userId;
+
+    /**
+     * Количество карт для пользователя.
+     */
+    @NotNull(message = "Количество карт обязательно!")
+    @Positive(message = "Количество карт должно быть положительным числом!")
+    @Max(value = 10_000, message = "Количество карт для одного пользователя не может превышать 10000!")
+    private Integer count = 1;
+
+    /**
+     * Конструктор с параметрами.
+     *
+     * @param userId ID пользователя
+     * @param count  количество карт
+     */
+    public BulkCardItemRequest(Long userId, Integer count) {
+        this.userId = userId;
+        this.count = count;
+    }
+
+    /**
+     * Конструктор без параметров.
+     */
+    public BulkCardItemRequest() {
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
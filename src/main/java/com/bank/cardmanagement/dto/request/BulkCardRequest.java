@@ -0,0 +1,41 @@
+package com.bank.cardmanagement.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Класс запроса на массовый выпуск банковских карт.
+ */
+public class BulkCardRequest {
+
+    /**
+     * Список пользователей и количества карт для каждого из них.
+     */
+    @NotEmpty(message = "Список карт для выпуска не может быть пустым!")
+    private List<@Valid BulkCardItemRequest> items;
+
+    /**
+     * Конструктор с параметром.
+     *
+     * @param items список пользователей и количества карт
+     */
+    public BulkCardRequest(List<BulkCardItemRequest> items) {
+        this.items = items;
+    }
+
+    /**
+     * Конструктор без параметров.
+     */
+    public BulkCardRequest() {
+    }
+
+    public List<BulkCardItemRequest> getItems() {
+        return items;
+    }
+
+    public void setItems(List<BulkCardItemRequest> items) {
+        this.items = items;
+    }
+}
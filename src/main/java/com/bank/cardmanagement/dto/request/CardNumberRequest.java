@@ -0,0 +1,27 @@
+package com.bank.cardmanagement.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * Класс запроса на поиск банковской карты по номеру.
+ * Номер передаётся в теле запроса, чтобы не попадать в журналы адресов.
+ */
+public class CardNumberRequest {
+
+    /**
+     * Полный номер карты.
+     * Не может быть пустым и должен состоять из 16 цифр.
+     */
+    @NotBlank(message = "Номер карты обязателен!")
+    @Pattern(regexp = "\\d{16}", message = "Номер карты должен состоять из 16 цифр!")
+    private String cardNumber;
+
+    public String getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(String cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+}
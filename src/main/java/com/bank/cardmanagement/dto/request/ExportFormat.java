@@ -0,0 +1,17 @@
+package com.bank.cardmanagement.dto.request;
+
+/**
+ * Формат потоковой выгрузки транзакций.
+ */
+public enum ExportFormat {
+
+    /**
+     * JSON-объект на строку.
+     */
+    NDJSON,
+
+    /**
+     * Строки CSV с заголовком.
+     */
+    CSV
+}
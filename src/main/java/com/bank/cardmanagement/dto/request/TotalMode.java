@@ -0,0 +1,22 @@
+package com.bank.cardmanagement.dto.request;
+
+/**
+ * Режим подсчёта общего количества записей при постраничном выводе.
+ */
+public enum TotalMode {
+
+    /**
+     * Точное количество, подсчитанное отдельным запросом.
+     */
+    EXACT,
+
+    /**
+     * Оценка количества по статистике планировщика PostgreSQL.
+     */
+    ESTIMATED,
+
+    /**
+     * Количество не подсчитывается, возвращается только признак наличия следующей страницы.
+     */
+    NONE
+}
@@ -0,0 +1,60 @@
+package com.bank.cardmanagement.dto.response;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат одного перевода из пакетного запроса.
+ */
+public class BatchTransferItemResponse {
+
+    /**
+     * ID карты-отправителя.
+     */
+    private Long sourceCardId;
+
+    /**
+     * ID карты-получателя.
+     */
+    private Long destinationCardId;
+
+    /**
+     * Сумма перевода.
+     */
+    private BigDecimal amount;
+
+    /**
+     * Сообщение об ошибке, если перевод не выполнен.
+     */
+    private String error;
+
+    /**
+     * Конструктор для создания результата перевода.
+     *
+     * @param sourceCardId      ID карты-отправителя.
+     * @param destinationCardId ID карты-получателя.
+     * @param amount            Сумма перевода.
+     * @param error             Сообщение об ошибке или null.
+     */
+    public BatchTransferItemResponse(Long sourceCardId, Long destinationCardId, BigDecimal amount, String error) {
+        this.sourceCardId = sourceCardId;
+        this.destinationCardId = destinationCardId;
+        this.amount = amount;
+        this.error = error;
+    }
+
+    public Long getSourceCardId() {
+        return sourceCardId;
+    }
+
+    public Long getDestinationCardId() {
+        return destinationCardId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
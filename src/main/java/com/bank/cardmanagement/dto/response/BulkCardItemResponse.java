@@ -0,0 +1,60 @@
+package com.bank.cardmanagement.dto.response;
+
+import java.util.List;
+
+/**
+ * Результат выпуска карт по одному элементу массового запроса.
+ */
+public class BulkCardItemResponse {
+
+    /**
+     * Идентификатор пользователя из элемента запроса.
+     */
+    private Long userId;
+
+    /**
+     * Запрошенное количество карт.
+     */
+    private int requested;
+
+    /**
+     * Выпущенные карты.
+     */
+    private List<CardResponse> cards;
+
+    /**
+     * Сообщение об ошибке, если карты по элементу не выпущены.
+     */
+    private String error;
+
+    /**
+     * Конструктор для создания результата по элементу запроса.
+     *
+     * @param userId    Идентификатор пользователя.
+     * @param requested Запрошенное количество карт.
+     * @param cards     Выпущенные карты.
+     * @param error     Сообщение об ошибке или null.
+     */
+    public BulkCardItemResponse(Long userId, int requested, List<CardResponse> cards, String error) {
+        this.userId = userId;
+        this.requested = requested;
+        this.cards = cards;
+        this.error = error;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public List<CardResponse> getCards() {
+        return cards;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,40 @@
+package com.bank.cardmanagement.dto.response;
+
+import java.util.List;
+
+/**
+ * Страница записей при постраничной навигации по курсору.
+ *
+ * @param <T> тип записи
+ */
+public class CursorPageResponse<T> {
+
+    /**
+     * Записи страницы.
+     */
+    private List<T> content;
+
+    /**
+     * Курсор следующей страницы или null, если страница последняя.
+     */
+    private String nextCursor;
+
+    /**
+     * Конструктор для создания страницы.
+     *
+     * @param content    Записи страницы.
+     * @param nextCursor Курсор следующей страницы или null.
+     */
+    public CursorPageResponse(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
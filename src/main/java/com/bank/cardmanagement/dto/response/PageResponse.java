@@ -0,0 +1,87 @@
+package com.bank.cardmanagement.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Страница записей с признаком наличия следующей страницы и необязательным общим количеством записей.
+ *
+ * @param <T> тип записи
+ */
+public class PageResponse<T> {
+
+    /**
+     * Записи страницы.
+     */
+    private List<T> content;
+
+    /**
+     * Номер страницы, начиная с 1.
+     */
+    private int page;
+
+    /**
+     * Размер страницы.
+     */
+    private int size;
+
+    /**
+     * Признак наличия следующей страницы.
+     */
+    private boolean hasNext;
+
+    /**
+     * Общее количество записей или null, если оно не подсчитывалось.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+
+    /**
+     * Признак того, что общее количество записей оценено, а не подсчитано точно.
+     */
+    private boolean totalEstimated;
+
+    /**
+     * Конструктор для создания страницы.
+     *
+     * @param content        Записи страницы.
+     * @param page           Номер страницы, начиная с 1.
+     * @param size           Размер страницы.
+     * @param hasNext        Признак наличия следующей страницы.
+     * @param totalElements  Общее количество записей или null.
+     * @param totalEstimated Признак оценённого количества записей.
+     */
+    public PageResponse(List<T> content, int page, int size, boolean hasNext, Long totalElements, boolean totalEstimated) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.totalElements = totalElements;
+        this.totalEstimated = totalEstimated;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+}
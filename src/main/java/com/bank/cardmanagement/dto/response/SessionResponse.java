@@ -0,0 +1,61 @@
+package com.bank.cardmanagement.dto.response;
+
+import java.time.Instant;
+
+/**
+ * Класс для представления активной сессии пользователя.
+ * Используется для вывода списка устройств, на которых выполнен вход.
+ */
+public class SessionResponse {
+
+    /**
+     * Идентификатор сессии.
+     */
+    private String id;
+
+    /**
+     * Момент входа.
+     */
+    private Instant createdAt;
+
+    /**
+     * Момент последнего обновления токенов.
+     */
+    private Instant lastUsedAt;
+
+    /**
+     * Момент истечения сессии.
+     */
+    private Instant expiresAt;
+
+    /**
+     * Конструктор для создания объекта сессии.
+     *
+     * @param id         Идентификатор сессии.
+     * @param createdAt  Момент входа.
+     * @param lastUsedAt Момент последнего обновления токенов.
+     * @param expiresAt  Момент истечения сессии.
+     */
+    public SessionResponse(String id, Instant createdAt, Instant lastUsedAt, Instant expiresAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.lastUsedAt = lastUsedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
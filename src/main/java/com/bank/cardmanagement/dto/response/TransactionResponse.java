@@ -1,5 +1,7 @@
 package com.bank.cardmanagement.dto.response;
 
+import com.bank.cardmanagement.entity.TransactionType;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -55,6 +57,20 @@ public class TransactionResponse {
         this.timestamp = timestamp;
     }
 
+    /**
+     * Конструктор для создания объекта ответа о транзакции из столбцов запроса.
+     * Используется в JPQL-выражениях {@code SELECT new}, чтобы не загружать сущности транзакций и карт.
+     *
+     * @param id          Уникальный идентификатор транзакции.
+     * @param type        Тип транзакции.
+     * @param amount      Сумма транзакции.
+     * @param description Описание транзакции.
+     * @param timestamp   Время выполнения транзакции.
+     */
+    public TransactionResponse(Long id, TransactionType type, BigDecimal amount, String description, LocalDateTime timestamp) {
+        this(id, type.name(), amount, description, timestamp);
+    }
+
     public Long getId() {
         return id;
     }
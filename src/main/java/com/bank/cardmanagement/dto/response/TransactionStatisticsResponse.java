@@ -0,0 +1,61 @@
+package com.bank.cardmanagement.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Итоги транзакций одного типа за день.
+ */
+public class TransactionStatisticsResponse {
+
+    /**
+     * День транзакций.
+     */
+    private LocalDate day;
+
+    /**
+     * Тип транзакций.
+     */
+    private String type;
+
+    /**
+     * Количество транзакций.
+     */
+    private long count;
+
+    /**
+     * Сумма транзакций.
+     */
+    private BigDecimal amount;
+
+    /**
+     * Конструктор для создания итогов за день.
+     *
+     * @param day    День транзакций.
+     * @param type   Тип транзакций.
+     * @param count  Количество транзакций.
+     * @param amount Сумма транзакций.
+     */
+    public TransactionStatisticsResponse(LocalDate day, String type, long count, BigDecimal amount) {
+        this.day = day;
+        this.type = type;
+        this.count = count;
+        this.amount = amount;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
@@ -29,6 +29,20 @@ public class Card {
     @Column(name = "encrypted_card_number", nullable = false, unique = true, length = 255)
     private String encryptedCardNumber;
 
+    /**
+     * Отпечаток номера карты (HMAC-SHA256 в шестнадцатеричном виде).
+     * Уникальный, используется для поиска карты по номеру без дешифрования.
+     */
+    @Column(name = "card_number_fingerprint", unique = true, length = 64)
+    private String cardNumberFingerprint;
+
+    /**
+     * Замаскированный номер карты (первые и последние 4 цифры).
+     * Сохраняется при создании, чтобы списки карт не требовали дешифрования.
+     */
+    @Column(name = "masked_card_number", length = 19)
+    private String maskedCardNumber;
+
     /**
      * Пользователь, которому принадлежит карта.
      * Связь "много к одному" с сущностью User.
@@ -80,6 +94,14 @@ public class Card {
     @OneToMany(mappedBy = "card", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Transaction> transactions = new ArrayList<>();
 
+    /**
+     * Версия строки для оптимистичной блокировки.
+     * Увеличивается при каждом изменении карты; параллельное изменение устаревшей копии отклоняется.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     /**
      * Базовый констуктор для создания карты
      */
@@ -117,6 +139,22 @@ public class Card {
         this.encryptedCardNumber = encryptedCardNumber;
     }
 
+    public String getCardNumberFingerprint() {
+        return cardNumberFingerprint;
+    }
+
+    public void setCardNumberFingerprint(String cardNumberFingerprint) {
+        this.cardNumberFingerprint = cardNumberFingerprint;
+    }
+
+    public String getMaskedCardNumber() {
+        return maskedCardNumber;
+    }
+
+    public void setMaskedCardNumber(String maskedCardNumber) {
+        this.maskedCardNumber = maskedCardNumber;
+    }
+
     public void setUser(User user) {
         this.user = user;
     }
@@ -176,4 +214,8 @@ public class Card {
     public void setId(Long id) {
         this.id = id;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
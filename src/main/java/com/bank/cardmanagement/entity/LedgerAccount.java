@@ -0,0 +1,25 @@
+package com.bank.cardmanagement.entity;
+
+/**
+ * Перечисление счетов журнала проводок.
+ * Каждая операция записывается проводками по нескольким счетам с нулевой суммой.
+ */
+public enum LedgerAccount {
+    /**
+     * Счёт карты.
+     * Проводки по нему хранят ID карты и составляют её баланс.
+     */
+    CARD,
+
+    /**
+     * Счёт выданных наличных.
+     * Пополняется при снятии наличных с карт.
+     */
+    CASH,
+
+    /**
+     * Счёт начальных остатков.
+     * Противоположная сторона балансов карт, которые существовали до появления журнала.
+     */
+    OPENING
+}
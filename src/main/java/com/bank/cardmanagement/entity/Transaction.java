@@ -48,10 +48,17 @@ public class Transaction {
     /**
      * Карта, с которой была произведена транзакция.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "card_id", nullable = false)
     private Card card;
 
+    /**
+     * ID карты-получателя для строки списания перевода, иначе null.
+     * По нему фоновый перенос в журнал проводок определяет направление перевода.
+     */
+    @Column(name = "counterparty_card_id")
+    private Long counterpartyCardId;
+
     /**
      * Конструктор для создания новой транзакции.
      *
@@ -95,6 +102,14 @@ public class Transaction {
         return amount;
     }
 
+    public Card getCard() {
+        return card;
+    }
+
+    public Long getCounterpartyCardId() {
+        return counterpartyCardId;
+    }
+
     public void setType(TransactionType type) {
         this.type = type;
     }
@@ -114,4 +129,8 @@ public class Transaction {
     public void setCard(Card card) {
         this.card = card;
     }
+
+    public void setCounterpartyCardId(Long counterpartyCardId) {
+        this.counterpartyCardId = counterpartyCardId;
+    }
 }
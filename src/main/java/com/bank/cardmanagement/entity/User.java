@@ -44,13 +44,6 @@ public class User {
     @Column(nullable = false)
     private Role role;
 
-    /**
-     * Токен обновления для пользователя.
-     * Может быть {@code null}.
-     */
-    @Column(name = "refresh_token")
-    private String refreshToken;
-
     /**
      * Набор карт, связанных с пользователем.
      * Все изменения в {@link Set<Card>} будут каскадированы (например, удаление карт).
@@ -94,14 +87,6 @@ public class User {
         return role;
     }
 
-    public String getRefreshToken() {
-        return refreshToken;
-    }
-
-    public void setRefreshToken(String refreshToken) {
-        this.refreshToken = refreshToken;
-    }
-
     public void setEmail(String email) {
         this.email = email;
     }
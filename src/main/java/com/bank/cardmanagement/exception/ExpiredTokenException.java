@@ -0,0 +1,19 @@
+package com.bank.cardmanagement.exception;
+
+/**
+ * Исключение, которое выбрасывается, когда подпись токена верна, но срок его действия истёк.
+ * Наследует {@link SecurityException}, поэтому обрабатывается вместе с остальными ошибками проверки токена,
+ * если отдельная обработка не нужна.
+ */
+public class ExpiredTokenException extends SecurityException {
+
+    /**
+     * Конструктор для создания исключения с заданным сообщением и причиной.
+     *
+     * @param message Сообщение, описывающее причину возникновения исключения
+     * @param cause   Исходное исключение разбора токена
+     */
+    public ExpiredTokenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bank.cardmanagement.exception;
+
+/**
+ * Исключение, которое выбрасывается, когда сервис временно перегружен и не может принять запрос.
+ * Содержит рекомендуемую паузу перед повторной попыткой.
+ * Наследует {@link RuntimeException}.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    /**
+     * Рекомендуемая пауза перед повторной попыткой в секундах.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Конструктор для создания исключения с заданным сообщением и паузой перед повторной попыткой.
+     *
+     * @param message           Сообщение, описывающее причину возникновения исключения
+     * @param retryAfterSeconds Рекомендуемая пауза перед повторной попыткой в секундах
+     */
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,29 @@
+package com.bank.cardmanagement.exception;
+
+/**
+ * Исключение, которое выбрасывается, когда клиент превысил допустимую частоту запросов.
+ * Содержит паузу, после которой запрос будет принят.
+ * Наследует {@link RuntimeException}.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    /**
+     * Пауза перед повторной попыткой в секундах.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Конструктор для создания исключения с заданным сообщением и паузой перед повторной попыткой.
+     *
+     * @param message           Сообщение, описывающее причину возникновения исключения
+     * @param retryAfterSeconds Пауза перед повторной попыткой в секундах
+     */
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,103 @@
+package com.bank.cardmanagement.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный фильтр Блума для строковых ключей.
+ * Отвечает «точно нет» или «возможно есть»; при ответе «возможно есть» требуется точная проверка.
+ * Удаление ключей не поддерживается: для очистки фильтр строится заново.
+ */
+public class BloomFilter {
+
+    /**
+     * Биты фильтра, по 64 в каждом элементе массива.
+     */
+    private final AtomicLongArray bits;
+
+    /**
+     * Количество битов фильтра.
+     */
+    private final int bitCount;
+
+    /**
+     * Количество хэш-функций.
+     */
+    private final int hashCount;
+
+    /**
+     * Конструктор фильтра, рассчитывающий размер по ожидаемому количеству ключей и доле ложных срабатываний.
+     *
+     * @param expectedEntries   ожидаемое количество ключей
+     * @param falsePositiveRate допустимая доля ложных срабатываний
+     */
+    public BloomFilter(int expectedEntries, double falsePositiveRate) {
+        if (expectedEntries < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Некорректные параметры фильтра Блума!");
+        }
+        long size = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(size, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    /**
+     * Добавляет ключ в фильтр.
+     *
+     * @param key ключ
+     */
+    public void put(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(index);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(index, current, current | mask));
+        }
+    }
+
+    /**
+     * Проверяет, может ли ключ содержаться в фильтре.
+     *
+     * @param key ключ
+     * @return false, если ключа точно нет; true, если ключ возможно есть
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Вычисляет 64-битный хэш FNV-1a с дополнительным перемешиванием битов.
+     *
+     * @param key ключ
+     * @return хэш ключа
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,408 @@
+package com.bank.cardmanagement.security;
+
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.PrivateJwk;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Набор ключей для подписи и проверки JWT.
+ * В режиме HS256 используется общий секрет {@code jwt.secret}, как и раньше.
+ * В режимах EdDSA и RS256 узел-эмитент подписывает токены закрытым ключом из {@code jwt.signing.private-jwk},
+ * общим для всех эмитентов, поэтому токен любого из них принимается остальными и переживает перезапуск.
+ * Ключ меняется заменой настройки: открытый ключ прошлого поколения переносится в {@code jwt.signing.previous-jwks}
+ * и остаётся в наборе проверки, пока выпущенные им токены могут быть действительны.
+ * Если закрытый ключ не задан, эмитент создаёт пару ключей в памяти и периодически меняет её сам. Такой режим
+ * допустим только для единственного эмитента: другие эмитенты не знают его ключей, а после перезапуска
+ * все выпущенные токены становятся недействительными.
+ * Каждый токен получает заголовок {@code kid}, по которому ключ проверки выбирается из неизменяемой карты без
+ * обращения к внешним ресурсам. Открытые ключи публикуются в формате JWKS, поэтому узлы в режиме проверки
+ * не хранят секретов и не могут выпускать токены.
+ */
+public class JwtKeySet {
+
+    /**
+     * Минимальная пауза между внеочередными загрузками JWKS при встрече неизвестного {@code kid}, мс.
+     */
+    private static final long UNKNOWN_KID_REFRESH_PAUSE = 10_000;
+
+    /**
+     * Алгоритм подписи: HS256, EdDSA или RS256.
+     */
+    @Value("${jwt.signing.algorithm:HS256}")
+    private String algorithm = "HS256";
+
+    /**
+     * Режим узла: signer выпускает и проверяет токены, verifier только проверяет.
+     */
+    @Value("${jwt.signing.mode:signer}")
+    private String mode = "signer";
+
+    /**
+     * Адрес JWKS узла-эмитента, используется в режиме verifier.
+     */
+    @Value("${jwt.signing.jwks-uri:}")
+    private String jwksUri = "";
+
+    /**
+     * Закрытый ключ подписи в формате JWK, общий для всех узлов-эмитентов.
+     * Если не задан, ключевая пара создаётся в памяти узла.
+     */
+    @Value("${jwt.signing.private-jwk:}")
+    private String privateJwk = "";
+
+    /**
+     * Открытые ключи прошлых поколений в формате JWKS, которые ещё принимаются при проверке.
+     */
+    @Value("${jwt.signing.previous-jwks:}")
+    private String previousJwks = "";
+
+    /**
+     * Период смены ключевой пары, созданной в памяти, мс.
+     */
+    @Value("${jwt.signing.rotation-interval:86400000}")
+    private long rotationInterval = 86400000;
+
+    /**
+     * Секретный ключ для режима HS256.
+     */
+    @Value("${jwt.secret:}")
+    private String secret = "";
+
+    /**
+     * Время жизни refresh токена в миллисекундах.
+     * Открытый ключ прошлого поколения хранится не меньше этого времени после смены ключа.
+     */
+    @Value("${jwt.refresh-token-expiration}")
+    private long refreshTokenExpiration;
+
+    /**
+     * Текущий ключ подписи. В режиме verifier не задан.
+     */
+    private volatile SigningKey signingKey;
+
+    /**
+     * Ключи проверки по {@code kid}. Карта неизменяемая и заменяется целиком при смене ключей.
+     */
+    private volatile Map<String, Key> verificationKeys = Map.of();
+
+    /**
+     * Момент, после которого ключ прошлого поколения удаляется из набора.
+     */
+    private final Map<String, Instant> retireAt = new HashMap<>();
+
+    /**
+     * Открытые ключи в формате JWKS, подготовленные заранее.
+     */
+    private volatile String jwksJson = "{\"keys\":[]}";
+
+    /**
+     * Момент последней загрузки JWKS в режиме verifier, мс.
+     * При встрече неизвестного {@code kid} сдвигается до загрузки, поэтому загрузку начинает только один запрос.
+     */
+    private final AtomicLong lastJwksLoad = new AtomicLong();
+
+    /**
+     * Клиент для загрузки JWKS в режиме verifier.
+     */
+    private RestClient restClient;
+
+    /**
+     * Инициализация набора ключей в соответствии с настройками.
+     * Вызывается при старте приложения после инъекций зависимостей.
+     */
+    @PostConstruct
+    public void init() {
+        if (!isSymmetric() && !"EdDSA".equals(algorithm) && !"RS256".equals(algorithm)) {
+            throw new IllegalArgumentException("Неподдерживаемый алгоритм подписи JWT: " + algorithm);
+        }
+        if (isSymmetric()) {
+            if (isVerifier()) {
+                throw new IllegalArgumentException("Режим проверки без ключа подписи доступен только для EdDSA и RS256!");
+            }
+            this.signingKey = new SigningKey(null, Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), null);
+            return;
+        }
+        if (isVerifier()) {
+            if (jwksUri.isBlank()) {
+                throw new IllegalArgumentException("Для режима проверки не задан адрес JWKS!");
+            }
+            this.restClient = RestClient.create();
+            refresh();
+        } else if (!privateJwk.isBlank()) {
+            loadSigningKey();
+        } else {
+            rotate();
+        }
+    }
+
+    /**
+     * Подписывает токен текущим ключом и добавляет заголовок {@code kid}.
+     * Алгоритм определяется типом и длиной ключа: HS256 для секрета, EdDSA для Ed25519, RS256 для RSA-2048.
+     *
+     * @param builder построитель токена
+     * @return построитель с подписью
+     * @throws IllegalStateException если узел работает в режиме проверки
+     */
+    public JwtBuilder sign(JwtBuilder builder) {
+        SigningKey key = signingKey;
+        if (key == null) {
+            throw new IllegalStateException("Узел работает только на проверку токенов и не может их выпускать!");
+        }
+        if (key.kid() != null) {
+            builder.header().keyId(key.kid()).and();
+        }
+        return builder.signWith(key.key());
+    }
+
+    /**
+     * Возвращает поиск ключа проверки для парсера JWT.
+     * В режиме HS256 всегда возвращается общий секрет, в остальных режимах ключ выбирается по {@code kid}.
+     *
+     * @return поиск ключа проверки
+     */
+    public LocatorAdapter<Key> locator() {
+        return new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                return verificationKey(header.getKeyId());
+            }
+        };
+    }
+
+    /**
+     * Возвращает открытые ключи в формате JWKS.
+     *
+     * @return JSON-документ с набором открытых ключей
+     */
+    public String getJwksJson() {
+        return jwksJson;
+    }
+
+    /**
+     * Плановое обслуживание набора ключей.
+     * Узел-эмитент с ключевой парой в памяти меняет её, когда текущая старше периода смены, и удаляет устаревшие
+     * ключи; узел проверки перечитывает JWKS эмитента. Ключ из настроек меняется только заменой настройки.
+     */
+    @Scheduled(initialDelayString = "${jwt.signing.refresh-interval:300000}",
+            fixedDelayString = "${jwt.signing.refresh-interval:300000}")
+    public void maintain() {
+        if (isSymmetric()) {
+            return;
+        }
+        if (isVerifier()) {
+            refresh();
+            return;
+        }
+        if (!privateJwk.isBlank()) {
+            return;
+        }
+        SigningKey key = signingKey;
+        if (key.createdAt().plusMillis(rotationInterval).isAfter(Instant.now())) {
+            purgeRetired();
+            return;
+        }
+        rotate();
+    }
+
+    /**
+     * Создаёт новую ключевую пару и делает её текущей.
+     * Ключ прошлого поколения остаётся в наборе проверки на время жизни refresh токена.
+     */
+    public synchronized void rotate() {
+        Instant now = Instant.now();
+        KeyPair keyPair = "EdDSA".equals(algorithm)
+                ? Jwks.CRV.Ed25519.keyPair().build()
+                : Jwts.SIG.RS256.keyPair().build();
+        String kid = UUID.randomUUID().toString();
+        SigningKey previous = signingKey;
+        if (previous != null) {
+            retireAt.put(previous.kid(), now.plusMillis(refreshTokenExpiration));
+        }
+        Map<String, Key> keys = new LinkedHashMap<>(verificationKeys);
+        keys.put(kid, keyPair.getPublic());
+        this.signingKey = new SigningKey(kid, keyPair.getPrivate(), now);
+        publish(keys, now);
+    }
+
+    /**
+     * Загружает набор открытых ключей из JSON-документа JWKS и заменяет им текущий набор проверки.
+     *
+     * @param json JSON-документ JWKS
+     */
+    public synchronized void loadJwks(String json) {
+        this.verificationKeys = Map.copyOf(publicKeys(json));
+        this.jwksJson = json;
+        this.lastJwksLoad.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Делает текущим ключ подписи из {@code jwt.signing.private-jwk} и публикует его открытый ключ
+     * вместе с ключами прошлых поколений из {@code jwt.signing.previous-jwks}.
+     * Идентификатор ключа берётся из JWK, а если он не задан, вычисляется как отпечаток ключа, поэтому
+     * совпадает на всех эмитентах.
+     *
+     * @throws IllegalArgumentException если ключ не закрытый или не подходит для алгоритма подписи
+     */
+    private synchronized void loadSigningKey() {
+        if (!(Jwks.parser().build().parse(privateJwk) instanceof PrivateJwk<?, ?, ?> jwk)) {
+            throw new IllegalArgumentException("В jwt.signing.private-jwk должен быть задан закрытый ключ!");
+        }
+        if (!jwk.getType().equals("EdDSA".equals(algorithm) ? "OKP" : "RSA")) {
+            throw new IllegalArgumentException("Ключ jwt.signing.private-jwk не подходит для алгоритма " + algorithm + "!");
+        }
+        Instant now = Instant.now();
+        String kid = jwk.getId() != null ? jwk.getId() : jwk.thumbprint().toString();
+        Map<String, Key> keys = previousJwks.isBlank() ? new LinkedHashMap<>() : publicKeys(previousJwks);
+        keys.put(kid, jwk.toPublicJwk().toKey());
+        this.signingKey = new SigningKey(kid, jwk.toKey(), now);
+        publish(keys, now);
+    }
+
+    /**
+     * Читает открытые ключи с идентификаторами из JSON-документа JWKS.
+     *
+     * @param json JSON-документ JWKS
+     * @return открытые ключи по {@code kid}
+     */
+    private static Map<String, Key> publicKeys(String json) {
+        JwkSet set = Jwks.setParser().build().parse(json);
+        Map<String, Key> keys = new LinkedHashMap<>();
+        for (Jwk<?> jwk : set) {
+            if (jwk.getId() != null && jwk.toKey() instanceof PublicKey publicKey) {
+                keys.put(jwk.getId(), publicKey);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Возвращает ключ проверки по {@code kid}.
+     * Если в режиме verifier ключ неизвестен, JWKS перечитывается не чаще, чем раз в паузу, чтобы
+     * подхватить ключ, выпущенный эмитентом после последней загрузки. Перечитывает только запрос, первым
+     * сдвинувший момент загрузки; остальные запросы с неизвестным ключом в эту паузу сразу отклоняются.
+     *
+     * @param kid идентификатор ключа из заголовка токена
+     * @return ключ проверки
+     * @throws JwtException если ключ не найден
+     */
+    private Key verificationKey(String kid) {
+        if (isSymmetric()) {
+            return signingKey.key();
+        }
+        Key key = kid == null ? null : verificationKeys.get(kid);
+        if (key == null && kid != null && isVerifier() && claimUnknownKidRefresh()) {
+            refresh();
+            key = verificationKeys.get(kid);
+        }
+        if (key == null) {
+            throw new JwtException("Неизвестный ключ подписи JWT!");
+        }
+        return key;
+    }
+
+    /**
+     * Сдвигает момент загрузки JWKS на текущий, если с прошлой загрузки прошла пауза.
+     *
+     * @return true, если вызвавший запрос должен перечитать JWKS
+     */
+    private boolean claimUnknownKidRefresh() {
+        long now = System.currentTimeMillis();
+        long last = lastJwksLoad.get();
+        return now - last >= UNKNOWN_KID_REFRESH_PAUSE && lastJwksLoad.compareAndSet(last, now);
+    }
+
+    /**
+     * Перечитывает JWKS эмитента. Ошибка загрузки не сбрасывает ранее загруженные ключи.
+     */
+    private void refresh() {
+        try {
+            loadJwks(restClient.get().uri(jwksUri).retrieve().body(String.class));
+        } catch (RuntimeException e) {
+            this.lastJwksLoad.set(System.currentTimeMillis());
+            if (verificationKeys.isEmpty()) {
+                throw new IllegalStateException("Не удалось загрузить JWKS: " + jwksUri, e);
+            }
+        }
+    }
+
+    /**
+     * Удаляет из набора проверки ключи, срок хранения которых истёк.
+     */
+    private synchronized void purgeRetired() {
+        Instant now = Instant.now();
+        if (retireAt.values().stream().anyMatch(instant -> !instant.isAfter(now))) {
+            publish(new LinkedHashMap<>(verificationKeys), now);
+        }
+    }
+
+    /**
+     * Удаляет устаревшие ключи и публикует набор проверки вместе с JWKS.
+     *
+     * @param keys ключи проверки по {@code kid}
+     * @param now  текущий момент
+     */
+    private void publish(Map<String, Key> keys, Instant now) {
+        retireAt.entrySet().removeIf(entry -> {
+            boolean expired = !entry.getValue().isAfter(now);
+            if (expired) {
+                keys.remove(entry.getKey());
+            }
+            return expired;
+        });
+        StringJoiner json = new StringJoiner(",", "{\"keys\":[", "]}");
+        keys.forEach((kid, key) -> json.add(Jwks.json(Jwks.builder().key((PublicKey) key).id(kid).build())));
+        this.verificationKeys = Map.copyOf(keys);
+        this.jwksJson = json.toString();
+    }
+
+    /**
+     * Проверяет, используется ли общий секрет.
+     *
+     * @return true для режима HS256
+     */
+    private boolean isSymmetric() {
+        return "HS256".equals(algorithm);
+    }
+
+    /**
+     * Проверяет, работает ли узел только на проверку токенов.
+     *
+     * @return true для режима verifier
+     */
+    private boolean isVerifier() {
+        return "verifier".equals(mode);
+    }
+
+    /**
+     * Ключ подписи с идентификатором и моментом создания.
+     *
+     * @param kid       идентификатор ключа, null для общего секрета
+     * @param key       закрытый ключ или общий секрет
+     * @param createdAt момент создания ключа, null для общего секрета
+     */
+    private record SigningKey(String kid, Key key, Instant createdAt) {
+    }
+}
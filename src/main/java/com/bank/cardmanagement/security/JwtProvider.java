@@ -1,15 +1,14 @@
 package com.bank.cardmanagement.security;
 
 import com.bank.cardmanagement.entity.User;
+import com.bank.cardmanagement.exception.ExpiredTokenException;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 
-import javax.crypto.SecretKey;
 import java.time.Instant;
 import java.util.Date;
-import java.util.Objects;
+import java.util.UUID;
 
 /**
  * Класс для работы с JWT токенами: генерация, валидация и извлечение информации из токенов.
@@ -17,6 +16,11 @@ import java.util.Objects;
  */
 public class JwtProvider {
 
+    /**
+     * Имя claim с идентификатором сессии в токенах.
+     */
+    private static final String SESSION_CLAIM = "sid";
+
     /**
      * Время жизни access токена в миллисекундах.
      */
@@ -30,97 +34,125 @@ public class JwtProvider {
     private long refreshTokenExpiration;
 
     /**
-     * Секретный ключ для подписи токенов.
+     * Набор ключей для подписи и проверки токенов.
      */
-    @Value("${jwt.secret}")
-    private String secret;
+    private final JwtKeySet keySet;
 
     /**
-     * Секретный ключ для создания подписи JWT.
+     * Парсер JWT, настроенный на проверку подписи. Потокобезопасен и создаётся один раз.
      */
-    private SecretKey secretKey;
+    private JwtParser parser;
 
     /**
-     * Инициализация секретного ключа для подписи токенов.
+     * Конструктор провайдера.
+     *
+     * @param keySet набор ключей для подписи и проверки токенов
+     */
+    public JwtProvider(JwtKeySet keySet) {
+        this.keySet = keySet;
+    }
+
+    /**
+     * Инициализация парсера для проверки токенов.
+     * Ключ проверки выбирается набором ключей по заголовку {@code kid} токена.
      * Вызывается при старте приложения после инъекций зависимостей.
      */
     @PostConstruct
     public void init() {
-        this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parser()
+                .keyLocator(keySet.locator())
+                .build();
     }
 
     /**
-     * Генерация access токена для пользователя.
+     * Генерация access токена для сессии пользователя.
+     * Токен получает собственный идентификатор (jti) и идентификатор сессии (sid), по которым его можно отозвать.
      *
-     * @param user пользователь, для которого генерируется токен
+     * @param user      пользователь, для которого генерируется токен
+     * @param sessionId идентификатор сессии, в которой выпущен токен
      * @return сгенерированный access токен
      */
-    public String generateAccessToken(User user) {
+    public String generateAccessToken(User user, String sessionId) {
         Instant now = Instant.now();
         Instant expirationTime = now.plusMillis(accessTokenExpiration);
 
-        return Jwts.builder()
-                .subject(user.getId().toString())
-                .claim("role", user.getRole().toString())
-                .issuedAt(Date.from(now))
-                .expiration(Date.from(expirationTime))
-                .signWith(secretKey)
+        return keySet.sign(Jwts.builder()
+                        .subject(user.getId().toString())
+                        .claim("role", user.getRole().toString())
+                        .claim(SESSION_CLAIM, sessionId)
+                        .id(UUID.randomUUID().toString())
+                        .issuedAt(Date.from(now))
+                        .expiration(Date.from(expirationTime)))
                 .compact();
     }
 
     /**
-     * Генерация refresh токена для пользователя.
+     * Генерация refresh токена для сессии пользователя.
      *
-     * @param user пользователь, для которого генерируется токен
+     * @param user      пользователь, для которого генерируется токен
+     * @param sessionId идентификатор сессии, к которой относится токен
      * @return сгенерированный refresh токен
      */
-    public String generateRefreshToken(User user) {
+    public String generateRefreshToken(User user, String sessionId) {
         Instant now = Instant.now();
         Instant expirationTime = now.plusMillis(refreshTokenExpiration);
 
-        return Jwts.builder()
-                .subject(user.getId().toString())
-                .issuedAt(Date.from(now))
-                .expiration(Date.from(expirationTime))
-                .signWith(secretKey)
+        return keySet.sign(Jwts.builder()
+                        .subject(user.getId().toString())
+                        .claim(SESSION_CLAIM, sessionId)
+                        .id(UUID.randomUUID().toString())
+                        .issuedAt(Date.from(now))
+                        .expiration(Date.from(expirationTime)))
                 .compact();
     }
 
     /**
-     * Валидация access токена.
+     * Возвращает момент истечения refresh токена, выпускаемого сейчас.
+     *
+     * @return момент истечения refresh токена
+     */
+    public Instant refreshTokenExpiresAt() {
+        return Instant.now().plusMillis(refreshTokenExpiration);
+    }
+
+    /**
+     * Извлечение идентификатора сессии из токена.
+     *
+     * @param claims полезная нагрузка токена
+     * @return идентификатор сессии или null, если токен выпущен без сессии
+     */
+    public String getSessionId(Claims claims) {
+        return claims.get(SESSION_CLAIM, String.class);
+    }
+
+    /**
+     * Валидация access токена. Просроченный токен считается невалидным.
      *
      * @param accessToken токен для валидации
-     * @return Claims (полезная нагрузка) из токена, если токен валиден
+     * @return Claims (полезная нагрузка) из токена, если токен валиден и не просрочен, иначе null
      */
     public Claims validateAccessToken(String accessToken) {
         try {
-            return validateToken(accessToken);
+            Claims claims = validateToken(accessToken);
+            return isFreshToken(claims) ? claims : null;
         } catch (SecurityException e) {
             return null;
         }
     }
 
     /**
-     * Валидация refresh токена.
-     *
-     * @param user         пользователь, чей refresh токен проверяется
-     * @param refreshToken refresh токен для валидации
-     * @return true, если refresh токен совпадает с сохранённым в базе
-     */
-    public boolean validateRefreshToken(User user, String refreshToken) {
-        return Objects.equals(user.getRefreshToken(), refreshToken);
-    }
-
-    /**
-     * Общая валидация токена (access и refresh).
+     * Общая валидация токена (access и refresh). Просроченный токен не принимается.
      *
      * @param token токен для валидации
      * @return Claims (полезная нагрузка) из токена, если токен валиден
-     * @throws SecurityException если токен невалиден
+     * @throws ExpiredTokenException если срок действия токена истёк
+     * @throws SecurityException     если токен невалиден
      */
     public Claims validateToken(String token) {
         try {
             return getClaims(token);
+        } catch (ExpiredTokenException e) {
+            throw e;
         } catch (SecurityException e) {
             throw new SecurityException("Неверная подпись JWT!", e);
         } catch (MalformedJwtException e) {
@@ -131,21 +163,18 @@ public class JwtProvider {
     }
 
     /**
-     * Извлечение полезной нагрузки (claims) из токена.
+     * Извлечение полезной нагрузки (claims) из токена. Claims просроченного токена не возвращаются.
      *
      * @param token токен для извлечения информации
      * @return Claims (полезная нагрузка) из токена
-     * @throws SecurityException если произошла ошибка при извлечении данных
+     * @throws ExpiredTokenException если срок действия токена истёк
+     * @throws SecurityException     если произошла ошибка при извлечении данных
      */
     public Claims getClaims(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return parser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
-            return e.getClaims();
+            throw new ExpiredTokenException("Срок действия JWT истёк!", e);
         } catch (Exception e) {
             throw new SecurityException("Ошибка при декодировании токена", e);
         }
@@ -158,6 +187,6 @@ public class JwtProvider {
      * @return true, если токен ещё действителен
      */
     public boolean isFreshToken(Claims claims) {
-        return claims.getExpiration().after(Date.from(Instant.now()));
+        return claims.getExpiration() != null && claims.getExpiration().after(Date.from(Instant.now()));
     }
 }
@@ -13,7 +13,7 @@ public class JwtUtil {
 
     /**
      * Создаёт объект аутентификации (JwtAuthentication) на основе полезной нагрузки (claims) из JWT токена.
-     * Извлекаются ID пользователя и его роль для создания авторизации в приложении.
+     * Извлекаются ID пользователя, его роль, а также идентификаторы токена и сессии для проверки отзыва.
      *
      * @param claims полезная нагрузка (claims) JWT токена, содержащая информацию о пользователе
      * @return JwtAuthentication объект с данными пользователя и его ролью
@@ -22,6 +22,6 @@ public class JwtUtil {
         Long id = Long.parseLong(claims.getSubject());
         String role = claims.get("role", String.class);
         GrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + role);
-        return new JwtAuthentication(id, authority);
+        return new JwtAuthentication(id, authority, claims.getId(), claims.get("sid", String.class));
     }
 }
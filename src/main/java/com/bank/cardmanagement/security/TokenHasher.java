@@ -0,0 +1,33 @@
+package com.bank.cardmanagement.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Утилитный класс для хэширования токенов, чтобы не хранить сами токены в памяти и в базе данных.
+ */
+public final class TokenHasher {
+
+    /**
+     * Закрытый конструктор утилитного класса.
+     */
+    private TokenHasher() {
+    }
+
+    /**
+     * Вычисляет SHA-256 от токена.
+     *
+     * @param token токен
+     * @return хэш токена из 64 шестнадцатеричных символов
+     */
+    public static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм SHA-256 недоступен!", e);
+        }
+    }
+}
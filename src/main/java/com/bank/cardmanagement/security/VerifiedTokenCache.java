@@ -0,0 +1,199 @@
+package com.bank.cardmanagement.security;
+
+import com.bank.cardmanagement.security.model.JwtAuthentication;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Ограниченный кэш проверенных access-токенов.
+ * Ключом служит SHA-256 от токена, значением — данные аутентификации, поэтому повторные запросы с тем же токеном
+ * не проверяют подпись и не разбирают полезную нагрузку. Запись живёт не дольше срока действия токена
+ * и не дольше настроенного времени жизни записи. Когда кэш заполнен, просроченные записи удаляются не чаще раза
+ * в секунду, а если места всё равно нет, вытесняется произвольная запись, поэтому новый токен кэшируется всегда.
+ */
+public class VerifiedTokenCache {
+
+    /**
+     * Минимальная пауза между полными проходами по кэшу для удаления просроченных записей, мс.
+     */
+    private static final long OVERFLOW_SWEEP_INTERVAL_MILLIS = 1000;
+
+    /**
+     * Кэшированные аутентификации по хэшу токена.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Момент последнего прохода по заполненному кэшу в миллисекундах.
+     */
+    private final AtomicLong lastOverflowSweep = new AtomicLong();
+
+    /**
+     * Счётчик попаданий в кэш.
+     */
+    private final Counter hitCounter;
+
+    /**
+     * Счётчик промахов кэша.
+     */
+    private final Counter missCounter;
+
+    /**
+     * Таймер полной проверки токена.
+     */
+    private final Timer verifyTimer;
+
+    /**
+     * Максимальное количество записей в кэше.
+     */
+    @Value("${app.security.token-cache.max-size:10000}")
+    private int maxSize = 10_000;
+
+    /**
+     * Максимальное время жизни записи в миллисекундах.
+     */
+    @Value("${app.security.token-cache.ttl:300000}")
+    private long ttlMillis = 300_000;
+
+    /**
+     * Конструктор кэша с регистрацией метрик.
+     *
+     * @param meterRegistry реестр метрик
+     */
+    public VerifiedTokenCache(MeterRegistry meterRegistry) {
+        this.hitCounter = Counter.builder("security.token-cache.requests")
+                .description("Обращения к кэшу проверенных токенов")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("security.token-cache.requests")
+                .description("Обращения к кэшу проверенных токенов")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("security.token.verify")
+                .description("Длительность проверки подписи и разбора JWT")
+                .register(meterRegistry);
+        Gauge.builder("security.token-cache.size", entries, Map::size)
+                .description("Количество записей в кэше проверенных токенов")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает аутентификацию для токена из кэша или проверяет токен и кэширует результат.
+     *
+     * @param token         access-токен
+     * @param verifier      проверка токена; возвращает null, если токен невалиден
+     * @param authenticator создание аутентификации по полезной нагрузке токена
+     * @return аутентификация или null, если токен невалиден
+     */
+    public JwtAuthentication resolve(String token, Function<String, Claims> verifier,
+                                     Function<Claims, JwtAuthentication> authenticator) {
+        String key = TokenHasher.sha256(token);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                hitCounter.increment();
+                return new JwtAuthentication(entry.userId, entry.role, entry.tokenId, entry.sessionId);
+            }
+            entries.remove(key, entry);
+        }
+        missCounter.increment();
+        long start = System.nanoTime();
+        Claims claims;
+        try {
+            claims = verifier.apply(token);
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (claims == null) {
+            return null;
+        }
+        JwtAuthentication authentication = authenticator.apply(claims);
+        put(key, authentication, claims.getExpiration(), now);
+        return authentication;
+    }
+
+    /**
+     * Удаляет все записи из кэша.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Кэширует аутентификацию, если срок действия токена ещё не истёк.
+     * При заполнении кэша освобождается место под новую запись.
+     *
+     * @param key            хэш токена
+     * @param authentication аутентификация
+     * @param expiration     срок действия токена
+     * @param now            текущее время в миллисекундах
+     */
+    private void put(String key, JwtAuthentication authentication, Date expiration, long now) {
+        long expiresAt = now + ttlMillis;
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxSize && !makeRoom(now)) {
+            evictOne();
+        }
+        GrantedAuthority role = authentication.getAuthorities().iterator().next();
+        entries.put(key, new Entry((Long) authentication.getPrincipal(), role,
+                authentication.getTokenId(), authentication.getSessionId(), expiresAt));
+    }
+
+    /**
+     * Удаляет просроченные записи, если с прошлого прохода по заполненному кэшу прошла пауза.
+     * Проход выполняет только запрос, первым сдвинувший момент прохода.
+     *
+     * @param now текущее время в миллисекундах
+     * @return true, если в кэше есть место для новой записи
+     */
+    private boolean makeRoom(long now) {
+        long lastSweep = lastOverflowSweep.get();
+        if (now - lastSweep >= OVERFLOW_SWEEP_INTERVAL_MILLIS && lastOverflowSweep.compareAndSet(lastSweep, now)) {
+            entries.values().removeIf(existing -> existing.expiresAt <= now);
+        }
+        return entries.size() < maxSize;
+    }
+
+    /**
+     * Вытесняет одну запись кэша. Ключи — хэши токенов, поэтому первая запись в порядке обхода
+     * не связана с пользователем и временем добавления.
+     */
+    private void evictOne() {
+        Iterator<String> keys = entries.keySet().iterator();
+        if (keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    /**
+     * Запись кэша: данные аутентификации и момент истечения записи.
+     *
+     * @param userId    ID пользователя
+     * @param role      роль пользователя
+     * @param tokenId   идентификатор токена (jti)
+     * @param sessionId идентификатор сессии (sid)
+     * @param expiresAt момент истечения записи в миллисекундах
+     */
+    private record Entry(Long userId, GrantedAuthority role, String tokenId, String sessionId, long expiresAt) {
+    }
+}
@@ -22,6 +22,16 @@ public class JwtAuthentication implements Authentication {
      */
     private final GrantedAuthority role;
 
+    /**
+     * Идентификатор access-токена (jti), может быть {@code null} для токенов без идентификатора.
+     */
+    private final String tokenId;
+
+    /**
+     * Идентификатор сессии (sid), в которой выпущен access-токен, может быть {@code null}.
+     */
+    private final String sessionId;
+
     /**
      * Статус аутентификации пользователя.
      */
@@ -34,11 +44,33 @@ public class JwtAuthentication implements Authentication {
      * @param role роль пользователя в системе
      */
     public JwtAuthentication(Long id, GrantedAuthority role) {
+        this(id, role, null, null);
+    }
+
+    /**
+     * Конструктор для создания объекта JwtAuthentication с идентификаторами токена и сессии.
+     *
+     * @param id        уникальный идентификатор пользователя
+     * @param role      роль пользователя в системе
+     * @param tokenId   идентификатор access-токена (jti)
+     * @param sessionId идентификатор сессии (sid), в которой выпущен токен
+     */
+    public JwtAuthentication(Long id, GrantedAuthority role, String tokenId, String sessionId) {
         this.id = id;
         this.role = role;
+        this.tokenId = tokenId;
+        this.sessionId = sessionId;
         this.isAuthenticated = true;
     }
 
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(role);
@@ -0,0 +1,115 @@
+package com.bank.cardmanagement.security.model;
+
+import java.time.Instant;
+
+/**
+ * Сессия пользователя, подтверждаемая refresh-токеном.
+ * Хранит только хэш текущего refresh-токена. Объект неизменяемый: ротация токена создаёт новый объект.
+ */
+public class RefreshSession {
+
+    /**
+     * Идентификатор сессии, передаётся в refresh-токене.
+     */
+    private final String id;
+
+    /**
+     * ID пользователя, которому принадлежит сессия.
+     */
+    private final Long userId;
+
+    /**
+     * SHA-256 текущего refresh-токена сессии.
+     */
+    private final String tokenHash;
+
+    /**
+     * Момент создания сессии.
+     */
+    private final Instant createdAt;
+
+    /**
+     * Момент последнего использования сессии.
+     */
+    private final Instant lastUsedAt;
+
+    /**
+     * Момент истечения сессии.
+     */
+    private final Instant expiresAt;
+
+    /**
+     * Конструктор сессии.
+     *
+     * @param id         идентификатор сессии
+     * @param userId     ID пользователя
+     * @param tokenHash  SHA-256 текущего refresh-токена
+     * @param createdAt  момент создания сессии
+     * @param lastUsedAt момент последнего использования сессии
+     * @param expiresAt  момент истечения сессии
+     */
+    public RefreshSession(String id, Long userId, String tokenHash, Instant createdAt, Instant lastUsedAt, Instant expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.tokenHash = tokenHash;
+        this.createdAt = createdAt;
+        this.lastUsedAt = lastUsedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Создаёт копию сессии с новым refresh-токеном.
+     *
+     * @param newTokenHash SHA-256 нового refresh-токена
+     * @param now          текущий момент
+     * @param newExpiresAt новый момент истечения сессии
+     * @return обновлённая сессия
+     */
+    public RefreshSession rotate(String newTokenHash, Instant now, Instant newExpiresAt) {
+        return new RefreshSession(id, userId, newTokenHash, createdAt, now, newExpiresAt);
+    }
+
+    /**
+     * Создаёт копию сессии с обновлённым моментом последнего использования.
+     *
+     * @param now текущий момент
+     * @return обновлённая сессия
+     */
+    public RefreshSession touch(Instant now) {
+        return new RefreshSession(id, userId, tokenHash, createdAt, now, expiresAt);
+    }
+
+    /**
+     * Проверяет, истекла ли сессия.
+     *
+     * @param now текущий момент
+     * @return true, если сессия истекла
+     */
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -1,23 +1,33 @@
 package com.bank.cardmanagement.web.controller;
 
+import com.bank.cardmanagement.domain.service.LoginRateLimiter;
 import com.bank.cardmanagement.domain.service.UserService;
 import com.bank.cardmanagement.dto.request.JwtRequest;
 import com.bank.cardmanagement.dto.request.TokenRequest;
 import com.bank.cardmanagement.dto.response.JwtResponse;
+import com.bank.cardmanagement.dto.response.SessionResponse;
 import com.bank.cardmanagement.entity.TokenType;
+import com.bank.cardmanagement.security.JwtKeySet;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 /**
  * Контроллер для управления авторизацией и обновлением токенов.
- * Предоставляет эндпоинты для входа пользователя, обновления токенов и выхода.
+ * Предоставляет эндпоинты для входа пользователя, обновления токенов, управления сессиями и выхода.
  */
 @RestController
 @RequestMapping("/card-management/auth")
@@ -28,28 +38,57 @@ public class AuthorizationController {
      */
     private final UserService userService;
 
+    /**
+     * Набор ключей подписи и проверки JWT.
+     */
+    private final JwtKeySet keySet;
+
+    /**
+     * Ограничитель частоты попыток входа.
+     */
+    private final LoginRateLimiter loginRateLimiter;
+
     /**
      * Конструктор контроллера.
      *
-     * @param userService сервис для работы с пользователями
+     * @param userService      сервис для работы с пользователями
+     * @param keySet           набор ключей подписи и проверки JWT
+     * @param loginRateLimiter ограничитель частоты попыток входа
      */
-    public AuthorizationController(UserService userService) {
+    public AuthorizationController(UserService userService, JwtKeySet keySet, LoginRateLimiter loginRateLimiter) {
         this.userService = userService;
+        this.keySet = keySet;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     /**
      * Авторизация пользователя с получением JWT токена.
+     * Попытки сверх лимита по email или IP-адресу отклоняются с 429 до поиска пользователя и проверки пароля.
      *
-     * @param request объект с данными для авторизации (например, логин и пароль)
+     * @param request     объект с данными для авторизации (например, логин и пароль)
+     * @param httpRequest HTTP-запрос, из которого берётся IP-адрес клиента
      * @return JWT токен для доступа к системе
      */
     @PostMapping("/login")
     @Operation(security = @SecurityRequirement(name = ""))
-    public ResponseEntity<?> login(@Valid @RequestBody JwtRequest request) {
+    public ResponseEntity<?> login(@Valid @RequestBody JwtRequest request, HttpServletRequest httpRequest) {
+        loginRateLimiter.acquire(request.getEmail(), httpRequest.getRemoteAddr());
         JwtResponse response = userService.authorization(request);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Получение открытых ключей для проверки подписи JWT в формате JWKS.
+     * Узлы, которые только проверяют токены, загружают ключи отсюда и выбирают нужный по заголовку kid.
+     *
+     * @return набор открытых ключей
+     */
+    @GetMapping(value = "/jwks", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(security = @SecurityRequirement(name = ""))
+    public ResponseEntity<String> getJwks() {
+        return ResponseEntity.ok(keySet.getJwksJson());
+    }
+
     /**
      * Обновление токена доступа на основе refresh токена.
      *
@@ -89,4 +128,29 @@ public class AuthorizationController {
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok("Пользователь успешно вышел!");
     }
+
+    /**
+     * Получение списка активных сессий текущего пользователя.
+     *
+     * @return список сессий, начиная с последней использованной
+     */
+    @GetMapping("/sessions")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<List<SessionResponse>> getMySessions() {
+        return ResponseEntity.ok(userService.getMySessions());
+    }
+
+    /**
+     * Завершение одной сессии текущего пользователя.
+     * Refresh-токен и access-токены этой сессии перестают приниматься, остальные сессии сохраняются.
+     *
+     * @param sessionId идентификатор сессии
+     * @return сообщение о завершении сессии
+     */
+    @DeleteMapping("/sessions/{sessionId}")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<?> revokeMySession(@PathVariable String sessionId) {
+        userService.revokeMySession(sessionId);
+        return ResponseEntity.ok("Сессия завершена!");
+    }
 }
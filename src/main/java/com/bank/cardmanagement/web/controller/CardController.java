@@ -1,12 +1,21 @@
 package com.bank.cardmanagement.web.controller;
 
 import com.bank.cardmanagement.domain.service.CardService;
+import com.bank.cardmanagement.domain.service.IdempotencyService;
+import com.bank.cardmanagement.domain.service.LedgerService;
 import com.bank.cardmanagement.domain.service.TransferService;
+import com.bank.cardmanagement.domain.service.WithdrawalCounterService;
+import com.bank.cardmanagement.dto.request.BatchTransferRequest;
+import com.bank.cardmanagement.dto.request.BulkCardRequest;
 import com.bank.cardmanagement.dto.request.CardLimitRequest;
+import com.bank.cardmanagement.dto.request.CardNumberRequest;
 import com.bank.cardmanagement.dto.request.CardRequest;
 import com.bank.cardmanagement.dto.request.TransferRequest;
 import com.bank.cardmanagement.dto.request.WithdrawRequest;
+import com.bank.cardmanagement.dto.response.BatchTransferItemResponse;
+import com.bank.cardmanagement.dto.response.BulkCardItemResponse;
 import com.bank.cardmanagement.dto.response.CardResponse;
+import com.bank.cardmanagement.dto.response.CursorPageResponse;
 import com.bank.cardmanagement.entity.CardStatus;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -23,6 +32,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Контроллер для управления банковскими картами.
@@ -42,15 +52,38 @@ public class CardController {
      */
     private final TransferService transferService;
 
+    /**
+     * Сервис лимитов снятия наличных.
+     */
+    private final WithdrawalCounterService withdrawalCounterService;
+
+    /**
+     * Сервис журнала проводок.
+     */
+    private final LedgerService ledgerService;
+
+    /**
+     * Сервис выполнения запросов с ключом идемпотентности.
+     */
+    private final IdempotencyService idempotencyService;
+
     /**
      * Конструктор контроллера.
      *
-     * @param cardService     сервис для работы с картами
-     * @param transferService сервис для перевода средств
+     * @param cardService              сервис для работы с картами
+     * @param transferService          сервис для перевода средств
+     * @param withdrawalCounterService сервис лимитов снятия наличных
+     * @param ledgerService            сервис журнала проводок
+     * @param idempotencyService       сервис выполнения запросов с ключом идемпотентности
      */
-    public CardController(CardService cardService, TransferService transferService) {
+    public CardController(CardService cardService, TransferService transferService,
+                          WithdrawalCounterService withdrawalCounterService, LedgerService ledgerService,
+                          IdempotencyService idempotencyService) {
         this.cardService = cardService;
         this.transferService = transferService;
+        this.withdrawalCounterService = withdrawalCounterService;
+        this.ledgerService = ledgerService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
@@ -68,6 +101,21 @@ public class CardController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Массово выпустить банковские карты для нескольких пользователей.
+     * Доступно только администраторам.
+     *
+     * @param request объект со списком пользователей и количеством карт
+     * @return результаты выпуска по каждому элементу запроса
+     */
+    @PostMapping("/create-cards")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<List<BulkCardItemResponse>> createCards(@Valid @RequestBody BulkCardRequest request) {
+        List<BulkCardItemResponse> response = cardService.createCards(request);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Удалить банковскую карту.
      * Доступно только администраторам.
@@ -166,6 +214,68 @@ public class CardController {
         return ResponseEntity.ok(cardResponses);
     }
 
+    /**
+     * Получить страницу всех карт по курсору (для администратора).
+     * Выбирается при наличии параметра cursor; пустое значение означает первую страницу.
+     * Доступно только администраторам.
+     *
+     * @param status статус карт (необязательный параметр)
+     * @param userId ID пользователя, чьи карты нужно получить (необязательный параметр)
+     * @param cursor курсор страницы из ответа на предыдущий запрос
+     * @param size   размер страницы (по умолчанию 10)
+     * @return страница карт, соответствующих фильтрам, и курсор следующей страницы
+     */
+    @GetMapping(value = "/get-cards", params = "cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<CursorPageResponse<CardResponse>> getAllCardsByCursor(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "userId", required = false)
+            @Min(value = 1, message = "ID пользователя должен быть положительным числом!") Long userId,
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10")
+            @Min(value = 1, message = "Размер страницы должен быть больше нуля!") int size) {
+        CardStatus cardStatus = parseStatus(status);
+        return ResponseEntity.ok(cardService.getCardsByCursor(cardStatus, userId, cursor, size));
+    }
+
+    /**
+     * Получить страницу карт текущего пользователя по курсору.
+     * Выбирается при наличии параметра cursor; пустое значение означает первую страницу.
+     * Доступно только пользователю с ролью "USER".
+     *
+     * @param status статус карт (необязательный параметр)
+     * @param cursor курсор страницы из ответа на предыдущий запрос
+     * @param size   размер страницы (по умолчанию 10)
+     * @return страница карт текущего пользователя и курсор следующей страницы
+     */
+    @GetMapping(value = "/get-my-cards", params = "cursor")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<CursorPageResponse<CardResponse>> getAllMyCardsByCursor(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10")
+            @Min(value = 1, message = "Размер страницы должен быть больше нуля!") int size) {
+        CardStatus cardStatus = parseStatus(status);
+        return ResponseEntity.ok(cardService.getMyCardsByCursor(cardStatus, cursor, size));
+    }
+
+    /**
+     * Найти карту по полному номеру.
+     * Доступно только администраторам.
+     *
+     * @param request объект с номером карты
+     * @return объект с данными найденной карты
+     */
+    @PostMapping("/find-card")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<CardResponse> findCardByNumber(@Valid @RequestBody CardNumberRequest request) {
+        CardResponse response = cardService.findCardByNumber(request.getCardNumber());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Преобразование строки статуса в тип CardStatus.
      *
@@ -216,35 +326,88 @@ public class CardController {
         return ResponseEntity.ok("Лимиты успешно установлены!");
     }
 
+    /**
+     * Пересчитать счётчики снятых наличных за текущий день и месяц по истории транзакций.
+     * Доступно только администраторам.
+     *
+     * @return сообщение с количеством карт, по которым были снятия в текущем месяце
+     */
+    @PostMapping("/rebuild-withdrawal-counters")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<String> rebuildWithdrawalCounters() {
+        int cards = withdrawalCounterService.rebuild();
+        return ResponseEntity.ok("Счётчики снятия наличных пересчитаны! Карт со снятиями в текущем месяце: " + cards);
+    }
+
+    /**
+     * Сверить балансы карт с журналом проводок.
+     * Доступно только администраторам.
+     *
+     * @return ID карт, баланс которых расходится с журналом
+     */
+    @GetMapping("/ledger/mismatches")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<List<Long>> findLedgerMismatches() {
+        return ResponseEntity.ok(ledgerService.findMismatchedCards());
+    }
+
     /**
      * Снять наличные с карты.
      * Доступно только пользователю с ролью "USER".
      *
-     * @param cardId  ID карты, с которой нужно снять деньги
-     * @param request объект с данными для снятия наличных
+     * @param cardId         ID карты, с которой нужно снять деньги
+     * @param request        объект с данными для снятия наличных
+     * @param idempotencyKey ключ идемпотентности; повтор с тем же ключом возвращает первый ответ без повторного снятия
      * @return сообщение об успешном снятии наличных
      */
     @PostMapping("/cash-withdraw/{cardId}")
     @PreAuthorize("hasRole('USER')")
     @Operation(security = @SecurityRequirement(name = "bearerAuth"))
     public ResponseEntity<String> cashWithdraw(@PathVariable Long cardId,
-                                               @Valid @RequestBody WithdrawRequest request) {
-        cardService.cashWithdraw(cardId, request);
-        return ResponseEntity.ok("Успешное снятие наличных средств!");
+                                               @Valid @RequestBody WithdrawRequest request,
+                                               @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        String response = idempotencyService.execute(idempotencyKey,
+                "cash-withdraw:" + cardId + ":" + request.getAmount().stripTrailingZeros().toPlainString() + ":" + request.getDescription(),
+                "Успешное снятие наличных средств!",
+                () -> cardService.cashWithdraw(cardId, request));
+        return ResponseEntity.ok(response);
     }
 
     /**
      * Перевести деньги между картами.
      * Доступно только пользователю с ролью "USER".
      *
-     * @param request объект с данными для перевода средств между картами
+     * @param request        объект с данными для перевода средств между картами
+     * @param idempotencyKey ключ идемпотентности; повтор с тем же ключом возвращает первый ответ без повторного перевода
      * @return сообщение об успешном переводе
      */
     @PostMapping("/transfer-between-cards")
     @PreAuthorize("hasRole('USER')")
     @Operation(security = @SecurityRequirement(name = "bearerAuth"))
-    public ResponseEntity<String> transferBetweenCards(@Valid @RequestBody TransferRequest request) {
-        transferService.transferBetweenCards(request);
-        return ResponseEntity.ok("Успешный перевод между картами!");
+    public ResponseEntity<String> transferBetweenCards(@Valid @RequestBody TransferRequest request,
+                                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        String response = idempotencyService.execute(idempotencyKey,
+                "transfer:" + request.getSourceCardId() + ":" + request.getDestinationCardId() + ":" +
+                        request.getAmount().stripTrailingZeros().toPlainString(),
+                "Успешный перевод между картами!",
+                () -> transferService.transferBetweenCards(request));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Выполнить пакет переводов между собственными картами за один запрос.
+     * Доступно только пользователю с ролью "USER".
+     *
+     * @param request объект со списком переводов
+     * @return результаты переводов в исходном порядке
+     */
+    @PostMapping("/transfer-between-cards/batch")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<List<BatchTransferItemResponse>> transferBatch(@Valid @RequestBody BatchTransferRequest request) {
+        List<BatchTransferItemResponse> response = transferService.transferBatch(request);
+        return ResponseEntity.ok(response);
     }
 }
@@ -1,7 +1,14 @@
 package com.bank.cardmanagement.web.controller;
 
+import com.bank.cardmanagement.domain.service.TransactionExportService;
+import com.bank.cardmanagement.domain.service.TransactionRollupService;
 import com.bank.cardmanagement.domain.service.TransactionService;
+import com.bank.cardmanagement.dto.request.ExportFormat;
+import com.bank.cardmanagement.dto.request.TotalMode;
+import com.bank.cardmanagement.dto.response.CursorPageResponse;
+import com.bank.cardmanagement.dto.response.PageResponse;
 import com.bank.cardmanagement.dto.response.TransactionResponse;
+import com.bank.cardmanagement.dto.response.TransactionStatisticsResponse;
 import com.bank.cardmanagement.entity.TransactionType;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -10,15 +17,25 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Контроллер для управления транзакциями.
@@ -34,13 +51,28 @@ public class TransactionController {
      */
     private final TransactionService transactionService;
 
+    /**
+     * Сервис потоковой выгрузки транзакций.
+     */
+    private final TransactionExportService transactionExportService;
+
+    /**
+     * Сервис дневной сводки транзакций.
+     */
+    private final TransactionRollupService transactionRollupService;
+
     /**
      * Конструктор контроллера.
      *
-     * @param transactionService сервис для обработки транзакций
+     * @param transactionService       сервис для обработки транзакций
+     * @param transactionExportService сервис потоковой выгрузки транзакций
+     * @param transactionRollupService сервис дневной сводки транзакций
      */
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, TransactionExportService transactionExportService,
+                                 TransactionRollupService transactionRollupService) {
         this.transactionService = transactionService;
+        this.transactionExportService = transactionExportService;
+        this.transactionRollupService = transactionRollupService;
     }
 
     /**
@@ -89,6 +121,206 @@ public class TransactionController {
         return ResponseEntity.ok(getTransactions(type, cardId, page, size, false));
     }
 
+    /**
+     * Получить страницу всех транзакций в компактном виде (доступно только администратору).
+     * Выбирается при наличии параметра total: NONE — только признак следующей страницы, ESTIMATED — оценка
+     * общего количества по статистике БД, EXACT — точное количество.
+     *
+     * @param type   тип транзакции (опционально)
+     * @param cardId ID карты (опционально)
+     * @param total  режим подсчёта общего количества транзакций
+     * @param page   номер страницы (по умолчанию 1)
+     * @param size   размер страницы (по умолчанию 10)
+     * @return страница с транзакциями
+     */
+    @GetMapping(value = "/get-transactions", params = {"total", "!cursor"})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<PageResponse<TransactionResponse>> getAllTransactionPage(
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "cardId", required = false)
+            @Min(value = 1, message = "ID карты должен быть положительным числом!") Long cardId,
+            @RequestParam(value = "total") String total,
+            @RequestParam(value = "page", defaultValue = "1")
+            @Min(value = 1, message = "Номер страницы должен быть больше нуля!") int page,
+            @RequestParam(value = "size", defaultValue = "10")
+            @Min(value = 1, message = "Размер страницы должен быть больше нуля!") int size) {
+        Pageable pageable = PageRequest.of(page - 1, size, Sort.by("id").ascending());
+        return ResponseEntity.ok(transactionService.getTransactionsPage(parseType(type), cardId, pageable, parseTotalMode(total)));
+    }
+
+    /**
+     * Получить страницу транзакций текущего пользователя в компактном виде.
+     * Выбирается при наличии параметра total: NONE — только признак следующей страницы, ESTIMATED — оценка
+     * общего количества по статистике БД, EXACT — точное количество.
+     *
+     * @param type   тип транзакции (опционально)
+     * @param cardId ID карты (опционально)
+     * @param total  режим подсчёта общего количества транзакций
+     * @param page   номер страницы (по умолчанию 1)
+     * @param size   размер страницы (по умолчанию 10)
+     * @return страница с транзакциями пользователя
+     */
+    @GetMapping(value = "/get-my-transactions", params = {"total", "!cursor"})
+    @PreAuthorize("hasRole('USER')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<PageResponse<TransactionResponse>> getAllMyTransactionPage(
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "cardId", required = false)
+            @Min(value = 1, message = "ID карты должен быть положительным числом!") Long cardId,
+            @RequestParam(value = "total") String total,
+            @RequestParam(value = "page", defaultValue = "1")
+            @Min(value = 1, message = "Номер страницы должен быть больше нуля!") int page,
+            @RequestParam(value = "size", defaultValue = "10")
+            @Min(value = 1, message = "Размер страницы должен быть больше нуля!") int size) {
+        Pageable pageable = PageRequest.of(page - 1, size, Sort.by("id").ascending());
+        return ResponseEntity.ok(transactionService.getMyTransactionsPage(parseType(type), cardId, pageable, parseTotalMode(total)));
+    }
+
+    /**
+     * Получить страницу всех транзакций по курсору (доступно только администратору).
+     * Выбирается при наличии параметра cursor; пустое значение означает первую страницу.
+     *
+     * @param type   тип транзакции (опционально)
+     * @param cardId ID карты (опционально)
+     * @param cursor курсор страницы из ответа на предыдущий запрос
+     * @param size   размер страницы (по умолчанию 10)
+     * @return страница с транзакциями и курсором следующей страницы
+     */
+    @GetMapping(value = "/get-transactions", params = "cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<CursorPageResponse<TransactionResponse>> getAllTransactionByCursor(
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "cardId", required = false)
+            @Min(value = 1, message = "ID карты должен быть положительным числом!") Long cardId,
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10")
+            @Min(value = 1, message = "Размер страницы должен быть больше нуля!") int size) {
+        return ResponseEntity.ok(transactionService.getTransactionsByCursor(parseType(type), cardId, cursor, size));
+    }
+
+    /**
+     * Получить страницу транзакций текущего пользователя по курсору.
+     * Выбирается при наличии параметра cursor; пустое значение означает первую страницу.
+     *
+     * @param type   тип транзакции (опционально)
+     * @param cardId ID карты (опционально)
+     * @param cursor курсор страницы из ответа на предыдущий запрос
+     * @param size   размер страницы (по умолчанию 10)
+     * @return страница с транзакциями пользователя и курсором следующей страницы
+     */
+    @GetMapping(value = "/get-my-transactions", params = "cursor")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<CursorPageResponse<TransactionResponse>> getAllMyTransactionByCursor(
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "cardId", required = false)
+            @Min(value = 1, message = "ID карты должен быть положительным числом!") Long cardId,
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "size", defaultValue = "10")
+            @Min(value = 1, message = "Размер страницы должен быть больше нуля!") int size) {
+        return ResponseEntity.ok(transactionService.getMyTransactionsByCursor(parseType(type), cardId, cursor, size));
+    }
+
+    /**
+     * Потоковая выгрузка транзакций в NDJSON или CSV (доступно только администратору).
+     * Строки записываются в ответ по мере чтения из БД, объём выгрузки не ограничен.
+     *
+     * @param type   тип транзакции (опционально)
+     * @param cardId ID карты (опционально)
+     * @param userId ID владельца карт (опционально)
+     * @param from   первый день периода в формате yyyy-MM-dd (опционально)
+     * @param to     последний день периода включительно в формате yyyy-MM-dd (опционально)
+     * @param format формат выгрузки: ndjson или csv (по умолчанию ndjson)
+     * @param gzip   сжимать ли ответ gzip (по умолчанию false)
+     * @return поток с транзакциями
+     */
+    @GetMapping("/export-transactions")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "cardId", required = false)
+            @Min(value = 1, message = "ID карты должен быть положительным числом!") Long cardId,
+            @RequestParam(value = "userId", required = false)
+            @Min(value = 1, message = "ID пользователя должен быть положительным числом!") Long userId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        TransactionType transactionType = parseType(type);
+        ExportFormat exportFormat = parseExportFormat(format);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Дата начала выгрузки не может быть позже даты окончания!");
+        }
+        StreamingResponseBody body = out -> transactionExportService.export(
+                transactionType, cardId, userId, from, to, exportFormat, gzip, out);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == ExportFormat.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions." + exportFormat.name().toLowerCase())
+                        .build()
+                        .toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Получить итоги транзакций карты по дням и типам за период (доступно только администратору).
+     * Итоги читаются из дневной сводки без агрегирования истории транзакций.
+     *
+     * @param cardId ID карты
+     * @param from   первый день периода в формате yyyy-MM-dd
+     * @param to     последний день периода включительно в формате yyyy-MM-dd
+     * @return итоги по дням и типам транзакций
+     */
+    @GetMapping("/transaction-statistics/cards/{cardId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<List<TransactionStatisticsResponse>> getCardStatistics(
+            @PathVariable Long cardId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(transactionRollupService.getCardStatistics(cardId, from, to));
+    }
+
+    /**
+     * Получить итоги транзакций по всем картам пользователя по дням и типам за период (доступно только администратору).
+     *
+     * @param userId ID пользователя
+     * @param from   первый день периода в формате yyyy-MM-dd
+     * @param to     последний день периода включительно в формате yyyy-MM-dd
+     * @return итоги по дням и типам транзакций
+     */
+    @GetMapping("/transaction-statistics/users/{userId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<List<TransactionStatisticsResponse>> getUserStatistics(
+            @PathVariable Long userId,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(transactionRollupService.getUserStatistics(userId, from, to));
+    }
+
+    /**
+     * Пересчитать дневную сводку транзакций за прошедшие дни по истории транзакций.
+     * Доступно только администраторам.
+     *
+     * @return сообщение с количеством пересчитанных строк сводки
+     */
+    @PostMapping("/rebuild-transaction-rollup")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<String> rebuildTransactionRollup() {
+        int rows = transactionRollupService.rebuild();
+        return ResponseEntity.ok("Сводка транзакций пересчитана! Пересчитано строк сводки: " + rows);
+    }
+
     /**
      * Внутренний метод для получения транзакций.
      *
@@ -126,4 +358,34 @@ public class TransactionController {
             throw new IllegalArgumentException("Неверное значение типа транзакций! Доступные значения: " + Arrays.toString(TransactionType.values()));
         }
     }
+
+    /**
+     * Парсит строку в enum TotalMode.
+     *
+     * @param total строка с режимом подсчёта
+     * @return режим подсчёта общего количества
+     * @throws IllegalArgumentException если режим некорректный
+     */
+    private TotalMode parseTotalMode(String total) {
+        try {
+            return TotalMode.valueOf(total.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неверное значение режима подсчёта! Доступные значения: " + Arrays.toString(TotalMode.values()));
+        }
+    }
+
+    /**
+     * Парсит строку в enum ExportFormat.
+     *
+     * @param format строка с форматом
+     * @return формат выгрузки
+     * @throws IllegalArgumentException если формат некорректный
+     */
+    private ExportFormat parseExportFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неверное значение формата выгрузки! Доступные значения: " + Arrays.toString(ExportFormat.values()));
+        }
+    }
 }
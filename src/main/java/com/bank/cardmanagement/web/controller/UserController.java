@@ -59,4 +59,18 @@ public class UserController {
         userService.deleteUser(userId);
         return ResponseEntity.ok("Пользователь успешно удален!");
     }
+
+    /**
+     * Принудительное завершение всех сессий пользователя и отзыв его access-токенов (только для ADMIN).
+     *
+     * @param userId ID пользователя
+     * @return сообщение об успешном отзыве
+     */
+    @PostMapping("/revoke-user-tokens/{userId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(security = @SecurityRequirement(name = "bearerAuth"))
+    public ResponseEntity<String> revokeUserTokens(@PathVariable @NotNull @Min(1) Long userId) {
+        userService.revokeUserTokens(userId);
+        return ResponseEntity.ok("Сессии и токены пользователя отозваны!");
+    }
 }
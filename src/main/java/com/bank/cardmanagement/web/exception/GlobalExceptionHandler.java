@@ -3,7 +3,11 @@ package com.bank.cardmanagement.web.exception;
 import com.bank.cardmanagement.exception.CardNotFoundException;
 import com.bank.cardmanagement.exception.EmailAlreadyExistsException;
 import com.bank.cardmanagement.exception.ResourceNotFoundException;
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import com.bank.cardmanagement.exception.TooManyRequestsException;
 import com.bank.cardmanagement.exception.UserNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -206,6 +210,44 @@ public class GlobalExceptionHandler {
                 .body(e.getMessage());
     }
 
+    /**
+     * Обработка временной перегрузки сервиса.
+     *
+     * @param e исключение ServiceBusyException
+     * @return сообщение об ошибке с 503 статусом и заголовком Retry-After
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<?> handleServiceBusyException(ServiceBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Обработка конфликта версий при параллельном изменении одной записи.
+     *
+     * @param e исключение OptimisticLockingFailureException
+     * @return сообщение об ошибке с 409 статусом
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Данные были изменены параллельным запросом, повторите операцию!"));
+    }
+
+    /**
+     * Обработка превышения допустимой частоты запросов.
+     *
+     * @param e исключение TooManyRequestsException
+     * @return сообщение об ошибке с 429 статусом и заголовком Retry-After
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<?> handleTooManyRequestsException(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
     /**
      * Обработка всех неожиданных исключений.
      *
@@ -1,8 +1,9 @@
 package com.bank.cardmanagement.web.filter;
 
+import com.bank.cardmanagement.domain.service.TokenRevocationService;
 import com.bank.cardmanagement.domain.service.UserService;
+import com.bank.cardmanagement.security.VerifiedTokenCache;
 import com.bank.cardmanagement.security.model.JwtAuthentication;
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
@@ -18,7 +19,7 @@ import java.io.IOException;
 /**
  * Фильтр для обработки JWT-аутентификации.
  * Пропускает только запросы с валидным access-токеном,
- * кроме эндпоинта /card-management/auth/login.
+ * кроме эндпоинтов /card-management/auth/login и /card-management/auth/jwks.
  */
 public class AuthFilter extends GenericFilterBean {
 
@@ -28,16 +29,30 @@ public class AuthFilter extends GenericFilterBean {
     private final UserService userService;
 
     /**
-     * Конструктор фильтра с внедрением UserService.
+     * Кэш проверенных access-токенов
+     */
+    private final VerifiedTokenCache tokenCache;
+
+    /**
+     * Сервис отзыва access-токенов
+     */
+    private final TokenRevocationService tokenRevocationService;
+
+    /**
+     * Конструктор фильтра с внедрением UserService, кэша проверенных токенов и сервиса отзыва токенов.
      *
-     * @param userService сервис для работы с пользователями и токенами
+     * @param userService            сервис для работы с пользователями и токенами
+     * @param tokenCache             кэш проверенных access-токенов
+     * @param tokenRevocationService сервис отзыва access-токенов
      */
-    public AuthFilter(UserService userService) {
+    public AuthFilter(UserService userService, VerifiedTokenCache tokenCache, TokenRevocationService tokenRevocationService) {
         this.userService = userService;
+        this.tokenCache = tokenCache;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     /**
-     * Проверяет наличие и валидность JWT access-токена в заголовке запроса.
+     * Проверяет наличие и валидность JWT access-токена в заголовке запроса, а также что токен не отозван.
      * Устанавливает аутентификацию в контекст безопасности.
      *
      * @param request  HTTP-запрос
@@ -52,6 +67,7 @@ public class AuthFilter extends GenericFilterBean {
         String path = httpRequest.getRequestURI();
 
         if (path.equals("/card-management/auth/login") ||
+                path.equals("/card-management/auth/jwks") ||
                 path.startsWith("/swagger-ui") ||
                 path.startsWith("/v3/api-docs") ||
                 path.equals("/swagger-ui.html")) {
@@ -64,12 +80,16 @@ public class AuthFilter extends GenericFilterBean {
             return;
         }
         String accessToken = header.substring(7);
-        Claims claims = userService.providerValidateAccessToken(accessToken);
-        if (claims == null) {
+        JwtAuthentication authentication = tokenCache.resolve(accessToken,
+                userService::providerValidateAccessToken, userService::getJwtAuthentication);
+        if (authentication == null) {
             httpResponse.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Невалидный access-токен!");
             return;
         }
-        JwtAuthentication authentication = userService.getJwtAuthentication(claims);
+        if (tokenRevocationService.isRevoked(authentication)) {
+            httpResponse.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Access-токен отозван!");
+            return;
+        }
         SecurityContextHolder.getContext().setAuthentication(authentication);
         chain.doFilter(request, response);
     }
@@ -0,0 +1,88 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.CardNumberProjection;
+import com.bank.cardmanagement.datasource.repository.CardBatchRepository;
+import com.bank.cardmanagement.datasource.repository.CardRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+@ExtendWith(MockitoExtension.class)
+public class CardNumberBackfillServiceTest {
+    @InjectMocks
+    private CardNumberBackfillService backfillService;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private CardBatchRepository cardBatchRepository;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Spy
+    private CardNumberService cardNumberService = new CardNumberService();
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(backfillService, "chunkSize", 2);
+        Mockito.lenient().when(transactionTemplate.execute(Mockito.any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    private CardNumberProjection card(Long id, String encryptedCardNumber) {
+        CardNumberProjection projection = Mockito.mock(CardNumberProjection.class);
+        Mockito.when(projection.getId()).thenReturn(id);
+        Mockito.when(projection.getEncryptedCardNumber()).thenReturn(encryptedCardNumber);
+        return projection;
+    }
+
+    @Test
+    void backfillChunk_shouldStoreFingerprintsAndMaskedNumbers() {
+        List<CardNumberProjection> chunk = List.of(card(1L, "enc1"), card(2L, "enc2"));
+        Mockito.when(cardRepository.findWithoutDerivedNumbers(Limit.of(2))).thenReturn(chunk);
+        Mockito.when(encryptionService.decryptAll(List.of("enc1", "enc2")))
+                .thenReturn(List.of("4000111111111111", "4000222222222222"));
+        Mockito.when(encryptionService.fingerprint("4000111111111111")).thenReturn("fp1");
+        Mockito.when(encryptionService.fingerprint("4000222222222222")).thenReturn("fp2");
+
+        int processed = backfillService.backfillChunk();
+
+        Assertions.assertEquals(2, processed);
+        Mockito.verify(cardBatchRepository).updateDerivedNumbers(Map.of(1L, "fp1", 2L, "fp2"),
+                Map.of(1L, "4000********1111", 2L, "4000********2222"));
+    }
+
+    @Test
+    void backfill_shouldStopOnIncompleteChunk() {
+        List<CardNumberProjection> fullChunk = List.of(card(1L, "enc1"), card(2L, "enc2"));
+        Mockito.when(cardRepository.findWithoutDerivedNumbers(Limit.of(2)))
+                .thenReturn(fullChunk)
+                .thenReturn(List.of());
+        Mockito.when(encryptionService.decryptAll(Mockito.anyList()))
+                .thenReturn(List.of("4000111111111111", "4000222222222222"));
+        Mockito.when(encryptionService.fingerprint(Mockito.anyString())).thenReturn("fp");
+
+        backfillService.backfill();
+
+        Mockito.verify(cardRepository, Mockito.times(2)).findWithoutDerivedNumbers(Limit.of(2));
+        Mockito.verify(cardBatchRepository, Mockito.times(1)).updateDerivedNumbers(Mockito.anyMap(), Mockito.anyMap());
+    }
+}
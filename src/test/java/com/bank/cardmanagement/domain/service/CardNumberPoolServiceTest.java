@@ -0,0 +1,98 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.PooledCardNumber;
+import com.bank.cardmanagement.datasource.repository.CardNumberPoolRepository;
+import com.bank.cardmanagement.datasource.repository.CardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@ExtendWith(MockitoExtension.class)
+public class CardNumberPoolServiceTest {
+
+    @Mock
+    private CardNumberPoolRepository cardNumberPoolRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Spy
+    private CardNumberService cardNumberService = new CardNumberService();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private CardNumberPoolService cardNumberPoolService;
+
+    @Test
+    void nextCardNumber_shouldClaimFromPool() {
+        PooledCardNumber pooled = new PooledCardNumber("encrypted", "fingerprint", "4000********1234");
+        Mockito.when(cardNumberPoolRepository.claim()).thenReturn(Optional.of(pooled));
+
+        PooledCardNumber result = cardNumberPoolService.nextCardNumber();
+
+        Assertions.assertSame(pooled, result);
+        Mockito.verifyNoInteractions(encryptionService, cardRepository);
+    }
+
+    @Test
+    void nextCardNumber_shouldGenerateWhenPoolIsEmpty() {
+        Mockito.when(cardNumberPoolRepository.claim()).thenReturn(Optional.empty());
+        Mockito.when(encryptionService.fingerprint(Mockito.anyString())).thenReturn("taken", "free");
+        Mockito.when(cardRepository.existsByCardNumberFingerprint("taken")).thenReturn(true);
+        Mockito.when(cardRepository.existsByCardNumberFingerprint("free")).thenReturn(false);
+        Mockito.when(cardNumberPoolRepository.existsByFingerprint("free")).thenReturn(false);
+        Mockito.when(encryptionService.encrypt(Mockito.anyString())).thenReturn("encrypted");
+
+        PooledCardNumber result = cardNumberPoolService.nextCardNumber();
+
+        Assertions.assertEquals("free", result.getCardNumberFingerprint());
+        Assertions.assertEquals("encrypted", result.getEncryptedCardNumber());
+        Assertions.assertTrue(result.getMaskedCardNumber().matches("4000\\*{8}\\d{4}"));
+        Assertions.assertEquals(1.0, meterRegistry.get("cards.number-pool.misses").counter().count());
+    }
+
+    @Test
+    void nextCardNumbers_shouldTopUpClaimedNumbersWithUniqueGenerated() {
+        PooledCardNumber pooled = new PooledCardNumber("encrypted", "fp-pool", "4000********1234");
+        Mockito.when(cardNumberPoolRepository.claimAll(3)).thenReturn(List.of(pooled));
+        Mockito.when(encryptionService.fingerprint(Mockito.anyString())).thenReturn("fp-pool", "fp-taken", "fp-new", "fp-new2");
+        Mockito.when(cardNumberPoolRepository.findTakenFingerprints(List.of("fp-taken"))).thenReturn(Set.of("fp-taken"));
+        Mockito.when(cardNumberPoolRepository.findTakenFingerprints(List.of("fp-new", "fp-new2"))).thenReturn(Set.of());
+        Mockito.when(encryptionService.encrypt(Mockito.anyString())).thenReturn("encrypted");
+
+        List<PooledCardNumber> result = cardNumberPoolService.nextCardNumbers(3);
+
+        Assertions.assertEquals(List.of("fp-pool", "fp-new", "fp-new2"),
+                result.stream().map(PooledCardNumber::getCardNumberFingerprint).toList());
+        Assertions.assertEquals(2.0, meterRegistry.get("cards.number-pool.misses").counter().count());
+    }
+
+    @Test
+    void refill_shouldFillPoolUpToTargetSize() {
+        Mockito.when(cardNumberPoolRepository.count()).thenReturn(950L);
+        Mockito.when(encryptionService.fingerprint(Mockito.anyString())).thenReturn("fingerprint");
+        Mockito.when(encryptionService.encrypt(Mockito.anyString())).thenReturn("encrypted");
+        Mockito.when(cardNumberPoolRepository.insertAll(Mockito.argThat(numbers -> numbers.size() == 50))).thenReturn(50);
+
+        cardNumberPoolService.refill();
+
+        Mockito.verify(cardNumberPoolRepository, Mockito.times(1)).insertAll(Mockito.anyList());
+        Assertions.assertEquals(1000.0, meterRegistry.get("cards.number-pool.size").gauge().value());
+    }
+}
@@ -0,0 +1,35 @@
+package com.bank.cardmanagement.domain.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CardNumberServiceTest {
+    private final CardNumberService cardNumberService = new CardNumberService();
+
+    @Test
+    void generateCardNumber_shouldStartWithPrefix() {
+        String cardNumber = cardNumberService.generateCardNumber();
+
+        Assertions.assertTrue(cardNumber.matches("4000\\d{12}"));
+    }
+
+    @Test
+    void maskCardNumber_shouldKeepFirstAndLastFourDigits() {
+        String masked = cardNumberService.maskCardNumber("4000123456781234");
+
+        Assertions.assertEquals("4000********1234", masked);
+    }
+
+    @Test
+    void generateCardNumber_shouldPassLuhnCheck() {
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(cardNumberService.isLuhnValid(cardNumberService.generateCardNumber()));
+        }
+    }
+
+    @Test
+    void isLuhnValid_shouldRejectWrongCheckDigit() {
+        Assertions.assertTrue(cardNumberService.isLuhnValid("4000000000000002"));
+        Assertions.assertFalse(cardNumberService.isLuhnValid("4000000000000003"));
+    }
+}
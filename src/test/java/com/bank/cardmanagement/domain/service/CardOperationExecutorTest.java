@@ -0,0 +1,126 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CardOperationExecutorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CardOperationExecutor cardOperationExecutor = new CardOperationExecutor(meterRegistry);
+
+    private void setUp(int partitions, int queueCapacity) {
+        ReflectionTestUtils.setField(cardOperationExecutor, "enabled", true);
+        ReflectionTestUtils.setField(cardOperationExecutor, "partitions", partitions);
+        ReflectionTestUtils.setField(cardOperationExecutor, "queueCapacity", queueCapacity);
+        cardOperationExecutor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardOperationExecutor.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void execute_shouldRunInCallerThreadWhenDisabled() {
+        cardOperationExecutor.init();
+        Thread caller = Thread.currentThread();
+
+        Assertions.assertSame(caller, cardOperationExecutor.execute(1L, Thread::currentThread));
+    }
+
+    @Test
+    void execute_shouldRunInPartitionWithCallerSecurityContext() {
+        setUp(4, 8);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("user", null));
+
+        String result = cardOperationExecutor.execute(6L, () ->
+                Thread.currentThread().getName() + ":" + SecurityContextHolder.getContext().getAuthentication().getName());
+
+        Assertions.assertEquals("card-partition-2:user", result);
+        Assertions.assertEquals(1, meterRegistry.get("cards.executor.wait").tag("partition", "2").timer().count());
+    }
+
+    @Test
+    void execute_shouldPassIdempotencyClaimToPartition() {
+        setUp(2, 8);
+        Runnable claim = () -> {
+        };
+
+        Runnable inPartition = IdempotencyClaim.callWith(claim, () -> cardOperationExecutor.execute(1L, IdempotencyClaim::current));
+
+        Assertions.assertSame(claim, inPartition);
+        Assertions.assertNull(cardOperationExecutor.execute(1L, IdempotencyClaim::current));
+    }
+
+    @Test
+    void execute_shouldSerializeOperationsOnSameCard() throws Exception {
+        setUp(2, 8);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> cardOperationExecutor.run(3L, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() ->
+                cardOperationExecutor.execute(3L, () -> release.getCount() == 0));
+        while (meterRegistry.get("cards.executor.queue.depth").tag("partition", "1").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        Assertions.assertEquals("card-partition-0", cardOperationExecutor.execute(4L, () -> Thread.currentThread().getName()));
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void execute_shouldRejectWhenPartitionQueueIsFullAndRethrowOperationErrors() throws Exception {
+        setUp(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() -> cardOperationExecutor.run(1L, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> cardOperationExecutor.run(1L, () -> {
+            throw new IllegalArgumentException("Недостаточно средств на карте!");
+        }));
+        while (meterRegistry.get("cards.executor.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        ServiceBusyException exception = Assertions.assertThrows(ServiceBusyException.class, () ->
+                cardOperationExecutor.run(1L, () -> {
+                }));
+
+        Assertions.assertEquals(1, exception.getRetryAfterSeconds());
+        Assertions.assertEquals(1.0, meterRegistry.get("cards.executor.rejected").counter().count());
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        Exception queuedError = Assertions.assertThrows(Exception.class, () -> queued.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalArgumentException.class, queuedError.getCause());
+    }
+}
@@ -0,0 +1,92 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.ReencryptionCheckpoint;
+import com.bank.cardmanagement.datasource.repository.ReencryptionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+public class CardReencryptionServiceTest {
+
+    @Mock
+    private ReencryptionRepository reencryptionRepository;
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private CardReencryptionService cardReencryptionService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cardReencryptionService, "chunkSize", 2);
+        ReflectionTestUtils.setField(cardReencryptionService, "throttleMillis", 0L);
+        Mockito.lenient().when(transactionTemplate.execute(Mockito.any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void reencryptTable_shouldResumeFromCheckpointAndRewriteStaleRows() {
+        Mockito.when(encryptionService.getKeyVersion()).thenReturn(1);
+        Mockito.when(reencryptionRepository.findCheckpoint("cards"))
+                .thenReturn(Optional.of(new ReencryptionCheckpoint(1, 10L)));
+        Map<Long, String> first = new LinkedHashMap<>();
+        first.put(11L, "old11");
+        first.put(12L, "v1:new12");
+        Mockito.when(reencryptionRepository.findChunk("cards", 10L, 2)).thenReturn(first);
+        Mockito.when(reencryptionRepository.findChunk("cards", 12L, 2)).thenReturn(Map.of(13L, "old13"));
+        Mockito.when(encryptionService.keyVersionOf(Mockito.anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith("v1:") ? 1 : 0);
+        Mockito.when(encryptionService.decryptAll(List.of("old11"))).thenReturn(List.of("4000111111111111"));
+        Mockito.when(encryptionService.decryptAll(List.of("old13"))).thenReturn(List.of("4000131313131313"));
+        Mockito.when(encryptionService.encrypt("4000111111111111")).thenReturn("v1:new11");
+        Mockito.when(encryptionService.encrypt("4000131313131313")).thenReturn("v1:new13");
+        Mockito.when(reencryptionRepository.updateEncrypted(Mockito.eq("cards"), Mockito.anyMap(), Mockito.anyMap()))
+                .thenReturn(1);
+
+        boolean completed = cardReencryptionService.reencryptTable("cards");
+
+        Assertions.assertTrue(completed);
+        Mockito.verify(reencryptionRepository).updateEncrypted("cards", Map.of(11L, "old11"), Map.of(11L, "v1:new11"));
+        Mockito.verify(reencryptionRepository).updateEncrypted("cards", Map.of(13L, "old13"), Map.of(13L, "v1:new13"));
+        Mockito.verify(reencryptionRepository).saveCheckpoint(Mockito.eq("cards"),
+                Mockito.argThat(checkpoint -> checkpoint.getLastId() == 13L && checkpoint.getKeyVersion() == 1));
+        Assertions.assertEquals(2.0, meterRegistry.get("encryption.reencrypted").tag("table", "cards").counter().count());
+    }
+
+    @Test
+    void reencryptTable_shouldRestartWhenKeyVersionChanged() {
+        Mockito.when(encryptionService.getKeyVersion()).thenReturn(2);
+        Mockito.when(reencryptionRepository.findCheckpoint("cards"))
+                .thenReturn(Optional.of(new ReencryptionCheckpoint(1, 500L)));
+        Mockito.when(reencryptionRepository.findChunk("cards", 0L, 2)).thenReturn(Map.of());
+
+        cardReencryptionService.reencryptTable("cards");
+
+        Mockito.verify(reencryptionRepository).findChunk("cards", 0L, 2);
+        Mockito.verify(reencryptionRepository, Mockito.never()).saveCheckpoint(Mockito.anyString(), Mockito.any());
+    }
+}
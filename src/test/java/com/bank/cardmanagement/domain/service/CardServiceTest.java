@@ -1,24 +1,33 @@
 package com.bank.cardmanagement.domain.service;
 
+import com.bank.cardmanagement.datasource.projection.PooledCardNumber;
+import com.bank.cardmanagement.datasource.repository.CardBatchRepository;
 import com.bank.cardmanagement.datasource.repository.CardRepository;
 import com.bank.cardmanagement.datasource.repository.TransactionRepository;
 import com.bank.cardmanagement.datasource.repository.UserRepository;
+import com.bank.cardmanagement.dto.request.BulkCardItemRequest;
+import com.bank.cardmanagement.dto.request.BulkCardRequest;
 import com.bank.cardmanagement.dto.request.CardLimitRequest;
 import com.bank.cardmanagement.dto.request.CardRequest;
 import com.bank.cardmanagement.dto.request.WithdrawRequest;
+import com.bank.cardmanagement.dto.response.BulkCardItemResponse;
 import com.bank.cardmanagement.dto.response.CardResponse;
+import com.bank.cardmanagement.dto.response.CursorPageResponse;
 import com.bank.cardmanagement.entity.Card;
 import com.bank.cardmanagement.entity.CardStatus;
 import com.bank.cardmanagement.entity.Transaction;
 import com.bank.cardmanagement.entity.User;
 import com.bank.cardmanagement.exception.CardNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -28,6 +37,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @ExtendWith(MockitoExtension.class)
 public class CardServiceTest {
@@ -49,6 +59,34 @@ public class CardServiceTest {
     @Mock
     private CardValidationService cardValidationService;
 
+    @Spy
+    private CardNumberService cardNumberService = new CardNumberService();
+
+    @Mock
+    private CardNumberPoolService cardNumberPoolService;
+
+    @Mock
+    private CardBatchRepository cardBatchRepository;
+
+    @Mock
+    private WithdrawalCounterService withdrawalCounterService;
+
+    @Mock
+    private OptimisticRetryService optimisticRetryService;
+
+    @Spy
+    private CardOperationExecutor cardOperationExecutor = new CardOperationExecutor(new SimpleMeterRegistry());
+
+    @Mock
+    private TransactionRollupService transactionRollupService;
+
+    private void runRetriedActionsDirectly() {
+        Mockito.doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(optimisticRetryService).run(Mockito.anyString(), Mockito.any());
+    }
+
     @Test
     void createCard_shouldCreate() {
         CardRequest request = new CardRequest();
@@ -57,8 +95,8 @@ public class CardServiceTest {
         user.setId(1L);
         Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         String encryptedCardNumber = "encrypted123";
-        Mockito.when(encryptionService.encrypt(Mockito.anyString())).thenReturn(encryptedCardNumber);
-        Mockito.when(cardRepository.existsByEncryptedCardNumber(encryptedCardNumber)).thenReturn(false);
+        Mockito.when(cardNumberPoolService.nextCardNumber())
+                .thenReturn(new PooledCardNumber(encryptedCardNumber, "fingerprint", "4000********1234"));
         Card savedCard = new Card();
         savedCard.setId(1L);
         savedCard.setEncryptedCardNumber(encryptedCardNumber);
@@ -72,10 +110,92 @@ public class CardServiceTest {
 
         Assertions.assertNotNull(response);
         Assertions.assertEquals(1L, response.getId());
+        Assertions.assertEquals("4000********1234", response.getMaskedCardNumber());
+        Mockito.verify(cardRepository).save(Mockito.argThat(card ->
+                "fingerprint".equals(card.getCardNumberFingerprint())
+                        && "4000********1234".equals(card.getMaskedCardNumber())));
         Assertions.assertEquals(CardStatus.ACTIVE.name(), response.getStatus());
         Assertions.assertEquals(BigDecimal.ZERO, response.getBalance());
     }
 
+    @Test
+    void createCards_shouldIssueCardsAndReportMissingUsers() {
+        BulkCardRequest request = new BulkCardRequest(List.of(
+                new BulkCardItemRequest(1L, 2),
+                new BulkCardItemRequest(99L, 3)));
+        User user = new User();
+        user.setId(1L);
+        Mockito.when(userRepository.findExistingIds(Set.of(1L, 99L))).thenReturn(Set.of(1L));
+        Mockito.when(userRepository.getReferenceById(1L)).thenReturn(user);
+        Mockito.when(cardNumberPoolService.nextCardNumbers(2)).thenReturn(List.of(
+                new PooledCardNumber("enc1", "fp1", "4000********1111"),
+                new PooledCardNumber("enc2", "fp2", "4000********2222")));
+        Mockito.when(cardBatchRepository.nextIds(2)).thenReturn(List.of(10L, 11L));
+
+        List<BulkCardItemResponse> result = cardService.createCards(request);
+
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertNull(result.get(0).getError());
+        Assertions.assertEquals(List.of(10L, 11L), result.get(0).getCards().stream().map(CardResponse::getId).toList());
+        Assertions.assertEquals("4000********2222", result.get(0).getCards().get(1).getMaskedCardNumber());
+        Assertions.assertEquals("Пользователь не найден", result.get(1).getError());
+        Assertions.assertTrue(result.get(1).getCards().isEmpty());
+        Mockito.verify(cardBatchRepository).insertCards(Mockito.argThat(cards -> cards.size() == 2
+                && "fp1".equals(cards.get(0).getCardNumberFingerprint())
+                && cards.get(1).getId().equals(11L)), Mockito.eq(1000));
+        Mockito.verify(cardRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    void createCards_shouldRejectTooManyCards() {
+        BulkCardRequest request = new BulkCardRequest(List.of(
+                new BulkCardItemRequest(1L, 10_000),
+                new BulkCardItemRequest(2L, 10_000),
+                new BulkCardItemRequest(3L, 10_000),
+                new BulkCardItemRequest(4L, 10_000),
+                new BulkCardItemRequest(5L, 10_000),
+                new BulkCardItemRequest(6L, 10_000),
+                new BulkCardItemRequest(7L, 10_000),
+                new BulkCardItemRequest(8L, 10_000),
+                new BulkCardItemRequest(9L, 10_000),
+                new BulkCardItemRequest(10L, 10_000),
+                new BulkCardItemRequest(11L, 1)));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cardService.createCards(request));
+        Mockito.verifyNoInteractions(userRepository, cardBatchRepository);
+    }
+
+    @Test
+    void findCardByNumber_shouldReturnMaskedCard() {
+        Card card = new Card();
+        card.setId(4L);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        card.setBalance(BigDecimal.TEN);
+        User user = new User();
+        user.setId(2L);
+        card.setUser(user);
+        Mockito.when(encryptionService.fingerprint("4000123412341234")).thenReturn("fingerprint");
+        Mockito.when(cardRepository.findByCardNumberFingerprint("fingerprint")).thenReturn(Optional.of(card));
+
+        CardResponse response = cardService.findCardByNumber("4000123412341234");
+
+        Assertions.assertEquals(4L, response.getId());
+        Assertions.assertEquals("4000********1234", response.getMaskedCardNumber());
+        Mockito.verify(encryptionService, Mockito.never()).decrypt(Mockito.anyString());
+    }
+
+    @Test
+    void findCardByNumber_shouldThrowExceptionIfCardNotExists() {
+        Mockito.when(encryptionService.fingerprint("4000123412341234")).thenReturn("fingerprint");
+        Mockito.when(cardRepository.findByCardNumberFingerprint("fingerprint")).thenReturn(Optional.empty());
+
+        CardNotFoundException exception = Assertions.assertThrows(CardNotFoundException.class, () ->
+                cardService.findCardByNumber("4000123412341234"));
+
+        Assertions.assertEquals("Карта с указанным номером не найдена!", exception.getMessage());
+    }
+
     @Test
     void deleteCard_shouldDelete() {
         Mockito.when(cardRepository.existsById(1L)).thenReturn(true);
@@ -191,8 +311,8 @@ public class CardServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Mockito.when(cardRepository.findByStatusAndUserId(CardStatus.ACTIVE, 1L, pageable))
                 .thenReturn(cardPage);
-        Mockito.when(encryptionService.decrypt("1234567812345678"))
-                .thenReturn("1234567812345678");
+        Mockito.when(encryptionService.decryptAll(List.of("1234567812345678")))
+                .thenReturn(List.of("1234567812345678"));
 
         Page<CardResponse> result = cardService.getAllCards(CardStatus.ACTIVE, 1L, pageable);
 
@@ -201,6 +321,47 @@ public class CardServiceTest {
         Assertions.assertEquals(3L, result.getContent().get(0).getUserId());
     }
 
+    @Test
+    void getAllCards_shouldUseStoredMaskedNumberWithoutDecryption() {
+        Card card = new Card();
+        card.setId(11L);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setEncryptedCardNumber("encrypted");
+        card.setMaskedCardNumber("4000********5678");
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        User user = new User();
+        user.setId(4L);
+        card.setUser(user);
+        Pageable pageable = PageRequest.of(0, 10);
+        Mockito.when(cardRepository.findAll(pageable)).thenReturn(new PageImpl<>(List.of(card)));
+
+        Page<CardResponse> result = cardService.getAllCards(null, null, pageable);
+
+        Assertions.assertEquals("4000********5678", result.getContent().get(0).getMaskedCardNumber());
+        Mockito.verifyNoInteractions(encryptionService);
+    }
+
+    @Test
+    void getMyCardsByCursor_shouldSeekAfterCursorWithoutCounting() {
+        Card card = new Card();
+        card.setId(12L);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setMaskedCardNumber("4000********5678");
+        card.setExpirationDate(LocalDate.now().plusYears(3));
+        User user = new User();
+        user.setId(4L);
+        card.setUser(user);
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(4L);
+        Mockito.when(cardRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(4L, 11L, Limit.of(2)))
+                .thenReturn(List.of(card));
+
+        CursorPageResponse<CardResponse> result = cardService.getMyCardsByCursor(null, PageCursor.encode(11L), 1);
+
+        Assertions.assertEquals(12L, result.getContent().get(0).getId());
+        Assertions.assertNull(result.getNextCursor());
+        Mockito.verify(cardRepository, Mockito.never()).findByUserId(Mockito.any(), Mockito.any());
+    }
+
     @Test
     void getAllCards_shouldReturnCardsByStatus() {
         Card card = new Card();
@@ -215,8 +376,8 @@ public class CardServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Mockito.when(cardRepository.findByStatus(CardStatus.BLOCKED, pageable))
                 .thenReturn(cardPage);
-        Mockito.when(encryptionService.decrypt("1234567812345678"))
-                .thenReturn("1234567812345678");
+        Mockito.when(encryptionService.decryptAll(List.of("1234567812345678")))
+                .thenReturn(List.of("1234567812345678"));
 
         Page<CardResponse> result = cardService.getAllCards(CardStatus.BLOCKED, null, pageable);
 
@@ -238,8 +399,8 @@ public class CardServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Mockito.when(cardRepository.findByUserId(5L, pageable))
                 .thenReturn(cardPage);
-        Mockito.when(encryptionService.decrypt("1234567812345678"))
-                .thenReturn("1234567812345678");
+        Mockito.when(encryptionService.decryptAll(List.of("1234567812345678")))
+                .thenReturn(List.of("1234567812345678"));
 
         Page<CardResponse> result = cardService.getAllCards(null, 5L, pageable);
 
@@ -261,8 +422,8 @@ public class CardServiceTest {
         Pageable pageable = PageRequest.of(0, 10);
         Mockito.when(cardRepository.findAll(pageable))
                 .thenReturn(cardPage);
-        Mockito.when(encryptionService.decrypt("1234567812345678"))
-                .thenReturn("1234567812345678");
+        Mockito.when(encryptionService.decryptAll(List.of("1234567812345678")))
+                .thenReturn(List.of("1234567812345678"));
 
         Page<CardResponse> result = cardService.getAllCards(null, null, pageable);
 
@@ -285,8 +446,8 @@ public class CardServiceTest {
         Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(8L);
         Mockito.when(cardRepository.findByStatusAndUserId(CardStatus.ACTIVE, 8L, pageable))
                 .thenReturn(cardPage);
-        Mockito.when(encryptionService.decrypt("1234567812345678"))
-                .thenReturn("1234567812345678");
+        Mockito.when(encryptionService.decryptAll(List.of("1234567812345678")))
+                .thenReturn(List.of("1234567812345678"));
 
         Page<CardResponse> result = cardService.getAllMyCards(CardStatus.ACTIVE, pageable);
 
@@ -311,8 +472,8 @@ public class CardServiceTest {
         Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(13L);
         Mockito.when(cardRepository.findByUserId(13L, pageable))
                 .thenReturn(cardPage);
-        Mockito.when(encryptionService.decrypt("1234567812345678"))
-                .thenReturn("1234567812345678");
+        Mockito.when(encryptionService.decryptAll(List.of("1234567812345678")))
+                .thenReturn(List.of("1234567812345678"));
 
         Page<CardResponse> result = cardService.getAllMyCards(null, pageable);
 
@@ -380,84 +541,62 @@ public class CardServiceTest {
     }
 
     @Test
-    void cashWithdraw_shouldPassAllLimit() {
-        Card card = new Card();
-        card.setId(2L);
-        card.setBalance(BigDecimal.valueOf(1000));
-        card.setDailyLimit(BigDecimal.valueOf(500));
-        card.setDailyLimit(BigDecimal.valueOf(1500));
-        card.setStatus(CardStatus.ACTIVE);
+    void cashWithdraw_shouldDebitWithoutReadingCard() {
         WithdrawRequest request = new WithdrawRequest();
         request.setAmount(BigDecimal.valueOf(200));
         request.setDescription("ATM 584 Withdraw");
-        Mockito.when(cardValidationService.isMyCard(2L)).thenReturn(card);
-        Mockito.doNothing().when(cardValidationService).isActiveCard(card);
-        Mockito.doNothing().when(cardValidationService).isEnoughMoney(card, BigDecimal.valueOf(200));
-        Mockito.when(transactionRepository.getDailyWithdrawalSum(Mockito.eq(2L), Mockito.any(), Mockito.any()))
-                .thenReturn(BigDecimal.valueOf(100));
-        Mockito.when(transactionRepository.getMonthlyWithdrawalSum(Mockito.eq(2L), Mockito.any(), Mockito.any()))
-                .thenReturn(BigDecimal.valueOf(200));
+        Card reference = new Card();
+        reference.setId(2L);
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardRepository.debit(2L, 5L, BigDecimal.valueOf(200))).thenReturn(1);
+        Mockito.when(cardRepository.getReferenceById(2L)).thenReturn(reference);
+        runRetriedActionsDirectly();
 
         cardService.cashWithdraw(2L, request);
 
-        Assertions.assertEquals(BigDecimal.valueOf(800), card.getBalance());
-        Mockito.verify(cardRepository).save(card);
+        Mockito.verify(withdrawalCounterService).reserve(2L, BigDecimal.valueOf(200));
         Mockito.verify(transactionRepository).save(Mockito.any(Transaction.class));
+        Mockito.verify(transactionRollupService).record(Mockito.argThat(transactions -> transactions.size() == 1
+                && transactions.get(0).getCard() == reference));
+        Mockito.verify(cardValidationService, Mockito.never()).rejectBalanceUpdate(Mockito.any(), Mockito.any());
+        Mockito.verify(optimisticRetryService).run(Mockito.eq("withdraw"), Mockito.any());
+        Mockito.verify(cardOperationExecutor).run(Mockito.eq(2L), Mockito.any());
     }
 
     @Test
-    void cashWithdraw_shouldThrowExceptionIfDailyLimitExceeded() {
-        Card card = new Card();
-        card.setId(7L);
-        card.setBalance(BigDecimal.valueOf(1000));
-        card.setDailyLimit(BigDecimal.valueOf(300));
-        card.setMonthlyLimit(BigDecimal.valueOf(1500));
-        card.setStatus(CardStatus.ACTIVE);
-
+    void cashWithdraw_shouldExplainRejectedDebit() {
         WithdrawRequest request = new WithdrawRequest();
-        request.setAmount(BigDecimal.valueOf(250));
+        request.setAmount(BigDecimal.valueOf(2000));
         request.setDescription("ATM 585 Withdraw");
-
-        Mockito.when(cardValidationService.isMyCard(7L)).thenReturn(card);
-        Mockito.doNothing().when(cardValidationService).isActiveCard(card);
-        Mockito.doNothing().when(cardValidationService).isEnoughMoney(card, BigDecimal.valueOf(250));
-        Mockito.when(transactionRepository.getDailyWithdrawalSum(Mockito.eq(7L), Mockito.any(), Mockito.any()))
-                .thenReturn(BigDecimal.valueOf(100));
-        Mockito.when(transactionRepository.getMonthlyWithdrawalSum(Mockito.eq(7L), Mockito.any(), Mockito.any()))
-                .thenReturn(BigDecimal.valueOf(200));
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardRepository.debit(7L, 5L, BigDecimal.valueOf(2000))).thenReturn(0);
+        Mockito.doThrow(new IllegalArgumentException("Недостаточно средств на карте!"))
+                .when(cardValidationService).rejectBalanceUpdate(7L, BigDecimal.valueOf(2000));
+        runRetriedActionsDirectly();
 
         IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
                 () -> cardService.cashWithdraw(7L, request));
 
-        Assertions.assertEquals("Превышен дневной лимит снятия наличных! Операция отклонена!", ex.getMessage());
-        Mockito.verify(cardRepository, Mockito.never()).save(Mockito.any());
+        Assertions.assertEquals("Недостаточно средств на карте!", ex.getMessage());
+        Mockito.verifyNoInteractions(withdrawalCounterService, transactionRepository);
     }
 
     @Test
-    void cashWithdraw_shouldThrowExceptionIfMonthlyLimitExceeded() {
-        Card card = new Card();
-        card.setId(16L);
-        card.setBalance(BigDecimal.valueOf(1000));
-        card.setDailyLimit(BigDecimal.valueOf(500));
-        card.setMonthlyLimit(BigDecimal.valueOf(700));
-        card.setStatus(CardStatus.ACTIVE);
-
+    void cashWithdraw_shouldThrowExceptionIfLimitExceeded() {
         WithdrawRequest request = new WithdrawRequest();
-        request.setAmount(BigDecimal.valueOf(300));
+        request.setAmount(BigDecimal.valueOf(250));
         request.setDescription("ATM 586 Withdraw");
-
-        Mockito.when(cardValidationService.isMyCard(16L)).thenReturn(card);
-        Mockito.doNothing().when(cardValidationService).isActiveCard(card);
-        Mockito.doNothing().when(cardValidationService).isEnoughMoney(card, BigDecimal.valueOf(300));
-        Mockito.when(transactionRepository.getDailyWithdrawalSum(Mockito.eq(16L), Mockito.any(), Mockito.any()))
-                .thenReturn(BigDecimal.valueOf(100));
-        Mockito.when(transactionRepository.getMonthlyWithdrawalSum(Mockito.eq(16L), Mockito.any(), Mockito.any()))
-                .thenReturn(BigDecimal.valueOf(500));
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardRepository.debit(16L, 5L, BigDecimal.valueOf(250))).thenReturn(1);
+        Mockito.doThrow(new IllegalArgumentException("Превышен дневной лимит снятия наличных! Операция отклонена!"))
+                .when(withdrawalCounterService).reserve(16L, BigDecimal.valueOf(250));
+        runRetriedActionsDirectly();
 
         IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
                 () -> cardService.cashWithdraw(16L, request));
 
-        Assertions.assertEquals("Превышен месячный лимит снятия наличных! Операция отклонена!", ex.getMessage());
-        Mockito.verify(cardRepository, Mockito.never()).save(Mockito.any());
+        Assertions.assertEquals("Превышен дневной лимит снятия наличных! Операция отклонена!", ex.getMessage());
+        Mockito.verify(transactionRepository, Mockito.never()).save(Mockito.any());
+        Mockito.verifyNoInteractions(transactionRollupService);
     }
 }
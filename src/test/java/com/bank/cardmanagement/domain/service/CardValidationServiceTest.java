@@ -12,6 +12,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -149,4 +150,39 @@ public class CardValidationServiceTest {
         Assertions.assertEquals("Недостаточно средств на карте!", exception.getMessage());
     }
 
+    @Test
+    void rejectBalanceUpdate_shouldThrowReasonOfRejectedDebit() {
+        SecurityContextHolder.clearContext();
+        mockPrincipal(1L);
+        User user = new User();
+        user.setId(1L);
+        Card card = new Card();
+        card.setId(10L);
+        card.setUser(user);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("200"));
+        Mockito.when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                cardValidationService.rejectBalanceUpdate(10L, new BigDecimal("500")));
+
+        Assertions.assertEquals("Недостаточно средств на карте!", exception.getMessage());
+    }
+
+    @Test
+    void rejectBalanceUpdate_shouldThrowConflictIfCardChangedConcurrently() {
+        SecurityContextHolder.clearContext();
+        mockPrincipal(1L);
+        User user = new User();
+        user.setId(1L);
+        Card card = new Card();
+        card.setId(10L);
+        card.setUser(user);
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("1000"));
+        Mockito.when(cardRepository.findById(10L)).thenReturn(Optional.of(card));
+
+        Assertions.assertThrows(ObjectOptimisticLockingFailureException.class, () ->
+                cardValidationService.rejectBalanceUpdate(10L, new BigDecimal("500")));
+    }
 }
@@ -1,22 +1,35 @@
 package com.bank.cardmanagement.domain.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+
 @ExtendWith(MockitoExtension.class)
 public class EncryptionServiceTest {
     @InjectMocks
     private EncryptionService encryptionService;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private void setUp() {
         ReflectionTestUtils.setField(encryptionService, "secretKeyRaw", "1234567890123456");
+        setUpFingerprintKey();
         encryptionService.init();
     }
 
+    private void setUpFingerprintKey() {
+        ReflectionTestUtils.setField(encryptionService, "fingerprintKeyRaw", "fingerprint-key");
+    }
+
     @Test
     void testEncryptAndDecrypt() {
         setUp();
@@ -29,6 +42,94 @@ public class EncryptionServiceTest {
         Assertions.assertEquals(original, decrypted);
     }
 
+    @Test
+    void testDecryptAll_shouldKeepOrder() {
+        setUp();
+        List<String> originals = List.of("4000123412341234", "4000567856785678", "4000000000000000");
+        List<String> encrypted = originals.stream()
+                .map(encryptionService::encrypt)
+                .toList();
+
+        List<String> decrypted = encryptionService.decryptAll(encrypted);
+
+        Assertions.assertEquals(originals, decrypted);
+    }
+
+    @Test
+    void testDecryptAll_throwsExceptionIfInvalidData() {
+        setUp();
+        List<String> encryptedData = List.of(encryptionService.encrypt("4000123412341234"), "%%%invalidbase64%%%");
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                encryptionService.decryptAll(encryptedData));
+
+        Assertions.assertEquals("Ошибка при дешифровании!", exception.getMessage());
+    }
+
+    @Test
+    void testEncrypt_shouldPrefixValueWithKeyVersion() {
+        ReflectionTestUtils.setField(encryptionService, "secretKeyRaw", "6543210987654321");
+        ReflectionTestUtils.setField(encryptionService, "keyVersion", 2);
+        setUpFingerprintKey();
+        encryptionService.init();
+
+        String encrypted = encryptionService.encrypt("4000123412341234");
+
+        Assertions.assertTrue(encrypted.startsWith("v2:"));
+        Assertions.assertEquals(2, encryptionService.keyVersionOf(encrypted));
+        Assertions.assertEquals("4000123412341234", encryptionService.decrypt(encrypted));
+    }
+
+    @Test
+    void testDecryptAll_shouldUsePreviousKeysForOldValues() {
+        setUp();
+        String legacy = encryptionService.encrypt("4000123412341234");
+        ReflectionTestUtils.setField(encryptionService, "secretKeyRaw", "6543210987654321");
+        ReflectionTestUtils.setField(encryptionService, "keyVersion", 1);
+        ReflectionTestUtils.setField(encryptionService, "previousKeysRaw", "0:1234567890123456");
+        encryptionService.init();
+        String current = encryptionService.encrypt("4000567856785678");
+
+        List<String> decrypted = encryptionService.decryptAll(List.of(current, legacy));
+
+        Assertions.assertEquals(0, encryptionService.keyVersionOf(legacy));
+        Assertions.assertEquals(List.of("4000567856785678", "4000123412341234"), decrypted);
+    }
+
+    @Test
+    void testDecrypt_throwsExceptionIfKeyVersionUnknown() {
+        setUp();
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                encryptionService.decrypt("v7:AAAA"));
+
+        Assertions.assertEquals("Ошибка при дешифровании!", exception.getMessage());
+    }
+
+    @Test
+    void testFingerprint_shouldBeDeterministic() {
+        setUp();
+
+        String first = encryptionService.fingerprint("4000123412341234");
+        String second = encryptionService.fingerprint("4000123412341234");
+        String other = encryptionService.fingerprint("4000123412341235");
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertNotEquals(first, other);
+        Assertions.assertEquals(64, first.length());
+    }
+
+    @Test
+    void testInit_throwsExceptionIfFingerprintKeyMissing() {
+        ReflectionTestUtils.setField(encryptionService, "secretKeyRaw", "1234567890123456");
+        ReflectionTestUtils.setField(encryptionService, "fingerprintKeyRaw", " ");
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                encryptionService.init());
+
+        Assertions.assertEquals("Ключ для отпечатков номеров карт не задан!", exception.getMessage());
+    }
+
     @Test
     void testEncrypt_throwsExceptionIfInvalidData() {
         ReflectionTestUtils.setField(encryptionService, "secretKeyRaw", "1234567890123456");
@@ -0,0 +1,184 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.IdempotencyRecord;
+import com.bank.cardmanagement.datasource.repository.IdempotencyKeyRepository;
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import com.bank.cardmanagement.security.TokenHasher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private CardValidationService cardValidationService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.lenient().when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+    }
+
+    private static void claim() {
+        IdempotencyClaim.current().run();
+    }
+
+    @Test
+    void execute_shouldRunActionOnceAndReplayFromMemory() {
+        Mockito.when(idempotencyKeyRepository.tryAcquire(Mockito.eq(5L), Mockito.eq("key-1"), Mockito.anyString(),
+                Mockito.eq("ok"), Mockito.any())).thenReturn(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        String first = idempotencyService.execute("key-1", "cash-withdraw:2:200", "ok", () -> {
+            claim();
+            calls.incrementAndGet();
+        });
+        String replay = idempotencyService.execute("key-1", "cash-withdraw:2:200", "ok", calls::incrementAndGet);
+
+        Assertions.assertEquals("ok", first);
+        Assertions.assertEquals("ok", replay);
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(1.0, meterRegistry.get("idempotency.replays").tag("source", "memory").counter().count());
+    }
+
+    @Test
+    void execute_shouldReplayStoredResponseWithoutRunningAction() {
+        Mockito.when(idempotencyKeyRepository.find(5L, "key-1"))
+                .thenReturn(Optional.of(new IdempotencyRecord(TokenHasher.sha256("transfer:1:2:100"), "stored")));
+
+        String response = idempotencyService.execute("key-1", "transfer:1:2:100", "ok",
+                () -> Assertions.fail("Операция не должна запускаться для использованного ключа"));
+
+        Assertions.assertEquals("stored", response);
+        Mockito.verify(idempotencyKeyRepository, Mockito.never()).tryAcquire(Mockito.anyLong(), Mockito.anyString(),
+                Mockito.anyString(), Mockito.anyString(), Mockito.any());
+        Assertions.assertEquals(1.0, meterRegistry.get("idempotency.replays").tag("source", "database").counter().count());
+    }
+
+    @Test
+    void execute_shouldAbortActionAndReplayResponseCommittedByAnotherInstance() {
+        Mockito.when(idempotencyKeyRepository.tryAcquire(Mockito.eq(5L), Mockito.eq("key-1"), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any())).thenReturn(false);
+        Mockito.when(idempotencyKeyRepository.find(5L, "key-1")).thenReturn(Optional.empty(),
+                Optional.of(new IdempotencyRecord(TokenHasher.sha256("transfer:1:2:100"), "stored")));
+
+        String response = idempotencyService.execute("key-1", "transfer:1:2:100", "ok", () -> {
+            claim();
+            Assertions.fail("Операция не должна продолжаться после занятого ключа");
+        });
+
+        Assertions.assertEquals("stored", response);
+        Assertions.assertNull(IdempotencyClaim.current());
+        Assertions.assertEquals(1.0, meterRegistry.get("idempotency.replays").tag("source", "database").counter().count());
+    }
+
+    @Test
+    void execute_shouldRejectKeyReusedForDifferentRequest() {
+        Mockito.when(idempotencyKeyRepository.tryAcquire(Mockito.eq(5L), Mockito.eq("key-1"), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any())).thenReturn(true);
+        idempotencyService.execute("key-1", "cash-withdraw:2:200", "ok", IdempotencyServiceTest::claim);
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.execute("key-1", "cash-withdraw:2:300", "ok", IdempotencyServiceTest::claim));
+
+        Assertions.assertEquals("Ключ идемпотентности уже использован для другого запроса!", exception.getMessage());
+    }
+
+    @Test
+    void execute_shouldReportBusyWhenCommittedKeyIsGone() {
+        Mockito.when(idempotencyKeyRepository.tryAcquire(Mockito.eq(5L), Mockito.eq("key-1"), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any())).thenReturn(false);
+        Mockito.when(idempotencyKeyRepository.find(5L, "key-1")).thenReturn(Optional.empty());
+
+        Assertions.assertThrows(ServiceBusyException.class, () ->
+                idempotencyService.execute("key-1", "transfer:1:2:100", "ok", IdempotencyServiceTest::claim));
+    }
+
+    @Test
+    void execute_shouldRunActionAgainAfterFailedAttempt() {
+        Mockito.when(idempotencyKeyRepository.tryAcquire(Mockito.eq(5L), Mockito.eq("key-1"), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any())).thenReturn(true);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.execute("key-1", "cash-withdraw:2:200", "ok", () -> {
+                    claim();
+                    throw new IllegalArgumentException("Недостаточно средств на карте!");
+                }));
+        String response = idempotencyService.execute("key-1", "cash-withdraw:2:200", "ok", IdempotencyServiceTest::claim);
+
+        Assertions.assertEquals("ok", response);
+        Mockito.verify(idempotencyKeyRepository, Mockito.times(2)).tryAcquire(Mockito.eq(5L), Mockito.eq("key-1"),
+                Mockito.anyString(), Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    void execute_shouldRejectActionThatDoesNotClaimKey() {
+        Assertions.assertThrows(IllegalStateException.class, () ->
+                idempotencyService.execute("key-1", "cash-withdraw:2:200", "ok", () -> {
+                }));
+    }
+
+    @Test
+    void execute_shouldMakeConcurrentDuplicateWaitForFirstExecution() throws Exception {
+        Mockito.when(idempotencyKeyRepository.tryAcquire(Mockito.eq(5L), Mockito.eq("key-1"), Mockito.anyString(),
+                Mockito.anyString(), Mockito.any())).thenReturn(true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> idempotencyService.execute("key-1", "request", "ok", () -> {
+            claim();
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> duplicate = CompletableFuture.supplyAsync(() ->
+                idempotencyService.execute("key-1", "request", "ok", calls::incrementAndGet));
+
+        release.countDown();
+
+        Assertions.assertEquals("ok", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("ok", duplicate.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_shouldRunActionDirectlyWithoutKey() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Assertions.assertEquals("ok", idempotencyService.execute(null, "request", "ok", () -> {
+            Assertions.assertNull(IdempotencyClaim.current());
+            calls.incrementAndGet();
+        }));
+
+        Assertions.assertEquals(1, calls.get());
+        Mockito.verifyNoInteractions(idempotencyKeyRepository);
+    }
+}
@@ -0,0 +1,139 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.JournalTransaction;
+import com.bank.cardmanagement.datasource.projection.LedgerPosting;
+import com.bank.cardmanagement.datasource.repository.LedgerRepository;
+import com.bank.cardmanagement.entity.LedgerAccount;
+import com.bank.cardmanagement.entity.TransactionType;
+import com.bank.cardmanagement.exception.CardNotFoundException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerServiceTest {
+    @InjectMocks
+    private LedgerService ledgerService;
+
+    @Mock
+    private LedgerRepository ledgerRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ledgerService, "snapshotChunkSize", 2);
+        Mockito.lenient().when(transactionTemplate.execute(Mockito.any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void journal_shouldPostWithdrawalsAndOutgoingTransfersAndAdvanceCheckpoint() {
+        Mockito.when(ledgerRepository.committedWatermark()).thenReturn(42L);
+        Mockito.when(ledgerRepository.lockUnjournaled(42L, 1000)).thenReturn(List.of(
+                new JournalTransaction(10L, 30L, TransactionType.WITHDRAWAL, 7L, null, BigDecimal.valueOf(300)),
+                new JournalTransaction(11L, 31L, TransactionType.TRANSFER, 7L, 8L, BigDecimal.valueOf(50)),
+                new JournalTransaction(12L, 31L, TransactionType.TRANSFER, 8L, null, BigDecimal.valueOf(50))));
+
+        ledgerService.journal();
+
+        ArgumentCaptor<List<LedgerPosting>> postings = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(ledgerRepository).insertPostings(postings.capture(), Mockito.any(), Mockito.eq(500));
+        Assertions.assertEquals(4, postings.getValue().size());
+        LedgerPosting card = postings.getValue().get(0);
+        LedgerPosting cash = postings.getValue().get(1);
+        LedgerPosting source = postings.getValue().get(2);
+        LedgerPosting destination = postings.getValue().get(3);
+        Assertions.assertEquals(7L, source.getCardId());
+        Assertions.assertEquals(BigDecimal.valueOf(-50), source.getAmount());
+        Assertions.assertEquals(8L, destination.getCardId());
+        Assertions.assertEquals(BigDecimal.valueOf(50), destination.getAmount());
+        Assertions.assertEquals(LedgerAccount.CARD, card.getAccount());
+        Assertions.assertEquals(7L, card.getCardId());
+        Assertions.assertEquals(BigDecimal.valueOf(-300), card.getAmount());
+        Assertions.assertEquals(LedgerAccount.CASH, cash.getAccount());
+        Assertions.assertNull(cash.getCardId());
+        Assertions.assertEquals(BigDecimal.valueOf(300), cash.getAmount());
+        Assertions.assertEquals(card.getOperationId(), cash.getOperationId());
+        Assertions.assertNotEquals(card.getOperationId(), source.getOperationId());
+        Mockito.verify(ledgerRepository).advanceJournal(Mockito.eq(31L), Mockito.eq(12L), Mockito.any());
+    }
+
+    @Test
+    void journal_shouldRepeatFullChunksAndKeepCheckpointWhenNothingNew() {
+        ReflectionTestUtils.setField(ledgerService, "journalChunkSize", 1);
+        Mockito.when(ledgerRepository.committedWatermark()).thenReturn(42L);
+        Mockito.when(ledgerRepository.lockUnjournaled(42L, 1)).thenReturn(
+                List.of(new JournalTransaction(10L, 30L, TransactionType.WITHDRAWAL, 7L, null, BigDecimal.TEN)),
+                List.of());
+
+        ledgerService.journal();
+
+        Mockito.verify(ledgerRepository, Mockito.times(2)).lockUnjournaled(42L, 1);
+        Mockito.verify(ledgerRepository).advanceJournal(Mockito.eq(30L), Mockito.eq(10L), Mockito.any());
+    }
+
+    @Test
+    void record_shouldRejectUnbalancedOperation() {
+        UUID operationId = UUID.randomUUID();
+        List<LedgerPosting> postings = List.of(
+                new LedgerPosting(operationId, LedgerAccount.CARD, 1L, BigDecimal.valueOf(-100)),
+                new LedgerPosting(operationId, LedgerAccount.CARD, 2L, BigDecimal.valueOf(90)));
+
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> ledgerService.record(postings));
+
+        Assertions.assertEquals("Проводки операции " + operationId + " не сбалансированы!", exception.getMessage());
+        Mockito.verifyNoInteractions(ledgerRepository);
+    }
+
+    @Test
+    void balanceOf_shouldThrowExceptionIfCardNotFound() {
+        Mockito.when(ledgerRepository.balanceOf(5L)).thenReturn(Optional.empty());
+
+        CardNotFoundException exception = Assertions.assertThrows(CardNotFoundException.class,
+                () -> ledgerService.balanceOf(5L));
+
+        Assertions.assertEquals("Карта с ID 5 не найдена!", exception.getMessage());
+    }
+
+    @Test
+    void compactSnapshots_shouldAdvanceSnapshotsUpToCommittedWatermarkInChunks() {
+        Mockito.when(ledgerRepository.committedWatermark()).thenReturn(42L);
+        Mockito.when(ledgerRepository.compactSnapshots(Mockito.eq(42L), Mockito.any(), Mockito.eq(2))).thenReturn(2, 1);
+
+        ledgerService.compactSnapshots();
+
+        Mockito.verify(ledgerRepository, Mockito.times(2)).compactSnapshots(Mockito.eq(42L), Mockito.any(), Mockito.eq(2));
+    }
+
+    @Test
+    void compactSnapshots_shouldReadWatermarkOutsideChunkTransactions() {
+        Mockito.when(ledgerRepository.committedWatermark()).thenReturn(42L);
+        Mockito.when(ledgerRepository.compactSnapshots(Mockito.eq(42L), Mockito.any(), Mockito.eq(2))).thenReturn(0);
+
+        ledgerService.compactSnapshots();
+
+        InOrder inOrder = Mockito.inOrder(ledgerRepository, transactionTemplate);
+        inOrder.verify(ledgerRepository).committedWatermark();
+        inOrder.verify(transactionTemplate).execute(Mockito.any());
+        inOrder.verify(ledgerRepository).compactSnapshots(Mockito.eq(42L), Mockito.any(), Mockito.eq(2));
+    }
+}
@@ -0,0 +1,100 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+@ExtendWith(MockitoExtension.class)
+public class LoginRateLimiterTest {
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private LoginRateLimiter loginRateLimiter;
+
+    @Test
+    void acquire_shouldRejectEmailAfterCapacityWithRetryAfter() {
+        ReflectionTestUtils.setField(loginRateLimiter, "emailCapacity", 3);
+        ReflectionTestUtils.setField(loginRateLimiter, "emailRefillInterval", 60000L);
+
+        for (int i = 0; i < 3; i++) {
+            loginRateLimiter.acquire("User@Mail.ru", "10.0.0." + i);
+        }
+        TooManyRequestsException exception = Assertions.assertThrows(TooManyRequestsException.class, () ->
+                loginRateLimiter.acquire("user@mail.ru ", "10.0.0.9"));
+
+        Assertions.assertEquals("Слишком много попыток входа, повторите попытку позже!", exception.getMessage());
+        Assertions.assertTrue(exception.getRetryAfterSeconds() > 50 && exception.getRetryAfterSeconds() <= 60);
+        loginRateLimiter.acquire("other@mail.ru", "10.0.0.9");
+    }
+
+    @Test
+    void acquire_shouldRejectIpWithoutTouchingEmailBuckets() {
+        ReflectionTestUtils.setField(loginRateLimiter, "ipCapacity", 2);
+        ReflectionTestUtils.setField(loginRateLimiter, "ipRefillInterval", 60000L);
+
+        loginRateLimiter.acquire("a@mail.ru", "10.0.0.1");
+        loginRateLimiter.acquire("b@mail.ru", "10.0.0.1");
+        Assertions.assertThrows(TooManyRequestsException.class, () -> loginRateLimiter.acquire("c@mail.ru", "10.0.0.1"));
+
+        Map<?, ?> buckets = (Map<?, ?>) ReflectionTestUtils.getField(loginRateLimiter, "buckets");
+        Assertions.assertFalse(buckets.containsKey("email:c@mail.ru"));
+        Assertions.assertEquals(1.0, meterRegistry.get("security.login.throttled").tag("key", "ip").counter().count());
+    }
+
+    @Test
+    void evictIdle_shouldRemoveRefilledBuckets() throws InterruptedException {
+        ReflectionTestUtils.setField(loginRateLimiter, "ipRefillInterval", 1L);
+        ReflectionTestUtils.setField(loginRateLimiter, "emailRefillInterval", 60000L);
+        loginRateLimiter.acquire("user@mail.ru", "10.0.0.1");
+
+        Thread.sleep(10);
+        loginRateLimiter.evictIdle();
+
+        Map<?, ?> buckets = (Map<?, ?>) ReflectionTestUtils.getField(loginRateLimiter, "buckets");
+        Assertions.assertEquals(1, buckets.size());
+        Assertions.assertTrue(buckets.containsKey("email:user@mail.ru"));
+    }
+
+    @Test
+    void acquire_shouldRejectNewKeysWhenTableIsSaturated() {
+        ReflectionTestUtils.setField(loginRateLimiter, "maxKeys", 2);
+        ReflectionTestUtils.setField(loginRateLimiter, "emailRefillInterval", 60000L);
+
+        loginRateLimiter.acquire("user@mail.ru", null);
+        loginRateLimiter.acquire("other@mail.ru", null);
+        TooManyRequestsException exception = Assertions.assertThrows(TooManyRequestsException.class, () ->
+                loginRateLimiter.acquire("third@mail.ru", null));
+
+        Assertions.assertEquals(60, exception.getRetryAfterSeconds());
+        Assertions.assertEquals(1.0, meterRegistry.get("security.login.overflow").counter().count());
+        loginRateLimiter.acquire("user@mail.ru", null);
+    }
+
+    @Test
+    void acquire_shouldEvictRefilledBucketsToMakeRoom() throws InterruptedException {
+        ReflectionTestUtils.setField(loginRateLimiter, "maxKeys", 2);
+        ReflectionTestUtils.setField(loginRateLimiter, "ipRefillInterval", 1L);
+        ReflectionTestUtils.setField(loginRateLimiter, "emailRefillInterval", 60000L);
+        loginRateLimiter.acquire(null, "10.0.0.1");
+        loginRateLimiter.acquire("user@mail.ru", null);
+
+        Thread.sleep(10);
+        loginRateLimiter.acquire("other@mail.ru", null);
+
+        Map<?, ?> buckets = (Map<?, ?>) ReflectionTestUtils.getField(loginRateLimiter, "buckets");
+        Assertions.assertFalse(buckets.containsKey("ip:10.0.0.1"));
+        Assertions.assertTrue(buckets.containsKey("email:other@mail.ru"));
+        Assertions.assertEquals(0.0, meterRegistry.get("security.login.overflow").counter().count());
+    }
+}
@@ -0,0 +1,102 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+public class OptimisticRetryServiceTest {
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private OptimisticRetryService optimisticRetryService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(optimisticRetryService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(optimisticRetryService, "backoffMillis", 0L);
+        Mockito.when(transactionTemplate.execute(Mockito.any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void execute_shouldRetryAfterConflict() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = optimisticRetryService.execute("withdraw", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException("Card", 1L);
+            }
+            return "done";
+        });
+
+        Assertions.assertEquals("done", result);
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(1.0, meterRegistry.get("cards.balance.conflicts").tag("operation", "withdraw").counter().count());
+    }
+
+    @Test
+    void execute_shouldRunBoundIdempotencyClaimFirstInEveryAttempt() {
+        List<String> steps = new ArrayList<>();
+
+        IdempotencyClaim.callWith(() -> steps.add("claim"), () -> optimisticRetryService.execute("withdraw", () -> {
+            steps.add("debit");
+            if (steps.size() == 2) {
+                throw new ObjectOptimisticLockingFailureException("Card", 1L);
+            }
+            return null;
+        }));
+
+        Assertions.assertEquals(List.of("claim", "debit", "claim", "debit"), steps);
+    }
+
+    @Test
+    void execute_shouldThrowServiceBusyAfterLastAttempt() {
+        AtomicInteger calls = new AtomicInteger();
+
+        ServiceBusyException exception = Assertions.assertThrows(ServiceBusyException.class, () ->
+                optimisticRetryService.run("transfer", () -> {
+                    calls.incrementAndGet();
+                    throw new ObjectOptimisticLockingFailureException("Card", 1L);
+                }));
+
+        Assertions.assertEquals("Карта изменяется параллельными операциями, повторите попытку позже!", exception.getMessage());
+        Assertions.assertEquals(3, calls.get());
+        Assertions.assertEquals(1.0, meterRegistry.get("cards.balance.retries.exhausted").counter().count());
+    }
+
+    @Test
+    void execute_shouldNotRetryBusinessErrors() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                optimisticRetryService.run("withdraw", () -> {
+                    calls.incrementAndGet();
+                    throw new IllegalArgumentException("Недостаточно средств на карте!");
+                }));
+
+        Assertions.assertEquals(1, calls.get());
+    }
+}
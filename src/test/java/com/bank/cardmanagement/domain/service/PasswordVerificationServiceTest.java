@@ -0,0 +1,80 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.exception.ServiceBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(MockitoExtension.class)
+public class PasswordVerificationServiceTest {
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private PasswordVerificationService passwordVerificationService;
+
+    private void setUp(int threads, int queueCapacity) {
+        ReflectionTestUtils.setField(passwordVerificationService, "threads", threads);
+        ReflectionTestUtils.setField(passwordVerificationService, "queueCapacity", queueCapacity);
+        passwordVerificationService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordVerificationService.shutdown();
+    }
+
+    @Test
+    void matches_shouldReturnEncoderResult() {
+        setUp(1, 1);
+        Mockito.when(passwordEncoder.matches("password", "hash")).thenReturn(true);
+
+        Assertions.assertTrue(passwordVerificationService.matches("password", "hash"));
+        Assertions.assertEquals(1, meterRegistry.get("security.password.hash").timer().count());
+    }
+
+    @Test
+    void matches_shouldRejectWhenQueueIsFull() throws Exception {
+        setUp(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(passwordEncoder.matches(Mockito.anyString(), Mockito.anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> passwordVerificationService.matches("a", "hash"));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> passwordVerificationService.matches("b", "hash"));
+        while (meterRegistry.get("security.password.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        ServiceBusyException exception = Assertions.assertThrows(ServiceBusyException.class, () ->
+                passwordVerificationService.matches("c", "hash"));
+
+        Assertions.assertEquals(1, exception.getRetryAfterSeconds());
+        Assertions.assertEquals(1.0, meterRegistry.get("security.password.rejected").counter().count());
+        release.countDown();
+        Assertions.assertTrue(running.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+}
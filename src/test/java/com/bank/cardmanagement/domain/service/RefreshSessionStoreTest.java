@@ -0,0 +1,202 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.repository.RefreshSessionRepository;
+import com.bank.cardmanagement.security.TokenHasher;
+import com.bank.cardmanagement.security.model.RefreshSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshSessionStoreTest {
+
+    @Mock
+    private RefreshSessionRepository refreshSessionRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private RefreshSessionStore refreshSessionStore;
+
+    private final Instant expiresAt = Instant.now().plusSeconds(3600);
+
+    @Test
+    void find_shouldReturnSessionForCurrentTokenFromMemory() {
+        refreshSessionStore.create("session-1", 1L, "refresh-token", expiresAt);
+
+        Optional<RefreshSession> session = refreshSessionStore.find("session-1", 1L, "refresh-token");
+
+        Assertions.assertTrue(session.isPresent());
+        Assertions.assertNotEquals("refresh-token", session.get().getTokenHash());
+        Mockito.verify(refreshSessionRepository).insert(session.get());
+        Mockito.verify(refreshSessionRepository, Mockito.never()).findById(Mockito.anyString());
+    }
+
+    @Test
+    void find_shouldRecheckDatabaseWhenTokenDoesNotMatchMemory() {
+        refreshSessionStore.create("session-1", 1L, "refresh-token", expiresAt);
+        RefreshSession stored = refreshSessionStore.find("session-1", 1L, "refresh-token").orElseThrow();
+        Mockito.when(refreshSessionRepository.findById("session-1")).thenReturn(Optional.of(stored));
+
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "other-token").isEmpty());
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 2L, "refresh-token").isEmpty());
+    }
+
+    @Test
+    void find_shouldLoadSessionCreatedOnAnotherInstance() {
+        Instant now = Instant.now();
+        Mockito.when(refreshSessionRepository.findById("session-1")).thenReturn(Optional.of(
+                new RefreshSession("session-1", 1L, TokenHasher.sha256("token-1"), now, now, expiresAt)));
+
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isPresent());
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isPresent());
+
+        Mockito.verify(refreshSessionRepository, Mockito.times(1)).findById("session-1");
+    }
+
+    @Test
+    void rotate_shouldAcceptOnlyNewTokenAndRejectSecondRotation() {
+        refreshSessionStore.create("session-1", 1L, "old-token", expiresAt);
+        RefreshSession session = refreshSessionStore.find("session-1", 1L, "old-token").orElseThrow();
+        Mockito.when(refreshSessionRepository.rotate(Mockito.eq(session.getTokenHash()), Mockito.any()))
+                .thenReturn(true)
+                .thenReturn(false);
+
+        boolean first = refreshSessionStore.rotate(session, "new-token", expiresAt);
+        Optional<RefreshSession> rotated = refreshSessionStore.find("session-1", 1L, "new-token");
+        boolean second = refreshSessionStore.rotate(session, "another-token", expiresAt);
+
+        Assertions.assertTrue(first);
+        Assertions.assertTrue(rotated.isPresent());
+        Assertions.assertFalse(second);
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "old-token").isEmpty());
+    }
+
+    @Test
+    void rotate_shouldRejectSessionRevokedOnAnotherInstance() {
+        refreshSessionStore.create("session-1", 1L, "token-1", expiresAt);
+        RefreshSession session = refreshSessionStore.find("session-1", 1L, "token-1").orElseThrow();
+        Mockito.when(refreshSessionRepository.rotate(Mockito.anyString(), Mockito.any())).thenReturn(false);
+
+        Assertions.assertFalse(refreshSessionStore.rotate(session, "token-2", expiresAt));
+
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isEmpty());
+        Mockito.verify(refreshSessionRepository).findById("session-1");
+    }
+
+    @Test
+    void create_shouldEvictExcessSessions() {
+        ReflectionTestUtils.setField(refreshSessionStore, "maxPerUser", 2);
+        Instant now = Instant.now();
+        Mockito.when(refreshSessionRepository.findActive()).thenReturn(List.of(
+                new RefreshSession("session-1", 1L, TokenHasher.sha256("token-1"), now.minusSeconds(20), now.minusSeconds(20), expiresAt),
+                new RefreshSession("session-2", 1L, TokenHasher.sha256("token-2"), now.minusSeconds(10), now.minusSeconds(10), expiresAt)));
+        Mockito.when(refreshSessionRepository.deleteExcess(1L, 2)).thenReturn(List.of("session-1"));
+        refreshSessionStore.load();
+
+        refreshSessionStore.create("session-3", 1L, "token-3", expiresAt);
+
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isEmpty());
+        Assertions.assertTrue(refreshSessionStore.find("session-2", 1L, "token-2").isPresent());
+        Assertions.assertTrue(refreshSessionStore.find("session-3", 1L, "token-3").isPresent());
+    }
+
+    @Test
+    void revoke_shouldRemoveOnlySelectedSessionOfOwner() {
+        refreshSessionStore.create("session-1", 1L, "token-1", expiresAt);
+        refreshSessionStore.create("session-2", 1L, "token-2", expiresAt);
+        Mockito.when(refreshSessionRepository.delete(Mockito.anyLong(), Mockito.eq("session-1")))
+                .thenAnswer(invocation -> invocation.<Long>getArgument(0) == 1L);
+
+        Assertions.assertFalse(refreshSessionStore.revoke(2L, "session-1"));
+        Assertions.assertTrue(refreshSessionStore.revoke(1L, "session-1"));
+
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isEmpty());
+        Assertions.assertTrue(refreshSessionStore.find("session-2", 1L, "token-2").isPresent());
+    }
+
+    @Test
+    void revokeAll_shouldIncludeSessionsCreatedOnAnotherInstance() {
+        refreshSessionStore.create("session-1", 1L, "token-1", expiresAt);
+        Mockito.when(refreshSessionRepository.deleteByUser(1L)).thenReturn(List.of("session-1", "session-2"));
+
+        Set<String> revoked = refreshSessionStore.revokeAll(1L);
+
+        Assertions.assertEquals(Set.of("session-1", "session-2"), revoked);
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isEmpty());
+    }
+
+    @Test
+    void flush_shouldWriteTouchesInBatchesAndForgetSessionsMissingInDatabase() {
+        refreshSessionStore.create("session-1", 1L, "token-1", expiresAt);
+        refreshSessionStore.create("session-2", 1L, "token-2", expiresAt);
+        refreshSessionStore.touch(refreshSessionStore.find("session-1", 1L, "token-1").orElseThrow());
+        refreshSessionStore.touch(refreshSessionStore.find("session-2", 1L, "token-2").orElseThrow());
+        Mockito.when(refreshSessionRepository.touchAll(Mockito.anyList())).thenReturn(List.of("session-2"));
+
+        refreshSessionStore.flush();
+        refreshSessionStore.flush();
+
+        Mockito.verify(refreshSessionRepository).touchAll(Mockito.argThat(touches -> touches.size() == 2));
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isPresent());
+        Assertions.assertTrue(refreshSessionStore.find("session-2", 1L, "token-2").isEmpty());
+    }
+
+    @Test
+    void flush_shouldRetryAfterFailure() {
+        refreshSessionStore.create("session-1", 1L, "token-1", expiresAt);
+        refreshSessionStore.touch(refreshSessionStore.find("session-1", 1L, "token-1").orElseThrow());
+        Mockito.when(refreshSessionRepository.touchAll(Mockito.anyList()))
+                .thenThrow(new RuntimeException("DB error!"))
+                .thenReturn(List.of());
+
+        refreshSessionStore.flush();
+        refreshSessionStore.flush();
+        refreshSessionStore.flush();
+
+        Mockito.verify(refreshSessionRepository, Mockito.times(2)).touchAll(Mockito.anyList());
+    }
+
+    @Test
+    void sync_shouldPickUpRotationOnAnotherInstance() {
+        Instant now = Instant.now();
+        Mockito.when(refreshSessionRepository.findActive()).thenReturn(List.of(
+                new RefreshSession("session-1", 1L, TokenHasher.sha256("old-token"), now, now, expiresAt)));
+        Mockito.when(refreshSessionRepository.findChangedAfter(Mockito.any())).thenReturn(List.of(
+                new RefreshSession("session-1", 1L, TokenHasher.sha256("new-token"), now, now.plusSeconds(1), expiresAt)));
+        refreshSessionStore.load();
+
+        refreshSessionStore.sync();
+
+        Mockito.verify(refreshSessionRepository).findChangedAfter(now.minusMillis(5_000));
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "new-token").isPresent());
+        Mockito.verify(refreshSessionRepository, Mockito.never()).findById(Mockito.anyString());
+    }
+
+    @Test
+    void load_shouldRestoreSessionsFromDatabase() {
+        Instant now = Instant.now();
+        RefreshSession stored = new RefreshSession("session-1", 1L,
+                TokenHasher.sha256("token-1"), now, now, expiresAt);
+        Mockito.when(refreshSessionRepository.findActive()).thenReturn(List.of(stored));
+
+        refreshSessionStore.load();
+
+        Assertions.assertTrue(refreshSessionStore.find("session-1", 1L, "token-1").isPresent());
+        Mockito.verify(refreshSessionRepository, Mockito.never()).findById(Mockito.anyString());
+    }
+}
@@ -0,0 +1,93 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.RevokedToken;
+import com.bank.cardmanagement.datasource.repository.RevokedTokenRepository;
+import com.bank.cardmanagement.security.model.JwtAuthentication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tokenRevocationService, "accessTokenExpiration", 600000L);
+        ReflectionTestUtils.setField(tokenRevocationService, "expectedEntries", 1000);
+    }
+
+    private JwtAuthentication authentication(String tokenId, String sessionId) {
+        return new JwtAuthentication(1L, new SimpleGrantedAuthority("ROLE_USER"), tokenId, sessionId);
+    }
+
+    @Test
+    void isRevoked_shouldRejectRevokedTokenOrSession() {
+        tokenRevocationService.load();
+
+        tokenRevocationService.revoke(List.of("token-1", "session-2"));
+
+        Assertions.assertTrue(tokenRevocationService.isRevoked(authentication("token-1", "session-1")));
+        Assertions.assertTrue(tokenRevocationService.isRevoked(authentication("token-2", "session-2")));
+        Assertions.assertFalse(tokenRevocationService.isRevoked(authentication("token-3", "session-3")));
+        Assertions.assertFalse(tokenRevocationService.isRevoked(authentication(null, null)));
+        Mockito.verify(revokedTokenRepository).insertAll(Mockito.eq(List.of("token-1", "session-2")), Mockito.any(Instant.class));
+    }
+
+    @Test
+    void load_shouldRestoreRevocationsFromDatabase() {
+        Instant now = Instant.now();
+        Mockito.when(revokedTokenRepository.findActive())
+                .thenReturn(List.of(new RevokedToken("session-1", now.plusSeconds(60), now)));
+
+        tokenRevocationService.load();
+
+        Assertions.assertTrue(tokenRevocationService.isRevoked(authentication("token-1", "session-1")));
+    }
+
+    @Test
+    void sync_shouldPickUpRevocationsOfOtherInstancesAndDropExpired() {
+        Instant now = Instant.now();
+        Mockito.when(revokedTokenRepository.findActive())
+                .thenReturn(List.of(new RevokedToken("expired", now.minusSeconds(1), now.minusSeconds(600))));
+        tokenRevocationService.load();
+        Mockito.when(revokedTokenRepository.findCreatedAfter(Mockito.any(Instant.class)))
+                .thenReturn(List.of(new RevokedToken("session-1", now.plusSeconds(60), now)));
+
+        tokenRevocationService.sync();
+
+        Assertions.assertTrue(tokenRevocationService.isRevoked(authentication(null, "session-1")));
+        Assertions.assertFalse(tokenRevocationService.isRevoked(authentication("expired", null)));
+        Mockito.verify(revokedTokenRepository).deleteExpired();
+    }
+
+    @Test
+    void revoke_shouldNotTouchDatabaseForEmptyList() {
+        tokenRevocationService.load();
+
+        tokenRevocationService.revoke(List.of());
+
+        Mockito.verify(revokedTokenRepository, Mockito.never()).insertAll(Mockito.anyCollection(), Mockito.any());
+    }
+}
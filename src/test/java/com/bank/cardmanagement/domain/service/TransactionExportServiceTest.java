@@ -0,0 +1,98 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.TransactionExportRow;
+import com.bank.cardmanagement.datasource.repository.TransactionExportRepository;
+import com.bank.cardmanagement.dto.request.ExportFormat;
+import com.bank.cardmanagement.entity.TransactionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionExportServiceTest {
+
+    @InjectMocks
+    private TransactionExportService transactionExportService;
+
+    @Mock
+    private TransactionExportRepository transactionExportRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final LocalDateTime timestamp = LocalDateTime.of(2025, 3, 1, 12, 30);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Mockito.lenient().doAnswer(invocation -> {
+            Consumer<TransactionExportRow> handler = invocation.getArgument(6);
+            handler.accept(new TransactionExportRow(1L, "WITHDRAWAL", new BigDecimal("100.00"), "ATM 156", timestamp, 7L));
+            handler.accept(new TransactionExportRow(2L, "TRANSFER", new BigDecimal("5.50"), "Перевод, \"срочный\"", timestamp, 7L));
+            return null;
+        }).when(transactionExportRepository).stream(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.anyInt(), Mockito.any());
+    }
+
+    @Test
+    void export_shouldWriteOneJsonObjectPerLineAndPassInclusivePeriod() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = transactionExportService.export(TransactionType.WITHDRAWAL, 7L, null,
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), ExportFormat.NDJSON, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        Assertions.assertEquals(2, rows);
+        Assertions.assertEquals(2, lines.length);
+        Assertions.assertEquals(1L, objectMapper.readTree(lines[0]).get("id").asLong());
+        Assertions.assertEquals("Перевод, \"срочный\"", objectMapper.readTree(lines[1]).get("description").asText());
+        Mockito.verify(transactionExportRepository).stream(Mockito.eq(TransactionType.WITHDRAWAL), Mockito.eq(7L),
+                Mockito.isNull(), Mockito.eq(LocalDateTime.of(2025, 3, 1, 0, 0)),
+                Mockito.eq(LocalDateTime.of(2025, 4, 1, 0, 0)), Mockito.eq(1000), Mockito.any());
+    }
+
+    @Test
+    void export_shouldWriteCsvWithHeaderAndQuotedValues() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        transactionExportService.export(null, null, 3L, null, null, ExportFormat.CSV, false, out);
+
+        Assertions.assertEquals("id,type,amount,description,timestamp,card_id\n" +
+                        "1,WITHDRAWAL,100.00,ATM 156,2025-03-01T12:30,7\n" +
+                        "2,TRANSFER,5.50,\"Перевод, \"\"срочный\"\"\",2025-03-01T12:30,7\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_shouldCompressOutputAndRecordRowsAndRate() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        transactionExportService.export(null, null, null, null, null, ExportFormat.NDJSON, true, out);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            Assertions.assertEquals(2, new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n").length);
+        }
+        Assertions.assertEquals(2.0, meterRegistry.get("transactions.export.rows").tag("format", "ndjson").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("transactions.export.rate").tag("format", "ndjson").summary().count());
+    }
+}
@@ -0,0 +1,112 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.TransactionRollupDelta;
+import com.bank.cardmanagement.datasource.repository.TransactionRollupRepository;
+import com.bank.cardmanagement.dto.response.TransactionStatisticsResponse;
+import com.bank.cardmanagement.entity.Card;
+import com.bank.cardmanagement.entity.Transaction;
+import com.bank.cardmanagement.entity.TransactionType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionRollupServiceTest {
+
+    @Mock
+    private TransactionRollupRepository transactionRollupRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private TransactionRollupService transactionRollupService;
+
+    private Transaction transaction(Long cardId, TransactionType type, long amount, LocalDateTime timestamp) {
+        Card card = new Card();
+        card.setId(cardId);
+        return new Transaction(type, BigDecimal.valueOf(amount), "rollup", timestamp, card);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void record_shouldMergeTransactionsIntoSortedDeltas() {
+        LocalDateTime now = LocalDateTime.of(2026, 3, 10, 12, 0);
+        transactionRollupService.record(List.of(
+                transaction(3L, TransactionType.TRANSFER, 100, now),
+                transaction(1L, TransactionType.TRANSFER, 50, now),
+                transaction(3L, TransactionType.TRANSFER, 20, now.plusHours(1)),
+                transaction(1L, TransactionType.TRANSFER, 30, now.minusDays(1))));
+
+        ArgumentCaptor<List<TransactionRollupDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(transactionRollupRepository).increment(deltas.capture(), Mockito.eq(500));
+        List<TransactionRollupDelta> values = deltas.getValue();
+        Assertions.assertEquals(3, values.size());
+        Assertions.assertEquals(1L, values.get(0).getCardId());
+        Assertions.assertEquals(LocalDate.of(2026, 3, 9), values.get(0).getDay());
+        Assertions.assertEquals(1L, values.get(1).getCardId());
+        Assertions.assertEquals(LocalDate.of(2026, 3, 10), values.get(1).getDay());
+        Assertions.assertEquals(3L, values.get(2).getCardId());
+        Assertions.assertEquals(2, values.get(2).getCount());
+        Assertions.assertEquals(BigDecimal.valueOf(120), values.get(2).getAmount());
+    }
+
+    @Test
+    void record_shouldSkipEmptyList() {
+        transactionRollupService.record(List.of());
+
+        Mockito.verifyNoInteractions(transactionRollupRepository);
+    }
+
+    @Test
+    void getUserStatistics_shouldReadRollup() {
+        LocalDate from = LocalDate.of(2026, 3, 1);
+        LocalDate to = LocalDate.of(2026, 3, 31);
+        List<TransactionStatisticsResponse> statistics = List.of(
+                new TransactionStatisticsResponse(from, "WITHDRAWAL", 2, BigDecimal.valueOf(300)));
+        Mockito.when(transactionRollupRepository.findByUser(5L, from, to)).thenReturn(statistics);
+
+        Assertions.assertSame(statistics, transactionRollupService.getUserStatistics(5L, from, to));
+    }
+
+    @Test
+    void getCardStatistics_shouldRejectReversedPeriod() {
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> transactionRollupService.getCardStatistics(1L, LocalDate.of(2026, 3, 2), LocalDate.of(2026, 3, 1)));
+
+        Assertions.assertEquals("Дата начала периода не может быть позже даты окончания!", ex.getMessage());
+        Mockito.verifyNoInteractions(transactionRollupRepository);
+    }
+
+    @Test
+    void rebuild_shouldProcessCardsInChunksBeforeCurrentDay() {
+        ReflectionTestUtils.setField(transactionRollupService, "rebuildChunkSize", 2);
+        Mockito.when(transactionTemplate.execute(Mockito.any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Mockito.when(transactionRollupRepository.findCardIdsAfter(0, 2)).thenReturn(List.of(1L, 4L));
+        Mockito.when(transactionRollupRepository.findCardIdsAfter(4, 2)).thenReturn(List.of(7L));
+        Mockito.when(transactionRollupRepository.findCardIdsAfter(7, 2)).thenReturn(List.of());
+        Mockito.when(transactionRollupRepository.rebuild(Mockito.anyLong(), Mockito.anyLong(), Mockito.any())).thenReturn(3, 2);
+
+        int rows = transactionRollupService.rebuild();
+
+        Assertions.assertEquals(5, rows);
+        LocalDate beforeDay = LocalDateTime.now().minusHours(1).toLocalDate();
+        Mockito.verify(transactionRollupRepository).rebuild(1L, 4L, beforeDay);
+        Mockito.verify(transactionRollupRepository).rebuild(7L, 7L, beforeDay);
+        Mockito.verify(transactionTemplate, Mockito.times(2)).execute(Mockito.any());
+    }
+}
@@ -1,9 +1,12 @@
 package com.bank.cardmanagement.domain.service;
 
 import com.bank.cardmanagement.datasource.repository.CardRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionEstimateRepository;
 import com.bank.cardmanagement.datasource.repository.TransactionRepository;
+import com.bank.cardmanagement.dto.request.TotalMode;
+import com.bank.cardmanagement.dto.response.CursorPageResponse;
+import com.bank.cardmanagement.dto.response.PageResponse;
 import com.bank.cardmanagement.dto.response.TransactionResponse;
-import com.bank.cardmanagement.entity.Transaction;
 import com.bank.cardmanagement.entity.TransactionType;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -12,10 +15,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.math.BigDecimal;
@@ -37,19 +42,22 @@ public class TransactionServiceTest {
     @Mock
     private CardValidationService cardValidationService;
 
+    @Mock
+    private TransactionEstimateRepository transactionEstimateRepository;
+
     private final Pageable pageable = PageRequest.of(0, 10);
 
-    private final Transaction transaction = new Transaction(
+    private final TransactionResponse transaction = new TransactionResponse(
+            1L,
             TransactionType.TRANSFER,
             BigDecimal.valueOf(100),
             "Test",
-            LocalDateTime.now(),
-            null
+            LocalDateTime.now()
     );
 
     @Test
     void getAllTransactions_shouldReturnResponseWhenTypeAndCardIdExists() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
         Mockito.when(transactionRepository.findByTypeAndCardId(TransactionType.TRANSFER, 1L, pageable)).thenReturn(page);
 
         Page<TransactionResponse> result = transactionService.getAllTransactions(TransactionType.TRANSFER, 1L, pageable);
@@ -62,7 +70,7 @@ public class TransactionServiceTest {
 
     @Test
     void getAllTransactions_shouldReturnResponseWhenTypeExists() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
         Mockito.when(transactionRepository.findByType(TransactionType.TRANSFER, pageable)).thenReturn(page);
 
         Page<TransactionResponse> result = transactionService.getAllTransactions(TransactionType.TRANSFER, null, pageable);
@@ -74,7 +82,7 @@ public class TransactionServiceTest {
 
     @Test
     void getAllTransactions_shouldReturnResponseWhenCardIdExists() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
         Mockito.when(transactionRepository.findByCardId(1L, pageable)).thenReturn(page);
 
         Page<TransactionResponse> result = transactionService.getAllTransactions(null, 1L, pageable);
@@ -86,19 +94,19 @@ public class TransactionServiceTest {
 
     @Test
     void getAllTransactions_shouldReturnResponseWhenNoTypeAndCardId() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
-        Mockito.when(transactionRepository.findAll(pageable)).thenReturn(page);
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
+        Mockito.when(transactionRepository.findAllResponses(pageable)).thenReturn(page);
 
         Page<TransactionResponse> result = transactionService.getAllTransactions(null, null, pageable);
 
         Assertions.assertEquals(1, result.getTotalElements());
         Assertions.assertEquals("TRANSFER", result.getContent().get(0).getType());
-        Mockito.verify(transactionRepository).findAll(pageable);
+        Mockito.verify(transactionRepository).findAllResponses(pageable);
     }
 
     @Test
     void getAllMyTransactions_shouldReturnResponseWhenTypeAndCardIdExists() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
         Long userId = 22L;
         Long cardId = 1L;
         Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(userId);
@@ -114,7 +122,7 @@ public class TransactionServiceTest {
 
     @Test
     void getAllMyTransactions_shouldReturnResponseWhenTypeExists() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
         Long userId = 22L;
         Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(userId);
         Mockito.when(transactionRepository.findByTypeAndUserId(TransactionType.TRANSFER, userId, pageable)).thenReturn(page);
@@ -128,7 +136,7 @@ public class TransactionServiceTest {
 
     @Test
     void getAllMyTransactions_shouldReturnResponseWhenCardIdExists() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
         Long userId = 22L;
         Long cardId = 1L;
         Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(userId);
@@ -144,7 +152,7 @@ public class TransactionServiceTest {
 
     @Test
     void getAllMyTransactions_shouldReturnResponseWhenUserIdExists() {
-        Page<Transaction> page = new PageImpl<>(List.of(transaction));
+        Page<TransactionResponse> page = new PageImpl<>(List.of(transaction));
         Long userId = 22L;
         Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(userId);
         Mockito.when(transactionRepository.findByUserId(userId, pageable)).thenReturn(page);
@@ -169,4 +177,102 @@ public class TransactionServiceTest {
         Assertions.assertEquals("Вы не имеете доступа к данной карте!", exception.getMessage());
     }
 
+    private TransactionResponse transactionWithId(long id) {
+        return new TransactionResponse(id, TransactionType.WITHDRAWAL, BigDecimal.TEN, "Test", LocalDateTime.now());
+    }
+
+    @Test
+    void getTransactionsByCursor_shouldSeekAfterCursorAndReturnNextCursor() {
+        String cursor = PageCursor.encode(40L);
+        Mockito.when(transactionRepository.findByCardIdAfter(1L, 40L, Limit.of(3)))
+                .thenReturn(List.of(transactionWithId(41L), transactionWithId(45L), transactionWithId(47L)));
+
+        CursorPageResponse<TransactionResponse> result = transactionService.getTransactionsByCursor(null, 1L, cursor, 2);
+
+        Assertions.assertEquals(List.of(41L, 45L), result.getContent().stream().map(TransactionResponse::getId).toList());
+        Assertions.assertEquals(PageCursor.encode(45L), result.getNextCursor());
+        Mockito.verify(transactionRepository, Mockito.never()).findByCardId(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void getMyTransactionsByCursor_shouldStartFromFirstPageAndStopOnLastPage() {
+        Long userId = 22L;
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(userId);
+        Mockito.when(transactionRepository.findByTypeAndUserIdAfter(TransactionType.WITHDRAWAL, userId, 0L, Limit.of(11)))
+                .thenReturn(List.of(transactionWithId(5L)));
+
+        CursorPageResponse<TransactionResponse> result =
+                transactionService.getMyTransactionsByCursor(TransactionType.WITHDRAWAL, null, "", 10);
+
+        Assertions.assertEquals(1, result.getContent().size());
+        Assertions.assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getTransactionsByCursor_shouldRejectMalformedCursor() {
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                transactionService.getTransactionsByCursor(null, null, "not a cursor", 10));
+
+        Assertions.assertEquals("Некорректный курсор страницы!", exception.getMessage());
+        Mockito.verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void getMyTransactionsPage_shouldReturnSliceWithoutCounting() {
+        Long userId = 22L;
+        Pageable secondPage = PageRequest.of(1, 1);
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(userId);
+        Mockito.when(transactionRepository.findSliceByUserId(userId, secondPage))
+                .thenReturn(new SliceImpl<>(List.of(transaction), secondPage, true));
+
+        PageResponse<TransactionResponse> result = transactionService.getMyTransactionsPage(null, null, secondPage, TotalMode.NONE);
+
+        Assertions.assertEquals(2, result.getPage());
+        Assertions.assertTrue(result.isHasNext());
+        Assertions.assertNull(result.getTotalElements());
+        Mockito.verify(transactionRepository, Mockito.never()).findByUserId(Mockito.any(), Mockito.any());
+        Mockito.verifyNoInteractions(transactionEstimateRepository);
+    }
+
+    @Test
+    void getMyTransactionsPage_shouldNotReturnEstimateBelowKnownCount() {
+        Long userId = 22L;
+        Pageable thirdPage = PageRequest.of(2, 1);
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(userId);
+        Mockito.when(transactionRepository.findSliceByTypeAndUserId(TransactionType.TRANSFER, userId, thirdPage))
+                .thenReturn(new SliceImpl<>(List.of(transaction), thirdPage, true));
+        Mockito.when(transactionEstimateRepository.estimateCount(TransactionType.TRANSFER, null, userId)).thenReturn(1L);
+
+        PageResponse<TransactionResponse> result =
+                transactionService.getMyTransactionsPage(TransactionType.TRANSFER, null, thirdPage, TotalMode.ESTIMATED);
+
+        Assertions.assertEquals(4L, result.getTotalElements());
+        Assertions.assertTrue(result.isTotalEstimated());
+    }
+
+    @Test
+    void getTransactionsPage_shouldReturnExactTotalOnLastPageWithoutEstimate() {
+        Pageable secondPage = PageRequest.of(1, 10);
+        Mockito.when(transactionRepository.findSliceByCardId(1L, secondPage))
+                .thenReturn(new SliceImpl<>(List.of(transaction), secondPage, false));
+
+        PageResponse<TransactionResponse> result = transactionService.getTransactionsPage(null, 1L, secondPage, TotalMode.ESTIMATED);
+
+        Assertions.assertEquals(11L, result.getTotalElements());
+        Assertions.assertFalse(result.isTotalEstimated());
+        Mockito.verifyNoInteractions(transactionEstimateRepository);
+    }
+
+    @Test
+    void getTransactionsPage_shouldWrapExactPage() {
+        Mockito.when(transactionRepository.findByType(TransactionType.TRANSFER, pageable))
+                .thenReturn(new PageImpl<>(List.of(transaction), pageable, 1));
+
+        PageResponse<TransactionResponse> result =
+                transactionService.getTransactionsPage(TransactionType.TRANSFER, null, pageable, TotalMode.EXACT);
+
+        Assertions.assertEquals(1L, result.getTotalElements());
+        Assertions.assertFalse(result.isHasNext());
+        Assertions.assertFalse(result.isTotalEstimated());
+    }
 }
@@ -1,21 +1,33 @@
 package com.bank.cardmanagement.domain.service;
 
+import com.bank.cardmanagement.datasource.projection.CardBalance;
+import com.bank.cardmanagement.datasource.repository.CardBatchRepository;
 import com.bank.cardmanagement.datasource.repository.CardRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionBatchRepository;
 import com.bank.cardmanagement.datasource.repository.TransactionRepository;
+import com.bank.cardmanagement.dto.request.BatchTransferRequest;
 import com.bank.cardmanagement.dto.request.TransferRequest;
+import com.bank.cardmanagement.dto.response.BatchTransferItemResponse;
 import com.bank.cardmanagement.entity.Card;
 import com.bank.cardmanagement.entity.CardStatus;
 import com.bank.cardmanagement.entity.Transaction;
-import com.bank.cardmanagement.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 @ExtendWith(MockitoExtension.class)
 public class TransferServiceTest {
@@ -31,35 +43,153 @@ public class TransferServiceTest {
     @Mock
     private CardValidationService cardValidationService;
 
-    @Test
-    void transferBetweenCards_shouldBeSuccessful(){
+    @Mock
+    private OptimisticRetryService optimisticRetryService;
+
+    @Spy
+    private CardOperationExecutor cardOperationExecutor = new CardOperationExecutor(new SimpleMeterRegistry());
+
+    @Mock
+    private CardBatchRepository cardBatchRepository;
+
+    @Mock
+    private TransactionBatchRepository transactionBatchRepository;
+
+    @Mock
+    private TransactionRollupService transactionRollupService;
+
+    private void runRetriedActionsDirectly() {
+        Mockito.doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(optimisticRetryService).run(Mockito.anyString(), Mockito.any());
+    }
+
+    private TransferRequest transferRequest(Long sourceCardId, Long destinationCardId, long amount) {
         TransferRequest request = new TransferRequest();
-        request.setSourceCardId(1L);
-        request.setDestinationCardId(2L);
-        request.setAmount(BigDecimal.valueOf(100));
-        Card sourceCard = new Card();
-        sourceCard.setId(1L);
-        sourceCard.setBalance(BigDecimal.valueOf(200));
-        sourceCard.setStatus(CardStatus.ACTIVE);
-        Card destinationCard = new Card();
-        destinationCard.setId(2L);
-        destinationCard.setBalance(BigDecimal.valueOf(0));
-        destinationCard.setStatus(CardStatus.ACTIVE);
-        User user = new User();
-        user.setId(5L);
-        sourceCard.setUser(user);
-        destinationCard.setUser(user);
-        Mockito.when(cardValidationService.isMyCard(1L)).thenReturn(sourceCard);
-        Mockito.when(cardValidationService.isMyCard(2L)).thenReturn(destinationCard);
-        Mockito.doNothing().when(cardValidationService).isActiveCard(Mockito.any());
-        Mockito.doNothing().when(cardValidationService).isEnoughMoney(sourceCard, request.getAmount());
+        request.setSourceCardId(sourceCardId);
+        request.setDestinationCardId(destinationCardId);
+        request.setAmount(BigDecimal.valueOf(amount));
+        return request;
+    }
+
+    @Test
+    void transferBetweenCards_shouldBeSuccessful() {
+        TransferRequest request = transferRequest(1L, 2L, 100);
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardRepository.debit(1L, 5L, BigDecimal.valueOf(100))).thenReturn(1);
+        Mockito.when(cardRepository.credit(2L, 5L, BigDecimal.valueOf(100))).thenReturn(1);
+        runRetriedActionsDirectly();
+
+        transferService.transferBetweenCards(request);
+
+        InOrder inOrder = Mockito.inOrder(cardRepository);
+        inOrder.verify(cardRepository).debit(1L, 5L, BigDecimal.valueOf(100));
+        inOrder.verify(cardRepository).credit(2L, 5L, BigDecimal.valueOf(100));
+        ArgumentCaptor<Transaction> saved = ArgumentCaptor.forClass(Transaction.class);
+        Mockito.verify(transactionRepository, Mockito.times(2)).save(saved.capture());
+        Assertions.assertEquals(2L, saved.getAllValues().get(0).getCounterpartyCardId());
+        Assertions.assertNull(saved.getAllValues().get(1).getCounterpartyCardId());
+        Mockito.verify(transactionRollupService).record(Mockito.argThat(transactions -> transactions.size() == 2));
+        Mockito.verify(cardValidationService, Mockito.never()).rejectBalanceUpdate(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void transferBetweenCards_shouldUpdateCardsInAscendingIdOrder() {
+        TransferRequest request = transferRequest(9L, 3L, 50);
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardRepository.debit(9L, 5L, BigDecimal.valueOf(50))).thenReturn(1);
+        Mockito.when(cardRepository.credit(3L, 5L, BigDecimal.valueOf(50))).thenReturn(1);
+        runRetriedActionsDirectly();
 
         transferService.transferBetweenCards(request);
 
-        Assertions.assertEquals(BigDecimal.valueOf(100), sourceCard.getBalance());
-        Assertions.assertEquals(BigDecimal.valueOf(100), destinationCard.getBalance());
-        Mockito.verify(cardRepository).save(sourceCard);
-        Mockito.verify(cardRepository).save(destinationCard);
-        Mockito.verify(transactionRepository, Mockito.times(2)).save(Mockito.any(Transaction.class));
+        InOrder inOrder = Mockito.inOrder(cardRepository);
+        inOrder.verify(cardRepository).credit(3L, 5L, BigDecimal.valueOf(50));
+        inOrder.verify(cardRepository).debit(9L, 5L, BigDecimal.valueOf(50));
+        Mockito.verify(cardOperationExecutor).run(Mockito.eq(9L), Mockito.any());
+    }
+
+    @Test
+    void transferBetweenCards_shouldExplainRejectedCredit() {
+        TransferRequest request = transferRequest(1L, 2L, 100);
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardRepository.debit(1L, 5L, BigDecimal.valueOf(100))).thenReturn(1);
+        Mockito.when(cardRepository.credit(2L, 5L, BigDecimal.valueOf(100))).thenReturn(0);
+        Mockito.doThrow(new IllegalStateException("Карта с ID 2 не активна!"))
+                .when(cardValidationService).rejectBalanceUpdate(2L, null);
+        runRetriedActionsDirectly();
+
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> transferService.transferBetweenCards(request));
+
+        Assertions.assertEquals("Карта с ID 2 не активна!", exception.getMessage());
+        Mockito.verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void transferBatch_shouldApplyTransfersInOrderAndWriteInBatches() {
+        BatchTransferRequest request = new BatchTransferRequest(List.of(
+                transferRequest(1L, 2L, 300),
+                transferRequest(1L, 3L, 300),
+                transferRequest(2L, 3L, 100),
+                transferRequest(1L, 4L, 10)));
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardBatchRepository.lockBalances(5L, new TreeSet<>(List.of(1L, 2L, 3L, 4L)))).thenReturn(List.of(
+                new CardBalance(1L, CardStatus.ACTIVE, BigDecimal.valueOf(500)),
+                new CardBalance(2L, CardStatus.ACTIVE, BigDecimal.ZERO),
+                new CardBalance(3L, CardStatus.ACTIVE, BigDecimal.ZERO)));
+        Mockito.when(cardRepository.getReferenceById(Mockito.anyLong())).thenAnswer(invocation -> {
+            Card card = new Card();
+            card.setId(invocation.getArgument(0));
+            return card;
+        });
+
+        List<BatchTransferItemResponse> responses = transferService.transferBatch(request);
+
+        Assertions.assertNull(responses.get(0).getError());
+        Assertions.assertEquals("Недостаточно средств на карте!", responses.get(1).getError());
+        Assertions.assertNull(responses.get(2).getError());
+        Assertions.assertEquals("Нет доступа к карте с ID 4!", responses.get(3).getError());
+        ArgumentCaptor<Map<Long, BigDecimal>> balances = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(cardBatchRepository).updateBalances(balances.capture(), Mockito.eq(500));
+        Assertions.assertEquals(Map.of(1L, BigDecimal.valueOf(200), 2L, BigDecimal.valueOf(200), 3L, BigDecimal.valueOf(100)),
+                balances.getValue());
+        ArgumentCaptor<List<Transaction>> transactions = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(transactionBatchRepository).insertTransactions(transactions.capture(), Mockito.eq(500));
+        Assertions.assertEquals(4, transactions.getValue().size());
+        Assertions.assertEquals(2L, transactions.getValue().get(0).getCounterpartyCardId());
+        Assertions.assertNull(transactions.getValue().get(1).getCounterpartyCardId());
+        Assertions.assertEquals(3L, transactions.getValue().get(2).getCounterpartyCardId());
+        Mockito.verify(transactionRollupService).record(transactions.getValue());
+        Mockito.verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void transferBatch_shouldRejectBlockedCardAndSkipWritesWhenNothingApplied() {
+        BatchTransferRequest request = new BatchTransferRequest(List.of(transferRequest(1L, 2L, 100)));
+        Mockito.when(cardValidationService.getCurrentUserId()).thenReturn(5L);
+        Mockito.when(cardBatchRepository.lockBalances(Mockito.eq(5L), Mockito.any())).thenReturn(List.of(
+                new CardBalance(1L, CardStatus.ACTIVE, BigDecimal.valueOf(500)),
+                new CardBalance(2L, CardStatus.BLOCKED, BigDecimal.ZERO)));
+
+        List<BatchTransferItemResponse> responses = transferService.transferBatch(request);
+
+        Assertions.assertEquals("Карта с ID 2 не активна!", responses.get(0).getError());
+        Mockito.verify(cardBatchRepository, Mockito.never()).updateBalances(Mockito.any(), Mockito.anyInt());
+        Mockito.verifyNoInteractions(transactionBatchRepository, transactionRollupService);
+    }
+
+    @Test
+    void transferBatch_shouldRejectTooManyTransfers() {
+        ReflectionTestUtils.setField(transferService, "batchMaxItems", 1);
+        BatchTransferRequest request = new BatchTransferRequest(List.of(transferRequest(1L, 2L, 1), transferRequest(2L, 1L, 1)));
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> transferService.transferBatch(request));
+
+        Assertions.assertEquals("За один запрос можно выполнить не более 1 переводов!", exception.getMessage());
+        Mockito.verifyNoInteractions(cardBatchRepository);
     }
 }
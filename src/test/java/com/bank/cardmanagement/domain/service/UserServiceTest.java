@@ -7,12 +7,14 @@ import com.bank.cardmanagement.dto.response.JwtResponse;
 import com.bank.cardmanagement.entity.Role;
 import com.bank.cardmanagement.entity.TokenType;
 import com.bank.cardmanagement.exception.EmailAlreadyExistsException;
+import com.bank.cardmanagement.exception.ExpiredTokenException;
+import com.bank.cardmanagement.exception.ResourceNotFoundException;
+import com.bank.cardmanagement.exception.UserNotFoundException;
 import com.bank.cardmanagement.security.JwtProvider;
 import com.bank.cardmanagement.security.JwtUtil;
 import com.bank.cardmanagement.security.model.JwtAuthentication;
+import com.bank.cardmanagement.security.model.RefreshSession;
 import io.jsonwebtoken.Claims;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,7 +34,9 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.time.Instant;
 import java.util.Optional;
+import java.util.Set;
 
 @ExtendWith(MockitoExtension.class)
 public class UserServiceTest {
@@ -53,7 +57,13 @@ public class UserServiceTest {
     private PasswordEncoder passwordEncoder;
 
     @Mock
-    private EntityManager entityManager;
+    private RefreshSessionStore refreshSessionStore;
+
+    @Mock
+    private PasswordVerificationService passwordVerificationService;
+
+    @Mock
+    private TokenRevocationService tokenRevocationService;
 
     private final String email = "test@example.com";
     private final String password = "password";
@@ -69,17 +79,18 @@ public class UserServiceTest {
         request.setEmail(email);
         request.setPassword(password);
         Mockito.when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
-        Mockito.when(passwordEncoder.matches(password, encodedPassword)).thenReturn(true);
-        Mockito.when(provider.generateAccessToken(user)).thenReturn("access-token");
-        Mockito.when(provider.generateRefreshToken(user)).thenReturn("refresh-token");
-        Mockito.doNothing().when(userRepository).updateRefreshTokenByUuid(Mockito.anyLong(), Mockito.anyString());
+        Mockito.when(passwordVerificationService.matches(password, encodedPassword)).thenReturn(true);
+        Mockito.when(provider.generateAccessToken(Mockito.eq(user), Mockito.anyString())).thenReturn("access-token");
+        Mockito.when(provider.generateRefreshToken(Mockito.eq(user), Mockito.anyString())).thenReturn("refresh-token");
+        Mockito.when(provider.refreshTokenExpiresAt()).thenReturn(Instant.now().plusSeconds(3600));
 
         JwtResponse response = userService.authorization(request);
 
         Assertions.assertNotNull(response);
         Assertions.assertEquals("access-token", response.getAccessToken());
         Assertions.assertEquals("refresh-token", response.getRefreshToken());
-        Mockito.verify(userRepository).updateRefreshTokenByUuid(user.getId(), "refresh-token");
+        Mockito.verify(refreshSessionStore).create(Mockito.anyString(), Mockito.eq(user.getId()),
+                Mockito.eq("refresh-token"), Mockito.any(Instant.class));
     }
 
     @Test
@@ -125,15 +136,18 @@ public class UserServiceTest {
         Mockito.when(provider.validateToken(refreshToken)).thenReturn(claims);
         Mockito.when(claims.getSubject()).thenReturn(userId.toString());
         Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        Mockito.when(provider.validateRefreshToken(user, refreshToken)).thenReturn(true);
+        RefreshSession session = session(userId);
+        Mockito.when(provider.getSessionId(claims)).thenReturn(session.getId());
+        Mockito.when(refreshSessionStore.find(session.getId(), userId, refreshToken)).thenReturn(Optional.of(session));
         Mockito.when(provider.isFreshToken(claims)).thenReturn(true);
-        Mockito.when(provider.generateAccessToken(user)).thenReturn("new-access-token");
+        Mockito.when(provider.generateAccessToken(user, session.getId())).thenReturn("new-access-token");
 
         JwtResponse response = userService.updateToken(refreshToken, TokenType.ACCESS);
 
         Assertions.assertNotNull(response);
         Assertions.assertEquals("new-access-token", response.getAccessToken());
         Assertions.assertEquals("valid-refresh-token", response.getRefreshToken());
+        Mockito.verify(refreshSessionStore).touch(session);
     }
 
     @Test
@@ -146,7 +160,8 @@ public class UserServiceTest {
         Mockito.when(provider.validateToken(refreshToken)).thenReturn(claims);
         Mockito.when(claims.getSubject()).thenReturn(userId.toString());
         Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        Mockito.when(provider.validateRefreshToken(user, refreshToken)).thenReturn(false);
+        Mockito.when(provider.getSessionId(claims)).thenReturn("session-1");
+        Mockito.when(refreshSessionStore.find("session-1", userId, refreshToken)).thenReturn(Optional.empty());
 
         ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
                 () -> userService.updateToken(refreshToken, TokenType.ACCESS));
@@ -165,7 +180,9 @@ public class UserServiceTest {
         Mockito.when(provider.validateToken(refreshToken)).thenReturn(claims);
         Mockito.when(claims.getSubject()).thenReturn(userId.toString());
         Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        Mockito.when(provider.validateRefreshToken(user, refreshToken)).thenReturn(true);
+        RefreshSession session = session(userId);
+        Mockito.when(provider.getSessionId(claims)).thenReturn(session.getId());
+        Mockito.when(refreshSessionStore.find(session.getId(), userId, refreshToken)).thenReturn(Optional.of(session));
         Mockito.when(provider.isFreshToken(claims)).thenReturn(false);
 
         ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
@@ -175,6 +192,44 @@ public class UserServiceTest {
         Assertions.assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
     }
 
+    @Test
+    void updateToken_shouldNotRotateExpiredRefreshToken() {
+        Long userId = 1L;
+        String refreshToken = "expired-refresh-token";
+        Claims claims = Mockito.mock(Claims.class);
+        User user = new User();
+        user.setId(userId);
+        Mockito.when(provider.validateToken(refreshToken)).thenReturn(claims);
+        Mockito.when(claims.getSubject()).thenReturn(userId.toString());
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        RefreshSession session = session(userId);
+        Mockito.when(provider.getSessionId(claims)).thenReturn(session.getId());
+        Mockito.when(refreshSessionStore.find(session.getId(), userId, refreshToken)).thenReturn(Optional.of(session));
+        Mockito.when(provider.isFreshToken(claims)).thenReturn(false);
+
+        ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
+                () -> userService.updateToken(refreshToken, TokenType.REFRESH));
+
+        Assertions.assertEquals("Срок годности refresh-токена истек!", exception.getReason());
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+        Mockito.verify(provider, Mockito.never()).generateRefreshToken(Mockito.any(), Mockito.any());
+        Mockito.verify(refreshSessionStore, Mockito.never()).rotate(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void updateToken_shouldThrowExceptionIfTokenExpiredOnValidation() {
+        String refreshToken = "expired-refresh-token";
+        Mockito.when(provider.validateToken(refreshToken))
+                .thenThrow(new ExpiredTokenException("Срок действия JWT истёк!", null));
+
+        ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
+                () -> userService.updateToken(refreshToken, TokenType.REFRESH));
+
+        Assertions.assertEquals("Срок годности refresh-токена истек!", exception.getReason());
+        Assertions.assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+        Mockito.verifyNoInteractions(refreshSessionStore);
+    }
+
     @Test
     void updateToken_shouldThrowExceptionIfTokenIsFake(){
         String fakeToken = "fake-token";
@@ -199,11 +254,15 @@ public class UserServiceTest {
         Mockito.when(provider.validateToken(oldRefreshToken)).thenReturn(claims);
         Mockito.when(claims.getSubject()).thenReturn(userId.toString());
         Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        Mockito.when(provider.validateRefreshToken(user, oldRefreshToken)).thenReturn(true);
-        Mockito.when(provider.generateRefreshToken(user)).thenReturn(newRefreshToken);
-        Mockito.doNothing().when(userRepository).updateRefreshTokenByUuid(Mockito.anyLong(), Mockito.anyString());
-        Mockito.doNothing().when(entityManager).clear();
-        Mockito.when(provider.generateAccessToken(user)).thenReturn(newAccessToken);
+        RefreshSession session = session(userId);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        Mockito.when(provider.getSessionId(claims)).thenReturn(session.getId());
+        Mockito.when(refreshSessionStore.find(session.getId(), userId, oldRefreshToken)).thenReturn(Optional.of(session));
+        Mockito.when(provider.isFreshToken(claims)).thenReturn(true);
+        Mockito.when(provider.generateRefreshToken(user, session.getId())).thenReturn(newRefreshToken);
+        Mockito.when(provider.refreshTokenExpiresAt()).thenReturn(expiresAt);
+        Mockito.when(refreshSessionStore.rotate(session, newRefreshToken, expiresAt)).thenReturn(true);
+        Mockito.when(provider.generateAccessToken(user, session.getId())).thenReturn(newAccessToken);
 
         JwtResponse response = userService.updateToken(oldRefreshToken, TokenType.REFRESH);
 
@@ -212,6 +271,33 @@ public class UserServiceTest {
         Assertions.assertEquals(newRefreshToken, response.getRefreshToken());
     }
 
+    @Test
+    void updateToken_shouldThrowExceptionIfRefreshTokenAlreadyRotated() {
+        Long userId = 1L;
+        String oldRefreshToken = "old-refresh-token";
+        String newRefreshToken = "new-refresh-token";
+        Claims claims = Mockito.mock(Claims.class);
+        User user = new User();
+        user.setId(userId);
+        RefreshSession session = session(userId);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        Mockito.when(provider.validateToken(oldRefreshToken)).thenReturn(claims);
+        Mockito.when(claims.getSubject()).thenReturn(userId.toString());
+        Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        Mockito.when(provider.getSessionId(claims)).thenReturn(session.getId());
+        Mockito.when(refreshSessionStore.find(session.getId(), userId, oldRefreshToken)).thenReturn(Optional.of(session));
+        Mockito.when(provider.isFreshToken(claims)).thenReturn(true);
+        Mockito.when(provider.generateRefreshToken(user, session.getId())).thenReturn(newRefreshToken);
+        Mockito.when(provider.refreshTokenExpiresAt()).thenReturn(expiresAt);
+        Mockito.when(refreshSessionStore.rotate(session, newRefreshToken, expiresAt)).thenReturn(false);
+
+        ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
+                () -> userService.updateToken(oldRefreshToken, TokenType.REFRESH));
+
+        Assertions.assertEquals("Токен не совпадает с БД!", exception.getReason());
+        Assertions.assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatusCode());
+    }
+
     @Test
     void updateToken_shouldThrowInternalServerErrorIfUpdateFails() {
         Long userId = 1L;
@@ -223,10 +309,12 @@ public class UserServiceTest {
         Mockito.when(provider.validateToken(oldRefreshToken)).thenReturn(claims);
         Mockito.when(claims.getSubject()).thenReturn(userId.toString());
         Mockito.when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-        Mockito.when(provider.validateRefreshToken(user, oldRefreshToken)).thenReturn(true);
-        Mockito.when(provider.generateRefreshToken(user)).thenReturn(newRefreshToken);
-        Mockito.doThrow(new RuntimeException("DB error!"))
-                .when(userRepository).updateRefreshTokenByUuid(userId, newRefreshToken);
+        RefreshSession session = session(userId);
+        Mockito.when(provider.getSessionId(claims)).thenReturn(session.getId());
+        Mockito.when(refreshSessionStore.find(session.getId(), userId, oldRefreshToken)).thenReturn(Optional.of(session));
+        Mockito.when(provider.isFreshToken(claims)).thenReturn(true);
+        Mockito.when(provider.generateRefreshToken(user, session.getId())).thenReturn(newRefreshToken);
+        Mockito.when(provider.refreshTokenExpiresAt()).thenThrow(new RuntimeException("Clock error!"));
 
         ResponseStatusException exception = Assertions.assertThrows(ResponseStatusException.class,
                 () -> userService.updateToken(oldRefreshToken, TokenType.REFRESH));
@@ -251,6 +339,44 @@ public class UserServiceTest {
 
     @Test
     void deleteRefreshToken_shouldDeleteRefreshToken() {
+        Long userId = 42L;
+        SecurityContextHolder.clearContext();
+        JwtAuthentication auth = new JwtAuthentication(userId, new SimpleGrantedAuthority("ROLE_USER"), "token-1", "session-1");
+        SecurityContext context = Mockito.mock(SecurityContext.class);
+        Mockito.when(context.getAuthentication()).thenReturn(auth);
+        SecurityContextHolder.setContext(context);
+        Mockito.when(refreshSessionStore.revokeAll(userId)).thenReturn(Set.of("session-1", "session-2"));
+
+        userService.deleteRefreshToken();
+
+        Mockito.verify(tokenRevocationService).revoke(Set.of("session-1", "session-2", "token-1"));
+    }
+
+    @Test
+    void revokeUserTokens_shouldRevokeAllSessionsOfUser() {
+        Long userId = 5L;
+        Mockito.when(userRepository.existsById(userId)).thenReturn(true);
+        Mockito.when(refreshSessionStore.revokeAll(userId)).thenReturn(Set.of("session-1"));
+
+        userService.revokeUserTokens(userId);
+
+        Mockito.verify(tokenRevocationService).revoke(Set.of("session-1"));
+    }
+
+    @Test
+    void revokeUserTokens_shouldThrowExceptionIfUserNotFound() {
+        Long userId = 99L;
+        Mockito.when(userRepository.existsById(userId)).thenReturn(false);
+
+        UserNotFoundException exception = Assertions.assertThrows(UserNotFoundException.class,
+                () -> userService.revokeUserTokens(userId));
+
+        Assertions.assertEquals("Пользователь с ID 99 не найден!", exception.getMessage());
+        Mockito.verifyNoInteractions(refreshSessionStore, tokenRevocationService);
+    }
+
+    @Test
+    void revokeMySession_shouldThrowExceptionIfSessionNotFound() {
         Long userId = 42L;
         SecurityContextHolder.clearContext();
         Authentication auth = Mockito.mock(Authentication.class);
@@ -258,10 +384,12 @@ public class UserServiceTest {
         SecurityContext context = Mockito.mock(SecurityContext.class);
         Mockito.when(context.getAuthentication()).thenReturn(auth);
         SecurityContextHolder.setContext(context);
+        Mockito.when(refreshSessionStore.revoke(userId, "foreign-session")).thenReturn(false);
 
-        userService.deleteRefreshToken();
+        ResourceNotFoundException exception = Assertions.assertThrows(ResourceNotFoundException.class, () ->
+                userService.revokeMySession("foreign-session"));
 
-        Mockito.verify(userRepository).deleteRefreshTokenByUuid(userId);
+        Assertions.assertEquals("Сессия не найдена!", exception.getMessage());
     }
 
     @Test
@@ -360,5 +488,8 @@ public class UserServiceTest {
         Mockito.verify(util).createAuthentication(claims);
     }
 
-
+    private RefreshSession session(Long userId) {
+        Instant now = Instant.now();
+        return new RefreshSession("session-1", userId, "hash", now, now, now.plusSeconds(3600));
+    }
 }
@@ -0,0 +1,81 @@
+package com.bank.cardmanagement.domain.service;
+
+import com.bank.cardmanagement.datasource.projection.WithdrawalCounter;
+import com.bank.cardmanagement.datasource.repository.WithdrawalCounterRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+public class WithdrawalCounterServiceTest {
+
+    @Mock
+    private WithdrawalCounterRepository withdrawalCounterRepository;
+
+    @InjectMocks
+    private WithdrawalCounterService withdrawalCounterService;
+
+    @Test
+    void reserve_shouldAddAmountToCounters() {
+        Mockito.when(withdrawalCounterRepository.tryAdd(2L, LocalDate.now(), BigDecimal.valueOf(200))).thenReturn(true);
+
+        withdrawalCounterService.reserve(2L, BigDecimal.valueOf(200));
+
+        Mockito.verify(withdrawalCounterRepository, Mockito.never()).find(Mockito.anyLong());
+    }
+
+    @Test
+    void reserve_shouldThrowExceptionIfDailyLimitExceeded() {
+        LocalDate today = LocalDate.now();
+        Mockito.when(withdrawalCounterRepository.tryAdd(Mockito.eq(2L), Mockito.any(), Mockito.any())).thenReturn(false);
+        Mockito.when(withdrawalCounterRepository.find(2L)).thenReturn(Optional.of(new WithdrawalCounter(
+                today, BigDecimal.valueOf(100), today.withDayOfMonth(1), BigDecimal.valueOf(200),
+                BigDecimal.valueOf(300), BigDecimal.valueOf(1500))));
+
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> withdrawalCounterService.reserve(2L, BigDecimal.valueOf(250)));
+
+        Assertions.assertEquals("Превышен дневной лимит снятия наличных! Операция отклонена!", ex.getMessage());
+    }
+
+    @Test
+    void reserve_shouldThrowExceptionIfMonthlyLimitExceeded() {
+        LocalDate today = LocalDate.now();
+        Mockito.when(withdrawalCounterRepository.tryAdd(Mockito.eq(2L), Mockito.any(), Mockito.any())).thenReturn(false);
+        Mockito.when(withdrawalCounterRepository.find(2L)).thenReturn(Optional.of(new WithdrawalCounter(
+                today.minusDays(1), BigDecimal.valueOf(400), today.withDayOfMonth(1), BigDecimal.valueOf(500),
+                BigDecimal.valueOf(500), BigDecimal.valueOf(700))));
+
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> withdrawalCounterService.reserve(2L, BigDecimal.valueOf(300)));
+
+        Assertions.assertEquals("Превышен месячный лимит снятия наличных! Операция отклонена!", ex.getMessage());
+    }
+
+    @Test
+    void reserve_shouldRejectAmountAboveLimitForCardWithoutCounters() {
+        Mockito.when(withdrawalCounterRepository.tryAdd(Mockito.eq(2L), Mockito.any(), Mockito.any())).thenReturn(false);
+        Mockito.when(withdrawalCounterRepository.find(2L)).thenReturn(Optional.of(new WithdrawalCounter(
+                null, null, null, null, BigDecimal.valueOf(300), BigDecimal.valueOf(1500))));
+
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> withdrawalCounterService.reserve(2L, BigDecimal.valueOf(301)));
+
+        Assertions.assertEquals("Превышен дневной лимит снятия наличных! Операция отклонена!", ex.getMessage());
+    }
+
+    @Test
+    void rebuild_shouldRecalculateCountersForToday() {
+        Mockito.when(withdrawalCounterRepository.rebuild(LocalDate.now())).thenReturn(3);
+
+        Assertions.assertEquals(3, withdrawalCounterService.rebuild());
+    }
+}
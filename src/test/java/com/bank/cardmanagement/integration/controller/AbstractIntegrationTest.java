@@ -11,7 +11,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+        "app.security.login-rate-limit.ip.capacity=10000",
+        "app.security.login-rate-limit.email.capacity=10000"
+})
 @AutoConfigureMockMvc
 public abstract class AbstractIntegrationTest {
 
@@ -2,6 +2,7 @@ package com.bank.cardmanagement.integration.controller;
 
 import com.bank.cardmanagement.datasource.repository.CardRepository;
 import com.bank.cardmanagement.datasource.repository.UserRepository;
+import com.bank.cardmanagement.dto.request.BatchTransferRequest;
 import com.bank.cardmanagement.dto.request.CardLimitRequest;
 import com.bank.cardmanagement.dto.request.CardRequest;
 import com.bank.cardmanagement.dto.request.TransferRequest;
@@ -11,6 +12,7 @@ import com.bank.cardmanagement.entity.Role;
 import com.bank.cardmanagement.entity.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +23,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -286,6 +289,35 @@ public class CardControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$").value("Успешное снятие наличных средств!"));
     }
 
+    @Test
+    void cashWithdraw_withSameIdempotencyKey_shouldDebitOnce() throws Exception {
+        Long cardId = createCard(user.getId(), accessAdminToken);
+
+        cardRepository.findById(cardId).ifPresent(card -> {
+            card.setDailyLimit(BigDecimal.valueOf(1000));
+            card.setMonthlyLimit(BigDecimal.valueOf(100000));
+            card.setBalance(BigDecimal.valueOf(500));
+            card.setStatus(CardStatus.ACTIVE);
+            cardRepository.save(card);
+        });
+
+        WithdrawRequest request = new WithdrawRequest();
+        request.setAmount(BigDecimal.valueOf(300));
+        String jsonRequest = objectMapper.writeValueAsString(request);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/card-management/cash-withdraw/{cardId}", cardId)
+                            .header("Authorization", "Bearer " + accessUserToken)
+                            .header("Idempotency-Key", "withdraw-" + cardId)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(jsonRequest))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$").value("Успешное снятие наличных средств!"));
+        }
+
+        Assertions.assertEquals(0, BigDecimal.valueOf(200).compareTo(cardRepository.findById(cardId).orElseThrow().getBalance()));
+    }
+
     @Test
     void transferBetweenCards_shouldReturnSuccessMessage() throws Exception {
         Long sourceCardId = createCard(user.getId(), accessAdminToken);
@@ -318,5 +350,40 @@ public class CardControllerIntegrationTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$").value("Успешный перевод между картами!"));
     }
 
+    @Test
+    void transferBatch_shouldReturnResultPerTransfer() throws Exception {
+        Long sourceCardId = createCard(user.getId(), accessAdminToken);
+        Long destinationCardId = createCard(user.getId(), accessAdminToken);
+
+        cardRepository.findById(sourceCardId).ifPresent(card -> {
+            card.setBalance(BigDecimal.valueOf(600));
+            card.setStatus(CardStatus.ACTIVE);
+            cardRepository.save(card);
+        });
+
+        cardRepository.findById(destinationCardId).ifPresent(card -> {
+            card.setStatus(CardStatus.ACTIVE);
+            cardRepository.save(card);
+        });
+
+        TransferRequest first = new TransferRequest();
+        first.setSourceCardId(sourceCardId);
+        first.setDestinationCardId(destinationCardId);
+        first.setAmount(BigDecimal.valueOf(400));
+        TransferRequest second = new TransferRequest();
+        second.setSourceCardId(sourceCardId);
+        second.setDestinationCardId(destinationCardId);
+        second.setAmount(BigDecimal.valueOf(400));
+        String jsonRequest = objectMapper.writeValueAsString(new BatchTransferRequest(List.of(first, second)));
+
+        mockMvc.perform(post("/card-management/transfer-between-cards/batch")
+                        .header("Authorization", "Bearer " + accessUserToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonRequest))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].error").value("Недостаточно средств на карте!"));
+    }
+
 
 }
@@ -5,7 +5,11 @@ import com.bank.cardmanagement.datasource.repository.TransactionRepository;
 import com.bank.cardmanagement.datasource.repository.UserRepository;
 import com.bank.cardmanagement.entity.*;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,14 +17,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -45,6 +56,9 @@ public class TransactionControllerIntegrationTest extends AbstractIntegrationTes
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     private String accessAdminToken;
     private String accessUserToken;
     private User user;
@@ -121,4 +135,78 @@ public class TransactionControllerIntegrationTest extends AbstractIntegrationTes
                         .param("cardId", card.getId().toString()))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void getAllMyTransactions_shouldReturnCompactPageWithoutTotal() throws Exception {
+        mockMvc.perform(get("/card-management/get-my-transactions")
+                        .header("Authorization", "Bearer " + accessUserToken)
+                        .param("total", "none")
+                        .param("page", "1")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void exportTransactions_shouldStreamCsvForAdmin() throws Exception {
+        MvcResult result = mockMvc.perform(get("/card-management/export-transactions")
+                        .header("Authorization", "Bearer " + accessAdminToken)
+                        .param("cardId", card.getId().toString())
+                        .param("from", LocalDate.now().toString())
+                        .param("to", LocalDate.now().toString())
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("WITHDRAWAL,100.00,ATM 156")));
+    }
+
+    @Test
+    void exportTransactions_shouldBeForbiddenForUser() throws Exception {
+        mockMvc.perform(get("/card-management/export-transactions")
+                        .header("Authorization", "Bearer " + accessUserToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getAllMyTransactions_shouldExecuteSameNumberOfStatementsForAnyPageSize() throws Exception {
+        List<Card> extraCards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Card extraCard = cardRepository.save(new Card(user, "555566667777888" + i, LocalDate.now().plusYears(2),
+                    CardStatus.ACTIVE, BigDecimal.valueOf(1000), null, null));
+            extraCards.add(extraCard);
+            for (int j = 0; j < 5; j++) {
+                transactionRepository.save(new Transaction(TransactionType.TRANSFER, BigDecimal.ONE, "Query count",
+                        LocalDateTime.now(), extraCard));
+            }
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            long smallPageStatements = countStatements(statistics, "1");
+            long largePageStatements = countStatements(statistics, "25");
+
+            Assertions.assertEquals(smallPageStatements, largePageStatements);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+            for (Card extraCard : extraCards) {
+                transactionRepository.deleteByCard(extraCard);
+                cardRepository.delete(extraCard);
+            }
+        }
+    }
+
+    private long countStatements(Statistics statistics, String size) throws Exception {
+        statistics.clear();
+        mockMvc.perform(get("/card-management/get-my-transactions")
+                        .header("Authorization", "Bearer " + accessUserToken)
+                        .param("page", "1")
+                        .param("size", size))
+                .andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
 }
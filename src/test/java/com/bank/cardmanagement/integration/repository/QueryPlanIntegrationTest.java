@@ -0,0 +1,368 @@
+package com.bank.cardmanagement.integration.repository;
+
+import com.bank.cardmanagement.datasource.repository.CardRepository;
+import com.bank.cardmanagement.datasource.repository.LedgerRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionEstimateRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionExportRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionRepository;
+import com.bank.cardmanagement.datasource.repository.TransactionRollupRepository;
+import com.bank.cardmanagement.datasource.repository.WithdrawalCounterRepository;
+import com.bank.cardmanagement.entity.CardStatus;
+import com.bank.cardmanagement.entity.TransactionType;
+import com.bank.cardmanagement.integration.repository.StatementRecorder.RecordedStatement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Проверяет, что запросы репозиториев выполняются по ожидаемым индексам.
+ * Каждый метод репозитория вызывается на заполненных данных, а его SQL вместе с привязанными параметрами
+ * перехватывается на уровне соединения и передаётся в EXPLAIN, поэтому проверяются именно те запросы,
+ * которые строят Hibernate и JdbcTemplate. Данные заполняются в транзакции теста и откатываются после него.
+ * Последовательное сканирование запрещено для планировщика, а в плане должен встретиться каждый ожидаемый индекс:
+ * полный проход по первичному ключу с фильтром не выдаётся за использование подходящего индекса.
+ * Последовательное сканирование допускается только для таблиц, которые запрос намеренно просматривает целиком.
+ */
+@SpringBootTest
+@Transactional
+@Import(StatementRecorder.class)
+public class QueryPlanIntegrationTest {
+
+    private static final Pattern EXPLAINABLE = Pattern.compile("(?i)\\s*(SELECT|INSERT|UPDATE|DELETE|WITH)\\b");
+
+    private static final Pattern EXPLAIN_PREFIX = Pattern.compile("(?i)^\\s*EXPLAIN\\s+");
+
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    private static final Pageable PAGE = PageRequest.of(0, 10, Sort.by("id").ascending());
+
+    private static final Limit CURSOR_LIMIT = Limit.of(11);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementRecorder statementRecorder;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionEstimateRepository transactionEstimateRepository;
+
+    @Autowired
+    private TransactionExportRepository transactionExportRepository;
+
+    @Autowired
+    private TransactionRollupRepository transactionRollupRepository;
+
+    @Autowired
+    private WithdrawalCounterRepository withdrawalCounterRepository;
+
+    @Autowired
+    private LedgerRepository ledgerRepository;
+
+    private long userId;
+
+    private long cardId;
+
+    @BeforeEach
+    void seed() {
+        userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (email, password, role) VALUES ('query-plan@mail.ru', 'password', 'USER') RETURNING id",
+                Long.class);
+        long otherUserId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (email, password, role) VALUES ('query-plan-other@mail.ru', 'password', 'USER') " +
+                        "RETURNING id",
+                Long.class);
+        jdbcTemplate.update(
+                "INSERT INTO cards (encrypted_card_number, card_number_fingerprint, masked_card_number, user_id, " +
+                        "expiration_date, status, balance, daily_limit, monthly_limit) " +
+                        "SELECT 'query-plan-' || n, md5('query-plan-' || n), '4000********0000', " +
+                        "CASE WHEN n % 400 = 7 THEN ? ELSE ? END, CURRENT_DATE + 365, " +
+                        "CASE WHEN n % 10 = 0 OR n = 807 THEN 'BLOCKED' ELSE 'ACTIVE' END, 1000, 100000, 1000000 " +
+                        "FROM generate_series(1, 1000) AS n",
+                userId, otherUserId);
+        cardId = jdbcTemplate.queryForObject(
+                "SELECT id FROM cards WHERE encrypted_card_number = 'query-plan-7'", Long.class);
+        jdbcTemplate.update(
+                "INSERT INTO transactions (type, amount, description, timestamp, card_id) " +
+                        "SELECT CASE WHEN n / 1000 % 2 = 0 THEN 'WITHDRAWAL' ELSE 'TRANSFER' END, 10, 'query plan', " +
+                        "now() - n * INTERVAL '10 minutes', c.id " +
+                        "FROM generate_series(1, 50000) AS n " +
+                        "JOIN cards c ON c.encrypted_card_number = 'query-plan-' || (n % 1000 + 1)");
+        jdbcTemplate.update(
+                "INSERT INTO transaction_daily_rollup (card_id, day, type, tx_count, total_amount) " +
+                        "SELECT t.card_id, CAST(t.timestamp AS DATE), t.type, COUNT(*), SUM(t.amount) " +
+                        "FROM transactions t JOIN cards c ON c.id = t.card_id " +
+                        "WHERE c.encrypted_card_number LIKE 'query-plan-%' " +
+                        "GROUP BY t.card_id, CAST(t.timestamp AS DATE), t.type");
+        jdbcTemplate.execute("ANALYZE users");
+        jdbcTemplate.execute("ANALYZE cards");
+        jdbcTemplate.execute("ANALYZE transactions");
+        jdbcTemplate.execute("ANALYZE transaction_daily_rollup");
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    private Map<String, PlanExpectation> queries() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime to = today.atStartOfDay();
+        LocalDateTime from = to.minusMonths(1);
+        String fingerprint = jdbcTemplate.queryForObject("SELECT md5('query-plan-7')", String.class);
+        Map<String, PlanExpectation> queries = new LinkedHashMap<>();
+        queries.put("CardRepository.existsByCardNumberFingerprint", expect(
+                () -> cardRepository.existsByCardNumberFingerprint(fingerprint),
+                "ux_cards_card_number_fingerprint"));
+        queries.put("CardRepository.findByCardNumberFingerprint", expect(
+                () -> cardRepository.findByCardNumberFingerprint(fingerprint),
+                "ux_cards_card_number_fingerprint"));
+        queries.put("CardRepository.findWithoutDerivedNumbers", expect(
+                () -> cardRepository.findWithoutDerivedNumbers(Limit.of(500)),
+                "ix_cards_without_derived_numbers"));
+        queries.put("CardRepository.findByUserId", expect(
+                () -> cardRepository.findByUserId(userId, PageRequest.of(0, 2, Sort.by("id").ascending())),
+                "ix_cards_user_id"));
+        queries.put("CardRepository.findByStatus", expect(
+                () -> cardRepository.findByStatus(CardStatus.BLOCKED, PAGE),
+                "ix_cards_status"));
+        queries.put("CardRepository.findByStatusAndUserId", expect(
+                () -> cardRepository.findByStatusAndUserId(CardStatus.ACTIVE, userId, PAGE),
+                "ix_cards_user_id|ix_cards_status"));
+        queries.put("CardRepository.findByIdGreaterThanOrderByIdAsc", expect(
+                () -> cardRepository.findByIdGreaterThanOrderByIdAsc(cardId, CURSOR_LIMIT),
+                "cards_pkey"));
+        queries.put("CardRepository.findByUserIdAndIdGreaterThanOrderByIdAsc", expect(
+                () -> cardRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(userId, 0L, CURSOR_LIMIT),
+                "ix_cards_user_id"));
+        queries.put("CardRepository.findByStatusAndIdGreaterThanOrderByIdAsc", expect(
+                () -> cardRepository.findByStatusAndIdGreaterThanOrderByIdAsc(CardStatus.BLOCKED, 0L, CURSOR_LIMIT),
+                "ix_cards_status"));
+        queries.put("CardRepository.findByStatusAndUserIdAndIdGreaterThanOrderByIdAsc", expect(
+                () -> cardRepository.findByStatusAndUserIdAndIdGreaterThanOrderByIdAsc(
+                        CardStatus.ACTIVE, userId, 0L, CURSOR_LIMIT),
+                "ix_cards_user_id|ix_cards_status"));
+        queries.put("CardRepository.existsByIdAndUserId", expect(
+                () -> cardRepository.existsByIdAndUserId(cardId, userId),
+                "cards_pkey|ix_cards_user_id"));
+        queries.put("CardRepository.debit", expect(
+                () -> cardRepository.debit(cardId, userId, BigDecimal.ONE),
+                "cards_pkey|ix_cards_user_id"));
+        queries.put("CardRepository.credit", expect(
+                () -> cardRepository.credit(cardId, userId, BigDecimal.ONE),
+                "cards_pkey|ix_cards_user_id"));
+        queries.put("TransactionRepository.findAllResponses", expect(
+                () -> transactionRepository.findAllResponses(PAGE),
+                "transactions_pkey"));
+        queries.put("TransactionRepository.findByTypeAndCardId", expect(
+                () -> transactionRepository.findByTypeAndCardId(TransactionType.WITHDRAWAL, cardId, PAGE),
+                "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionRepository.findByType", expect(
+                () -> transactionRepository.findByType(TransactionType.WITHDRAWAL, PAGE),
+                "ix_transactions_type_id"));
+        queries.put("TransactionRepository.findByCardId", expect(
+                () -> transactionRepository.findByCardId(cardId, PAGE),
+                "ix_transactions_card_id"));
+        queries.put("TransactionRepository.findByTypeAndUserId", expect(
+                () -> transactionRepository.findByTypeAndUserId(TransactionType.WITHDRAWAL, userId, PAGE),
+                "ix_cards_user_id", "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionRepository.findByUserId", expect(
+                () -> transactionRepository.findByUserId(userId, PAGE),
+                "ix_cards_user_id", "ix_transactions_card_id"));
+        queries.put("TransactionRepository.findSliceByTypeAndCardId", expect(
+                () -> transactionRepository.findSliceByTypeAndCardId(TransactionType.WITHDRAWAL, cardId, PAGE),
+                "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionRepository.findSliceByType", expect(
+                () -> transactionRepository.findSliceByType(TransactionType.WITHDRAWAL, PAGE),
+                "ix_transactions_type_id"));
+        queries.put("TransactionRepository.findSliceByCardId", expect(
+                () -> transactionRepository.findSliceByCardId(cardId, PAGE),
+                "ix_transactions_card_id"));
+        queries.put("TransactionRepository.findSliceAll", expect(
+                () -> transactionRepository.findSliceAll(PAGE),
+                "transactions_pkey"));
+        queries.put("TransactionRepository.findSliceByTypeAndUserId", expect(
+                () -> transactionRepository.findSliceByTypeAndUserId(TransactionType.WITHDRAWAL, userId, PAGE),
+                "ix_cards_user_id", "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionRepository.findSliceByUserId", expect(
+                () -> transactionRepository.findSliceByUserId(userId, PAGE),
+                "ix_cards_user_id", "ix_transactions_card_id"));
+        queries.put("TransactionRepository.findByTypeAndCardIdAfter", expect(
+                () -> transactionRepository.findByTypeAndCardIdAfter(TransactionType.WITHDRAWAL, cardId, 0L, CURSOR_LIMIT),
+                "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionRepository.findByTypeAfter", expect(
+                () -> transactionRepository.findByTypeAfter(TransactionType.WITHDRAWAL, 0L, CURSOR_LIMIT),
+                "ix_transactions_type_id"));
+        queries.put("TransactionRepository.findByCardIdAfter", expect(
+                () -> transactionRepository.findByCardIdAfter(cardId, 0L, CURSOR_LIMIT),
+                "ix_transactions_card_id"));
+        queries.put("TransactionRepository.findAllAfter", expect(
+                () -> transactionRepository.findAllAfter(0L, CURSOR_LIMIT),
+                "transactions_pkey"));
+        queries.put("TransactionRepository.findByTypeAndUserIdAfter", expect(
+                () -> transactionRepository.findByTypeAndUserIdAfter(TransactionType.WITHDRAWAL, userId, 0L, CURSOR_LIMIT),
+                "ix_cards_user_id", "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionRepository.findByUserIdAfter", expect(
+                () -> transactionRepository.findByUserIdAfter(userId, 0L, CURSOR_LIMIT),
+                "ix_cards_user_id", "ix_transactions_card_id"));
+        queries.put("TransactionEstimateRepository.estimateCount (type)", expect(
+                () -> transactionEstimateRepository.estimateCount(TransactionType.WITHDRAWAL, null, null),
+                "ix_transactions_type_id|ix_transactions_type_timestamp"));
+        queries.put("TransactionEstimateRepository.estimateCount (card)", expect(
+                () -> transactionEstimateRepository.estimateCount(null, cardId, null),
+                "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionEstimateRepository.estimateCount (type, card)", expect(
+                () -> transactionEstimateRepository.estimateCount(TransactionType.WITHDRAWAL, cardId, null),
+                "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionEstimateRepository.estimateCount (user)", expect(
+                () -> transactionEstimateRepository.estimateCount(null, null, userId),
+                "ix_cards_user_id", "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionEstimateRepository.estimateCount (type, user)", expect(
+                () -> transactionEstimateRepository.estimateCount(TransactionType.WITHDRAWAL, null, userId),
+                "ix_cards_user_id", "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("TransactionExportRepository.stream", expect(
+                () -> transactionExportRepository.stream(null, null, null, null, null, 100, row -> {
+                }),
+                "transactions_pkey"));
+        queries.put("TransactionExportRepository.stream (type)", expect(
+                () -> transactionExportRepository.stream(TransactionType.WITHDRAWAL, null, null, null, null, 100, row -> {
+                }),
+                "ix_transactions_type_id"));
+        queries.put("TransactionExportRepository.stream (card)", expect(
+                () -> transactionExportRepository.stream(null, cardId, null, null, null, 100, row -> {
+                }),
+                "ix_transactions_card_id"));
+        queries.put("TransactionExportRepository.stream (user)", expect(
+                () -> transactionExportRepository.stream(null, null, userId, null, null, 100, row -> {
+                }),
+                "ix_cards_user_id", "ix_transactions_card_id"));
+        queries.put("TransactionExportRepository.stream (period)", expect(
+                () -> transactionExportRepository.stream(null, null, null, from, to, 100, row -> {
+                }),
+                "ix_transactions_timestamp"));
+        queries.put("TransactionExportRepository.stream (type, period)", expect(
+                () -> transactionExportRepository.stream(TransactionType.WITHDRAWAL, null, null, from, to, 100, row -> {
+                }),
+                "ix_transactions_type_timestamp|ix_transactions_timestamp"));
+        queries.put("TransactionExportRepository.stream (type, card, period)", expect(
+                () -> transactionExportRepository.stream(TransactionType.WITHDRAWAL, cardId, null, from, to, 100, row -> {
+                }),
+                "ix_transactions_card_id_type_timestamp|ix_transactions_card_id"));
+        queries.put("TransactionExportRepository.stream (type, user, period)", expect(
+                () -> transactionExportRepository.stream(TransactionType.WITHDRAWAL, null, userId, from, to, 100, row -> {
+                }),
+                "ix_cards_user_id", "ix_transactions_card_id_type_timestamp|ix_transactions_card_id"));
+        queries.put("TransactionRepository.deleteByCard", expect(
+                () -> transactionRepository.deleteByCard(cardRepository.getReferenceById(cardId)),
+                "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("WithdrawalCounterRepository.rebuild", new PlanExpectation(
+                () -> withdrawalCounterRepository.rebuild(today),
+                List.of("ix_transactions_type_timestamp"), List.of("card_withdrawal_counters")));
+        queries.put("TransactionRollupRepository.findByCard", expect(
+                () -> transactionRollupRepository.findByCard(cardId, today.minusDays(30), today),
+                "pk_transaction_daily_rollup"));
+        queries.put("TransactionRollupRepository.findByUser", expect(
+                () -> transactionRollupRepository.findByUser(userId, today.minusDays(30), today),
+                "ix_cards_user_id", "pk_transaction_daily_rollup"));
+        queries.put("TransactionRollupRepository.findCardIdsAfter", expect(
+                () -> transactionRollupRepository.findCardIdsAfter(cardId, 100),
+                "cards_pkey"));
+        queries.put("TransactionRollupRepository.rebuild", expect(
+                () -> transactionRollupRepository.rebuild(cardId, cardId + 10, today),
+                "pk_transaction_daily_rollup", "ix_transactions_card_id|ix_transactions_card_id_type_timestamp"));
+        queries.put("LedgerRepository.balanceOf", expect(
+                () -> ledgerRepository.balanceOf(cardId),
+                "cards_pkey", "ix_ledger_postings_card_id_xid"));
+        queries.put("LedgerRepository.lockUnjournaled", expect(
+                () -> ledgerRepository.lockUnjournaled(Long.MAX_VALUE, 1000),
+                "ix_transactions_xid_id"));
+        return queries;
+    }
+
+    @Test
+    void repositoryQueries_shouldUseExpectedIndexes() {
+        Map<String, String> failures = new LinkedHashMap<>();
+        queries().forEach((name, expectation) -> {
+            List<String> plans = plansOf(expectation.call());
+            String plan = String.join("\n\n", plans);
+            List<String> missing = expectation.indexes().stream()
+                    .filter(index -> !Pattern.compile("(Scan using|Bitmap Index Scan on) (" + index + ")\\b")
+                            .matcher(plan).find())
+                    .toList();
+            List<String> scanned = SEQ_SCAN.matcher(plan).results()
+                    .map(result -> result.group(1))
+                    .filter(table -> !expectation.fullScans().contains(table))
+                    .toList();
+            if (plans.isEmpty()) {
+                failures.put(name, "запрос не выполнен");
+            } else if (!scanned.isEmpty() || !missing.isEmpty()) {
+                failures.put(name, "ожидались индексы " + expectation.indexes() + ", не найдены " + missing +
+                        ", последовательно просмотрены " + scanned + "\n" + plan);
+            }
+        });
+
+        Assertions.assertTrue(failures.isEmpty(), () -> "Запросы без ожидаемых индексов:\n" + failures);
+    }
+
+    /**
+     * Вызывает метод репозитория и возвращает планы всех выполненных им запросов.
+     * Планы строятся по тем же параметрам, с которыми запросы были выполнены.
+     *
+     * @param call вызов метода репозитория
+     * @return планы запросов в порядке выполнения
+     */
+    private List<String> plansOf(Runnable call) {
+        statementRecorder.clear();
+        call.run();
+        List<String> plans = new ArrayList<>();
+        for (RecordedStatement statement : statementRecorder.drain()) {
+            String sql = EXPLAIN_PREFIX.matcher(statement.getSql()).replaceFirst("");
+            if (!EXPLAINABLE.matcher(sql).lookingAt()) {
+                continue;
+            }
+            List<String> plan = jdbcTemplate.query(connection -> {
+                PreparedStatement preparedStatement = connection.prepareStatement("EXPLAIN " + sql);
+                statement.bindTo(preparedStatement);
+                return preparedStatement;
+            }, (rs, rowNum) -> rs.getString(1));
+            plans.add(sql + "\n" + String.join("\n", plan));
+        }
+        return plans;
+    }
+
+    private static PlanExpectation expect(Runnable call, String... indexes) {
+        return new PlanExpectation(call, Arrays.asList(indexes), List.of());
+    }
+
+    /**
+     * Ожидаемый план вызова репозитория.
+     *
+     * @param call      вызов метода репозитория
+     * @param indexes   индексы, каждый из которых должен встретиться в планах; альтернативы разделяются "|"
+     * @param fullScans таблицы, которые запрос просматривает целиком намеренно
+     */
+    private record PlanExpectation(Runnable call, List<String> indexes, List<String> fullScans) {
+    }
+}
@@ -0,0 +1,246 @@
+package com.bank.cardmanagement.integration.repository;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Записывает SQL, отправляемый в базу данных, вместе с привязанными параметрами.
+ * Оборачивает источник данных приложения, поэтому видит запросы и Hibernate, и JdbcTemplate
+ * в том виде, в котором их выполняют репозитории.
+ */
+public class StatementRecorder implements BeanPostProcessor {
+
+    /**
+     * Записанные запросы в порядке выполнения.
+     */
+    private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+    /**
+     * Оборачивает источник данных приложения в записывающий.
+     *
+     * @param bean     бин
+     * @param beanName имя бина
+     * @return обёрнутый источник данных или исходный бин
+     */
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource)) {
+            return bean;
+        }
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return recording(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return recording(super.getConnection(username, password));
+            }
+        };
+    }
+
+    /**
+     * Забывает записанные запросы.
+     */
+    public void clear() {
+        statements.clear();
+    }
+
+    /**
+     * Возвращает запросы, записанные после последней очистки, и забывает их.
+     *
+     * @return записанные запросы
+     */
+    public List<RecordedStatement> drain() {
+        List<RecordedStatement> recorded = new ArrayList<>(statements);
+        statements.clear();
+        return recorded;
+    }
+
+    /**
+     * Оборачивает соединение так, чтобы создаваемые им запросы записывались.
+     *
+     * @param connection соединение
+     * @return записывающее соединение
+     */
+    private Connection recording(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof PreparedStatement preparedStatement && args != null && args[0] instanceof String sql) {
+                        RecordedStatement statement = new RecordedStatement(sql);
+                        statements.add(statement);
+                        return recording(preparedStatement, statement);
+                    }
+                    if (result instanceof Statement statement) {
+                        return recording(statement);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Оборачивает подготовленный запрос так, чтобы привязываемые параметры записывались.
+     * В пакетном выполнении записываются параметры первой строки пакета.
+     *
+     * @param preparedStatement подготовленный запрос
+     * @param statement         запись запроса
+     * @return записывающий подготовленный запрос
+     */
+    private PreparedStatement recording(PreparedStatement preparedStatement, RecordedStatement statement) {
+        Class<?> type = preparedStatement instanceof CallableStatement ? CallableStatement.class : PreparedStatement.class;
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length >= 2
+                            && args[0] instanceof Integer) {
+                        statement.bind(method, args);
+                    } else if (method.getName().equals("clearParameters")) {
+                        statement.clear();
+                    } else if (method.getName().equals("addBatch") && args == null) {
+                        statement.freeze();
+                    }
+                    return invoke(preparedStatement, method, args);
+                });
+    }
+
+    /**
+     * Оборачивает обычный запрос так, чтобы выполняемый им SQL записывался.
+     *
+     * @param statement запрос
+     * @return записывающий запрос
+     */
+    private Statement recording(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") && args != null && args[0] instanceof String sql) {
+                        statements.add(new RecordedStatement(sql));
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    /**
+     * Вызывает метод исходного объекта JDBC, пробрасывая его исключения без обёртки.
+     *
+     * @param target исходный объект
+     * @param method метод
+     * @param args   аргументы
+     * @return результат метода
+     * @throws Throwable исключение метода
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Записанный запрос: SQL и вызовы привязки его параметров.
+     */
+    public static class RecordedStatement {
+
+        /**
+         * Текст запроса.
+         */
+        private final String sql;
+
+        /**
+         * Вызовы привязки параметров в порядке выполнения.
+         */
+        private final List<Binding> bindings = new CopyOnWriteArrayList<>();
+
+        /**
+         * Признак того, что параметры первой строки пакета уже записаны.
+         */
+        private volatile boolean frozen;
+
+        /**
+         * Создаёт запись запроса.
+         *
+         * @param sql текст запроса
+         */
+        RecordedStatement(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * Возвращает текст запроса.
+         *
+         * @return текст запроса
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Привязывает записанные параметры к другому подготовленному запросу с теми же параметрами.
+         *
+         * @param preparedStatement подготовленный запрос
+         * @throws SQLException если параметр не удалось привязать
+         */
+        public void bindTo(PreparedStatement preparedStatement) throws SQLException {
+            for (Binding binding : bindings) {
+                try {
+                    invoke(preparedStatement, binding.method(), binding.args());
+                } catch (SQLException | RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new SQLException(e);
+                }
+            }
+        }
+
+        /**
+         * Записывает вызов привязки параметра.
+         *
+         * @param method метод привязки
+         * @param args   аргументы метода
+         */
+        void bind(Method method, Object[] args) {
+            if (!frozen) {
+                bindings.add(new Binding(method, args.clone()));
+            }
+        }
+
+        /**
+         * Забывает записанные параметры, если пакет ещё не начат.
+         */
+        void clear() {
+            if (!frozen) {
+                bindings.clear();
+            }
+        }
+
+        /**
+         * Прекращает запись параметров после первой строки пакета.
+         */
+        void freeze() {
+            frozen = true;
+        }
+    }
+
+    /**
+     * Вызов привязки параметра подготовленного запроса.
+     *
+     * @param method метод привязки
+     * @param args   аргументы метода
+     */
+    private record Binding(Method method, Object[] args) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.bank.cardmanagement.security;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+public class BloomFilterTest {
+
+    @Test
+    void mightContain_shouldFindEveryAddedKey() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("key-" + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertTrue(filter.mightContain("key-" + i));
+        }
+    }
+
+    @Test
+    void mightContain_shouldKeepFalsePositiveRateNearConfigured() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        Assertions.assertTrue(falsePositives < 300, "Ложных срабатываний: " + falsePositives);
+    }
+
+    @Test
+    void constructor_throwsExceptionIfParametersInvalid() {
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new BloomFilter(0, 0.01));
+
+        Assertions.assertEquals("Некорректные параметры фильтра Блума!", exception.getMessage());
+    }
+}
@@ -0,0 +1,215 @@
+package com.bank.cardmanagement.security;
+
+import com.bank.cardmanagement.entity.Role;
+import com.bank.cardmanagement.entity.User;
+import com.bank.cardmanagement.exception.ExpiredTokenException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class JwtKeySetTest {
+
+    private JwtKeySet keySet(String algorithm) {
+        JwtKeySet keySet = new JwtKeySet();
+        ReflectionTestUtils.setField(keySet, "algorithm", algorithm);
+        ReflectionTestUtils.setField(keySet, "secret", "01234567890123456789012345678901");
+        ReflectionTestUtils.setField(keySet, "refreshTokenExpiration", 604800000L);
+        keySet.init();
+        return keySet;
+    }
+
+    private JwtKeySet configuredKeySet(String algorithm, String privateJwk, String previousJwks) {
+        JwtKeySet keySet = new JwtKeySet();
+        ReflectionTestUtils.setField(keySet, "algorithm", algorithm);
+        ReflectionTestUtils.setField(keySet, "privateJwk", privateJwk);
+        ReflectionTestUtils.setField(keySet, "previousJwks", previousJwks);
+        ReflectionTestUtils.setField(keySet, "refreshTokenExpiration", 604800000L);
+        keySet.init();
+        return keySet;
+    }
+
+    private String ed25519PrivateJwk() {
+        return Jwks.UNSAFE_JSON(Jwks.builder().keyPair(Jwks.CRV.Ed25519.keyPair().build()).build());
+    }
+
+    private JwtProvider provider(JwtKeySet keySet) {
+        JwtProvider provider = new JwtProvider(keySet);
+        ReflectionTestUtils.setField(provider, "accessTokenExpiration", 600000L);
+        ReflectionTestUtils.setField(provider, "refreshTokenExpiration", 604800000L);
+        provider.init();
+        return provider;
+    }
+
+    private User user() {
+        User user = new User();
+        user.setId(7L);
+        user.setRole(Role.USER);
+        return user;
+    }
+
+    private String kid(String token) {
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        return header.contains("\"kid\"") ? header.replaceAll(".*\"kid\":\"([^\"]+)\".*", "$1") : null;
+    }
+
+    @Test
+    void sign_shouldAddKidAndVerifyWithPublishedKey() {
+        JwtKeySet keySet = keySet("EdDSA");
+        JwtProvider provider = provider(keySet);
+
+        String token = provider.generateAccessToken(user(), "session-1");
+        Claims claims = provider.validateToken(token);
+
+        Assertions.assertEquals("7", claims.getSubject());
+        Assertions.assertNotNull(kid(token));
+        Assertions.assertTrue(keySet.getJwksJson().contains(kid(token)));
+        Assertions.assertFalse(keySet.getJwksJson().contains("\"d\""));
+    }
+
+    @Test
+    void rotate_shouldKeepVerifyingTokensSignedWithPreviousKey() {
+        JwtKeySet keySet = keySet("RS256");
+        JwtProvider provider = provider(keySet);
+        String oldToken = provider.generateAccessToken(user(), "session-1");
+
+        keySet.rotate();
+        String newToken = provider.generateAccessToken(user(), "session-1");
+
+        Assertions.assertNotEquals(kid(oldToken), kid(newToken));
+        Assertions.assertEquals("7", provider.validateToken(oldToken).getSubject());
+        Assertions.assertEquals("7", provider.validateToken(newToken).getSubject());
+    }
+
+    @Test
+    void verifier_shouldVerifyWithLoadedJwksAndRefuseToSign() {
+        JwtKeySet signer = keySet("EdDSA");
+        String token = provider(signer).generateAccessToken(user(), "session-1");
+        JwtKeySet verifierKeys = new JwtKeySet();
+        ReflectionTestUtils.setField(verifierKeys, "algorithm", "EdDSA");
+        ReflectionTestUtils.setField(verifierKeys, "mode", "verifier");
+        verifierKeys.loadJwks(signer.getJwksJson());
+        JwtProvider verifier = provider(verifierKeys);
+
+        Assertions.assertEquals("7", verifier.validateToken(token).getSubject());
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () ->
+                verifier.generateAccessToken(user(), "session-1"));
+        Assertions.assertEquals("Узел работает только на проверку токенов и не может их выпускать!", exception.getMessage());
+    }
+
+    @Test
+    void validateToken_shouldRejectTokenWithUnknownKid() {
+        JwtProvider provider = provider(keySet("EdDSA"));
+        String foreignToken = provider(keySet("EdDSA")).generateAccessToken(user(), "session-1");
+
+        Assertions.assertThrows(SecurityException.class, () -> provider.validateToken(foreignToken));
+    }
+
+    @Test
+    void validateToken_shouldRejectExpiredToken() {
+        JwtProvider provider = provider(keySet("EdDSA"));
+        ReflectionTestUtils.setField(provider, "refreshTokenExpiration", -1000L);
+        String expiredToken = provider.generateRefreshToken(user(), "session-1");
+
+        Assertions.assertThrows(ExpiredTokenException.class, () -> provider.validateToken(expiredToken));
+        Assertions.assertThrows(ExpiredTokenException.class, () -> provider.getClaims(expiredToken));
+    }
+
+    @Test
+    void configuredKey_shouldLetEverySignerVerifyTokensOfOthers() {
+        String privateJwk = ed25519PrivateJwk();
+        JwtKeySet first = configuredKeySet("EdDSA", privateJwk, "");
+        JwtKeySet second = configuredKeySet("EdDSA", privateJwk, "");
+        String token = provider(first).generateAccessToken(user(), "session-1");
+
+        Assertions.assertEquals("7", provider(second).validateToken(token).getSubject());
+        Assertions.assertEquals(first.getJwksJson(), second.getJwksJson());
+        Assertions.assertFalse(first.getJwksJson().contains("\"d\""));
+    }
+
+    @Test
+    void configuredKey_shouldKeepVerifyingTokensOfPreviousGeneration() {
+        JwtKeySet previous = configuredKeySet("EdDSA", ed25519PrivateJwk(), "");
+        String oldToken = provider(previous).generateAccessToken(user(), "session-1");
+
+        JwtKeySet current = configuredKeySet("EdDSA", ed25519PrivateJwk(), previous.getJwksJson());
+        JwtProvider provider = provider(current);
+        String newToken = provider.generateAccessToken(user(), "session-1");
+
+        Assertions.assertNotEquals(kid(oldToken), kid(newToken));
+        Assertions.assertEquals("7", provider.validateToken(oldToken).getSubject());
+        Assertions.assertTrue(current.getJwksJson().contains(kid(oldToken)));
+        Assertions.assertTrue(current.getJwksJson().contains(kid(newToken)));
+    }
+
+    @Test
+    void configuredKey_shouldRejectKeyOfOtherAlgorithm() {
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                configuredKeySet("RS256", ed25519PrivateJwk(), ""));
+
+        Assertions.assertEquals("Ключ jwt.signing.private-jwk не подходит для алгоритма RS256!", exception.getMessage());
+    }
+
+    @Test
+    void verifier_shouldLoadJwksOnceForBurstOfUnknownKids() {
+        JwtKeySet signer = keySet("EdDSA");
+        JwtProvider signerProvider = provider(signer);
+        JwtKeySet verifierKeys = new JwtKeySet();
+        ReflectionTestUtils.setField(verifierKeys, "algorithm", "EdDSA");
+        ReflectionTestUtils.setField(verifierKeys, "mode", "verifier");
+        verifierKeys.loadJwks(signer.getJwksJson());
+        signer.rotate();
+        String rotatedToken = signerProvider.generateAccessToken(user(), "session-1");
+        AtomicInteger loads = new AtomicInteger();
+        RestClient restClient = Mockito.mock(RestClient.class, Mockito.RETURNS_DEEP_STUBS);
+        Mockito.when(restClient.get().uri(Mockito.anyString()).retrieve().body(String.class)).thenAnswer(invocation -> {
+            loads.incrementAndGet();
+            return signer.getJwksJson();
+        });
+        ReflectionTestUtils.setField(verifierKeys, "restClient", restClient);
+        ReflectionTestUtils.setField(verifierKeys, "jwksUri", "http://auth/jwks");
+        ((AtomicLong) ReflectionTestUtils.getField(verifierKeys, "lastJwksLoad")).set(0);
+        JwtProvider verifier = provider(verifierKeys);
+
+        Assertions.assertEquals("7", verifier.validateToken(rotatedToken).getSubject());
+        for (int i = 0; i < 3; i++) {
+            String foreignToken = provider(keySet("EdDSA")).generateAccessToken(user(), "session-1");
+            Assertions.assertThrows(SecurityException.class, () -> verifier.validateToken(foreignToken));
+        }
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void hs256_shouldKeepSharedSecretTokensWithoutKid() {
+        JwtKeySet keySet = keySet("HS256");
+        JwtProvider provider = provider(keySet);
+        String legacyToken = Jwts.builder()
+                .subject("7")
+                .signWith(Keys.hmacShaKeyFor("01234567890123456789012345678901".getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        Assertions.assertNull(kid(provider.generateAccessToken(user(), "session-1")));
+        Assertions.assertEquals("7", provider.validateToken(legacyToken).getSubject());
+        Assertions.assertEquals("{\"keys\":[]}", keySet.getJwksJson());
+    }
+
+    @Test
+    void init_shouldRejectVerifierWithSharedSecret() {
+        JwtKeySet keySet = new JwtKeySet();
+        ReflectionTestUtils.setField(keySet, "mode", "verifier");
+
+        IllegalArgumentException exception = Assertions.assertThrows(IllegalArgumentException.class, keySet::init);
+
+        Assertions.assertEquals("Режим проверки без ключа подписи доступен только для EdDSA и RS256!", exception.getMessage());
+    }
+}
@@ -0,0 +1,100 @@
+package com.bank.cardmanagement.security;
+
+import com.bank.cardmanagement.security.model.JwtAuthentication;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class VerifiedTokenCacheTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final VerifiedTokenCache tokenCache = new VerifiedTokenCache(meterRegistry);
+
+    private final JwtUtil util = new JwtUtil();
+
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    private Function<String, Claims> verifier(Instant expiration) {
+        return token -> {
+            verifications.incrementAndGet();
+            return Jwts.claims()
+                    .subject("7")
+                    .add("role", "USER")
+                    .expiration(Date.from(expiration))
+                    .build();
+        };
+    }
+
+    @Test
+    void resolve_shouldVerifyTokenOnlyOnce() {
+        Function<String, Claims> verifier = verifier(Instant.now().plusSeconds(600));
+
+        JwtAuthentication first = tokenCache.resolve("token", verifier, util::createAuthentication);
+        JwtAuthentication second = tokenCache.resolve("token", verifier, util::createAuthentication);
+
+        Assertions.assertEquals(1, verifications.get());
+        Assertions.assertEquals("7", second.getName());
+        Assertions.assertEquals(new SimpleGrantedAuthority("ROLE_USER"), second.getAuthorities().iterator().next());
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(1.0, meterRegistry.get("security.token-cache.requests").tag("result", "hit").counter().count());
+        Assertions.assertEquals(1.0, meterRegistry.get("security.token-cache.requests").tag("result", "miss").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("security.token.verify").timer().count());
+    }
+
+    @Test
+    void resolve_shouldNotCacheExpiredToken() {
+        Function<String, Claims> verifier = verifier(Instant.now().minusSeconds(1));
+
+        tokenCache.resolve("token", verifier, util::createAuthentication);
+        tokenCache.resolve("token", verifier, util::createAuthentication);
+
+        Assertions.assertEquals(2, verifications.get());
+    }
+
+    @Test
+    void resolve_shouldReturnNullForInvalidToken() {
+        JwtAuthentication authentication = tokenCache.resolve("token", token -> null, util::createAuthentication);
+
+        Assertions.assertNull(authentication);
+        Assertions.assertEquals(0.0, meterRegistry.get("security.token-cache.size").gauge().value());
+    }
+
+    @Test
+    void resolve_shouldEvictEntryWhenFullOfUnexpiredTokens() {
+        ReflectionTestUtils.setField(tokenCache, "maxSize", 1);
+        Function<String, Claims> verifier = verifier(Instant.now().plusSeconds(600));
+
+        tokenCache.resolve("first", verifier, util::createAuthentication);
+        tokenCache.resolve("second", verifier, util::createAuthentication);
+        tokenCache.resolve("second", verifier, util::createAuthentication);
+        tokenCache.resolve("first", verifier, util::createAuthentication);
+
+        Assertions.assertEquals(3, verifications.get());
+        Assertions.assertEquals(1.0, meterRegistry.get("security.token-cache.size").gauge().value());
+    }
+
+    @Test
+    void resolve_shouldRemoveExpiredEntriesBeforeEvictingLiveOnes() throws InterruptedException {
+        ReflectionTestUtils.setField(tokenCache, "maxSize", 2);
+        Function<String, Claims> live = verifier(Instant.now().plusSeconds(600));
+        tokenCache.resolve("expiring", verifier(Instant.now().plusMillis(20)), util::createAuthentication);
+        tokenCache.resolve("live", live, util::createAuthentication);
+
+        Thread.sleep(30);
+        tokenCache.resolve("new", live, util::createAuthentication);
+        tokenCache.resolve("live", live, util::createAuthentication);
+
+        Assertions.assertEquals(3, verifications.get());
+        Assertions.assertEquals(2.0, meterRegistry.get("security.token-cache.size").gauge().value());
+    }
+}